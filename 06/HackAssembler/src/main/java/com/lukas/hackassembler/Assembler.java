@@ -1,44 +1,354 @@
 package com.lukas.hackassembler;
 
+import com.lukas.hackassembler.emit.BinaryFileEmitter;
+import com.lukas.hackassembler.emit.Emitter;
 import com.lukas.hackassembler.emit.FileEmitter;
 import com.lukas.hackassembler.exception.EmitterErrorException;
 import com.lukas.hackassembler.exception.LexerErrorException;
+import com.lukas.hackassembler.exception.LinkerErrorException;
 import com.lukas.hackassembler.exception.ParserErrorException;
+import com.lukas.hackassembler.hdl.HdlCache;
 import com.lukas.hackassembler.lex.Lexer;
+import com.lukas.hackassembler.optimize.Optimizer;
+import com.lukas.hackassembler.parse.ParallelParser;
 import com.lukas.hackassembler.parse.Parser;
+import com.lukas.hackassembler.parse.StatementEncoder;
+import com.lukas.hackassembler.pipeline.AsyncEmitter;
+import com.lukas.hackassembler.pipeline.PipelinedLexer;
+import com.lukas.hackassembler.stats.Phase;
+import com.lukas.hackassembler.stats.PhaseStats;
 
 import java.io.IOException;
-import java.nio.file.Files;
+import java.nio.channels.FileChannel;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.Arrays;
 import java.util.Objects;
+import java.util.stream.Collectors;
 
 public class Assembler {
+    private static final String BATCH_OPTION = "--batch";
+    private static final String PARALLEL_OPTION = "--parallel";
+    private static final String PIPELINED_OPTION = "--pipelined";
+    private static final String DAEMON_OPTION = "--daemon";
+    private static final String CLIENT_OPTION = "--client";
+    private static final String PORT_OPTION = "--port";
+    private static final String CACHE_OPTION = "--cache";
+    private static final String STATS_OPTION = "--stats";
+    private static final String OPTIMIZE_OPTION = "--optimize";
+    private static final String LINK_OPTION = "--link";
+    private static final String BINARY_OPTION = "--binary";
+    private static final String DISASSEMBLE_OPTION = "--disassemble";
+    private static final String VERIFY_CHIPS_OPTION = "--verify-chips";
+
     public static void main(String[] args) {
-        if (args.length > 0) {
+        AssemblyCache cache = null;
+        var useCache = false;
+        var printStats = false;
+        Optimizer optimizer = null;
+        var format = OutputFormat.TEXT;
+        for (; args.length > 0 && (args[0].equals(CACHE_OPTION) || args[0].equals(STATS_OPTION)
+                || args[0].equals(OPTIMIZE_OPTION) || args[0].equals(BINARY_OPTION));
+             args = Arrays.copyOfRange(args, 1, args.length)) {
+            if (args[0].equals(BINARY_OPTION)) {
+                format = OutputFormat.BINARY;
+                continue;
+            }
+            if (args[0].equals(STATS_OPTION)) {
+                printStats = true;
+                continue;
+            }
+            if (args[0].equals(OPTIMIZE_OPTION)) {
+                optimizer = new Optimizer();
+                continue;
+            }
+            useCache = true;
             try {
-                Path inputFile = Paths.get(args[0]);
-                var input = Files.readString(inputFile);
+                cache = AssemblyCache.openDefault();
+            } catch (IOException e) {
+                System.err.println("The cache couldn't be opened, assembling without it - " + e.getMessage());
+            }
+        }
+
+        var singleFile = args.length == 0 || !(args[0].equals(BATCH_OPTION) || args[0].equals(DAEMON_OPTION)
+                || args[0].equals(CLIENT_OPTION) || args[0].equals(LINK_OPTION) || args[0].equals(DISASSEMBLE_OPTION)
+                || args[0].equals(VERIFY_CHIPS_OPTION));
+        if (printStats && !singleFile) {
+            System.err.println("The " + STATS_OPTION + " option is available only for a single input file.");
+        }
+        if (optimizer != null && !singleFile) {
+            System.err.println("The " + OPTIMIZE_OPTION + " option is available only for a single input file.");
+        }
+        if (format != OutputFormat.TEXT && !singleFile) {
+            System.err.println("The " + BINARY_OPTION + " option is available only for a single input file.");
+        }
 
-                var lexer = new Lexer(input);
-                var emitter = new FileEmitter(getFilenameWithoutExtension(args.length == 2 ? Paths.get(args[1]) : inputFile));
-                new Parser(lexer, emitter).parse();
+        if (args.length > 0 && args[0].equals(BATCH_OPTION)) {
+            System.exit(BatchAssembler.run(Arrays.copyOfRange(args, 1, args.length), System.out, cache));
+            return;
+        }
+        if (args.length > 0 && args[0].equals(DISASSEMBLE_OPTION)) {
+            System.exit(RomDisassembler.run(Arrays.copyOfRange(args, 1, args.length), System.out));
+            return;
+        }
+        if (args.length > 0 && args[0].equals(VERIFY_CHIPS_OPTION)) {
+            System.exit(ChipVerification.run(Arrays.copyOfRange(args, 1, args.length), System.out,
+                    useCache ? openHdlCache() : null));
+            return;
+        }
+        if (args.length >= 2 && args[0].equals(LINK_OPTION)) {
+            System.exit(ModuleLinker.run(getFilenameWithoutExtension(Paths.get(args[1])),
+                    Arrays.copyOfRange(args, 2, args.length), System.out));
+            return;
+        }
+        if (args.length > 0 && (args[0].equals(DAEMON_OPTION) || args[0].equals(CLIENT_OPTION))) {
+            System.exit(runResident(args[0], Arrays.copyOfRange(args, 1, args.length), cache));
+            return;
+        }
 
-            } catch (IOException e) {
-                System.err.println("The input file couldn't be read (maybe not a file, or a wrong encoding).");
-            } catch (LexerErrorException e) {
-                System.err.println("Lexer error: " + e.getMessage());
-            } catch (ParserErrorException e) {
-                System.err.println("Parser error: " + e.getMessage());
-            } catch (EmitterErrorException e) {
-                System.err.println("Couldn't write into the output file (maybe an invalid name, or need elevated privileges).\n" +
-                        "Emitter error: " + e.getMessage());
+        var mode = ParsingMode.SEQUENTIAL;
+        if (args.length > 0 && args[0].equals(PARALLEL_OPTION)) {
+            mode = ParsingMode.PARALLEL;
+        } else if (args.length > 0 && args[0].equals(PIPELINED_OPTION)) {
+            mode = ParsingMode.PIPELINED;
+        }
+        var files = mode != ParsingMode.SEQUENTIAL ? Arrays.copyOfRange(args, 1, args.length) : args;
+        if (files.length > 0) {
+            try {
+                Path inputFile = Paths.get(files[0]);
+                var outputName = getFilenameWithoutExtension(files.length == 2 ? Paths.get(files[1]) : inputFile);
+                var stats = new PhaseStats(inputFile.toString(), printStats);
+                assemble(inputFile, outputName, mode, format, cache, stats, optimizer);
+                if (optimizer != null) {
+                    System.out.println(optimizer.getReport());
+                }
+                if (printStats) {
+                    stats.print(System.out);
+                }
+            } catch (IOException | LexerErrorException | ParserErrorException | EmitterErrorException e) {
+                System.err.println(describeError(e));
             }
         } else {
-            System.err.println("You need to specify at least the input file.");
+            System.err.println("You need to specify at least the input file, optionally preceded by " + PARALLEL_OPTION
+                    + " or " + PIPELINED_OPTION + " (or " + BATCH_OPTION + " followed by the files, directories, globs or @file lists, or "
+                    + DAEMON_OPTION + " [" + PORT_OPTION + " port] followed by the watched directories, or "
+                    + CLIENT_OPTION + " [" + PORT_OPTION + " port] followed by the inputs in the directories watched by the daemon, or "
+                    + LINK_OPTION + " followed by the output file and the modules to assemble separately and link, or "
+                    + DISASSEMBLE_OPTION + " [--verify] followed by the .hack or binary ROM files, or "
+                    + VERIFY_CHIPS_OPTION + " followed by the project directory and optionally the chips of the "
+                    + "projects 01 and 02 to verify against their reference models). "
+                    + "Any of them can be preceded by " + CACHE_OPTION + " to reuse the outputs of unchanged inputs, "
+                    + "a single input file also by " + STATS_OPTION + " to print the time and allocations of each phase "
+                    + "by " + OPTIMIZE_OPTION + " to remove the redundant and unreachable instructions "
+                    + "and by " + BINARY_OPTION + " to write a binary ROM image (" + BinaryFileEmitter.OUTPUT_FILE_EXTENSION
+                    + ") instead of the text.");
         }
     }
 
+    private static int runResident(String mode, String[] args, AssemblyCache cache) {
+        var port = AssemblerDaemon.DEFAULT_PORT;
+        if (args.length >= 2 && args[0].equals(PORT_OPTION)) {
+            try {
+                port = Integer.parseInt(args[1]);
+            } catch (NumberFormatException e) {
+                System.err.println("The port has to be a number: " + args[1]);
+                return 1;
+            }
+            args = Arrays.copyOfRange(args, 2, args.length);
+        }
+
+        if (mode.equals(CLIENT_OPTION)) {
+            return DaemonClient.run(args, port, System.out);
+        }
+
+        var watchedDirs = Arrays.stream(args).map(Paths::get).collect(Collectors.toList());
+        try (var daemon = new AssemblerDaemon(watchedDirs, port, cache, System.out)) {
+            daemon.start();
+            if (daemon.join()) { // until the process is killed
+                return 0;
+            }
+            System.err.println("The daemon stopped serving the requests unexpectedly.");
+        } catch (IOException e) {
+            System.err.println("The daemon couldn't be started - " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return 1;
+    }
+
+    /**
+     * Assembles a single input file into a .hack file.
+     *
+     * @param inputFile  the assembly file
+     * @param outputName name of the output file without the extension
+     * @return number of the assembled instructions
+     * @throws IOException           if the input file couldn't be read
+     * @throws LexerErrorException   if there was problem during tokenization
+     * @throws ParserErrorException  if there was an invalid sequence of tokens
+     * @throws EmitterErrorException if the output file couldn't be written
+     */
+    static int assemble(Path inputFile, String outputName)
+            throws IOException, LexerErrorException, ParserErrorException, EmitterErrorException {
+        return assemble(inputFile, outputName, ParsingMode.SEQUENTIAL, OutputFormat.TEXT, null, PhaseStats.disabled(),
+                null);
+    }
+
+    static int assemble(Path inputFile, String outputName, boolean parallel, AssemblyCache cache)
+            throws IOException, LexerErrorException, ParserErrorException, EmitterErrorException {
+        return assemble(inputFile, outputName, parallel ? ParsingMode.PARALLEL : ParsingMode.SEQUENTIAL,
+                OutputFormat.TEXT, cache, PhaseStats.disabled(), null);
+    }
+
+    /**
+     * Assembles a single input file into a .hack file (or a binary ROM image), or copies the cached output if
+     * the input didn't change. Optionally splits the file into chunks parsed on all the cores (see
+     * {@link ParallelParser}), or lexes and writes on their own threads (see {@link PipelinedLexer} and
+     * {@link AsyncEmitter}), the output is the same either way. With an optimizer the program is parsed into
+     * statements, optimized and encoded instead, which skips the cache (its keys don't cover the optimization) and
+     * the parsing mode. The cache holds only the .hack files, so the binary images skip it too.
+     *
+     * @param inputFile  the assembly file
+     * @param outputName name of the output file without the extension
+     * @param mode       how to spread the parsing over the cores
+     * @param format     format of the output file
+     * @param cache      cache of the outputs, or null
+     * @param stats      measurement of the phases
+     * @param optimizer  optimizer of the program, or null
+     * @return number of the assembled instructions
+     * @throws IOException           if the input file couldn't be read
+     * @throws LexerErrorException   if there was problem during tokenization
+     * @throws ParserErrorException  if there was an invalid sequence of tokens
+     * @throws EmitterErrorException if the output file couldn't be written
+     */
+    static int assemble(Path inputFile, String outputName, ParsingMode mode, OutputFormat format, AssemblyCache cache,
+                        PhaseStats stats, Optimizer optimizer)
+            throws IOException, LexerErrorException, ParserErrorException, EmitterErrorException {
+        if (optimizer != null) {
+            return assembleOptimized(inputFile, outputName, format, stats, optimizer);
+        }
+        if (cache == null || format != OutputFormat.TEXT) {
+            return assembleFile(inputFile, outputName, mode, format, stats);
+        }
+
+        var key = cache.key(inputFile);
+        var outputFile = Paths.get(outputName + FileEmitter.OUTPUT_FILE_EXTENSION);
+        var instructionCount = cache.copyTo(key, outputFile);
+        if (instructionCount == -1) {
+            instructionCount = assembleFile(inputFile, outputName, mode, format, stats);
+            cache.store(key, outputFile);
+        }
+        return instructionCount;
+    }
+
+    private static int assembleFile(Path inputFile, String outputName, ParsingMode mode, OutputFormat format,
+                                    PhaseStats stats)
+            throws IOException, LexerErrorException, ParserErrorException, EmitterErrorException {
+        if (mode == ParsingMode.PIPELINED) {
+            try (var channel = FileChannel.open(inputFile)) {
+                if (channel.size() <= Lexer.MAX_WINDOW_SIZE) { // the tokens need the whole file in one mapping
+                    var phase = stats.begin(Phase.READ);
+                    var input = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                    stats.end(phase, 0, 0, 0, 0);
+
+                    var emitter = new AsyncEmitter(format.createEmitter(outputName));
+                    try (var lexer = new PipelinedLexer(input)) {
+                        var parser = new Parser(lexer, emitter);
+                        parser.setStats(stats);
+                        parser.parse();
+                        return parser.getInstructionCount();
+                    } finally { // stops the writer thread, does nothing after the emitter got closed
+                        emitter.abort();
+                    }
+                }
+            }
+        }
+        if (mode == ParsingMode.PARALLEL) {
+            try (var channel = FileChannel.open(inputFile)) {
+                if (channel.size() <= Lexer.MAX_WINDOW_SIZE) { // the chunks need the whole file in one mapping
+                    var phase = stats.begin(Phase.READ);
+                    var input = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                    stats.end(phase, 0, 0, 0, 0);
+
+                    var emitter = format.createEmitter(outputName);
+                    try {
+                        var parser = new ParallelParser(input, emitter);
+                        parser.setStats(stats);
+                        parser.parse();
+                        return parser.getInstructionCount();
+                    } finally { // does nothing after the emitter got closed
+                        emitter.abort();
+                    }
+                }
+            }
+        }
+
+        var phase = stats.begin(Phase.READ);
+        var lexer = new Lexer(inputFile); // memory-mapped
+        stats.end(phase, 0, 0, 0, 0);
+
+        var emitter = format.createEmitter(outputName);
+        try {
+            var parser = new Parser(lexer, emitter);
+            parser.setStats(stats);
+            parser.parse();
+            return parser.getInstructionCount();
+        } finally { // does nothing after the emitter got closed
+            emitter.abort();
+        }
+    }
+
+    private static int assembleOptimized(Path inputFile, String outputName, OutputFormat format, PhaseStats stats,
+                                         Optimizer optimizer)
+            throws IOException, LexerErrorException, ParserErrorException, EmitterErrorException {
+        var phase = stats.begin(Phase.READ);
+        var lexer = new Lexer(inputFile); // memory-mapped
+        stats.end(phase, 0, 0, 0, 0);
+
+        phase = stats.begin(Phase.OPTIMIZE);
+        var statements = optimizer.optimize(new Parser(lexer).parseStatements());
+        stats.end(phase, 0, optimizer.getInstructionCountAfter(), 0, 0);
+
+        phase = stats.begin(Phase.WRITE);
+        var emitter = format.createEmitter(outputName);
+        try {
+            var encoder = new StatementEncoder(statements, emitter);
+            encoder.encode();
+            stats.end(phase, 0, encoder.getInstructionCount(), 0, 0);
+            return encoder.getInstructionCount();
+        } finally { // does nothing after the emitter got closed
+            emitter.abort();
+        }
+    }
+
+    static String describeError(Exception e) {
+        if (e instanceof IOException) {
+            return "The input file couldn't be read (maybe not a file, or a wrong encoding).";
+        } else if (e instanceof LexerErrorException) {
+            return "Lexer error: " + e.getMessage();
+        } else if (e instanceof ParserErrorException) {
+            return "Parser error: " + e.getMessage();
+        } else if (e instanceof LinkerErrorException) {
+            return "Linker error: " + e.getMessage();
+        } else if (e instanceof EmitterErrorException) {
+            return "Couldn't write into the output file (maybe an invalid name, or need elevated privileges).\n" +
+                    "Emitter error: " + e.getMessage();
+        }
+        return "Unexpected error: " + e;
+    }
+
+    private static HdlCache openHdlCache() {
+        try {
+            return HdlCache.openDefault();
+        } catch (IOException e) {
+            System.err.println("The HDL cache couldn't be opened, elaborating without it - " + e.getMessage());
+            return null;
+        }
+    }
+
+    static String getOutputNameNextTo(Path inputFile) {
+        return inputFile.resolveSibling(getFilenameWithoutExtension(inputFile)).toString();
+    }
+
     private static String getFilenameWithoutExtension(Path filePath) {
         String filename = Objects.requireNonNull(filePath, "The file path can't be null.").getFileName().toString();
 
@@ -50,4 +360,37 @@ public class Assembler {
 
         return filename.substring(0, extStart);
     }
+
+    /**
+     * How the parsing of a single file is spread over the cores.
+     */
+    enum ParsingMode {
+        SEQUENTIAL,
+        /**
+         * The chunks of the file are parsed in parallel.
+         */
+        PARALLEL,
+        /**
+         * The lexing, the parsing and the writing are pipelined on their own threads.
+         */
+        PIPELINED
+    }
+
+    /**
+     * Format of the output file.
+     */
+    enum OutputFormat {
+        /**
+         * The .hack file, a word per line in its binary text form.
+         */
+        TEXT,
+        /**
+         * The binary ROM image, 2 bytes per word.
+         */
+        BINARY;
+
+        Emitter createEmitter(String outputName) {
+            return this == BINARY ? new BinaryFileEmitter(outputName) : new FileEmitter(outputName);
+        }
+    }
 }
@@ -0,0 +1,349 @@
+package com.lukas.hackassembler;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * A resident assembler, which keeps the JVM (and its JIT-compiled lexer and parser) warm between the assemblies.
+ * <p>
+ * It watches directories (recursively) and re-assembles every .asm file which gets created or modified, writing
+ * the .hack file next to it. It also serves the requests of the {@link DaemonClient} on a local socket - a request is
+ * the token of the daemon followed by a list of inputs (as for {@link BatchAssembler}, except the @file lists)
+ * terminated by an empty line, the response is the batch output followed by the request latency and the exit status
+ * line.
+ * <p>
+ * The socket is reachable by any local user, so only the requests with the token are served - a random one of each
+ * daemon, in a file readable only by its owner (in the directory given by the {@value #DIR_PROPERTY} system
+ * property, by default ~/.hackassembler). Only the files in the watched directories are assembled on a request.
+ */
+public class AssemblerDaemon implements Closeable {
+    public static final int DEFAULT_PORT = 7770;
+    public static final String DIR_PROPERTY = "hackassembler.daemon.dir";
+    static final String EXIT_STATUS_PREFIX = "EXIT ";
+
+    private static final String INPUT_FILE_EXTENSION = ".asm";
+    private static final String FILE_LIST_PREFIX = "@";
+    private static final long DEBOUNCE_MILLIS = 20; // an editor usually writes a file in more steps
+    private static final int REQUEST_TIMEOUT_MILLIS = 10_000; // a stalled client doesn't block the others for long
+    private static final int TOKEN_BYTES = 32;
+    private static final int MAX_INPUTS = 10_000; // of a request
+    private static final int MAX_LINE_LENGTH = 4096; // characters
+
+    private final List<Path> watchedDirs;
+    private final List<Path> realWatchedDirs; // with the links resolved, for the checks of the requested inputs
+    private final AssemblyCache cache;
+    private final PrintStream log;
+    private final ServerSocket serverSocket;
+    private final WatchService watchService;
+    private final byte[] token; // in hex, as in the file and the requests
+    private final Path tokenFile;
+
+    private Thread serverThread;
+    private Thread watchThread;
+    private volatile boolean closed;
+
+    /**
+     * Binds the socket (only on the loopback interface) and writes the token file into the default directory, nothing
+     * is served or watched until {@link #start()}.
+     *
+     * @param watchedDirs directories to be watched, including their subdirectories
+     * @param port        port of the socket, 0 for any free one
+     * @param cache       cache of the outputs, or null
+     * @param log         stream for the results of the assemblies and the requests
+     * @throws IOException if the socket couldn't be bound, the token file written or the watch service created
+     */
+    public AssemblerDaemon(List<Path> watchedDirs, int port, AssemblyCache cache, PrintStream log) throws IOException {
+        this(watchedDirs, port, getDefaultDir(), cache, log);
+    }
+
+    AssemblerDaemon(List<Path> watchedDirs, int port, Path tokenDir, AssemblyCache cache, PrintStream log)
+            throws IOException {
+        this.watchedDirs = watchedDirs;
+        this.cache = cache;
+        this.log = log;
+        realWatchedDirs = new ArrayList<>();
+        for (var dir : watchedDirs) {
+            realWatchedDirs.add(dir.toRealPath());
+        }
+
+        var randomBytes = new byte[TOKEN_BYTES];
+        new SecureRandom().nextBytes(randomBytes);
+        token = toHex(randomBytes).getBytes(StandardCharsets.US_ASCII);
+        serverSocket = new ServerSocket(port, 0, InetAddress.getLoopbackAddress());
+        tokenFile = getTokenFile(tokenDir, getPort());
+        try {
+            writeToken(tokenDir);
+            watchService = watchedDirs.isEmpty() ? null : watchedDirs.get(0).getFileSystem().newWatchService();
+        } catch (IOException e) {
+            close();
+            throw e;
+        }
+    }
+
+    /**
+     * @return the directory of the token files given by the {@value #DIR_PROPERTY} system property
+     */
+    static Path getDefaultDir() {
+        var defaultDir = Paths.get(System.getProperty("user.home"), ".hackassembler").toString();
+        return Paths.get(System.getProperty(DIR_PROPERTY, defaultDir));
+    }
+
+    /**
+     * @param dir  directory of the token files
+     * @param port port of the daemon
+     * @return the file with the token of the daemon listening on the port
+     */
+    static Path getTokenFile(Path dir, int port) {
+        return dir.resolve("daemon-" + port + ".token");
+    }
+
+    /**
+     * Assembles all the .asm files in the watched directories (bringing their outputs up to date and warming up
+     * the JIT), and starts the watching and the serving of the requests in the background.
+     *
+     * @throws IOException if a directory couldn't be registered for watching
+     */
+    public void start() throws IOException {
+        var inputFiles = new LinkedHashSet<Path>();
+        for (var dir : watchedDirs) {
+            registerAll(dir);
+            inputFiles.addAll(BatchAssembler.resolveInput(dir.toString()));
+        }
+        for (var result : BatchAssembler.assembleAll(inputFiles, cache)) {
+            log.println(result);
+        }
+
+        if (watchService != null) {
+            watchThread = startThread(this::watch, "assembler-watch");
+        }
+        serverThread = startThread(this::serve, "assembler-server");
+        log.println("Listening on port " + getPort() + ", watching " + watchedDirs.size() + " directories.");
+    }
+
+    /**
+     * @return the port the daemon listens on
+     */
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * Waits until the daemon is closed, or until the serving of the requests ends abnormally (e.g. by an error).
+     *
+     * @return true if the daemon was closed, false if the serving ended abnormally
+     * @throws InterruptedException if the waiting was interrupted
+     */
+    public boolean join() throws InterruptedException {
+        serverThread.join();
+        return closed;
+    }
+
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        serverSocket.close();
+        Files.deleteIfExists(tokenFile);
+        if (watchService != null) {
+            watchService.close();
+        }
+    }
+
+    private void writeToken(Path dir) throws IOException {
+        var posix = dir.getFileSystem().supportedFileAttributeViews().contains("posix");
+        if (posix && !Files.isDirectory(dir)) {
+            var ownerOnly = PosixFilePermissions.fromString("rwx------");
+            Files.createDirectories(dir, PosixFilePermissions.asFileAttribute(ownerOnly));
+        } else {
+            Files.createDirectories(dir);
+        }
+
+        var tempFile = Files.createTempFile(dir, tokenFile.getFileName().toString(), ".tmp"); // only for the owner
+        try {
+            if (posix) { // in case the default of the file system is different
+                Files.setPosixFilePermissions(tempFile, PosixFilePermissions.fromString("rw-------"));
+            }
+            Files.write(tempFile, token);
+            Files.move(tempFile, tokenFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+    private void serve() {
+        while (!serverSocket.isClosed()) {
+            try (var socket = serverSocket.accept()) {
+                handleRequest(socket);
+            } catch (IOException | RuntimeException e) { // one bad request doesn't stop the serving of the others
+                if (!serverSocket.isClosed()) {
+                    log.println("The request failed - " + e);
+                }
+            }
+        }
+    }
+
+    private void handleRequest(Socket socket) throws IOException {
+        var start = System.nanoTime();
+        socket.setSoTimeout(REQUEST_TIMEOUT_MILLIS);
+
+        var reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+        var out = new PrintStream(socket.getOutputStream(), false, StandardCharsets.UTF_8);
+        var inputs = new ArrayList<String>();
+        try { // nothing more than the token is read from an unauthorized client
+            var requestToken = readLine(reader);
+            if (requestToken == null || !MessageDigest.isEqual(token, requestToken.getBytes(StandardCharsets.US_ASCII))) {
+                reject(out, "The request doesn't have the token of the daemon.");
+                return;
+            }
+
+            for (var line = readLine(reader); line != null && !line.isEmpty(); line = readLine(reader)) {
+                if (inputs.size() == MAX_INPUTS) {
+                    reject(out, "The request has more than " + MAX_INPUTS + " inputs.");
+                    return;
+                }
+                inputs.add(line);
+            }
+        } catch (IOException e) {
+            reject(out, "The request couldn't be read - " + e.getMessage());
+            return;
+        }
+        if (inputs.stream().anyMatch(input -> input.startsWith(FILE_LIST_PREFIX))) {
+            reject(out, "The @file lists aren't accepted by the daemon, the client has to send their inputs.");
+            return;
+        }
+
+        var status = BatchAssembler.run(inputs.toArray(new String[0]), out, cache, this::isWatched);
+        var elapsedMillis = (System.nanoTime() - start) / 1e6;
+        out.printf("Request handled in %.1f ms.%n", elapsedMillis);
+        out.println(EXIT_STATUS_PREFIX + status);
+        out.flush();
+
+        log.printf("Request of %d inputs handled in %.1f ms (exit status %d).%n", inputs.size(), elapsedMillis, status);
+    }
+
+    /**
+     * Reads a line like {@link BufferedReader#readLine()}, but at most {@value #MAX_LINE_LENGTH} characters long.
+     *
+     * @throws IOException if the line is longer, or it couldn't be read (e.g. in time)
+     */
+    private static String readLine(BufferedReader reader) throws IOException {
+        var line = new StringBuilder();
+        for (var c = reader.read(); c != '\n'; c = reader.read()) {
+            if (c == -1) {
+                return line.length() == 0 ? null : line.toString();
+            }
+            if (line.length() == MAX_LINE_LENGTH) {
+                throw new IOException("A line is longer than " + MAX_LINE_LENGTH + " characters.");
+            }
+            line.append((char) c);
+        }
+        if (line.length() > 0 && line.charAt(line.length() - 1) == '\r') {
+            line.setLength(line.length() - 1);
+        }
+        return line.toString();
+    }
+
+    private void reject(PrintStream out, String reason) {
+        out.println(reason);
+        out.println(EXIT_STATUS_PREFIX + 1);
+        out.flush();
+        log.println("Rejected a request - " + reason);
+    }
+
+    private boolean isWatched(Path inputFile) {
+        try {
+            var realFile = Files.exists(inputFile) ? inputFile.toRealPath() : inputFile.toAbsolutePath().normalize();
+            return realWatchedDirs.stream().anyMatch(realFile::startsWith);
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private void watch() {
+        try {
+            while (true) {
+                var changedFiles = new LinkedHashSet<Path>();
+                var key = watchService.take();
+                do { // the events of one save are merged
+                    collectChanges(key, changedFiles);
+                    key = watchService.poll(DEBOUNCE_MILLIS, TimeUnit.MILLISECONDS);
+                } while (key != null);
+
+                for (var changedFile : changedFiles) {
+                    log.println(BatchAssembler.assemble(changedFile, cache));
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // the daemon was closed
+        }
+    }
+
+    private void collectChanges(WatchKey key, Set<Path> changedFiles) {
+        var dir = (Path) key.watchable();
+        for (var event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                continue;
+            }
+
+            var path = dir.resolve((Path) event.context());
+            if (Files.isDirectory(path)) {
+                if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE) {
+                    try {
+                        registerAll(path);
+                    } catch (IOException e) {
+                        log.println("The directory " + path + " couldn't be watched - " + e.getMessage());
+                    }
+                }
+            } else if (path.getFileName().toString().endsWith(INPUT_FILE_EXTENSION) && Files.isRegularFile(path)) {
+                changedFiles.add(path);
+            }
+        }
+        key.reset();
+    }
+
+    private void registerAll(Path dir) throws IOException {
+        try (Stream<Path> dirs = Files.walk(dir)) {
+            for (var subdir : (Iterable<Path>) dirs.filter(Files::isDirectory)::iterator) {
+                subdir.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+            }
+        }
+    }
+
+    private static String toHex(byte[] bytes) {
+        var hex = new StringBuilder(bytes.length * 2);
+        for (var aByte : bytes) {
+            hex.append(Character.forDigit(aByte >> 4 & 0xF, 16)).append(Character.forDigit(aByte & 0xF, 16));
+        }
+        return hex.toString();
+    }
+
+    private static Thread startThread(Runnable runnable, String name) {
+        var thread = new Thread(runnable, name);
+        thread.setDaemon(true);
+        thread.start();
+        return thread;
+    }
+}
@@ -0,0 +1,271 @@
+package com.lukas.hackassembler;
+
+import com.lukas.hackassembler.lex.Lexer;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * An on-disk cache of the assembled outputs, addressed by the SHA-256 hash of the input bytes and the assembler
+ * version. On a hit the cached .hack file is copied to the output instead of assembling the input.
+ * <p>
+ * The entries are evicted in the least recently used order (by their modification time, which is updated on each hit)
+ * once their total size exceeds the limit. The total is counted as the entries are stored, the directory is scanned
+ * only when it exceeds the limit (or after {@value #SCAN_INTERVAL} stores, for the entries of the other processes).
+ * The cache can be shared by more threads and processes - the entries are written into temporary files first and
+ * moved into place atomically.
+ */
+public class AssemblyCache {
+    /**
+     * Part of the keys, to be changed whenever the output of the same input changes.
+     */
+    private static final String CACHE_VERSION = "1";
+    private static final String ENTRY_EXTENSION = ".hack";
+    private static final String TEMP_EXTENSION = ".tmp";
+    private static final int SCAN_INTERVAL = 1000; // stores
+
+    public static final String DIR_PROPERTY = "hackassembler.cache.dir";
+    public static final String MAX_SIZE_PROPERTY = "hackassembler.cache.maxSize";
+    public static final long DEFAULT_MAX_SIZE = 64L * 1024 * 1024;
+
+    // the entries are written by the FileEmitter of this platform, so all of their lines have the same length
+    private static final int LINE_LENGTH = 16 + System.lineSeparator().length();
+
+    private final Path dir;
+    private final long maxSize;
+    private final String version;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    private long totalSize; // of the entries, as of the last scan and the stores since it
+    private int storesSinceScan;
+
+    /**
+     * @param dir     directory of the cache entries, created if it doesn't exist
+     * @param maxSize maximum total size of the entries in bytes
+     * @throws IOException if the directory couldn't be created
+     */
+    public AssemblyCache(Path dir, long maxSize) throws IOException {
+        this(dir, maxSize, getAssemblerVersion());
+    }
+
+    AssemblyCache(Path dir, long maxSize, String assemblerVersion) throws IOException {
+        this.dir = Files.createDirectories(dir);
+        this.maxSize = maxSize;
+        version = CACHE_VERSION + "/" + assemblerVersion;
+        evict(); // also counts the total size
+    }
+
+    /**
+     * Gets the version of the assembler from the manifest of its jar. The snapshots (and the classes without a jar)
+     * keep the same version across the builds, so their version also has the time of the build - the last
+     * modification of the jar or the classes.
+     *
+     * @return the version of the assembler
+     */
+    static String getAssemblerVersion() {
+        var version = Assembler.class.getPackage().getImplementationVersion();
+        if (version != null && !version.endsWith("-SNAPSHOT")) {
+            return version;
+        }
+
+        version = version == null ? "dev" : version;
+        try {
+            var location = Paths.get(Assembler.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+            var lastModified = Files.getLastModifiedTime(location).toMillis();
+            if (Files.isDirectory(location)) {
+                try (Stream<Path> files = Files.walk(location)) {
+                    for (var file : (Iterable<Path>) files::iterator) {
+                        lastModified = Math.max(lastModified, Files.getLastModifiedTime(file).toMillis());
+                    }
+                }
+            }
+            return version + "+" + lastModified;
+        } catch (Exception e) { // no code source (eg. a custom class loader), only the version
+            return version;
+        }
+    }
+
+    /**
+     * Opens the cache in the directory given by the {@value #DIR_PROPERTY} system property (by default
+     * ~/.cache/hackassembler), limited to {@value #MAX_SIZE_PROPERTY} bytes (by default 64 MB).
+     *
+     * @return the cache
+     * @throws IOException if the directory couldn't be created
+     */
+    public static AssemblyCache openDefault() throws IOException {
+        var defaultDir = Paths.get(System.getProperty("user.home"), ".cache", "hackassembler").toString();
+        var dir = Paths.get(System.getProperty(DIR_PROPERTY, defaultDir));
+        return new AssemblyCache(dir, Long.getLong(MAX_SIZE_PROPERTY, DEFAULT_MAX_SIZE));
+    }
+
+    /**
+     * Computes the key of an input file.
+     *
+     * @param inputFile the assembly file
+     * @return hex digest of the assembler version and the file content
+     * @throws IOException if the file couldn't be read
+     */
+    public String key(Path inputFile) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) { // every JVM has to support it
+            throw new IllegalStateException(e);
+        }
+
+        digest.update(version.getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+        try (var channel = FileChannel.open(inputFile)) {
+            var size = channel.size();
+            for (long offset = 0; offset < size; offset += Lexer.MAX_WINDOW_SIZE) {
+                digest.update(channel.map(FileChannel.MapMode.READ_ONLY, offset, Math.min(Lexer.MAX_WINDOW_SIZE, size - offset)));
+            }
+        }
+
+        var hex = new StringBuilder();
+        for (var aByte : digest.digest()) {
+            hex.append(Character.forDigit(aByte >> 4 & 0xF, 16)).append(Character.forDigit(aByte & 0xF, 16));
+        }
+        return hex.toString();
+    }
+
+    /**
+     * Copies the cached output into the output file, if there's one.
+     *
+     * @param key        key of the input
+     * @param outputFile the .hack file to be written
+     * @return number of the instructions of the cached output, or -1 if it's not cached
+     * @throws IOException if the output file couldn't be written
+     */
+    public int copyTo(String key, Path outputFile) throws IOException {
+        var entry = entryFile(key);
+        try {
+            Files.setLastModifiedTime(entry, FileTime.fromMillis(System.currentTimeMillis())); // most recently used
+        } catch (NoSuchFileException e) {
+            misses.incrementAndGet();
+            return -1;
+        }
+
+        Files.copy(entry, outputFile, StandardCopyOption.REPLACE_EXISTING);
+        hits.incrementAndGet();
+        return (int) (Files.size(outputFile) / LINE_LENGTH);
+    }
+
+    /**
+     * Stores an assembled output and evicts the least recently used entries if the cache got too big.
+     *
+     * @param key        key of the input
+     * @param outputFile the assembled .hack file
+     * @throws IOException if the entry couldn't be written
+     */
+    public void store(String key, Path outputFile) throws IOException {
+        var tempFile = Files.createTempFile(dir, key, TEMP_EXTENSION);
+        long size;
+        try {
+            Files.copy(outputFile, tempFile, StandardCopyOption.REPLACE_EXISTING);
+            size = Files.size(tempFile);
+            Files.move(tempFile, entryFile(key), StandardCopyOption.ATOMIC_MOVE);
+        } catch (FileAlreadyExistsException e) { // stored by another process meanwhile
+            Files.deleteIfExists(tempFile);
+            return;
+        } catch (IOException e) {
+            Files.deleteIfExists(tempFile);
+            throw e;
+        }
+
+        synchronized (this) {
+            totalSize += size;
+            if (totalSize > maxSize || ++storesSinceScan >= SCAN_INTERVAL) {
+                evict();
+            }
+        }
+    }
+
+    /**
+     * @return the hit and miss statistics since the cache was opened
+     */
+    public String getStatistics() {
+        return String.format("Cache: %d hits, %d misses, %d evictions.", hits.get(), misses.get(), evictions.get());
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    /**
+     * Scans the entries and evicts the least recently used ones over the limit.
+     */
+    private synchronized void evict() throws IOException {
+        storesSinceScan = 0;
+        var entries = new ArrayList<Entry>();
+        totalSize = 0;
+        try (Stream<Path> files = Files.list(dir)) {
+            for (var file : (Iterable<Path>) files::iterator) {
+                if (file.getFileName().toString().endsWith(ENTRY_EXTENSION)) {
+                    try {
+                        var entry = new Entry(file, Files.size(file), Files.getLastModifiedTime(file));
+                        entries.add(entry);
+                        totalSize += entry.size;
+                    } catch (NoSuchFileException e) {
+                        // evicted by another process meanwhile
+                    }
+                }
+            }
+        }
+        if (totalSize <= maxSize) {
+            return;
+        }
+
+        entries.sort(Comparator.comparing(entry -> entry.lastUse));
+        for (var entry : entries) {
+            if (totalSize <= maxSize) {
+                break;
+            }
+            if (Files.deleteIfExists(entry.file)) {
+                evictions.incrementAndGet();
+            }
+            totalSize -= entry.size;
+        }
+    }
+
+    private Path entryFile(String key) {
+        return dir.resolve(key + ENTRY_EXTENSION);
+    }
+
+    private static final class Entry {
+        private final Path file;
+        private final long size;
+        private final FileTime lastUse;
+
+        private Entry(Path file, long size, FileTime lastUse) {
+            this.file = file;
+            this.size = size;
+            this.lastUse = lastUse;
+        }
+    }
+}
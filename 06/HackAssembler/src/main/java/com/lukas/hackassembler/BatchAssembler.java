@@ -0,0 +1,225 @@
+package com.lukas.hackassembler;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Assembles many files in one JVM, each of them independently on a work-stealing pool sized to the available cores.
+ * The inputs can be files, directories (searched recursively for .asm files), globs (eg. "06/*&#47;*.asm") or
+ * files with a list of the inputs prefixed with '@' (one input per line). Each .hack file is written next to its
+ * input. An error in one file doesn't stop the others.
+ */
+public class BatchAssembler {
+    private static final String INPUT_FILE_EXTENSION = ".asm";
+    private static final String FILE_LIST_PREFIX = "@";
+    private static final String GLOB_CHARS = "*?[{";
+
+    private BatchAssembler() {
+    }
+
+    /**
+     * Assembles all the inputs and prints a result line for each file, followed by the summary.
+     *
+     * @param inputs files, directories, globs or @file lists
+     * @return the exit status - 0 if all the files were assembled, 1 otherwise
+     */
+    public static int run(String[] inputs) {
+        return run(inputs, System.out, null);
+    }
+
+    /**
+     * Assembles all the inputs (reusing the cached outputs of the unchanged ones) and prints a result line for each
+     * file, followed by the summary and the cache statistics.
+     *
+     * @param inputs files, directories, globs or @file lists
+     * @param out    stream for the results
+     * @param cache  cache of the outputs, or null
+     * @return the exit status - 0 if all the files were assembled, 1 otherwise
+     */
+    static int run(String[] inputs, PrintStream out, AssemblyCache cache) {
+        return run(inputs, out, cache, inputFile -> true);
+    }
+
+    /**
+     * Assembles the inputs like {@link #run(String[], PrintStream, AssemblyCache)}, except the files not accepted
+     * by the filter, which are reported as failed without being read.
+     *
+     * @param inputs   files, directories, globs or @file lists
+     * @param out      stream for the results
+     * @param cache    cache of the outputs, or null
+     * @param accepted filter of the input files which can be assembled
+     * @return the exit status - 0 if all the files were assembled, 1 otherwise
+     */
+    static int run(String[] inputs, PrintStream out, AssemblyCache cache, Predicate<Path> accepted) {
+        var inputFiles = new LinkedHashSet<Path>();
+        var results = new ArrayList<Result>();
+        for (var input : inputs) {
+            try {
+                for (var inputFile : resolveInput(input)) {
+                    if (accepted.test(inputFile)) {
+                        inputFiles.add(inputFile);
+                    } else {
+                        results.add(Result.failed(inputFile, "Outside the directories the inputs are accepted from."));
+                    }
+                }
+            } catch (IOException | RuntimeException e) { // e.g. an invalid glob or path, the other inputs still go on
+                results.add(Result.failed(input, "The input couldn't be resolved - " + e));
+            }
+        }
+
+        if (inputFiles.isEmpty() && results.isEmpty()) {
+            out.println("No input files found.");
+            return 1;
+        }
+
+        results.addAll(assembleAll(inputFiles, cache));
+
+        var failedCount = 0;
+        for (var result : results) {
+            out.println(result);
+            if (!result.isSuccessful()) {
+                failedCount++;
+            }
+        }
+        out.printf("Assembled %d of %d files (%d failed).%n", results.size() - failedCount, results.size(), failedCount);
+        if (cache != null) {
+            out.println(cache.getStatistics());
+        }
+
+        return failedCount == 0 ? 0 : 1;
+    }
+
+    static List<Result> assembleAll(Set<Path> inputFiles, AssemblyCache cache) {
+        ExecutorService pool = Executors.newWorkStealingPool();
+        try {
+            var futures = new ArrayList<Future<Result>>();
+            for (var inputFile : inputFiles) {
+                futures.add(pool.submit(() -> assemble(inputFile, cache)));
+            }
+
+            var results = new ArrayList<Result>();
+            for (var future : futures) {
+                results.add(future.get());
+            }
+            return results;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("The batch assembly was interrupted.", e);
+        } catch (ExecutionException e) { // the results capture all the errors already
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    static Result assemble(Path inputFile, AssemblyCache cache) {
+        var start = System.nanoTime();
+        try {
+            var outputName = Assembler.getOutputNameNextTo(inputFile);
+            var instructionCount = Assembler.assemble(inputFile, outputName, false, cache);
+            return Result.successful(inputFile, instructionCount, System.nanoTime() - start);
+        } catch (Exception e) { // including the unexpected runtime ones, so the other files still get assembled
+            return Result.failed(inputFile, Assembler.describeError(e));
+        }
+    }
+
+    static List<Path> resolveInput(String input) throws IOException {
+        if (input.startsWith(FILE_LIST_PREFIX)) {
+            var inputFiles = new ArrayList<Path>();
+            for (var line : Files.readAllLines(Paths.get(input.substring(FILE_LIST_PREFIX.length())))) {
+                if (!line.isBlank()) {
+                    inputFiles.addAll(resolveInput(line.strip()));
+                }
+            }
+            return inputFiles;
+        }
+
+        var globStart = indexOfGlobChar(input);
+        if (globStart != -1) {
+            var matcher = FileSystems.getDefault().getPathMatcher("glob:" + input);
+            var separator = input.lastIndexOf('/', globStart);
+            var baseDir = separator == -1 ? Paths.get("") : Paths.get(input.substring(0, separator + 1));
+            return walk(baseDir, matcher::matches);
+        }
+
+        var path = Paths.get(input);
+        if (Files.isDirectory(path)) {
+            return walk(path, file -> file.getFileName().toString().endsWith(INPUT_FILE_EXTENSION));
+        }
+        return List.of(path); // a missing file is reported as a failed result
+    }
+
+    private static List<Path> walk(Path dir, Predicate<Path> filter) throws IOException {
+        try (Stream<Path> paths = Files.walk(dir)) {
+            return paths.filter(Files::isRegularFile)
+                    .filter(filter)
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+
+    private static int indexOfGlobChar(String input) {
+        for (int i = 0; i < input.length(); i++) {
+            if (GLOB_CHARS.indexOf(input.charAt(i)) != -1) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * The result of assembling one file of the batch.
+     */
+    static final class Result {
+        private final String input; // the file, or the input which couldn't be resolved into files
+        private final String error;
+        private final int instructionCount;
+        private final long elapsedNanos;
+
+        private Result(String input, String error, int instructionCount, long elapsedNanos) {
+            this.input = input;
+            this.error = error;
+            this.instructionCount = instructionCount;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        static Result successful(Path inputFile, int instructionCount, long elapsedNanos) {
+            return new Result(inputFile.toString(), null, instructionCount, elapsedNanos);
+        }
+
+        static Result failed(Path inputFile, String error) {
+            return failed(inputFile.toString(), error);
+        }
+
+        static Result failed(String input, String error) {
+            return new Result(input, error, 0, 0);
+        }
+
+        boolean isSuccessful() {
+            return error == null;
+        }
+
+        @Override
+        public String toString() {
+            if (isSuccessful()) {
+                return String.format("OK     %s (%d instructions, %.1f ms)", input, instructionCount, elapsedNanos / 1e6);
+            }
+            return String.format("FAILED %s: %s", input, error.replace('\n', ' '));
+        }
+    }
+}
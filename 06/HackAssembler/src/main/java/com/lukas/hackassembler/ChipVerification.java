@@ -0,0 +1,77 @@
+package com.lukas.hackassembler;
+
+import com.lukas.hackassembler.exception.HdlErrorException;
+import com.lukas.hackassembler.hdl.ChipLibrary;
+import com.lukas.hackassembler.hdl.ChipVerifier;
+import com.lukas.hackassembler.hdl.Elaborator;
+import com.lukas.hackassembler.hdl.HdlCache;
+import com.lukas.hackassembler.hdl.ReferenceModel;
+
+import java.io.PrintStream;
+import java.nio.file.Paths;
+import java.util.Arrays;
+
+/**
+ * Verifies the combinational chips of the projects 01 and 02 (see {@link ReferenceModel}) by their HDL files
+ * against the reference models, and reports the throughput of each verification in vectors per second.
+ */
+public class ChipVerification {
+    private static final long SEED = 0x5eed;
+
+    private ChipVerification() {
+    }
+
+    static int run(String[] args, PrintStream out) {
+        return run(args, out, null);
+    }
+
+    /**
+     * Verifies the chips and prints a result line for each one, followed by the summary.
+     *
+     * @param args  the root directory of the project (with the {@link ChipLibrary#PROJECT_DIRS}), optionally followed
+     *              by the names of the chips to verify (all of them by default)
+     * @param out   stream for the results
+     * @param cache cache of the parsed chips and of the netlists, or null to elaborate all the chips
+     * @return the exit status - 0 if all the chips behave as their models, 1 otherwise
+     */
+    static int run(String[] args, PrintStream out, HdlCache cache) {
+        if (args.length == 0) {
+            out.println("No project directory given.");
+            return 1;
+        }
+        var library = ChipLibrary.ofProject(Paths.get(args[0]), cache);
+        var elaborator = new Elaborator(library);
+        var chips = args.length > 1 ? Arrays.asList(args).subList(1, args.length) : ReferenceModel.getChips();
+
+        var failedCount = 0;
+        var vectorCount = 0L;
+        var nanos = 0L;
+        for (var chip : chips) {
+            String error;
+            try {
+                var model = ReferenceModel.of(chip);
+                var netlist = cache != null ? cache.elaborate(library, chip, Elaborator.Mode.GATE_LEVEL)
+                        : elaborator.elaborate(chip);
+                var result = new ChipVerifier(netlist, model).verify(SEED);
+                vectorCount += result.getVectorCount();
+                nanos += result.getNanos();
+                error = result.getMismatch();
+                if (error == null) {
+                    out.println("OK     " + result);
+                }
+            } catch (HdlErrorException e) {
+                error = e.getMessage();
+            }
+            if (error != null) {
+                out.printf("FAILED %s: %s%n", chip, error);
+                failedCount++;
+            }
+        }
+        out.printf("Verified %d of %d chips (%d failed), %d vectors at %.3g vectors/s.%n", chips.size() - failedCount,
+                chips.size(), failedCount, vectorCount, vectorCount / (Math.max(nanos, 1) / 1e9));
+        if (cache != null) {
+            out.println(cache.getStatistics());
+        }
+        return failedCount == 0 ? 0 : 1;
+    }
+}
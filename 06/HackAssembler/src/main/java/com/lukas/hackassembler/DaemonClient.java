@@ -0,0 +1,100 @@
+package com.lukas.hackassembler;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A thin client of the {@link AssemblerDaemon} - it only sends the inputs and prints the response, so it doesn't need
+ * anything but the JVM startup. The request is authorized by the token from the file of the daemon, which only its
+ * owner can read. The @file lists are read by the client, the daemon gets only the inputs listed in them.
+ */
+public class DaemonClient {
+    private static final String FILE_LIST_PREFIX = "@";
+
+    private DaemonClient() {
+    }
+
+    /**
+     * Sends the inputs to the daemon and prints its response.
+     *
+     * @param inputs files, directories, globs or @file lists, relative to the working directory of the client
+     * @param port   port the daemon listens on
+     * @param out    stream for the response
+     * @return the exit status of the request - 0 if all the files were assembled, 1 otherwise
+     */
+    public static int run(String[] inputs, int port, PrintStream out) {
+        return run(inputs, port, AssemblerDaemon.getDefaultDir(), out);
+    }
+
+    static int run(String[] inputs, int port, Path tokenDir, PrintStream out) {
+        String token;
+        try {
+            token = Files.readString(AssemblerDaemon.getTokenFile(tokenDir, port)).strip();
+        } catch (NoSuchFileException e) {
+            out.println("The daemon isn't running on port " + port + " (no token file " + e.getFile() + ").");
+            return 1;
+        } catch (IOException e) {
+            out.println("The token of the daemon couldn't be read - " + e.getMessage());
+            return 1;
+        }
+
+        var absoluteInputs = new ArrayList<String>();
+        try {
+            for (var input : inputs) {
+                addAbsolute(input, absoluteInputs);
+            }
+        } catch (IOException e) {
+            out.println("The file list couldn't be read - " + e);
+            return 1;
+        }
+
+        try (var socket = new Socket(InetAddress.getLoopbackAddress(), port)) {
+            var writer = new PrintStream(socket.getOutputStream(), false, StandardCharsets.UTF_8);
+            writer.println(token);
+            for (var input : absoluteInputs) {
+                writer.println(input);
+            }
+            writer.println();
+            writer.flush();
+
+            var reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+            for (var line = reader.readLine(); line != null; line = reader.readLine()) {
+                if (line.startsWith(AssemblerDaemon.EXIT_STATUS_PREFIX)) {
+                    return Integer.parseInt(line.substring(AssemblerDaemon.EXIT_STATUS_PREFIX.length()));
+                }
+                out.println(line);
+            }
+            out.println("The daemon closed the connection without the result.");
+        } catch (IOException e) {
+            out.println("The daemon isn't reachable on port " + port + " - " + e.getMessage());
+        }
+        return 1;
+    }
+
+    /**
+     * Adds the input as absolute (the daemon can have a different working directory), or the inputs of a file list.
+     */
+    private static void addAbsolute(String input, List<String> absoluteInputs) throws IOException {
+        if (input.startsWith(FILE_LIST_PREFIX)) {
+            for (var line : Files.readAllLines(Paths.get(input.substring(FILE_LIST_PREFIX.length())))) {
+                if (!line.isBlank()) {
+                    addAbsolute(line.strip(), absoluteInputs);
+                }
+            }
+            return;
+        }
+        absoluteInputs.add(new File(input).getAbsolutePath()); // without parsing it as a path, it can be a glob
+    }
+}
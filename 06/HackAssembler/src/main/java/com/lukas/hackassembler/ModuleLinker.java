@@ -0,0 +1,107 @@
+package com.lukas.hackassembler;
+
+import com.lukas.hackassembler.emit.FileEmitter;
+import com.lukas.hackassembler.exception.LexerErrorException;
+import com.lukas.hackassembler.exception.ParserErrorException;
+import com.lukas.hackassembler.lex.Lexer;
+import com.lukas.hackassembler.link.Linker;
+import com.lukas.hackassembler.link.ObjectModule;
+import com.lukas.hackassembler.parse.InstructionAssembler;
+import com.lukas.hackassembler.parse.Parser;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+
+/**
+ * Assembles each module of a program separately into a relocatable object (a .hobj file next to its .asm file) and
+ * links the objects into one .hack file. The object of a module is reused as long as it's newer than its source,
+ * so only the changed modules are assembled again. The inputs can also be the object files themselves.
+ */
+public class ModuleLinker {
+    private static final String OBJECT_FILE_EXTENSION = ObjectModule.FILE_EXTENSION;
+
+    private ModuleLinker() {
+    }
+
+    /**
+     * Assembles the changed modules, links all of them and prints the summary.
+     *
+     * @param outputName name of the output file without the extension
+     * @param inputs     the .asm or .hobj files of the modules in the order of the program
+     * @param out        stream for the summary and the errors
+     * @return the exit status - 0 if the program was linked, 1 otherwise
+     */
+    static int run(String outputName, String[] inputs, PrintStream out) {
+        if (inputs.length == 0) {
+            out.println("No input files found.");
+            return 1;
+        }
+
+        var modules = new ArrayList<ObjectModule>();
+        var assembledCount = 0;
+        for (var input : inputs) {
+            var inputFile = Paths.get(input);
+            try {
+                if (input.endsWith(OBJECT_FILE_EXTENSION)) {
+                    modules.add(ObjectModule.read(inputFile));
+                    continue;
+                }
+
+                var objectFile = Paths.get(Assembler.getOutputNameNextTo(inputFile) + OBJECT_FILE_EXTENSION);
+                var module = readIfUpToDate(inputFile, objectFile);
+                if (module == null) {
+                    module = assembleModule(inputFile);
+                    module.write(objectFile);
+                    assembledCount++;
+                }
+                modules.add(module);
+            } catch (Exception e) {
+                out.println(inputFile + ": " + Assembler.describeError(e));
+                return 1;
+            }
+        }
+
+        try {
+            var linker = new Linker(modules);
+            linker.link(new FileEmitter(outputName));
+            out.printf("Linked %d instructions (%d variables) from %d modules (%d assembled).%n",
+                    linker.getInstructionCount(), linker.getVariableCount(), modules.size(), assembledCount);
+            return 0;
+        } catch (Exception e) {
+            out.println(Assembler.describeError(e));
+            return 1;
+        }
+    }
+
+    /**
+     * Assembles a module into an object, named by its file.
+     *
+     * @param inputFile the assembly file of the module
+     * @return the object
+     * @throws IOException          if the input file couldn't be read
+     * @throws LexerErrorException  if there was problem during tokenization
+     * @throws ParserErrorException if there was an invalid sequence of tokens
+     */
+    static ObjectModule assembleModule(Path inputFile) throws IOException, LexerErrorException, ParserErrorException {
+        var assembler = new InstructionAssembler();
+        for (var statement : new Parser(new Lexer(inputFile)).parseStatements()) {
+            assembler.add(statement);
+        }
+        return assembler.finishObject(inputFile.getFileName().toString());
+    }
+
+    private static ObjectModule readIfUpToDate(Path inputFile, Path objectFile) {
+        try {
+            if (Files.getLastModifiedTime(objectFile).compareTo(Files.getLastModifiedTime(inputFile)) <= 0) {
+                return null;
+            }
+            return ObjectModule.read(objectFile);
+        } catch (IOException e) { // missing or unreadable, assembled again
+            return null;
+        }
+    }
+}
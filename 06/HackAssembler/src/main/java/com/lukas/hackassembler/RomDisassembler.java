@@ -0,0 +1,120 @@
+package com.lukas.hackassembler;
+
+import com.lukas.hackassembler.disassemble.Disassembler;
+import com.lukas.hackassembler.emit.RomEmitter;
+import com.lukas.hackassembler.emit.RomLoader;
+import com.lukas.hackassembler.exception.EmitterErrorException;
+import com.lukas.hackassembler.exception.LexerErrorException;
+import com.lukas.hackassembler.exception.ParserErrorException;
+import com.lukas.hackassembler.lex.Lexer;
+import com.lukas.hackassembler.parse.Parser;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * Disassembles the ROMs (.hack files or binary images, see {@link RomLoader}) into .dis.asm files next to them.
+ * In the verification mode the disassembly is kept in memory, assembled again and the words are compared with
+ * the original ones instead - a check of the assembler (and the disassembler) against any amount of programs.
+ */
+public class RomDisassembler {
+    private static final String VERIFY_OPTION = "--verify";
+    private static final String OUTPUT_FILE_EXTENSION = ".dis.asm";
+
+    private RomDisassembler() {
+    }
+
+    /**
+     * Disassembles or verifies all the ROMs and prints a result line for each file, followed by the summary.
+     *
+     * @param args the ROM files, optionally preceded by {@value #VERIFY_OPTION}
+     * @param out  stream for the results
+     * @return the exit status - 0 if all the files were disassembled (or verified), 1 otherwise
+     */
+    static int run(String[] args, PrintStream out) {
+        var verify = args.length > 0 && args[0].equals(VERIFY_OPTION);
+        var romFiles = verify ? Arrays.copyOfRange(args, 1, args.length) : args;
+        if (romFiles.length == 0) {
+            out.println("No input files found.");
+            return 1;
+        }
+
+        var failedCount = 0;
+        for (var romFile : romFiles) {
+            var start = System.nanoTime();
+            String error = null;
+            var instructionCount = 0;
+            try {
+                var words = RomLoader.load(Paths.get(romFile));
+                instructionCount = words.length;
+                if (verify) {
+                    error = verify(words);
+                } else {
+                    disassemble(Paths.get(romFile), words);
+                }
+            } catch (IOException e) {
+                error = "The ROM couldn't be read or written - " + e.getMessage();
+            }
+
+            if (error == null) {
+                out.printf("OK     %s (%d instructions, %.1f ms)%n", romFile, instructionCount,
+                        (System.nanoTime() - start) / 1e6);
+            } else {
+                out.printf("FAILED %s: %s%n", romFile, error.replace('\n', ' '));
+                failedCount++;
+            }
+        }
+        out.printf("%s %d of %d files (%d failed).%n", verify ? "Verified" : "Disassembled",
+                romFiles.length - failedCount, romFiles.length, failedCount);
+        return failedCount == 0 ? 0 : 1;
+    }
+
+    /**
+     * Disassembles the words, assembles the text again and compares the result with the words.
+     *
+     * @param words the machine words of the program
+     * @return description of the first difference, or null if there's none
+     */
+    static String verify(short[] words) {
+        for (int address = 0; address < words.length; address++) {
+            if (!Disassembler.isInstruction(words[address])) {
+                return "The word at the address " + address + " isn't an instruction - "
+                        + Disassembler.disassemble(words[address]);
+            }
+        }
+
+        var emitter = new RomEmitter();
+        try {
+            new Parser(new Lexer(Disassembler.disassemble(words)), emitter).parse();
+        } catch (LexerErrorException | ParserErrorException | EmitterErrorException e) {
+            return "The disassembly couldn't be assembled - " + Assembler.describeError(e);
+        }
+
+        var reassembled = emitter.getWords();
+        for (int address = 0; address < Math.min(words.length, reassembled.length); address++) {
+            if (words[address] != reassembled[address]) {
+                return "The word at the address " + address + " (" + Disassembler.disassemble(words[address])
+                        + ") was reassembled as " + Disassembler.disassemble(reassembled[address]) + ".";
+            }
+        }
+        if (words.length != reassembled.length) {
+            return "The " + words.length + " words were reassembled into " + reassembled.length + ".";
+        }
+        return null;
+    }
+
+    private static void disassemble(Path romFile, short[] words) throws IOException {
+        var outputFile = Paths.get(Assembler.getOutputNameNextTo(romFile) + OUTPUT_FILE_EXTENSION);
+        try (var channel = FileChannel.open(outputFile, CREATE, TRUNCATE_EXISTING, WRITE)) {
+            Disassembler.disassemble(words, channel);
+        }
+    }
+}
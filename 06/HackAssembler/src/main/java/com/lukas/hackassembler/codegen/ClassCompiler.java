@@ -0,0 +1,123 @@
+package com.lukas.hackassembler.codegen;
+
+import javax.tools.DiagnosticCollector;
+import javax.tools.FileObject;
+import javax.tools.ForwardingJavaFileManager;
+import javax.tools.JavaFileManager;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.ToolProvider;
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compiles the generated Java sources by the JDK compiler in memory, and loads the compiled classes by their own
+ * class loaders (so that they can be unloaded with the objects using them).
+ */
+public final class ClassCompiler {
+    private ClassCompiler() {
+    }
+
+    /**
+     * @return whether the JDK compiler is available (it isn't on a JRE)
+     */
+    public static boolean isAvailable() {
+        return ToolProvider.getSystemJavaCompiler() != null;
+    }
+
+    /**
+     * @param className name of the (public) class of the source
+     * @param source    the Java source
+     * @param baseClass a class of the assembler the source refers to - the classes of the assembler are on the class
+     *                  path of the compilation
+     * @return the bytecode of each class of the source, by the class names
+     * @throws IllegalStateException if the compiler isn't available, or the source doesn't compile
+     */
+    public static Map<String, byte[]> compile(String className, String source, Class<?> baseClass) {
+        var compiler = ToolProvider.getSystemJavaCompiler();
+        if (compiler == null) {
+            throw new IllegalStateException("The JDK compiler isn't available.");
+        }
+
+        var classes = new HashMap<String, ByteArrayOutputStream>();
+        var diagnostics = new DiagnosticCollector<JavaFileObject>();
+        var standardFileManager = compiler.getStandardFileManager(diagnostics, null, StandardCharsets.UTF_8);
+        var fileManager = new ForwardingJavaFileManager<JavaFileManager>(standardFileManager) {
+            @Override
+            public JavaFileObject getJavaFileForOutput(Location location, String className, JavaFileObject.Kind kind,
+                                                       FileObject sibling) {
+                return new SimpleJavaFileObject(URI.create("mem:///" + className.replace('.', '/') + kind.extension), kind) {
+                    @Override
+                    public OutputStream openOutputStream() {
+                        return classes.computeIfAbsent(className, name -> new ByteArrayOutputStream());
+                    }
+                };
+            }
+        };
+        var sourceFile = new SimpleJavaFileObject(URI.create("string:///" + className.replace('.', '/')
+                + JavaFileObject.Kind.SOURCE.extension), JavaFileObject.Kind.SOURCE) {
+            @Override
+            public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+                return source;
+            }
+        };
+
+        var options = List.of("-classpath", classPath(baseClass), "-g:none", "-proc:none");
+        if (!compiler.getTask(null, fileManager, diagnostics, options, null, List.of(sourceFile)).call()) {
+            throw new IllegalStateException("The generated class " + className + " didn't compile: "
+                    + diagnostics.getDiagnostics());
+        }
+
+        var classBytes = new HashMap<String, byte[]>();
+        classes.forEach((name, bytes) -> classBytes.put(name, bytes.toByteArray()));
+        return classBytes;
+    }
+
+    /**
+     * @param className name of the class to load
+     * @param classes   the bytecode of the class and the classes it refers to, by the class names
+     * @param baseClass a class of the assembler the classes refer to, its class loader is the parent one
+     * @return the loaded class
+     * @throws ClassNotFoundException if the class isn't among the classes
+     */
+    public static Class<?> load(String className, Map<String, byte[]> classes, Class<?> baseClass)
+            throws ClassNotFoundException {
+        return new GeneratedClassLoader(classes, baseClass.getClassLoader()).loadClass(className);
+    }
+
+    /**
+     * @return location of the classes of the assembler (a directory or a jar)
+     */
+    private static String classPath(Class<?> baseClass) {
+        try {
+            return Paths.get(baseClass.getProtectionDomain().getCodeSource().getLocation().toURI()).toString();
+        } catch (URISyntaxException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static final class GeneratedClassLoader extends ClassLoader {
+        private final Map<String, byte[]> classes;
+
+        private GeneratedClassLoader(Map<String, byte[]> classes, ClassLoader parent) {
+            super(parent);
+            this.classes = classes;
+        }
+
+        @Override
+        protected Class<?> findClass(String name) throws ClassNotFoundException {
+            var bytes = classes.get(name);
+            if (bytes == null) {
+                throw new ClassNotFoundException(name);
+            }
+            return defineClass(name, bytes, 0, bytes.length);
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package com.lukas.hackassembler.disassemble;
+
+import com.lukas.hackassembler.model.CompType;
+import com.lukas.hackassembler.model.DestType;
+import com.lukas.hackassembler.model.JumpType;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Turns the machine words back into the assembly language. The text of every possible 16-bit word, including
+ * the line separator, is precomputed into a single table (built from the codes of the {@link CompType},
+ * {@link DestType} and {@link JumpType}), so the disassembly is only copying of the table entries.
+ * <p>
+ * An A-instruction becomes a load of its number, the labels and the variables aren't recovered. A word with
+ * the highest bit set, but not the two following ones (unused by the CPU), or with a computation without
+ * a mnemonic can't be written in the assembly language - it becomes a comment with the binary form of the word,
+ * so the reassembled program is shorter.
+ */
+public final class Disassembler {
+    private static final int WORD_COUNT = 1 << 16;
+    private static final int C_INSTRUCTION_PREFIX = 0b111 << 13;
+    private static final int BUFFER_CAPACITY = 64 * 1024;
+    private static final String INVALID_WORD_PREFIX = "// not an instruction: ";
+    private static final String LINE_SEPARATOR = System.lineSeparator();
+
+    private static final byte[] TEXT; // of all the words, one after another
+    private static final int[] TEXT_STARTS = new int[WORD_COUNT + 1]; // of the text of each word, then the end
+    private static final boolean[] VALID = new boolean[WORD_COUNT];
+
+    static {
+        var comps = new String[1 << 7];
+        for (var comp : CompType.values()) {
+            comps[comp.getCode()] = comp.getLiteral();
+        }
+        var dests = new String[1 << 3];
+        dests[0] = "";
+        for (var dest : DestType.values()) {
+            dests[dest.getCode()] = dest.getLiteral() + "=";
+        }
+        var jumps = new String[1 << 3];
+        jumps[0] = "";
+        for (var jump : JumpType.values()) {
+            jumps[jump.getCode()] = ";" + jump.getLiteral();
+        }
+
+        var text = new ByteArrayOutputStream(WORD_COUNT * 12);
+        for (int word = 0; word < WORD_COUNT; word++) {
+            TEXT_STARTS[word] = text.size();
+
+            String line;
+            if ((word & 0x8000) == 0) {
+                line = "@" + word;
+            } else if ((word & C_INSTRUCTION_PREFIX) == C_INSTRUCTION_PREFIX && comps[word >>> 6 & 0x7F] != null) {
+                line = dests[word >>> 3 & 0b111] + comps[word >>> 6 & 0x7F] + jumps[word & 0b111];
+            } else {
+                line = INVALID_WORD_PREFIX + toBinary(word);
+            }
+            VALID[word] = !line.startsWith(INVALID_WORD_PREFIX);
+            text.writeBytes((line + LINE_SEPARATOR).getBytes(StandardCharsets.US_ASCII));
+        }
+        TEXT_STARTS[WORD_COUNT] = text.size();
+        TEXT = text.toByteArray();
+    }
+
+    private Disassembler() {
+    }
+
+    /**
+     * @param word the machine word, only the lowest 16 bits are used
+     * @return the instruction (or the comment, if the word isn't one) without the line separator
+     */
+    public static String disassemble(int word) {
+        word &= 0xFFFF;
+        return new String(TEXT, TEXT_STARTS[word], TEXT_STARTS[word + 1] - TEXT_STARTS[word] - LINE_SEPARATOR.length(),
+                StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * @param word the machine word, only the lowest 16 bits are used
+     * @return whether the word can be written as an instruction
+     */
+    public static boolean isInstruction(int word) {
+        return VALID[word & 0xFFFF];
+    }
+
+    /**
+     * Writes the program in the assembly language, a line (terminated by the platform line separator) per word.
+     *
+     * @param words  the machine words of the program
+     * @param output channel the text is written into (it's left open)
+     * @throws IOException if the text couldn't be written
+     */
+    public static void disassemble(short[] words, WritableByteChannel output) throws IOException {
+        var buffer = ByteBuffer.allocateDirect(BUFFER_CAPACITY);
+        for (var word : words) {
+            var start = TEXT_STARTS[word & 0xFFFF];
+            var length = TEXT_STARTS[(word & 0xFFFF) + 1] - start;
+            if (buffer.remaining() < length) {
+                write(buffer, output);
+            }
+            buffer.put(TEXT, start, length);
+        }
+        write(buffer, output);
+    }
+
+    /**
+     * Writes the program in the assembly language into an array.
+     *
+     * @param words the machine words of the program
+     * @return the ASCII text, a line (terminated by the platform line separator) per word
+     */
+    public static byte[] disassemble(short[] words) {
+        var length = 0;
+        for (var word : words) {
+            length += TEXT_STARTS[(word & 0xFFFF) + 1] - TEXT_STARTS[word & 0xFFFF];
+        }
+
+        var text = new byte[length];
+        var position = 0;
+        for (var word : words) {
+            var start = TEXT_STARTS[word & 0xFFFF];
+            var wordLength = TEXT_STARTS[(word & 0xFFFF) + 1] - start;
+            System.arraycopy(TEXT, start, text, position, wordLength);
+            position += wordLength;
+        }
+        return text;
+    }
+
+    private static void write(ByteBuffer buffer, WritableByteChannel output) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            output.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    private static String toBinary(int word) {
+        var binary = Integer.toBinaryString(word | WORD_COUNT); // with the leading zeros, and one more bit
+        return binary.substring(1);
+    }
+}
@@ -0,0 +1,116 @@
+package com.lukas.hackassembler.emit;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Paths;
+import java.util.Objects;
+
+/**
+ * Streams the machine words into a binary ROM image - each word as 2 bytes, big-endian, without any header or
+ * separators. That's 2 bytes per instruction instead of the 17 or 18 of a .hack file. Only the words can be emitted,
+ * the textual output is created from the file on demand. As with {@link FileEmitter}, the file is replaced only on close.
+ *
+ * @see RomLoader
+ */
+public class BinaryFileEmitter implements Emitter {
+    public static final String OUTPUT_FILE_EXTENSION = ".hackbin";
+    private static final int BUFFER_CAPACITY = 64 * 1024;
+
+    private final String filename;
+    private final ByteBuffer buffer; // big-endian, as allocated
+
+    private final OutputFile file;
+    private boolean closed;
+
+    /**
+     * @param filename name of the output file without the extension
+     */
+    public BinaryFileEmitter(String filename) {
+        this.filename = Objects.requireNonNull(filename, "BinaryFileEmitter doesn't accept null filename.") + OUTPUT_FILE_EXTENSION;
+        file = new OutputFile(Paths.get(this.filename));
+        buffer = ByteBuffer.allocateDirect(BUFFER_CAPACITY);
+    }
+
+    /**
+     * @throws UnsupportedOperationException always, the ROM image holds only the machine words
+     */
+    @Override
+    public void emitLine(String line) {
+        throw new UnsupportedOperationException("Only the machine words can be emitted into the binary ROM image.");
+    }
+
+    /**
+     * @throws UnsupportedOperationException always, the ROM image holds only the machine words
+     */
+    @Override
+    public void emitString(String str) {
+        throw new UnsupportedOperationException("Only the machine words can be emitted into the binary ROM image.");
+    }
+
+    @Override
+    public void emitWord(int word) {
+        if (buffer.remaining() < Short.BYTES) {
+            try {
+                flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        buffer.putShort((short) word);
+    }
+
+    /**
+     * Gets the words emitted so far in their textual form, as in a .hack file (with '\n' line separators). The pending
+     * words are written into the file and read back from it.
+     *
+     * @return output emitted till this point
+     */
+    @Override
+    public String getOutput() {
+        try {
+            if (!closed) {
+                flush();
+            }
+            var words = RomLoader.loadBinary(file.getWrittenFile());
+            var outputBuilder = new StringBuilder(words.length * (Words.WORD_BITS + 1));
+            for (var word : words) {
+                Words.appendWord(outputBuilder, word).append('\n');
+            }
+            return outputBuilder.toString();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+
+        try {
+            flush();
+            file.commit(); // creates the file even for an empty program
+        } finally {
+            closed = true;
+            file.discard();
+        }
+    }
+
+    @Override
+    public void abort() {
+        closed = true;
+        file.discard();
+    }
+
+    public String getFilename() {
+        return filename;
+    }
+
+    private void flush() throws IOException {
+        buffer.flip();
+        file.write(buffer); // the temporary file is created only when there's something to write
+        buffer.clear();
+    }
+}
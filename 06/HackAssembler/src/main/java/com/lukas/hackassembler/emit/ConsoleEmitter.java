@@ -1,31 +1,96 @@
 package com.lukas.hackassembler.emit;
 
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+
+/**
+ * Writes the output into the standard output through a buffer, which is flushed on {@link #close()}.
+ */
 public class ConsoleEmitter implements Emitter {
-    private final StringBuilder outputBuilder;
+    private static final int BUFFER_CAPACITY = 64 * 1024;
+
+    private final Writer writer;
+    private final char[] wordChars;
+    private final StringBuilder outputBuilder; // only if the output is retained
 
     public ConsoleEmitter() {
-        outputBuilder = new StringBuilder();
+        this(false);
+    }
+
+    /**
+     * @param retainOutput whether to keep a copy of the output in memory for {@link #getOutput()}
+     */
+    public ConsoleEmitter(boolean retainOutput) {
+        writer = new BufferedWriter(new OutputStreamWriter(System.out), BUFFER_CAPACITY);
+        wordChars = new char[Words.WORD_BITS];
+        outputBuilder = retainOutput ? new StringBuilder() : null;
     }
 
     @Override
     public void emitLine(String line) {
-        outputBuilder.append(line).append('\n');
-        System.out.println(line);
+        emitString(line);
+        write(System.lineSeparator());
+        if (outputBuilder != null) {
+            outputBuilder.append('\n');
+        }
     }
 
     @Override
     public void emitString(String str) {
-        outputBuilder.append(str);
-        System.out.print(str);
+        write(str);
+        if (outputBuilder != null) {
+            outputBuilder.append(str);
+        }
+    }
+
+    @Override
+    public void emitWord(int word) {
+        for (int bit = Words.WORD_BITS - 1; bit >= 0; bit--) {
+            wordChars[Words.WORD_BITS - 1 - bit] = (word >>> bit & 1) == 0 ? '0' : '1';
+        }
+        try {
+            writer.write(wordChars);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        write(System.lineSeparator());
+
+        if (outputBuilder != null) {
+            outputBuilder.append(wordChars).append('\n');
+        }
     }
 
+    /**
+     * Gets the output emitted so far, only available if the output is retained.
+     *
+     * @return output emitted till this point
+     * @throws UnsupportedOperationException if the output isn't retained
+     */
     @Override
     public String getOutput() {
+        if (outputBuilder == null) {
+            throw new UnsupportedOperationException("The console output isn't retained.");
+        }
         return outputBuilder.toString();
     }
 
     @Override
     public void close() {
-        // empty on purpose
+        try {
+            writer.flush(); // the standard output itself stays open
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void write(String str) {
+        try {
+            writer.write(str);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
     }
 }
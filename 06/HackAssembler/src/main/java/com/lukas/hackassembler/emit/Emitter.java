@@ -21,9 +21,25 @@ public interface Emitter extends Closeable {
     void emitString(String str);
 
     /**
-     * Gets the full output of the parser till that point.
+     * Emits a 16-bit machine word in its binary text form (e.g. "0000000000000011") followed by a new line character.
+     *
+     * @param word a machine word to be outputted, only the lowest 16 bits are used
+     */
+    void emitWord(int word);
+
+    /**
+     * Gets the full output of the parser till that point. Emitters writing into an external output don't need
+     * to keep the output in memory - they can read it back lazily, or retain it only if asked to.
      *
      * @return output of the parser till this point.
+     * @throws UnsupportedOperationException if the emitter can't provide its output
      */
     String getOutput();
+
+    /**
+     * Releases the emitter after a failed assembly, without completing its output - a previous output (eg. a file)
+     * stays as it was. Does nothing after {@link #close()}.
+     */
+    default void abort() {
+    }
 }
@@ -1,43 +1,161 @@
 package com.lukas.hackassembler.emit;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Paths;
-import java.util.Arrays;
 import java.util.Objects;
 
+/**
+ * Streams the output into a file through a fixed-size buffer, so the memory use doesn't grow with the output size.
+ * New line characters are written as the platform line separator, and the file always ends with one. The output goes
+ * into a temporary file which replaces the file only on close, an aborted assembly leaves the previous file intact.
+ */
 public class FileEmitter implements Emitter {
-    private static final String OUTPUT_FILE_EXTENSION = ".hack";
-    private final StringBuilder outputBuilder;
+    public static final String OUTPUT_FILE_EXTENSION = ".hack";
+    private static final int BUFFER_CAPACITY = 64 * 1024;
+    private static final byte[] LINE_SEPARATOR = System.lineSeparator().getBytes(StandardCharsets.US_ASCII);
 
     private final String filename;
+    private final ByteBuffer buffer;
+    private final StringBuilder outputBuilder; // only if the output is retained
+
+    private final OutputFile file;
+    private boolean lineEnded; // whether the last emitted character was a new line
+    private boolean closed;
 
     public FileEmitter(String filename) {
+        this(filename, false);
+    }
+
+    /**
+     * @param filename     name of the output file without the extension
+     * @param retainOutput whether to keep a copy of the output in memory for {@link #getOutput()}, otherwise
+     *                     the output is read back from the file on demand
+     */
+    public FileEmitter(String filename, boolean retainOutput) {
         this.filename = Objects.requireNonNull(filename, "FileEmitter doesn't accept null filename.") + OUTPUT_FILE_EXTENSION;
-        outputBuilder = new StringBuilder();
+        file = new OutputFile(Paths.get(this.filename));
+        buffer = ByteBuffer.allocateDirect(BUFFER_CAPACITY);
+        outputBuilder = retainOutput ? new StringBuilder() : null;
     }
 
     @Override
     public void emitLine(String line) {
-        outputBuilder.append(line).append('\n');
+        emitString(line);
+        putLineSeparator();
+        if (outputBuilder != null) {
+            outputBuilder.append('\n');
+        }
     }
 
     @Override
     public void emitString(String str) {
-        outputBuilder.append(str);
+        if (str.isEmpty()) {
+            return;
+        }
+
+        for (byte aByte : str.getBytes(StandardCharsets.UTF_8)) {
+            if (aByte == '\n') {
+                putLineSeparator();
+            } else {
+                ensureRemaining(1);
+                buffer.put(aByte);
+            }
+        }
+        lineEnded = str.charAt(str.length() - 1) == '\n';
+
+        if (outputBuilder != null) {
+            outputBuilder.append(str);
+        }
     }
 
+    @Override
+    public void emitWord(int word) {
+        ensureRemaining(Words.WORD_BITS);
+        for (int bit = Words.WORD_BITS - 1; bit >= 0; bit--) {
+            buffer.put((word >>> bit & 1) == 0 ? (byte) '0' : (byte) '1');
+        }
+        putLineSeparator();
+
+        if (outputBuilder != null) {
+            Words.appendWord(outputBuilder, word).append('\n');
+        }
+    }
+
+    /**
+     * Gets the output emitted so far. If the output isn't retained in memory, the pending output is written
+     * into the file and read back from it (with the platform line separators).
+     *
+     * @return output emitted till this point
+     */
     @Override
     public String getOutput() {
-        return outputBuilder.toString();
+        if (outputBuilder != null) {
+            return outputBuilder.toString();
+        }
+
+        try {
+            if (!closed) {
+                flush();
+            }
+            return Files.readString(file.getWrittenFile());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
     }
 
     @Override
     public void close() throws IOException {
-        Files.write(Paths.get(filename), Arrays.asList(outputBuilder.toString().split("\\n")));
+        if (closed) {
+            return;
+        }
+
+        try {
+            if (!lineEnded) { // the last line is always terminated
+                putLineSeparator();
+            }
+            flush();
+            file.commit();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            closed = true;
+            file.discard();
+        }
+    }
+
+    @Override
+    public void abort() {
+        closed = true;
+        file.discard();
     }
 
     public String getFilename() {
         return filename;
     }
+
+    private void putLineSeparator() {
+        ensureRemaining(LINE_SEPARATOR.length);
+        buffer.put(LINE_SEPARATOR);
+        lineEnded = true;
+    }
+
+    private void ensureRemaining(int byteCount) {
+        if (buffer.remaining() < byteCount) {
+            try {
+                flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    private void flush() throws IOException {
+        buffer.flip();
+        file.write(buffer); // the temporary file is created only when there's something to write
+        buffer.clear();
+    }
 }
@@ -17,6 +17,11 @@ public class InMemoryEmitter implements Emitter {
         outputBuilder.append(str);
     }
 
+    @Override
+    public void emitWord(int word) {
+        Words.appendWord(outputBuilder, word).append('\n');
+    }
+
     @Override
     public String getOutput() {
         return outputBuilder.toString();
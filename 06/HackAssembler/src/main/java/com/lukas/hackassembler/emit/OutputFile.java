@@ -0,0 +1,91 @@
+package com.lukas.hackassembler.emit;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static java.nio.file.StandardOpenOption.CREATE_NEW;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * An output file written through a temporary file next to it, which replaces the file atomically only when it's
+ * committed - a failed assembly leaves the previous output as it was. The temporary file is created by the first
+ * write (with the default permissions, unlike {@link Files#createTempFile}).
+ */
+final class OutputFile {
+    private static final String TEMP_EXTENSION = ".tmp";
+
+    private final Path file;
+    private Path tempFile;
+    private FileChannel channel;
+    private boolean done; // committed or discarded
+
+    OutputFile(Path file) {
+        this.file = file;
+    }
+
+    /**
+     * Writes the remaining bytes of the buffer into the temporary file.
+     *
+     * @param buffer the bytes to be written
+     * @throws IOException if the temporary file couldn't be created or written
+     */
+    void write(ByteBuffer buffer) throws IOException {
+        if (channel == null) {
+            var name = file.getFileName() + "." + Long.toHexString(ThreadLocalRandom.current().nextLong());
+            tempFile = file.toAbsolutePath().resolveSibling(name + TEMP_EXTENSION);
+            channel = FileChannel.open(tempFile, CREATE_NEW, WRITE);
+        }
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    /**
+     * Moves the temporary file into place (creates an empty file if nothing was written).
+     *
+     * @throws IOException if the file couldn't be written
+     */
+    void commit() throws IOException {
+        if (done) {
+            return;
+        }
+        try {
+            write(ByteBuffer.allocate(0));
+            channel.close();
+            Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            channel = null;
+        } finally {
+            discard();
+        }
+    }
+
+    /**
+     * Deletes the temporary file, the file stays as it was. Does nothing after the commit.
+     */
+    void discard() {
+        done = true;
+        if (channel == null) {
+            return;
+        }
+        try {
+            channel.close();
+            Files.deleteIfExists(tempFile);
+        } catch (IOException e) {
+            // only a leftover temporary file
+        } finally {
+            channel = null;
+        }
+    }
+
+    /**
+     * @return the file with the output written so far - the temporary one until the commit
+     */
+    Path getWrittenFile() {
+        return channel != null ? tempFile : file;
+    }
+}
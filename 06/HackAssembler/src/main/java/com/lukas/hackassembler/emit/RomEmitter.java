@@ -0,0 +1,81 @@
+package com.lukas.hackassembler.emit;
+
+import java.util.Arrays;
+
+/**
+ * Collects the machine words in memory, as an image of the program ROM. Only the words can be emitted, the textual
+ * output is created from them on demand.
+ */
+public class RomEmitter implements Emitter {
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private short[] words;
+    private int wordCount;
+
+    public RomEmitter() {
+        words = new short[INITIAL_CAPACITY];
+    }
+
+    /**
+     * @throws UnsupportedOperationException always, the ROM holds only the machine words
+     */
+    @Override
+    public void emitLine(String line) {
+        throw new UnsupportedOperationException("Only the machine words can be emitted into the ROM.");
+    }
+
+    /**
+     * @throws UnsupportedOperationException always, the ROM holds only the machine words
+     */
+    @Override
+    public void emitString(String str) {
+        throw new UnsupportedOperationException("Only the machine words can be emitted into the ROM.");
+    }
+
+    @Override
+    public void emitWord(int word) {
+        if (wordCount == words.length) {
+            words = Arrays.copyOf(words, words.length * 2);
+        }
+        words[wordCount++] = (short) word;
+    }
+
+    /**
+     * @return number of the words emitted so far
+     */
+    public int getWordCount() {
+        return wordCount;
+    }
+
+    /**
+     * @param address address of the word in the ROM
+     * @return the word (the lowest 16 bits)
+     */
+    public int getWord(int address) {
+        if (address >= wordCount) {
+            throw new IndexOutOfBoundsException("Address " + address + " is beyond the " + wordCount + " words.");
+        }
+        return words[address] & 0xFFFF;
+    }
+
+    /**
+     * @return copy of the words emitted so far
+     */
+    public short[] getWords() {
+        return Arrays.copyOf(words, wordCount);
+    }
+
+    @Override
+    public String getOutput() {
+        var outputBuilder = new StringBuilder(wordCount * (Words.WORD_BITS + 1));
+        for (int i = 0; i < wordCount; i++) {
+            Words.appendWord(outputBuilder, words[i]).append('\n');
+        }
+        return outputBuilder.toString();
+    }
+
+    @Override
+    public void close() {
+        // empty on purpose
+    }
+}
@@ -0,0 +1,113 @@
+package com.lukas.hackassembler.emit;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * Loads a program ROM written by the assembler back into its machine words - either a .hack file (the words in their
+ * binary text form, one per line) or a binary ROM image of the {@link BinaryFileEmitter}. The text is read through
+ * a memory mapping, the binary image by a single bulk read.
+ */
+public final class RomLoader {
+    private RomLoader() {
+    }
+
+    /**
+     * Loads a ROM in the format given by the extension of the file - {@value BinaryFileEmitter#OUTPUT_FILE_EXTENSION}
+     * for the binary image, anything else for the text.
+     *
+     * @param file the ROM file
+     * @return the machine words
+     * @throws IOException if the file couldn't be read or isn't a valid ROM
+     */
+    public static short[] load(Path file) throws IOException {
+        if (file.getFileName().toString().endsWith(BinaryFileEmitter.OUTPUT_FILE_EXTENSION)) {
+            return loadBinary(file);
+        }
+        return loadText(file);
+    }
+
+    /**
+     * Loads a .hack file. The lines can end with '\n' or "\r\n", the last one doesn't have to.
+     *
+     * @param file the .hack file
+     * @return the machine words
+     * @throws IOException if the file couldn't be read, or a line isn't exactly 16 characters '0' or '1'
+     */
+    public static short[] loadText(Path file) throws IOException {
+        MappedByteBuffer input;
+        try (var channel = FileChannel.open(file)) {
+            input = channel.map(FileChannel.MapMode.READ_ONLY, 0, checkSize(file, channel.size()));
+        }
+
+        var limit = input.limit();
+        var words = new short[limit / (Words.WORD_BITS + 1) + 1]; // at least one line separator byte after each word
+        var wordCount = 0;
+        for (int position = 0; position < limit; ) {
+            if (limit - position < Words.WORD_BITS) {
+                throw invalidLine(file, wordCount);
+            }
+
+            var word = 0;
+            for (int end = position + Words.WORD_BITS; position < end; position++) {
+                var bit = input.get(position) - '0';
+                if ((bit & ~1) != 0) { // neither '0' nor '1'
+                    throw invalidLine(file, wordCount);
+                }
+                word = word << 1 | bit;
+            }
+            words[wordCount++] = (short) word;
+
+            if (position < limit && input.get(position) == '\r') {
+                position++;
+            }
+            if (position < limit && input.get(position++) != '\n') {
+                throw invalidLine(file, wordCount - 1);
+            }
+        }
+        return words.length == wordCount ? words : Arrays.copyOf(words, wordCount);
+    }
+
+    /**
+     * Loads a binary ROM image.
+     *
+     * @param file the image
+     * @return the machine words
+     * @throws IOException if the file couldn't be read, or its size is odd
+     */
+    public static short[] loadBinary(Path file) throws IOException {
+        try (var channel = FileChannel.open(file)) {
+            var size = checkSize(file, channel.size());
+            if (size % Short.BYTES != 0) {
+                throw new IOException("The binary ROM image has an odd size of " + size + " bytes: " + file);
+            }
+
+            var input = ByteBuffer.allocate((int) size); // big-endian
+            while (input.hasRemaining()) {
+                if (channel.read(input) == -1) {
+                    throw new IOException("The binary ROM image was truncated while reading: " + file);
+                }
+            }
+            input.flip();
+
+            var words = new short[(int) size / Short.BYTES];
+            input.asShortBuffer().get(words);
+            return words;
+        }
+    }
+
+    private static long checkSize(Path file, long size) throws IOException {
+        if (size > Integer.MAX_VALUE - 8) {
+            throw new IOException("The ROM file is too big (" + size + " bytes): " + file);
+        }
+        return size;
+    }
+
+    private static IOException invalidLine(Path file, int lineIndex) {
+        return new IOException("Line " + (lineIndex + 1) + " isn't a 16-bit binary word: " + file);
+    }
+}
@@ -0,0 +1,25 @@
+package com.lukas.hackassembler.emit;
+
+/**
+ * Formatting of the 16-bit machine words into their textual (binary) representation.
+ */
+final class Words {
+    static final int WORD_BITS = 16;
+
+    private Words() {
+    }
+
+    /**
+     * Appends the binary representation of the word (exactly 16 characters, with leading zeros).
+     *
+     * @param builder the builder to append to
+     * @param word    the machine word, only the lowest 16 bits are used
+     * @return the same builder
+     */
+    static StringBuilder appendWord(StringBuilder builder, int word) {
+        for (int bit = WORD_BITS - 1; bit >= 0; bit--) {
+            builder.append((word >>> bit & 1) == 0 ? '0' : '1');
+        }
+        return builder;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,196 @@
+package com.lukas.hackassembler.emulate;
+
+/**
+ * An emulator of the Hack computer - the CPU (the A, D and PC registers and the ALU) of 05/CPU.hdl executing
+ * a program from the ROM, with the memory of 05/Memory.hdl:
+ * <ul>
+ *     <li>0x0000-0x3FFF - the RAM,</li>
+ *     <li>0x4000-0x5FFF - the screen memory map (a row of 512 pixels is 32 words, the lowest bit is the leftmost
+ *     pixel),</li>
+ *     <li>0x6000-0x7FFF - the keyboard memory map (every address reads the key code, writes go into the screen
+ *     memory map, as in the chip).</li>
+ * </ul>
+ * The registers and the memory hold 16-bit words, they are read and written as signed values. The execution
+ * loop doesn't allocate, the registers are kept in the local variables for its whole run.
+ */
+public class Computer {
+    public static final int ROM_SIZE = 32 * 1024;
+    public static final int SCREEN = 0x4000;
+    public static final int KBD = 0x6000;
+
+    private static final int ADDRESS_MASK = 0x7FFF; // 15-bit addresses of the ROM and the memory
+    private static final int SCREEN_MIRROR_MASK = 0x5FFF; // the keyboard addresses written into the screen
+
+    private static final int C_INSTRUCTION_BIT = 0x8000;
+    private static final int A_BIT = 0x1000; // M instead of A as the second ALU input
+    private static final int DEST_A = 0b100_000;
+    private static final int DEST_D = 0b010_000;
+    private static final int DEST_M = 0b001_000;
+    private static final int DEST_BITS = DEST_A | DEST_D | DEST_M;
+    private static final int JUMP_LT = 0b100;
+    private static final int JUMP_EQ = 0b010;
+    private static final int JUMP_GT = 0b001;
+
+    private final short[] rom = new short[ROM_SIZE]; // the unused words are 0 (@0), as in the ROM32K chip
+
+    // not private for the recompiled programs, they share the state with the interpreter
+    protected final short[] memory = new short[KBD]; // the keyboard has its own register
+    protected volatile int keyboard; // set by another thread, e.g. of the UI
+
+    protected int a;
+    protected int d;
+    protected int pc;
+    protected boolean halted;
+
+    /**
+     * @param program the machine words of the program, loaded from the address 0
+     * @throws IllegalArgumentException if the program doesn't fit into the ROM
+     */
+    public Computer(short[] program) {
+        if (program.length > ROM_SIZE) {
+            throw new IllegalArgumentException("The program of " + program.length + " words doesn't fit into the "
+                    + ROM_SIZE + " words of the ROM.");
+        }
+        System.arraycopy(program, 0, rom, 0, program.length);
+    }
+
+    /**
+     * Restarts the program from the address 0. As with the reset input of the CPU, only the PC is changed, the other
+     * registers and the memory keep their values.
+     */
+    public void reset() {
+        pc = 0;
+        halted = false;
+    }
+
+    /**
+     * Executes the instructions until the limit is reached or the program halts. The program halts in the usual
+     * infinite loop at its end - an unconditional jump to the preceding instruction, which loads its own address
+     * into A ({@code (END) @END 0;JMP}).
+     *
+     * @param maxInstructions maximum number of the instructions to be executed
+     * @return number of the executed instructions
+     */
+    public long run(long maxInstructions) {
+        if (halted) {
+            return 0;
+        }
+
+        final var rom = this.rom;
+        final var memory = this.memory;
+        var a = this.a;
+        var d = this.d;
+        var pc = this.pc;
+
+        long executed = 0;
+        while (executed < maxInstructions) {
+            int instruction = rom[pc] & 0xFFFF;
+            executed++;
+
+            if ((instruction & C_INSTRUCTION_BIT) == 0) {
+                a = instruction;
+                pc = pc + 1 & ADDRESS_MASK;
+                continue;
+            }
+
+            var address = a & ADDRESS_MASK;
+            int y;
+            if ((instruction & A_BIT) == 0) {
+                y = a;
+            } else {
+                y = address < KBD ? memory[address] : keyboard;
+            }
+            // the ALU of 05/CPU.hdl without branches (they'd be mispredicted), each of the zx, nx, zy, ny, f and no
+            // bits is turned into a mask of all zeros or all ones
+            var control = instruction >> 6;
+            var x = d & ~-(control >> 5 & 1) ^ -(control >> 4 & 1);
+            y = y & ~-(control >> 3 & 1) ^ -(control >> 2 & 1);
+            var fMask = -(control >> 1 & 1);
+            var out = (short) ((x + y & fMask | x & y & ~fMask) ^ -(control & 1));
+
+            if ((instruction & DEST_M) != 0) {
+                memory[address < KBD ? address : address & SCREEN_MIRROR_MASK] = out;
+            }
+            if ((instruction & DEST_A) != 0) {
+                a = out;
+            }
+            if ((instruction & DEST_D) != 0) {
+                d = out;
+            }
+
+            var condition = out < 0 ? JUMP_LT : out == 0 ? JUMP_EQ : JUMP_GT;
+            if ((instruction & condition) == 0) {
+                pc = pc + 1 & ADDRESS_MASK;
+            } else if (address == pc - 1 && rom[address] == address && (instruction & DEST_BITS) == 0) {
+                pc = address; // nothing changes anymore
+                halted = true;
+                break;
+            } else {
+                pc = address; // the A before the instruction, as the PC is loaded in the next time step
+            }
+        }
+
+        this.a = a;
+        this.d = d;
+        this.pc = pc;
+        return executed;
+    }
+
+    /**
+     * Executes a single instruction (even in the halting loop).
+     */
+    public void step() {
+        halted = false;
+        run(1);
+    }
+
+    /**
+     * @return whether the program reached its halting loop (until the next reset)
+     */
+    public boolean isHalted() {
+        return halted;
+    }
+
+    public int getA() {
+        return a;
+    }
+
+    public int getD() {
+        return d;
+    }
+
+    public int getPc() {
+        return pc;
+    }
+
+    /**
+     * Reads a word of the memory (including the screen and the keyboard memory maps).
+     *
+     * @param address 15-bit address
+     * @return the word
+     */
+    public int read(int address) {
+        address &= ADDRESS_MASK;
+        return address < KBD ? memory[address] : keyboard;
+    }
+
+    /**
+     * Writes a word into the memory (including the screen memory map), e.g. the arguments of the program.
+     *
+     * @param address 15-bit address
+     * @param value   the word, only the lowest 16 bits are used
+     */
+    public void write(int address, int value) {
+        address &= ADDRESS_MASK;
+        memory[address < KBD ? address : address & SCREEN_MIRROR_MASK] = (short) value;
+    }
+
+    /**
+     * Sets the key code of the currently pressed key (0 if none), it can be called from any thread.
+     *
+     * @param keyCode the key code
+     */
+    public void setKeyboard(int keyCode) {
+        keyboard = (short) keyCode;
+    }
+}
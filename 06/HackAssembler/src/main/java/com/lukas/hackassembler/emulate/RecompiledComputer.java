@@ -0,0 +1,48 @@
+package com.lukas.hackassembler.emulate;
+
+/**
+ * Base of the programs generated by the {@link Recompiler}. The basic blocks of the program are executed by
+ * the generated code, everything else (an instruction which isn't the start of a block, e.g. a target of a computed
+ * jump, or a block longer than the rest of the instruction limit) by the interpreter of the {@link Computer}, which
+ * shares the registers and the memory with it.
+ */
+public abstract class RecompiledComputer extends Computer {
+    /**
+     * Index of the generated segment containing the block starting at each address, -1 if no block starts there.
+     */
+    protected final int[] segments;
+
+    /**
+     * @param program  the machine words of the program, loaded from the address 0
+     * @param segments index of the segment of each block start, -1 elsewhere
+     */
+    protected RecompiledComputer(short[] program, int[] segments) {
+        super(program);
+        this.segments = segments;
+    }
+
+    /**
+     * Executes the instructions until the limit is reached or the program halts, exactly as the interpreter.
+     *
+     * @param maxInstructions maximum number of the instructions to be executed
+     * @return number of the executed instructions
+     */
+    @Override
+    public long run(long maxInstructions) {
+        long executed = 0;
+        while (executed < maxInstructions && !halted) {
+            var compiledCount = runBlocks(maxInstructions - executed);
+            executed += compiledCount > 0 ? compiledCount : super.run(1);
+        }
+        return executed;
+    }
+
+    /**
+     * Executes the generated blocks as long as the PC is at the start of a block which fits into the limit, and
+     * the program doesn't halt.
+     *
+     * @param maxInstructions maximum number of the instructions to be executed
+     * @return number of the executed instructions, 0 if the block at the PC can't be executed
+     */
+    protected abstract long runBlocks(long maxInstructions);
+}
@@ -0,0 +1,334 @@
+package com.lukas.hackassembler.emulate;
+
+import com.lukas.hackassembler.codegen.ClassCompiler;
+import com.lukas.hackassembler.model.CompType;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Translates a program into JVM bytecode, so that HotSpot compiles the Hack code natively.
+ * <p>
+ * The program is split into basic blocks - they start at the address 0, after each jump and at each address loaded
+ * into A by an A-instruction (the labels can't be told apart from the other constants in the machine words).
+ * The blocks are generated as the cases of the switches over the PC in small methods (the segments), which are
+ * dispatched by a switch over the segment of the PC. The code of a block is specialized to its instructions, with
+ * the A register known from the preceding A-instruction turned into the constant memory addresses and jump targets.
+ * <p>
+ * The source of the program is compiled by the JDK compiler in memory and loaded by its own class loader. Anything
+ * which isn't a block start (a computed jump into the middle of a block) is executed by the interpreter, see
+ * {@link RecompiledComputer}.
+ */
+public final class Recompiler {
+    private static final String PACKAGE_NAME = "com.lukas.hackassembler.emulate.generated";
+    private static final String SIMPLE_CLASS_NAME = "RecompiledProgram";
+    private static final String CLASS_NAME = PACKAGE_NAME + "." + SIMPLE_CLASS_NAME;
+
+    private static final int MAX_BLOCK_SIZE = 64; // instructions
+    private static final int MAX_SEGMENT_SIZE = 128; // instructions, HotSpot doesn't compile methods over 8000 bytes
+
+    private static final int ADDRESS_MASK = 0x7FFF;
+    private static final int SCREEN_MIRROR_MASK = 0x5FFF;
+    private static final String[] JUMP_CONDITIONS = {null, "o > 0", "o == 0", "o >= 0", "o < 0", "o != 0", "o <= 0", null};
+    private static final int JUMP_UNCONDITIONAL = 0b111;
+
+    private Recompiler() {
+    }
+
+    /**
+     * @return whether the JDK compiler is available (it isn't on a JRE)
+     */
+    public static boolean isAvailable() {
+        return ClassCompiler.isAvailable();
+    }
+
+    /**
+     * Recompiles the program, or creates the interpreter if the JDK compiler isn't available.
+     *
+     * @param program the machine words of the program, loaded from the address 0
+     * @return the computer executing the program
+     * @throws IllegalArgumentException if the program doesn't fit into the ROM
+     */
+    public static Computer compile(short[] program) {
+        if (!ClassCompiler.isAvailable()) {
+            return new Computer(program);
+        }
+        if (program.length > Computer.ROM_SIZE) {
+            throw new IllegalArgumentException("The program of " + program.length + " words doesn't fit into the "
+                    + Computer.ROM_SIZE + " words of the ROM.");
+        }
+
+        var segments = new int[Computer.ROM_SIZE];
+        Arrays.fill(segments, -1);
+        var source = generate(program, segments);
+
+        try {
+            return (Computer) ClassCompiler.load(CLASS_NAME, ClassCompiler.compile(CLASS_NAME, source,
+                            RecompiledComputer.class), RecompiledComputer.class)
+                    .getConstructor(short[].class, int[].class)
+                    .newInstance(program, segments);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("The recompiled program couldn't be created.", e);
+        }
+    }
+
+    /**
+     * Generates the source of the program class.
+     *
+     * @param program  the machine words of the program
+     * @param segments filled with the index of the segment of each block start
+     * @return the Java source
+     */
+    static String generate(short[] program, int[] segments) {
+        var blocks = findBlocks(program);
+
+        var source = new StringBuilder(program.length * 64);
+        source.append("package ").append(PACKAGE_NAME).append(";\n\n")
+                .append("public final class ").append(SIMPLE_CLASS_NAME)
+                .append(" extends ").append(RecompiledComputer.class.getName()).append(" {\n")
+                .append("    public ").append(SIMPLE_CLASS_NAME).append("(short[] program, int[] segments) {\n")
+                .append("        super(program, segments);\n")
+                .append("    }\n");
+
+        // consecutive blocks are grouped into the segments
+        var segmentBlocks = new ArrayList<List<int[]>>();
+        var segmentSize = MAX_SEGMENT_SIZE;
+        for (var block : blocks) {
+            var blockSize = block[1] - block[0];
+            if (segmentSize + blockSize > MAX_SEGMENT_SIZE) {
+                segmentBlocks.add(new ArrayList<>());
+                segmentSize = 0;
+            }
+            segmentBlocks.get(segmentBlocks.size() - 1).add(block);
+            segments[block[0]] = segmentBlocks.size() - 1;
+            segmentSize += blockSize;
+        }
+
+        source.append("\n    @Override\n")
+                .append("    protected long runBlocks(long maxInstructions) {\n")
+                .append("        long executed = 0;\n")
+                .append("        while (!halted) {\n")
+                .append("            long segmentExecuted;\n")
+                .append("            switch (segments[pc]) {\n");
+        for (int segment = 0; segment < segmentBlocks.size(); segment++) {
+            source.append("                case ").append(segment).append(": segmentExecuted = segment").append(segment)
+                    .append("(maxInstructions - executed); break;\n");
+        }
+        source.append("                default: return executed;\n")
+                .append("            }\n")
+                .append("            if (segmentExecuted == 0) {\n")
+                .append("                return executed;\n")
+                .append("            }\n")
+                .append("            executed += segmentExecuted;\n")
+                .append("        }\n")
+                .append("        return executed;\n")
+                .append("    }\n");
+
+        for (int segment = 0; segment < segmentBlocks.size(); segment++) {
+            generateSegment(source, segment, segmentBlocks.get(segment), program);
+        }
+        return source.append("}\n").toString();
+    }
+
+    /**
+     * @return the start (inclusive) and the end (exclusive) address of each block, in their order
+     */
+    private static List<int[]> findBlocks(short[] program) {
+        var starts = new boolean[program.length];
+        if (program.length > 0) {
+            starts[0] = true;
+        }
+        for (int address = 0; address < program.length; address++) {
+            var word = program[address] & 0xFFFF;
+            if (word < Computer.ROM_SIZE) { // A-instruction
+                if (word < program.length) {
+                    starts[word] = true;
+                }
+            } else if ((word & JUMP_UNCONDITIONAL) != 0 && address + 1 < program.length) {
+                starts[address + 1] = true;
+            }
+        }
+
+        var blocks = new ArrayList<int[]>();
+        for (int start = 0; start < program.length; ) {
+            var end = start + 1;
+            while (end < program.length && !starts[end] && end - start < MAX_BLOCK_SIZE) {
+                end++;
+            }
+            blocks.add(new int[]{start, end});
+            start = end;
+        }
+        return blocks;
+    }
+
+    private static void generateSegment(StringBuilder source, int segment, List<int[]> blocks, short[] program) {
+        source.append("\n    private long segment").append(segment).append("(long maxInstructions) {\n")
+                .append("        final short[] m = memory;\n")
+                .append("        int a = this.a;\n")
+                .append("        int d = this.d;\n")
+                .append("        int pc = this.pc;\n")
+                .append("        int ad;\n")
+                .append("        int o;\n")
+                .append("        long executed = 0;\n")
+                .append("        loop:\n")
+                .append("        while (true) {\n")
+                .append("            switch (pc) {\n");
+        for (var block : blocks) {
+            generateBlock(source, block[0], block[1], program);
+        }
+        source.append("                default:\n")
+                .append("                    break loop;\n")
+                .append("            }\n")
+                .append("        }\n")
+                .append("        this.a = a;\n")
+                .append("        this.d = d;\n")
+                .append("        this.pc = pc;\n")
+                .append("        return executed;\n")
+                .append("    }\n");
+    }
+
+    private static void generateBlock(StringBuilder source, int start, int end, short[] program) {
+        var size = end - start;
+        source.append("                case ").append(start).append(":\n")
+                .append("                    if (maxInstructions - executed < ").append(size).append(") {\n")
+                .append("                        break loop;\n")
+                .append("                    }\n");
+
+        var knownA = -1; // the value of A if it's known from an A-instruction of this block
+        for (int address = start; address < end; address++) {
+            var word = program[address] & 0xFFFF;
+            if (word < Computer.ROM_SIZE) {
+                statement(source, "a = " + word + ";");
+                knownA = word;
+            } else {
+                knownA = generateCInstruction(source, address, word, knownA, size, program);
+                if (knownA == Integer.MIN_VALUE) { // ended by an unconditional jump
+                    return;
+                }
+            }
+        }
+        statement(source, "executed += " + size + ";");
+        statement(source, "pc = " + (end & ADDRESS_MASK) + ";");
+        statement(source, "continue;");
+    }
+
+    /**
+     * @return the known value of A after the instruction, -1 if it's unknown, or {@link Integer#MIN_VALUE} if
+     * the instruction is an unconditional jump, ending the block
+     */
+    private static int generateCInstruction(StringBuilder source, int address, int word, int knownA, int blockSize,
+                                            short[] program) {
+        var usesM = (word & 0x1000) != 0;
+        var control = word >> 6 & 0b111111;
+        var dest = word >> 3 & 0b111;
+        var jump = word & 0b111;
+
+        // the address of M and the jump target are given by A before the instruction
+        String address15;
+        if (knownA >= 0) {
+            address15 = String.valueOf(knownA & ADDRESS_MASK);
+        } else {
+            address15 = "ad";
+            if (usesM || (dest & 0b001) != 0 || jump != 0) {
+                statement(source, "ad = a & " + ADDRESS_MASK + ";");
+            }
+        }
+
+        if (dest != 0 || (jump != 0 && jump != JUMP_UNCONDITIONAL)) {
+            String y;
+            if (!usesM) {
+                y = "a";
+            } else if (knownA >= 0) {
+                y = (knownA & ADDRESS_MASK) < Computer.KBD ? "m[" + (knownA & ADDRESS_MASK) + "]" : "keyboard";
+            } else {
+                y = "(ad < " + Computer.KBD + " ? m[ad] : keyboard)";
+            }
+            statement(source, "o = (short) (" + computation(control, y) + ");");
+        }
+
+        if ((dest & 0b001) != 0) {
+            if (knownA >= 0) {
+                var mAddress = knownA & ADDRESS_MASK;
+                statement(source, "m[" + (mAddress < Computer.KBD ? mAddress : mAddress & SCREEN_MIRROR_MASK) + "] = (short) o;");
+            } else {
+                statement(source, "m[ad < " + Computer.KBD + " ? ad : ad & " + SCREEN_MIRROR_MASK + "] = (short) o;");
+            }
+        }
+        if ((dest & 0b100) != 0) {
+            statement(source, "a = o;");
+        }
+        if ((dest & 0b010) != 0) {
+            statement(source, "d = o;");
+        }
+
+        if (jump == 0) {
+            return (dest & 0b100) != 0 ? -1 : knownA;
+        }
+
+        // the halting loop as detected by the interpreter - the jump to the preceding @itself
+        var halting = dest == 0 && address > 0 && romWord(program, address - 1) == address - 1;
+        var taken = new StringBuilder();
+        taken.append("pc = ").append(address15).append("; executed += ").append(blockSize).append("; ");
+        if (halting && knownA >= 0) {
+            taken.append((knownA & ADDRESS_MASK) == address - 1 ? "halted = true; break loop;" : "continue;");
+        } else if (halting) {
+            taken.append("if (ad == ").append(address - 1).append(") { halted = true; break loop; } continue;");
+        } else {
+            taken.append("continue;");
+        }
+
+        if (jump == JUMP_UNCONDITIONAL) {
+            statement(source, taken.toString());
+            return Integer.MIN_VALUE;
+        }
+        statement(source, "if (" + JUMP_CONDITIONS[jump] + ") { " + taken + " }");
+        return (dest & 0b100) != 0 ? -1 : knownA;
+    }
+
+    /**
+     * @param control the zx, nx, zy, ny, f and no bits
+     * @param y       expression of the second operand (A or M)
+     * @return expression of the ALU output (not truncated to 16 bits)
+     */
+    private static String computation(int control, String y) {
+        for (var type : CompType.values()) {
+            if ((type.getCode() & 0b111111) == control) {
+                var expression = new StringBuilder();
+                for (var c : type.getLiteral().toCharArray()) {
+                    switch (c) {
+                        case 'D':
+                            expression.append('d');
+                            break;
+                        case 'A':
+                        case 'M':
+                            expression.append(y);
+                            break;
+                        case '!':
+                            expression.append('~');
+                            break;
+                        default:
+                            expression.append(' ').append(c).append(' ');
+                    }
+                }
+                return expression.toString();
+            }
+        }
+
+        // a combination of the bits without a mnemonic, computed step by step
+        var x = (control & 0b100000) != 0 ? "0" : "d";
+        x = (control & 0b010000) != 0 ? "~" + x : x;
+        y = (control & 0b001000) != 0 ? "0" : y;
+        y = (control & 0b000100) != 0 ? "~" + y : y;
+        var out = "(" + x + ((control & 0b000010) != 0 ? " + " : " & ") + y + ")";
+        return (control & 0b000001) != 0 ? "~" + out : out;
+    }
+
+    private static int romWord(short[] program, int address) {
+        return address < program.length ? program[address] & 0xFFFF : 0;
+    }
+
+    private static void statement(StringBuilder source, String statement) {
+        source.append("                    ").append(statement).append('\n');
+    }
+}
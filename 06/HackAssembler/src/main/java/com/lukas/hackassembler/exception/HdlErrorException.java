@@ -0,0 +1,7 @@
+package com.lukas.hackassembler.exception;
+
+public class HdlErrorException extends Exception {
+    public HdlErrorException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,7 @@
+package com.lukas.hackassembler.exception;
+
+public class LinkerErrorException extends Exception {
+    public LinkerErrorException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,97 @@
+package com.lukas.hackassembler.hdl;
+
+/**
+ * Simulates a combinational chip on 64 independent input vectors at once - the value of each wire is a long and
+ * its bit i is the value of the wire for the vector i (a lane), so a Nand gate is evaluated for all the vectors by
+ * a single bitwise operation. The sweep over the gates is the same as in {@link Simulator}.
+ */
+public class BitSliceSimulator {
+    /**
+     * Number of the vectors evaluated at once.
+     */
+    public static final int LANES = Long.SIZE;
+
+    private final Netlist netlist;
+    private final int[] nandA;
+    private final int[] nandB;
+    private final int firstNandWire;
+    private final long[] values;
+
+    /**
+     * @param netlist the netlist of a combinational chip
+     * @throws IllegalArgumentException if the chip has DFFs or memories
+     */
+    public BitSliceSimulator(Netlist netlist) {
+        if (netlist.getDffCount() > 0 || !netlist.getMemories().isEmpty()) {
+            throw new IllegalArgumentException("The chip " + netlist.getName() + " isn't combinational, it has "
+                    + (netlist.getDffCount() > 0 ? netlist.getDffCount() + " DFFs."
+                    : netlist.getMemories().size() + " memories."));
+        }
+        this.netlist = netlist;
+        nandA = netlist.getNandA();
+        nandB = netlist.getNandB();
+        firstNandWire = netlist.getFirstNandWire();
+        values = new long[netlist.getWireCount()];
+        values[Netlist.TRUE_WIRE] = -1L;
+    }
+
+    /**
+     * Sets the values of an input pin in all the lanes, for the next evaluation.
+     *
+     * @param pin    name of the pin
+     * @param slices the lanes of each bit of the pin, from the bit 0 (the missing bits are false)
+     * @throws IllegalArgumentException if the chip has no such input pin
+     */
+    public void setInput(String pin, long[] slices) {
+        var wires = netlist.getInputs().get(pin);
+        if (wires == null) {
+            throw new IllegalArgumentException("The chip " + netlist.getName() + " has no input pin '" + pin + "'.");
+        }
+        for (int bit = 0; bit < wires.length; bit++) {
+            values[wires[bit]] = bit < slices.length ? slices[bit] : 0;
+        }
+    }
+
+    /**
+     * @param pin name of the pin
+     * @return the lanes of each bit of the output pin after the last evaluation, from the bit 0
+     * @throws IllegalArgumentException if the chip has no such output pin
+     */
+    public long[] getOutput(String pin) {
+        var wires = netlist.getOutputs().get(pin);
+        if (wires == null) {
+            throw new IllegalArgumentException("The chip " + netlist.getName() + " has no output pin '" + pin + "'.");
+        }
+        var slices = new long[wires.length];
+        for (int bit = 0; bit < wires.length; bit++) {
+            slices[bit] = values[wires[bit]];
+        }
+        return slices;
+    }
+
+    /**
+     * Evaluates the chip in all the lanes.
+     */
+    public void evaluate() {
+        var values = this.values;
+        var nandA = this.nandA;
+        var nandB = this.nandB;
+        for (int gate = 0, wire = firstNandWire; gate < nandA.length; gate++, wire++) {
+            values[wire] = ~(values[nandA[gate]] & values[nandB[gate]]);
+        }
+    }
+
+    // the access by the wires, for the verification loops of the package
+
+    void setWire(int wire, long lanes) {
+        values[wire] = lanes;
+    }
+
+    long getWire(int wire) {
+        return values[wire];
+    }
+
+    public Netlist getNetlist() {
+        return netlist;
+    }
+}
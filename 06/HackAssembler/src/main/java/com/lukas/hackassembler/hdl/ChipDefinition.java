@@ -0,0 +1,202 @@
+package com.lukas.hackassembler.hdl;
+
+import java.util.List;
+
+/**
+ * A chip as declared by its HDL file - the input and output pins and the parts it's built from. The primitive chips
+ * (see {@link ChipLibrary}) have no parts.
+ */
+public final class ChipDefinition {
+    private final String name;
+    private final List<Pin> inputs;
+    private final List<Pin> outputs;
+    private final List<Part> parts;
+
+    public ChipDefinition(String name, List<Pin> inputs, List<Pin> outputs, List<Part> parts) {
+        this.name = name;
+        this.inputs = List.copyOf(inputs);
+        this.outputs = List.copyOf(outputs);
+        this.parts = List.copyOf(parts);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public List<Pin> getInputs() {
+        return inputs;
+    }
+
+    public List<Pin> getOutputs() {
+        return outputs;
+    }
+
+    public List<Part> getParts() {
+        return parts;
+    }
+
+    /**
+     * @param pinName name of the pin
+     * @return the input pin, or null if there's none of the name
+     */
+    public Pin getInput(String pinName) {
+        return find(inputs, pinName);
+    }
+
+    /**
+     * @param pinName name of the pin
+     * @return the output pin, or null if there's none of the name
+     */
+    public Pin getOutput(String pinName) {
+        return find(outputs, pinName);
+    }
+
+    /**
+     * @param newName the new name
+     * @return the same chip under another name (eg. a register used as the A register)
+     */
+    public ChipDefinition renamed(String newName) {
+        return new ChipDefinition(newName, inputs, outputs, parts);
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+
+    private static Pin find(List<Pin> pins, String pinName) {
+        for (var pin : pins) {
+            if (pin.getName().equals(pinName)) {
+                return pin;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * An input or output pin (a bus of one or more bits).
+     */
+    public static final class Pin {
+        private final String name;
+        private final int width;
+
+        public Pin(String name, int width) {
+            this.name = name;
+            this.width = width;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public int getWidth() {
+            return width;
+        }
+
+        @Override
+        public String toString() {
+            return width == 1 ? name : name + "[" + width + "]";
+        }
+    }
+
+    /**
+     * A part of the chip - another chip with its pins connected to the pins of this one.
+     */
+    public static final class Part {
+        private final String chipName;
+        private final List<Connection> connections;
+        private final int line;
+
+        public Part(String chipName, List<Connection> connections, int line) {
+            this.chipName = chipName;
+            this.connections = List.copyOf(connections);
+            this.line = line;
+        }
+
+        public String getChipName() {
+            return chipName;
+        }
+
+        public List<Connection> getConnections() {
+            return connections;
+        }
+
+        /**
+         * @return line of the part in the HDL file, for the messages
+         */
+        public int getLine() {
+            return line;
+        }
+    }
+
+    /**
+     * A connection of a pin of a part (or its bits) to a pin of the chip, an internal pin or a constant, as in
+     * "out[0..14]=addressM". A range is -1 for the whole pin.
+     */
+    public static final class Connection {
+        public static final String TRUE = "true";
+        public static final String FALSE = "false";
+
+        private final String pin;
+        private final int pinFrom;
+        private final int pinTo;
+        private final String signal;
+        private final int signalFrom;
+        private final int signalTo;
+
+        public Connection(String pin, int pinFrom, int pinTo, String signal, int signalFrom, int signalTo) {
+            this.pin = pin;
+            this.pinFrom = pinFrom;
+            this.pinTo = pinTo;
+            this.signal = signal;
+            this.signalFrom = signalFrom;
+            this.signalTo = signalTo;
+        }
+
+        /**
+         * @return name of the pin of the part
+         */
+        public String getPin() {
+            return pin;
+        }
+
+        public int getPinFrom() {
+            return pinFrom;
+        }
+
+        public int getPinTo() {
+            return pinTo;
+        }
+
+        /**
+         * @return name of the pin of the chip, the internal pin, or {@value #TRUE} or {@value #FALSE}
+         */
+        public String getSignal() {
+            return signal;
+        }
+
+        public int getSignalFrom() {
+            return signalFrom;
+        }
+
+        public int getSignalTo() {
+            return signalTo;
+        }
+
+        public boolean isConstant() {
+            return signal.equals(TRUE) || signal.equals(FALSE);
+        }
+
+        @Override
+        public String toString() {
+            return pin + range(pinFrom, pinTo) + "=" + signal + range(signalFrom, signalTo);
+        }
+
+        private static String range(int from, int to) {
+            if (from == -1) {
+                return "";
+            }
+            return from == to ? "[" + from + "]" : "[" + from + ".." + to + "]";
+        }
+    }
+}
@@ -0,0 +1,191 @@
+package com.lukas.hackassembler.hdl;
+
+import com.lukas.hackassembler.exception.HdlErrorException;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Finds the chips by their names - the primitive Nand and DFF, the built-in Screen, Keyboard and ROM32K (see
+ * {@link MemoryModel}), or the HDL file of the name in one of the directories (the first one wins). The A and D
+ * registers of the CPU are the same chip as the Register. Each file is parsed only once, and not at all if its chip is
+ * in the {@link HdlCache}.
+ */
+public class ChipLibrary {
+    /**
+     * The directories of the project with the HDL files, in the order of the projects.
+     */
+    public static final List<String> PROJECT_DIRS = List.of("01", "02", "03/a", "03/b", "05");
+
+    public static final ChipDefinition NAND = new ChipDefinition("Nand",
+            List.of(new ChipDefinition.Pin("a", 1), new ChipDefinition.Pin("b", 1)),
+            List.of(new ChipDefinition.Pin("out", 1)), List.of());
+    public static final ChipDefinition DFF = new ChipDefinition("DFF", List.of(new ChipDefinition.Pin("in", 1)),
+            List.of(new ChipDefinition.Pin("out", 1)), List.of());
+
+    private static final String FILE_EXTENSION = ".hdl";
+    private static final Map<String, String> ALIASES = Map.of("ARegister", "Register", "DRegister", "Register");
+
+    private final List<Path> dirs;
+    private final HdlCache cache;
+    private final Map<String, ChipDefinition> chips = new HashMap<>();
+    private final Map<Path, byte[]> fileHashes = new HashMap<>();
+
+    /**
+     * @param dirs the directories with the HDL files
+     */
+    public ChipLibrary(List<Path> dirs) {
+        this(dirs, null);
+    }
+
+    /**
+     * @param dirs  the directories with the HDL files
+     * @param cache cache of the parsed chips, or null to parse all the files
+     */
+    public ChipLibrary(List<Path> dirs, HdlCache cache) {
+        this.dirs = List.copyOf(dirs);
+        this.cache = cache;
+        chips.put(NAND.getName(), NAND);
+        chips.put(DFF.getName(), DFF);
+        for (var model : MemoryModel.getBuiltIn()) {
+            chips.put(model.getName(), model.getChip());
+        }
+    }
+
+    /**
+     * @param projectDir the root directory of the project, with the {@link #PROJECT_DIRS}
+     * @return library of the chips of the project
+     */
+    public static ChipLibrary ofProject(Path projectDir) {
+        return ofProject(projectDir, null);
+    }
+
+    /**
+     * @param projectDir the root directory of the project, with the {@link #PROJECT_DIRS}
+     * @param cache      cache of the parsed chips, or null to parse all the files
+     * @return library of the chips of the project
+     */
+    public static ChipLibrary ofProject(Path projectDir, HdlCache cache) {
+        var dirs = new ArrayList<Path>();
+        for (var dir : PROJECT_DIRS) {
+            dirs.add(projectDir.resolve(dir));
+        }
+        return new ChipLibrary(dirs, cache);
+    }
+
+    /**
+     * @param name name of the chip
+     * @return the chip
+     * @throws HdlErrorException if there's no such chip, or its HDL file isn't valid
+     */
+    public ChipDefinition getChip(String name) throws HdlErrorException {
+        var chip = chips.get(name);
+        if (chip == null) {
+            var alias = ALIASES.get(name);
+            chip = alias != null ? getChip(alias).renamed(name) : parse(name);
+            chips.put(name, chip);
+        }
+        return chip;
+    }
+
+    /**
+     * @param name name of the chip
+     * @return the HDL file of the chip, or null if there's none
+     */
+    public Path findFile(String name) {
+        for (var dir : dirs) {
+            var file = dir.resolve(name + FILE_EXTENSION);
+            if (Files.isRegularFile(file)) {
+                return file;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @param name name of the chip
+     * @return the HDL files of the chip and of all its parts, down to the primitive and the built-in chips (which have
+     * none), sorted by their paths
+     * @throws HdlErrorException if there's no such chip or part, or an HDL file isn't valid
+     */
+    public List<Path> findFiles(String name) throws HdlErrorException {
+        var files = new TreeSet<Path>();
+        collectFiles(name, new HashSet<>(), files);
+        return new ArrayList<>(files);
+    }
+
+    /**
+     * @param name name of the chip
+     * @return SHA-256 hash of the names and the contents of the {@link #findFiles(String) HDL files} of the chip and
+     * all its parts - it changes with any of them (as read by this library)
+     * @throws HdlErrorException if there's no such chip or part, or an HDL file isn't valid
+     */
+    public byte[] getContentHash(String name) throws HdlErrorException {
+        var digest = HdlCache.sha256();
+        for (var file : findFiles(name)) {
+            digest.update(file.getFileName().toString().getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(fileHashes.get(file));
+        }
+        return digest.digest();
+    }
+
+    private void collectFiles(String name, Set<String> visited, Set<Path> files) throws HdlErrorException {
+        if (!visited.add(name)) {
+            return;
+        }
+        var chip = getChip(name);
+        var file = findFile(ALIASES.getOrDefault(name, name));
+        if (file != null) {
+            files.add(file);
+        }
+        for (var part : chip.getParts()) {
+            collectFiles(part.getChipName(), visited, files);
+        }
+    }
+
+    private ChipDefinition parse(String name) throws HdlErrorException {
+        var file = findFile(name);
+        if (file == null) {
+            throw new HdlErrorException("There's no HDL file of the chip '" + name + "' in " + dirs + ".");
+        }
+
+        byte[] input;
+        try {
+            input = Files.readAllBytes(file);
+        } catch (IOException e) {
+            throw new HdlErrorException("The file " + file + " couldn't be read - " + e.getMessage());
+        }
+        var fileHash = HdlCache.sha256().digest(input);
+        fileHashes.put(file, fileHash);
+
+        var chip = cache != null ? cache.loadChip(fileHash) : null;
+        if (chip == null) {
+            try {
+                chip = new HdlParser(StandardCharsets.UTF_8.newDecoder().decode(ByteBuffer.wrap(input)).toString(),
+                        file.toString()).parse();
+            } catch (CharacterCodingException e) {
+                throw new HdlErrorException("The file " + file + " couldn't be read - " + e.getMessage());
+            }
+            if (cache != null) {
+                cache.storeChip(fileHash, chip);
+            }
+        }
+        if (!chip.getName().equals(name)) {
+            throw new HdlErrorException("The file " + file + " defines the chip '" + chip.getName() + "' instead of '"
+                    + name + "'.");
+        }
+        return chip;
+    }
+}
@@ -0,0 +1,377 @@
+package com.lukas.hackassembler.hdl;
+
+import com.lukas.hackassembler.exception.HdlErrorException;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Verifies a combinational chip against its {@link ReferenceModel} - exhaustively if it has few enough input bits,
+ * otherwise by random input vectors. The vectors are evaluated in batches of 64 by the {@link BitSliceSimulator},
+ * the batches are split into fork-join tasks.
+ * <p>
+ * In the exhaustive verification the vector i has the bit j of the concatenated input pins (in the order of
+ * the declaration, each from its bit 0) set as the bit j of i. The random vectors are given by the seed, so a run
+ * can be repeated. Either way the reported mismatch is the one of the lowest vector.
+ */
+public class ChipVerifier {
+    /**
+     * Number of the input bits up to which the chips are verified exhaustively by default (the 2^24 vectors take
+     * about as long as the default random ones).
+     */
+    public static final int DEFAULT_EXHAUSTIVE_BITS = 24;
+    public static final long DEFAULT_RANDOM_VECTORS = 1L << 24;
+
+    private static final int MAX_EXHAUSTIVE_BITS = 62; // the vector count has to be a long
+    private static final int LEAF_BATCHES = 64; // of 64 vectors, the batches of a task which isn't split anymore
+    private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+
+    private final Netlist netlist;
+    private final ReferenceModel model;
+    private final int[][] inputWires; // of each pin of the model
+    private final int[][] outputWires;
+    private final int[] inputOffsets; // see offsetsOf
+    private final int[] outputOffsets;
+    private final int inputBits;
+
+    /**
+     * @param netlist the netlist of the chip
+     * @param model   the reference model of the chip
+     * @throws HdlErrorException if the chip isn't combinational, or its pins differ from the ones of the model
+     */
+    public ChipVerifier(Netlist netlist, ReferenceModel model) throws HdlErrorException {
+        if (netlist.getDffCount() > 0 || !netlist.getMemories().isEmpty()) {
+            throw new HdlErrorException("The chip '" + netlist.getName() + "' isn't combinational, it has "
+                    + (netlist.getDffCount() > 0 ? netlist.getDffCount() + " DFFs."
+                    : netlist.getMemories().size() + " memories."));
+        }
+        this.netlist = netlist;
+        this.model = model;
+        inputWires = wiresOf(netlist.getInputs(), model.getInputs());
+        outputWires = wiresOf(netlist.getOutputs(), model.getOutputs());
+        inputOffsets = offsetsOf(inputWires);
+        outputOffsets = offsetsOf(outputWires);
+        var inputBits = 0;
+        for (var wires : inputWires) {
+            inputBits += wires.length;
+        }
+        this.inputBits = inputBits;
+    }
+
+    /**
+     * Verifies the chip with the default limits, by the common fork-join pool.
+     *
+     * @param seed seed of the random vectors
+     * @return the result
+     */
+    public Result verify(long seed) {
+        return verify(DEFAULT_EXHAUSTIVE_BITS, DEFAULT_RANDOM_VECTORS, seed, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * @param exhaustiveBits the chip is verified exhaustively if it has at most this number of input bits
+     * @param randomVectors  number of the random vectors otherwise (rounded up to a multiple of 64)
+     * @param seed           seed of the random vectors
+     * @param pool           pool for the tasks
+     * @return the result
+     */
+    public Result verify(int exhaustiveBits, long randomVectors, long seed, ForkJoinPool pool) {
+        var exhaustive = inputBits <= Math.min(exhaustiveBits, MAX_EXHAUSTIVE_BITS);
+        var batchCount = exhaustive ? Math.max(1, (1L << inputBits) / BitSliceSimulator.LANES)
+                : (randomVectors + BitSliceSimulator.LANES - 1) / BitSliceSimulator.LANES;
+        var vectorCount = exhaustive ? 1L << inputBits : batchCount * BitSliceSimulator.LANES;
+
+        var start = System.nanoTime();
+        var mismatch = pool.invoke(new Task(exhaustive, seed, 0, batchCount, new AtomicLong(Long.MAX_VALUE)));
+        return new Result(netlist.getName(), exhaustive, vectorCount, System.nanoTime() - start, mismatch);
+    }
+
+    private int[][] wiresOf(Map<String, int[]> pins, List<ChipDefinition.Pin> modelPins) throws HdlErrorException {
+        var wires = new int[modelPins.size()][];
+        var matching = pins.size() == modelPins.size();
+        for (int i = 0; i < wires.length && matching; i++) {
+            var pin = modelPins.get(i);
+            wires[i] = pins.get(pin.getName());
+            matching = wires[i] != null && wires[i].length == pin.getWidth();
+        }
+        if (!matching) {
+            throw new HdlErrorException("The pins of the chip '" + netlist.getName() + "' differ from its reference"
+                    + " model (" + describePins(model.getInputs()) + " -> " + describePins(model.getOutputs()) + ").");
+        }
+        return wires;
+    }
+
+    private static String describePins(List<ChipDefinition.Pin> pins) {
+        return pins.stream().map(ChipDefinition.Pin::toString).collect(Collectors.joining(", "));
+    }
+
+    /**
+     * The pins of a lane are packed into the blocks of 64 bits - a pin which doesn't fit into the rest of a block
+     * starts the next one. The lanes of a block are the 64 rows of a bit matrix, transposed into the lanes of each bit.
+     *
+     * @return the offset of each pin (its bit 0) in the blocks, and the size of the blocks after the last pin
+     */
+    private static int[] offsetsOf(int[][] wires) {
+        var offsets = new int[wires.length + 1];
+        var offset = 0;
+        for (int pin = 0; pin < wires.length; pin++) {
+            if (offset % Long.SIZE + wires[pin].length > Long.SIZE) {
+                offset = roundUpToBlock(offset);
+            }
+            offsets[pin] = offset;
+            offset += wires[pin].length;
+        }
+        offsets[wires.length] = roundUpToBlock(offset);
+        return offsets;
+    }
+
+    private static int roundUpToBlock(int offset) {
+        return (offset + Long.SIZE - 1) & -Long.SIZE;
+    }
+
+    private static void pack(long[] values, int[][] wires, int[] offsets, long[] rows, int lane) {
+        for (int pin = 0; pin < wires.length; pin++) {
+            var offset = offsets[pin];
+            rows[offset - offset % Long.SIZE + lane] |= (values[pin] & maskOf(wires[pin].length)) << offset % Long.SIZE;
+        }
+    }
+
+    private static void unpack(long[] rows, int[][] wires, int[] offsets, long[] values, int lane) {
+        for (int pin = 0; pin < wires.length; pin++) {
+            var offset = offsets[pin];
+            values[pin] = rows[offset - offset % Long.SIZE + lane] >>> offset % Long.SIZE & maskOf(wires[pin].length);
+        }
+    }
+
+    /**
+     * Transposes each block of 64 rows as a 64x64 bit matrix, by swapping its halves, their halves... (Hacker's
+     * Delight 7-3) - the bit j of the row i becomes the bit i of the row j.
+     */
+    private static void transposeBlocks(long[] rows) {
+        for (int block = 0; block < rows.length; block += Long.SIZE) {
+            var mask = 0x00000000FFFFFFFFL;
+            for (int j = Long.SIZE / 2; j != 0; j >>>= 1, mask ^= mask << j) {
+                for (int half = block; half < block + Long.SIZE; half += 2 * j) { // the rows k and k + j
+                    for (int k = half; k < half + j; k++) {
+                        var swapped = (rows[k] >>> j ^ rows[k + j]) & mask;
+                        rows[k] ^= swapped << j;
+                        rows[k + j] ^= swapped;
+                    }
+                }
+            }
+        }
+    }
+
+    private static long maskOf(int width) {
+        return width == Long.SIZE ? -1L : (1L << width) - 1;
+    }
+
+    /**
+     * Verifies a range of the batches - splits it in halves, or evaluates it. The batches after the lowest failed one
+     * found so far (by any task) are skipped, the first mismatch of the left half wins.
+     */
+    private class Task extends RecursiveTask<String> {
+        private final boolean exhaustive;
+        private final long seed;
+        private final long fromBatch;
+        private final long toBatch;
+        private final AtomicLong firstFailedBatch;
+
+        Task(boolean exhaustive, long seed, long fromBatch, long toBatch, AtomicLong firstFailedBatch) {
+            this.exhaustive = exhaustive;
+            this.seed = seed;
+            this.fromBatch = fromBatch;
+            this.toBatch = toBatch;
+            this.firstFailedBatch = firstFailedBatch;
+        }
+
+        @Override
+        protected String compute() {
+            if (toBatch - fromBatch > LEAF_BATCHES) {
+                var middle = fromBatch + (toBatch - fromBatch) / 2;
+                var left = new Task(exhaustive, seed, fromBatch, middle, firstFailedBatch);
+                var right = new Task(exhaustive, seed, middle, toBatch, firstFailedBatch);
+                invokeAll(left, right);
+                var mismatch = left.join();
+                return mismatch != null ? mismatch : right.join();
+            }
+
+            var worker = new Worker(exhaustive, seed);
+            for (var batch = fromBatch; batch < toBatch && batch < firstFailedBatch.get(); batch++) {
+                var mismatch = worker.verify(batch);
+                if (mismatch != null) {
+                    firstFailedBatch.accumulateAndGet(batch, Math::min);
+                    return mismatch;
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * The state of a task - the simulator and the values of the pins in each lane.
+     */
+    private class Worker {
+        private final boolean exhaustive;
+        private final long seed;
+        private final BitSliceSimulator simulator = new BitSliceSimulator(netlist);
+        private final long[][] inputs = new long[BitSliceSimulator.LANES][inputWires.length];
+        private final long[][] outputs = new long[BitSliceSimulator.LANES][outputWires.length];
+        private final long[] inputRows = new long[inputOffsets[inputWires.length]]; // see packing
+        private final long[] outputRows = new long[outputOffsets[outputWires.length]];
+
+        Worker(boolean exhaustive, long seed) {
+            this.exhaustive = exhaustive;
+            this.seed = seed;
+        }
+
+        /**
+         * @return description of the first mismatch of the batch, or null if there's none
+         */
+        String verify(long batch) {
+            var firstVector = batch * BitSliceSimulator.LANES;
+            var blockCount = inputRows.length / Long.SIZE;
+            Arrays.fill(inputRows, 0);
+            Arrays.fill(outputRows, 0);
+            for (int lane = 0; lane < BitSliceSimulator.LANES; lane++) {
+                var vector = firstVector + lane;
+                if (exhaustive) {
+                    var bits = vector & maskOf(inputBits); // the lanes of a smaller space repeat it
+                    for (int pin = 0; pin < inputWires.length; pin++) {
+                        inputs[lane][pin] = bits & maskOf(inputWires[pin].length);
+                        bits >>>= inputWires[pin].length;
+                    }
+                    pack(inputs[lane], inputWires, inputOffsets, inputRows, lane);
+                } else { // a random row of each block, the pins are cut out of them
+                    for (int block = 0; block < blockCount; block++) {
+                        inputRows[block * Long.SIZE + lane] =
+                                mix(seed + GOLDEN_GAMMA * (vector * blockCount + block + 1));
+                    }
+                    unpack(inputRows, inputWires, inputOffsets, inputs[lane], lane);
+                }
+                model.compute(inputs[lane], outputs[lane]);
+                pack(outputs[lane], outputWires, outputOffsets, outputRows, lane);
+            }
+            transposeBlocks(inputRows);
+            transposeBlocks(outputRows);
+
+            for (int pin = 0; pin < inputWires.length; pin++) {
+                var wires = inputWires[pin];
+                for (int bit = 0; bit < wires.length; bit++) {
+                    simulator.setWire(wires[bit], inputRows[inputOffsets[pin] + bit]);
+                }
+            }
+            simulator.evaluate();
+
+            var differences = 0L; // the lanes with a wrong output bit
+            for (int pin = 0; pin < outputWires.length; pin++) {
+                var wires = outputWires[pin];
+                for (int bit = 0; bit < wires.length; bit++) {
+                    differences |= outputRows[outputOffsets[pin] + bit] ^ simulator.getWire(wires[bit]);
+                }
+            }
+            return differences == 0 ? null : describeMismatch(Long.numberOfTrailingZeros(differences));
+        }
+
+        private String describeMismatch(int lane) {
+            var actual = new StringBuilder();
+            var expected = new StringBuilder();
+            for (int pin = 0; pin < outputWires.length; pin++) {
+                var wires = outputWires[pin];
+                var value = 0L;
+                for (int bit = 0; bit < wires.length; bit++) {
+                    value |= (simulator.getWire(wires[bit]) >>> lane & 1) << bit;
+                }
+                var name = model.getOutputs().get(pin).getName();
+                append(actual, name, value);
+                append(expected, name, outputs[lane][pin] & maskOf(wires.length));
+            }
+            var inputs = new StringBuilder();
+            for (int pin = 0; pin < inputWires.length; pin++) {
+                append(inputs, model.getInputs().get(pin).getName(), this.inputs[lane][pin]);
+            }
+            return "The chip '" + netlist.getName() + "' gives " + actual + " instead of " + expected + " for "
+                    + inputs + ".";
+        }
+
+        private void append(StringBuilder pins, String name, long value) {
+            pins.append(pins.length() == 0 ? "" : ", ").append(name).append('=').append(Long.toUnsignedString(value));
+        }
+    }
+
+    /**
+     * The SplitMix64 finalizer - a random value of a counter.
+     */
+    private static long mix(long z) {
+        z = (z ^ z >>> 30) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ z >>> 27) * 0x94d049bb133111ebL;
+        return z ^ z >>> 31;
+    }
+
+    /**
+     * Result of a verification.
+     */
+    public static final class Result {
+        private final String chip;
+        private final boolean exhaustive;
+        private final long vectorCount;
+        private final long nanos;
+        private final String mismatch;
+
+        Result(String chip, boolean exhaustive, long vectorCount, long nanos, String mismatch) {
+            this.chip = chip;
+            this.exhaustive = exhaustive;
+            this.vectorCount = vectorCount;
+            this.nanos = nanos;
+            this.mismatch = mismatch;
+        }
+
+        public String getChip() {
+            return chip;
+        }
+
+        /**
+         * @return whether all the input vectors were verified, not the random ones
+         */
+        public boolean isExhaustive() {
+            return exhaustive;
+        }
+
+        /**
+         * @return number of the vectors to verify (the verification stops at a mismatch)
+         */
+        public long getVectorCount() {
+            return vectorCount;
+        }
+
+        public long getNanos() {
+            return nanos;
+        }
+
+        /**
+         * @return description of the first mismatch, or null if the chip behaves as its model
+         */
+        public String getMismatch() {
+            return mismatch;
+        }
+
+        public boolean isPassed() {
+            return mismatch == null;
+        }
+
+        public double getVectorsPerSecond() {
+            return vectorCount / (Math.max(nanos, 1) / 1e9);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s (%d %s vectors, %.1f ms, %.3g vectors/s)", chip, vectorCount,
+                    exhaustive ? "exhaustive" : "random", nanos / 1e6, getVectorsPerSecond());
+        }
+    }
+}
@@ -0,0 +1,489 @@
+package com.lukas.hackassembler.hdl;
+
+import com.lukas.hackassembler.exception.HdlErrorException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Flattens a chip into a {@link Netlist} - the parts are expanded recursively down to the Nand gates and DFFs, and
+ * the pins connecting them are merged into the nets (a part output and everything connected to it is the same wire).
+ * The nets are then levelized by a topological sort of the gates, which finds the combinational loops too.
+ * <p>
+ * As in the nand2tetris simulator, an unconnected input of a part is false, the internal pins can't be subscripted
+ * and their width is given by the part pin they are connected to. A part can't read an output pin of the chip.
+ * <p>
+ * The memory chips are either flattened as any other chip, or substituted by their behavioral models - see
+ * {@link Mode}. The built-in chips (the Screen, the Keyboard and the ROM32K) are always behavioral.
+ */
+public class Elaborator {
+    /**
+     * How the memory chips are elaborated.
+     */
+    public enum Mode {
+        /**
+         * Everything is flattened down to the Nand gates and DFFs.
+         */
+        GATE_LEVEL,
+        /**
+         * The parts which are the memory chips of the project 03 (the Bit, the Register and the RAMs, recognized
+         * by their names and pins) are substituted by their {@link MemoryModel}s - instead of eg. the million gates
+         * of the RAM16K. The chip being elaborated itself (the chip under test) is always flattened.
+         */
+        BEHAVIORAL_MEMORY
+    }
+
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final int NO_DRIVER = -1;
+    private static final int SOURCE = -2; // a constant or an input bit
+
+    private final ChipLibrary library;
+    private final Mode mode;
+
+    private int[] parents; // union-find of the wires, each set is a net
+    private int wireCount;
+    private int[] nands; // input a, input b and output of each gate
+    private int nandCount;
+    private int[] dffs; // input and output of each DFF
+    private int dffCount;
+    private final List<MemoryPart> memories = new ArrayList<>();
+    private final Set<String> elaborated = new HashSet<>(); // the chips being expanded, for the recursion
+
+    /**
+     * @param library the chips
+     */
+    public Elaborator(ChipLibrary library) {
+        this(library, Mode.GATE_LEVEL);
+    }
+
+    /**
+     * @param library the chips
+     * @param mode    how the memory chips are elaborated
+     */
+    public Elaborator(ChipLibrary library, Mode mode) {
+        this.library = library;
+        this.mode = mode;
+    }
+
+    /**
+     * @param chipName name of the chip
+     * @return the levelized netlist of the chip
+     * @throws HdlErrorException if a chip isn't valid, or the chip has a combinational loop
+     */
+    public Netlist elaborate(String chipName) throws HdlErrorException {
+        parents = new int[INITIAL_CAPACITY];
+        wireCount = 0;
+        nands = new int[3 * INITIAL_CAPACITY];
+        nandCount = 0;
+        dffs = new int[2 * INITIAL_CAPACITY];
+        dffCount = 0;
+        memories.clear();
+        elaborated.clear();
+
+        newWire(); // false
+        newWire(); // true
+
+        var chip = library.getChip(chipName);
+        var pins = new HashMap<String, int[]>();
+        var inputs = new LinkedHashMap<String, int[]>();
+        for (var pin : chip.getInputs()) {
+            inputs.put(pin.getName(), newWires(pin.getWidth()));
+        }
+        var outputs = new LinkedHashMap<String, int[]>();
+        for (var pin : chip.getOutputs()) {
+            outputs.put(pin.getName(), newWires(pin.getWidth()));
+        }
+        pins.putAll(inputs);
+        pins.putAll(outputs);
+
+        elaborate(chip, pins);
+        return levelize(chip.getName(), inputs, outputs);
+    }
+
+    private void elaborate(ChipDefinition chip, Map<String, int[]> pins) throws HdlErrorException {
+        if (chip == ChipLibrary.NAND) {
+            addNand(pins.get("a")[0], pins.get("b")[0], pins.get("out")[0]);
+            return;
+        }
+        if (chip == ChipLibrary.DFF) {
+            addDff(pins.get("in")[0], pins.get("out")[0]);
+            return;
+        }
+        var model = MemoryModel.findBuiltIn(chip);
+        if (model == null && mode == Mode.BEHAVIORAL_MEMORY && !elaborated.isEmpty()) { // not the chip under test
+            model = MemoryModel.findSubstitute(chip);
+        }
+        if (model != null) {
+            memories.add(new MemoryPart(model, pins));
+            return;
+        }
+        if (!elaborated.add(chip.getName())) {
+            throw new HdlErrorException("The chip '" + chip.getName() + "' is a part of itself.");
+        }
+
+        var internalPins = new HashMap<String, int[]>();
+        var drivenPins = new HashSet<String>();
+        for (var part : chip.getParts()) {
+            var partChip = library.getChip(part.getChipName());
+            var partPins = new HashMap<String, int[]>();
+            for (var pin : partChip.getInputs()) {
+                partPins.put(pin.getName(), new int[pin.getWidth()]); // the unconnected bits are false
+            }
+            for (var pin : partChip.getOutputs()) {
+                partPins.put(pin.getName(), newWires(pin.getWidth()));
+            }
+
+            for (var connection : part.getConnections()) {
+                connect(chip, part, partChip, connection, pins, internalPins, drivenPins, partPins);
+            }
+            elaborate(partChip, partPins);
+        }
+
+        for (var internalPin : internalPins.keySet()) {
+            if (!drivenPins.contains(internalPin)) {
+                throw new HdlErrorException("The internal pin '" + internalPin + "' of the chip '" + chip.getName()
+                        + "' isn't an output of any part.");
+            }
+        }
+        elaborated.remove(chip.getName());
+    }
+
+    private void connect(ChipDefinition chip, ChipDefinition.Part part, ChipDefinition partChip,
+                         ChipDefinition.Connection connection, Map<String, int[]> pins,
+                         Map<String, int[]> internalPins, Set<String> drivenPins, Map<String, int[]> partPins)
+            throws HdlErrorException {
+        var pin = partChip.getInput(connection.getPin());
+        var isInput = pin != null;
+        if (!isInput) {
+            pin = partChip.getOutput(connection.getPin());
+            if (pin == null) {
+                throw error(chip, part, "The chip '" + partChip.getName() + "' has no pin '" + connection.getPin() + "'");
+            }
+        }
+        var partBits = partPins.get(pin.getName());
+        var pinFrom = connection.getPinFrom() == -1 ? 0 : connection.getPinFrom();
+        var pinTo = connection.getPinFrom() == -1 ? pin.getWidth() - 1 : connection.getPinTo();
+        if (pinTo >= pin.getWidth()) {
+            throw error(chip, part, "The pin '" + pin + "' of the chip '" + partChip.getName() + "' has no bit " + pinTo);
+        }
+        var width = pinTo - pinFrom + 1;
+
+        var signal = connection.getSignal();
+        if (connection.isConstant()) {
+            if (!isInput || connection.getSignalFrom() != -1) {
+                throw error(chip, part, "The constant '" + signal + "' can be only a whole input of a part");
+            }
+            Arrays.fill(partBits, pinFrom, pinTo + 1,
+                    signal.equals(ChipDefinition.Connection.TRUE) ? Netlist.TRUE_WIRE : Netlist.FALSE_WIRE);
+            return;
+        }
+
+        int[] signalBits;
+        var chipPin = chip.getInput(signal);
+        if (chipPin != null && !isInput) {
+            throw error(chip, part, "The input pin '" + signal + "' can't be an output of a part");
+        }
+        if (chipPin == null) {
+            chipPin = chip.getOutput(signal);
+            if (chipPin != null && isInput) {
+                throw error(chip, part, "The output pin '" + signal + "' can't be an input of a part");
+            }
+        }
+        if (chipPin != null) {
+            var bits = pins.get(signal);
+            var signalFrom = connection.getSignalFrom() == -1 ? 0 : connection.getSignalFrom();
+            var signalTo = connection.getSignalFrom() == -1 ? chipPin.getWidth() - 1 : connection.getSignalTo();
+            if (signalTo >= chipPin.getWidth()) {
+                throw error(chip, part, "The pin '" + chipPin + "' has no bit " + signalTo);
+            }
+            signalBits = Arrays.copyOfRange(bits, signalFrom, signalTo + 1);
+        } else {
+            if (connection.getSignalFrom() != -1) {
+                throw error(chip, part, "The internal pin '" + signal + "' can't be subscripted");
+            }
+            signalBits = internalPins.get(signal);
+            if (signalBits == null) {
+                signalBits = newWires(width);
+                internalPins.put(signal, signalBits);
+            }
+            if (!isInput) {
+                drivenPins.add(signal);
+            }
+        }
+        if (signalBits.length != width) {
+            throw error(chip, part, "The widths of '" + connection + "' differ (" + width + " and "
+                    + signalBits.length + ")");
+        }
+
+        for (int i = 0; i < width; i++) {
+            if (isInput) {
+                partBits[pinFrom + i] = signalBits[i];
+            } else {
+                union(signalBits[i], partBits[pinFrom + i]);
+            }
+        }
+    }
+
+    private Netlist levelize(String name, Map<String, int[]> inputs, Map<String, int[]> outputs)
+            throws HdlErrorException {
+        // the nodes of the graph are the gates and then the memories (their reads), the DFFs are after them
+        var nodeCount = nandCount + memories.size();
+        var drivers = new int[wireCount]; // of each net (its root), the node or the DFF
+        Arrays.fill(drivers, NO_DRIVER);
+        drivers[find(Netlist.FALSE_WIRE)] = SOURCE;
+        drivers[find(Netlist.TRUE_WIRE)] = SOURCE;
+        for (var bits : inputs.values()) {
+            for (var bit : bits) {
+                drivers[find(bit)] = SOURCE;
+            }
+        }
+        for (int gate = 0; gate < nandCount; gate++) {
+            setDriver(name, drivers, find(nands[3 * gate + 2]), gate);
+        }
+        for (int memory = 0; memory < memories.size(); memory++) {
+            for (var bit : memories.get(memory).out) {
+                setDriver(name, drivers, find(bit), nandCount + memory);
+            }
+        }
+        for (int dff = 0; dff < dffCount; dff++) {
+            setDriver(name, drivers, find(dffs[2 * dff + 1]), nodeCount + dff);
+        }
+
+        // Kahn's topological sort of the nodes, the DFF outputs are sources like the inputs
+        var pendingInputs = new int[nodeCount];
+        var fanoutStarts = new int[nodeCount + 1];
+        for (int node = 0; node < nodeCount; node++) {
+            for (int input = 0; input < getInputCount(node); input++) {
+                var driver = drivers[find(getInput(node, input))];
+                if (driver >= 0 && driver < nodeCount) {
+                    pendingInputs[node]++;
+                    fanoutStarts[driver + 1]++;
+                }
+            }
+        }
+        for (int node = 0; node < nodeCount; node++) {
+            fanoutStarts[node + 1] += fanoutStarts[node];
+        }
+        var fanouts = new int[fanoutStarts[nodeCount]];
+        var fanoutCounts = new int[nodeCount];
+        for (int node = 0; node < nodeCount; node++) {
+            for (int input = 0; input < getInputCount(node); input++) {
+                var driver = drivers[find(getInput(node, input))];
+                if (driver >= 0 && driver < nodeCount) {
+                    fanouts[fanoutStarts[driver] + fanoutCounts[driver]++] = node;
+                }
+            }
+        }
+
+        var order = new int[nodeCount]; // also the queue of the nodes with all the inputs ordered already
+        var levels = new int[nodeCount];
+        var orderedCount = 0;
+        for (int node = 0; node < nodeCount; node++) {
+            if (pendingInputs[node] == 0) {
+                order[orderedCount++] = node;
+            }
+        }
+        var depth = 0;
+        for (int head = 0; head < orderedCount; head++) {
+            var node = order[head];
+            if (node < nandCount) { // a read of a memory adds no gate to the path
+                levels[node]++;
+            }
+            depth = Math.max(depth, levels[node]);
+            for (int i = fanoutStarts[node]; i < fanoutStarts[node + 1]; i++) {
+                var next = fanouts[i];
+                levels[next] = Math.max(levels[next], levels[node]);
+                if (--pendingInputs[next] == 0) {
+                    order[orderedCount++] = next;
+                }
+            }
+        }
+        if (orderedCount < nodeCount) {
+            var unorderedGates = nandCount;
+            for (int i = 0; i < orderedCount; i++) {
+                unorderedGates -= order[i] < nandCount ? 1 : 0;
+            }
+            throw new HdlErrorException("The chip '" + name + "' has a combinational loop (through "
+                    + unorderedGates + " Nand gates without a DFF).");
+        }
+
+        // the gates in their order, each memory read before the gate following it in the order
+        var gateOrder = new int[nandCount];
+        var memoryOrder = new int[memories.size()];
+        var readPositions = new int[memories.size()];
+        for (int i = 0, gate = 0, memory = 0; i < nodeCount; i++) {
+            if (order[i] < nandCount) {
+                gateOrder[gate++] = order[i];
+            } else {
+                memoryOrder[memory] = order[i] - nandCount;
+                readPositions[memory++] = gate;
+            }
+        }
+
+        // the wires renumbered in the order of the evaluation, the undriven nets are false
+        var wires = new int[wireCount];
+        var nextWire = 0;
+        wires[find(Netlist.FALSE_WIRE)] = nextWire++;
+        wires[find(Netlist.TRUE_WIRE)] = nextWire++;
+        var inputWires = new LinkedHashMap<String, int[]>();
+        for (var input : inputs.entrySet()) {
+            var bits = new int[input.getValue().length];
+            for (int i = 0; i < bits.length; i++) {
+                bits[i] = nextWire;
+                wires[find(input.getValue()[i])] = nextWire++;
+            }
+            inputWires.put(input.getKey(), bits);
+        }
+        var firstDffWire = nextWire;
+        for (int dff = 0; dff < dffCount; dff++) {
+            wires[find(dffs[2 * dff + 1])] = nextWire++;
+        }
+        for (var memory : memoryOrder) {
+            for (var bit : memories.get(memory).out) {
+                wires[find(bit)] = nextWire++;
+            }
+        }
+        var firstNandWire = nextWire;
+        for (int i = 0; i < nandCount; i++) {
+            wires[find(nands[3 * gateOrder[i] + 2])] = nextWire++;
+        }
+
+        var nandA = new int[nandCount];
+        var nandB = new int[nandCount];
+        for (int i = 0; i < nandCount; i++) {
+            nandA[i] = renumber(wires, drivers, nands[3 * gateOrder[i]]);
+            nandB[i] = renumber(wires, drivers, nands[3 * gateOrder[i] + 1]);
+        }
+        var dffIn = new int[dffCount];
+        for (int dff = 0; dff < dffCount; dff++) {
+            dffIn[dff] = renumber(wires, drivers, dffs[2 * dff]);
+        }
+        var memoryList = new ArrayList<Netlist.Memory>();
+        for (int i = 0; i < memoryOrder.length; i++) {
+            var memory = memories.get(memoryOrder[i]);
+            memoryList.add(new Netlist.Memory(memory.model, renumber(wires, drivers, memory.address),
+                    renumber(wires, drivers, memory.in), renumber(wires, drivers, memory.load),
+                    renumber(wires, drivers, memory.out), readPositions[i]));
+        }
+        var outputWires = new LinkedHashMap<String, int[]>();
+        for (var output : outputs.entrySet()) {
+            outputWires.put(output.getKey(), renumber(wires, drivers, output.getValue()));
+        }
+
+        return new Netlist(name, firstDffWire, firstNandWire, nandA, nandB, dffIn, memoryList, depth, inputWires,
+                outputWires);
+    }
+
+    private int getInputCount(int node) {
+        return node < nandCount ? 2 : memories.get(node - nandCount).address.length;
+    }
+
+    private int getInput(int node, int input) {
+        return node < nandCount ? nands[3 * node + input] : memories.get(node - nandCount).address[input];
+    }
+
+    private static void setDriver(String name, int[] drivers, int net, int driver) throws HdlErrorException {
+        if (drivers[net] != NO_DRIVER) {
+            throw new HdlErrorException("A wire of the chip '" + name + "' is an output of more than one part.");
+        }
+        drivers[net] = driver;
+    }
+
+    private int renumber(int[] wires, int[] drivers, int wire) {
+        var net = find(wire);
+        return drivers[net] == NO_DRIVER ? Netlist.FALSE_WIRE : wires[net];
+    }
+
+    private int[] renumber(int[] wires, int[] drivers, int[] bits) {
+        var renumbered = new int[bits.length];
+        for (int i = 0; i < bits.length; i++) {
+            renumbered[i] = renumber(wires, drivers, bits[i]);
+        }
+        return renumbered;
+    }
+
+    private static HdlErrorException error(ChipDefinition chip, ChipDefinition.Part part, String message) {
+        return new HdlErrorException(chip.getName() + ", line " + part.getLine() + ": " + message + ".");
+    }
+
+    private void addNand(int a, int b, int out) {
+        if (3 * nandCount == nands.length) {
+            nands = Arrays.copyOf(nands, nands.length * 2);
+        }
+        nands[3 * nandCount] = a;
+        nands[3 * nandCount + 1] = b;
+        nands[3 * nandCount + 2] = out;
+        nandCount++;
+    }
+
+    private void addDff(int in, int out) {
+        if (2 * dffCount == dffs.length) {
+            dffs = Arrays.copyOf(dffs, dffs.length * 2);
+        }
+        dffs[2 * dffCount] = in;
+        dffs[2 * dffCount + 1] = out;
+        dffCount++;
+    }
+
+    private int[] newWires(int count) {
+        var wires = new int[count];
+        for (int i = 0; i < count; i++) {
+            wires[i] = newWire();
+        }
+        return wires;
+    }
+
+    private int newWire() {
+        if (wireCount == parents.length) {
+            parents = Arrays.copyOf(parents, parents.length * 2);
+        }
+        parents[wireCount] = wireCount;
+        return wireCount++;
+    }
+
+    private int find(int wire) {
+        var root = wire;
+        while (parents[root] != root) {
+            root = parents[root];
+        }
+        while (parents[wire] != root) { // path compression
+            var next = parents[wire];
+            parents[wire] = root;
+            wire = next;
+        }
+        return root;
+    }
+
+    private void union(int wire, int otherWire) {
+        var root = find(wire);
+        var otherRoot = find(otherWire);
+        if (root != otherRoot) {
+            parents[otherRoot] = root;
+        }
+    }
+
+    /**
+     * A memory chip to be simulated by its model, with the (not yet renumbered) wires of its pins.
+     */
+    private static final class MemoryPart {
+        private final MemoryModel model;
+        private final int[] address;
+        private final int[] in;
+        private final int load;
+        private final int[] out;
+
+        MemoryPart(MemoryModel model, Map<String, int[]> pins) {
+            this.model = model;
+            address = model.getAddressWidth() > 0 ? pins.get("address") : new int[0];
+            in = model.isWritable() ? pins.get("in") : new int[0];
+            load = model.isWritable() ? pins.get("load")[0] : Netlist.FALSE_WIRE;
+            out = pins.get("out");
+        }
+    }
+}
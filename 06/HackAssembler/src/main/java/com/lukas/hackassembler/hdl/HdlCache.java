@@ -0,0 +1,415 @@
+package com.lukas.hackassembler.hdl;
+
+import com.lukas.hackassembler.exception.HdlErrorException;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * An on-disk cache of the parsed chips and of the elaborated netlists, in a compact binary format - the names are
+ * stored once per entry in a table and referenced by their indices, the wires of a netlist are plain int arrays.
+ * An entry is read by a single memory mapping of its file.
+ * <p>
+ * A parsed chip is addressed by the SHA-256 hash of its HDL file, a netlist by the chip, the mode of the elaboration
+ * and the hashes of the HDL files of the chip and all its parts (see {@link ChipLibrary#getContentHash(String)}) - so
+ * a change of a file invalidates only the netlists of the chips depending on it. The cache can be shared by more
+ * threads and processes, the entries are written into temporary files first and moved into place atomically. The
+ * entries which can't be decoded (eg. of another version of the format), read or written are misses - the cache only
+ * warns about the failed file operations, it never fails the parsing or the elaboration.
+ */
+public class HdlCache {
+    /**
+     * Part of the keys and of the entries, to be changed whenever the format or the output of the parser or the
+     * elaborator changes.
+     */
+    private static final short FORMAT_VERSION = 1;
+    private static final int MAGIC = 0x48444C43; // "HDLC"
+    private static final String CHIP_EXTENSION = ".chip";
+    private static final String NETLIST_EXTENSION = ".netlist";
+    private static final String TEMP_EXTENSION = ".tmp";
+
+    private final Path dir;
+
+    private final AtomicLong chipHits = new AtomicLong();
+    private final AtomicLong chipMisses = new AtomicLong();
+    private final AtomicLong netlistHits = new AtomicLong();
+    private final AtomicLong netlistMisses = new AtomicLong();
+
+    /**
+     * @param dir directory of the cache entries, created if it doesn't exist
+     * @throws IOException if the directory couldn't be created
+     */
+    public HdlCache(Path dir) throws IOException {
+        this.dir = Files.createDirectories(dir);
+    }
+
+    /**
+     * Opens the cache in the directory given by the {@value NetlistCompiler#DIR_PROPERTY} system property (by default
+     * ~/.cache/hackassembler/hdl), shared with the compiled netlists.
+     *
+     * @return the cache
+     * @throws IOException if the directory couldn't be created
+     */
+    public static HdlCache openDefault() throws IOException {
+        var defaultDir = Paths.get(System.getProperty("user.home"), ".cache", "hackassembler", "hdl").toString();
+        return new HdlCache(Paths.get(System.getProperty(NetlistCompiler.DIR_PROPERTY, defaultDir)));
+    }
+
+    /**
+     * Loads the netlist of the chip from the cache, or elaborates it (and stores it into the cache).
+     *
+     * @param library  the chips, its parsed chips are cached only if it uses this cache too
+     * @param chipName name of the chip
+     * @param mode     the mode of the elaboration
+     * @return the netlist of the chip
+     * @throws HdlErrorException if the chip isn't valid
+     */
+    public Netlist elaborate(ChipLibrary library, String chipName, Elaborator.Mode mode) throws HdlErrorException {
+        var digest = sha256();
+        digest.update((FORMAT_VERSION + "/" + chipName + "/" + mode).getBytes(StandardCharsets.UTF_8));
+        digest.update(library.getContentHash(chipName));
+        var entry = dir.resolve(toHex(digest.digest()) + NETLIST_EXTENSION);
+
+        var buffer = map(entry);
+        var netlist = buffer != null ? decodeNetlist(buffer) : null;
+        if (netlist != null && netlist.getName().equals(chipName)) {
+            netlistHits.incrementAndGet();
+            return netlist;
+        }
+        netlistMisses.incrementAndGet();
+
+        netlist = new Elaborator(library, mode).elaborate(chipName);
+        store(entry, netlist);
+        return netlist;
+    }
+
+    /**
+     * @param fileHash SHA-256 hash of the HDL file
+     * @return the cached chip parsed from the file, or null if it isn't cached
+     */
+    ChipDefinition loadChip(byte[] fileHash) {
+        var buffer = map(chipEntry(fileHash));
+        var chip = buffer != null ? decodeChip(buffer) : null;
+        (chip != null ? chipHits : chipMisses).incrementAndGet();
+        return chip;
+    }
+
+    /**
+     * @param fileHash SHA-256 hash of the HDL file
+     * @param chip     the chip parsed from the file
+     */
+    void storeChip(byte[] fileHash, ChipDefinition chip) {
+        try {
+            store(chipEntry(fileHash), encode(chip));
+        } catch (IOException e) {
+            System.err.println("The chip " + chip.getName() + " couldn't be cached - " + e.getMessage());
+        }
+    }
+
+    public long getChipHits() {
+        return chipHits.get();
+    }
+
+    public long getChipMisses() {
+        return chipMisses.get();
+    }
+
+    public long getNetlistHits() {
+        return netlistHits.get();
+    }
+
+    public long getNetlistMisses() {
+        return netlistMisses.get();
+    }
+
+    /**
+     * @return the hit and miss statistics since the cache was opened
+     */
+    public String getStatistics() {
+        return String.format("HDL cache: %d chip hits, %d chip misses, %d netlist hits, %d netlist misses.",
+                chipHits.get(), chipMisses.get(), netlistHits.get(), netlistMisses.get());
+    }
+
+    /**
+     * @return a new SHA-256 digest (every JVM has to support it)
+     */
+    static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    static String toHex(byte[] bytes) {
+        var hex = new StringBuilder();
+        for (var aByte : bytes) {
+            hex.append(Character.forDigit(aByte >> 4 & 0xF, 16)).append(Character.forDigit(aByte & 0xF, 16));
+        }
+        return hex.toString();
+    }
+
+    private Path chipEntry(byte[] fileHash) {
+        var digest = sha256();
+        digest.update((FORMAT_VERSION + "/").getBytes(StandardCharsets.UTF_8));
+        digest.update(fileHash);
+        return dir.resolve(toHex(digest.digest()) + CHIP_EXTENSION);
+    }
+
+    /**
+     * @return the content of the entry, or null if there's none or it couldn't be read
+     */
+    private static ByteBuffer map(Path entry) {
+        try (var channel = FileChannel.open(entry)) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            System.err.println("The cache entry " + entry + " couldn't be read - " + e.getMessage());
+            return null;
+        }
+    }
+
+    private void store(Path entry, Netlist netlist) {
+        try {
+            store(entry, encode(netlist));
+        } catch (IOException e) {
+            System.err.println("The netlist of " + netlist.getName() + " couldn't be cached - " + e.getMessage());
+        }
+    }
+
+    private void store(Path entry, byte[] content) throws IOException {
+        var tempFile = Files.createTempFile(dir, entry.getFileName().toString(), TEMP_EXTENSION);
+        try {
+            Files.write(tempFile, content);
+            // replaces an entry which couldn't be decoded, or the same one stored by another process meanwhile
+            Files.move(tempFile, entry, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+    // the format: the magic, the version, the table of the names and the body referring to them by their indices
+
+    private static byte[] encode(ChipDefinition chip) throws IOException {
+        var encoder = new Encoder();
+        encoder.writeString(chip.getName());
+        encoder.writePins(chip.getInputs());
+        encoder.writePins(chip.getOutputs());
+        encoder.body.writeInt(chip.getParts().size());
+        for (var part : chip.getParts()) {
+            encoder.writeString(part.getChipName());
+            encoder.body.writeInt(part.getLine());
+            encoder.body.writeInt(part.getConnections().size());
+            for (var connection : part.getConnections()) {
+                encoder.writeString(connection.getPin());
+                encoder.body.writeShort(connection.getPinFrom());
+                encoder.body.writeShort(connection.getPinTo());
+                encoder.writeString(connection.getSignal());
+                encoder.body.writeShort(connection.getSignalFrom());
+                encoder.body.writeShort(connection.getSignalTo());
+            }
+        }
+        return encoder.toByteArray();
+    }
+
+    /**
+     * @return the chip, or null if the entry isn't valid
+     */
+    private static ChipDefinition decodeChip(ByteBuffer buffer) {
+        try {
+            var strings = readHeader(buffer);
+            if (strings == null) {
+                return null;
+            }
+            var name = readString(buffer, strings);
+            var inputs = readPins(buffer, strings);
+            var outputs = readPins(buffer, strings);
+            var parts = new ArrayList<ChipDefinition.Part>();
+            for (int partCount = buffer.getInt(); partCount > 0; partCount--) {
+                var chipName = readString(buffer, strings);
+                var line = buffer.getInt();
+                var connections = new ArrayList<ChipDefinition.Connection>();
+                for (int connectionCount = buffer.getInt(); connectionCount > 0; connectionCount--) {
+                    connections.add(new ChipDefinition.Connection(readString(buffer, strings), buffer.getShort(),
+                            buffer.getShort(), readString(buffer, strings), buffer.getShort(), buffer.getShort()));
+                }
+                parts.add(new ChipDefinition.Part(chipName, connections, line));
+            }
+            return new ChipDefinition(name, inputs, outputs, parts);
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException
+                 | NegativeArraySizeException e) {
+            return null;
+        }
+    }
+
+    private static byte[] encode(Netlist netlist) throws IOException {
+        var encoder = new Encoder();
+        encoder.writeString(netlist.getName());
+        encoder.body.writeInt(netlist.getFirstDffWire());
+        encoder.body.writeInt(netlist.getFirstNandWire());
+        encoder.body.writeInt(netlist.getDepth());
+        encoder.writeInts(netlist.getNandA());
+        encoder.writeInts(netlist.getNandB());
+        encoder.writeInts(netlist.getDffIn());
+        encoder.body.writeInt(netlist.getMemories().size());
+        for (var memory : netlist.getMemories()) {
+            encoder.writeString(memory.getModel().getName());
+            encoder.writeInts(memory.getAddressWires());
+            encoder.writeInts(memory.getInWires());
+            encoder.body.writeInt(memory.getLoadWire());
+            encoder.writeInts(memory.getOutWires());
+            encoder.body.writeInt(memory.getReadPosition());
+        }
+        encoder.writeWires(netlist.getInputs());
+        encoder.writeWires(netlist.getOutputs());
+        return encoder.toByteArray();
+    }
+
+    /**
+     * @return the netlist, or null if the entry isn't valid
+     */
+    private static Netlist decodeNetlist(ByteBuffer buffer) {
+        try {
+            var strings = readHeader(buffer);
+            if (strings == null) {
+                return null;
+            }
+            var name = readString(buffer, strings);
+            var firstDffWire = buffer.getInt();
+            var firstNandWire = buffer.getInt();
+            var depth = buffer.getInt();
+            var nandA = readInts(buffer);
+            var nandB = readInts(buffer);
+            var dffIn = readInts(buffer);
+            var memories = new ArrayList<Netlist.Memory>();
+            for (int memoryCount = buffer.getInt(); memoryCount > 0; memoryCount--) {
+                var model = MemoryModel.forName(readString(buffer, strings));
+                if (model == null) {
+                    return null;
+                }
+                memories.add(new Netlist.Memory(model, readInts(buffer), readInts(buffer), buffer.getInt(),
+                        readInts(buffer), buffer.getInt()));
+            }
+            var inputs = readWires(buffer, strings);
+            var outputs = readWires(buffer, strings);
+            return new Netlist(name, firstDffWire, firstNandWire, nandA, nandB, dffIn, memories, depth, inputs,
+                    outputs);
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException
+                 | NegativeArraySizeException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @return the table of the names, or null if it's not an entry of this version
+     */
+    private static String[] readHeader(ByteBuffer buffer) {
+        if (buffer.getInt() != MAGIC || buffer.getShort() != FORMAT_VERSION) {
+            return null;
+        }
+        var strings = new String[buffer.getShort() & 0xFFFF];
+        for (int i = 0; i < strings.length; i++) {
+            var bytes = new byte[buffer.getShort() & 0xFFFF];
+            buffer.get(bytes);
+            strings[i] = new String(bytes, StandardCharsets.UTF_8);
+        }
+        return strings;
+    }
+
+    private static String readString(ByteBuffer buffer, String[] strings) {
+        return strings[buffer.getShort() & 0xFFFF];
+    }
+
+    private static List<ChipDefinition.Pin> readPins(ByteBuffer buffer, String[] strings) {
+        var pins = new ArrayList<ChipDefinition.Pin>();
+        for (int pinCount = buffer.getShort(); pinCount > 0; pinCount--) {
+            pins.add(new ChipDefinition.Pin(readString(buffer, strings), buffer.getShort()));
+        }
+        return pins;
+    }
+
+    private static Map<String, int[]> readWires(ByteBuffer buffer, String[] strings) {
+        var wires = new LinkedHashMap<String, int[]>();
+        for (int pinCount = buffer.getShort(); pinCount > 0; pinCount--) {
+            wires.put(readString(buffer, strings), readInts(buffer));
+        }
+        return wires;
+    }
+
+    private static int[] readInts(ByteBuffer buffer) {
+        var ints = new int[buffer.getInt()];
+        buffer.asIntBuffer().get(ints);
+        buffer.position(buffer.position() + ints.length * Integer.BYTES);
+        return ints;
+    }
+
+    private static final class Encoder {
+        private final Map<String, Integer> strings = new LinkedHashMap<>();
+        private final ByteArrayOutputStream bodyBytes = new ByteArrayOutputStream();
+        private final DataOutputStream body = new DataOutputStream(bodyBytes);
+
+        private void writeString(String string) throws IOException {
+            var index = strings.computeIfAbsent(string, key -> strings.size());
+            if (index > 0xFFFF) {
+                throw new IllegalStateException("There are more than 65536 names in a cache entry.");
+            }
+            body.writeShort(index);
+        }
+
+        private void writePins(List<ChipDefinition.Pin> pins) throws IOException {
+            body.writeShort(pins.size());
+            for (var pin : pins) {
+                writeString(pin.getName());
+                body.writeShort(pin.getWidth());
+            }
+        }
+
+        private void writeWires(Map<String, int[]> pins) throws IOException {
+            body.writeShort(pins.size());
+            for (var pin : pins.entrySet()) {
+                writeString(pin.getKey());
+                writeInts(pin.getValue());
+            }
+        }
+
+        private void writeInts(int[] ints) throws IOException {
+            body.writeInt(ints.length);
+            var bytes = ByteBuffer.allocate(ints.length * Integer.BYTES);
+            bytes.asIntBuffer().put(ints);
+            body.write(bytes.array());
+        }
+
+        private byte[] toByteArray() throws IOException {
+            var entryBytes = new ByteArrayOutputStream(bodyBytes.size() + 1024);
+            var entry = new DataOutputStream(entryBytes);
+            entry.writeInt(MAGIC);
+            entry.writeShort(FORMAT_VERSION);
+            entry.writeShort(strings.size());
+            for (var string : strings.keySet()) {
+                var bytes = string.getBytes(StandardCharsets.UTF_8);
+                entry.writeShort(bytes.length);
+                entry.write(bytes);
+            }
+            bodyBytes.writeTo(entry);
+            return entryBytes.toByteArray();
+        }
+    }
+}
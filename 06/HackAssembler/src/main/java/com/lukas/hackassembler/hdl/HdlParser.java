@@ -0,0 +1,220 @@
+package com.lukas.hackassembler.hdl;
+
+import com.lukas.hackassembler.exception.HdlErrorException;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Parses a chip definition of the nand2tetris HDL:
+ * <pre>
+ * CHIP name {
+ *     IN pin, bus[16], ...;
+ *     OUT pin, ...;
+ *     PARTS:
+ *     Part(pin=signal, pin[0..7]=bus[8..15], pin=true, ...);
+ *     ...
+ * }
+ * </pre>
+ * The IN and OUT declarations are optional, the comments ("//" and "/* *&#47;") are skipped. The chips built
+ * into the simulator (BUILTIN and CLOCKED) aren't supported, the primitive chips are provided by the
+ * {@link ChipLibrary}.
+ */
+public class HdlParser {
+    private final String input;
+    private final String source; // for the messages
+
+    private int position;
+    private int line = 1;
+    private String token; // null at the end of the input
+    private int tokenLine;
+
+    /**
+     * @param input  the HDL text
+     * @param source name of the file (or another source) of the text, for the messages
+     */
+    public HdlParser(String input, String source) {
+        this.input = input;
+        this.source = source;
+    }
+
+    /**
+     * @return the chip defined by the text
+     * @throws HdlErrorException if the text isn't a valid chip definition
+     */
+    public ChipDefinition parse() throws HdlErrorException {
+        nextToken();
+        expect("CHIP");
+        var name = expectName();
+        expect("{");
+
+        var inputs = new ArrayList<ChipDefinition.Pin>();
+        var outputs = new ArrayList<ChipDefinition.Pin>();
+        if (accept("IN")) {
+            parsePins(inputs);
+        }
+        if (accept("OUT")) {
+            parsePins(outputs);
+        }
+
+        expect("PARTS");
+        expect(":");
+        var parts = new ArrayList<ChipDefinition.Part>();
+        while (!accept("}")) {
+            parts.add(parsePart());
+        }
+        if (token != null) {
+            throw error("Unexpected '" + token + "' after the end of the chip");
+        }
+        return new ChipDefinition(name, inputs, outputs, parts);
+    }
+
+    private void parsePins(List<ChipDefinition.Pin> pins) throws HdlErrorException {
+        do {
+            var name = expectName();
+            var width = 1;
+            if (accept("[")) {
+                width = expectNumber();
+                if (width < 1 || width > 64) { // the simulator reads and writes a pin as a long
+                    throw error("The width of the pin '" + name + "' has to be 1 to 64");
+                }
+                expect("]");
+            }
+            pins.add(new ChipDefinition.Pin(name, width));
+        } while (accept(","));
+        expect(";");
+    }
+
+    private ChipDefinition.Part parsePart() throws HdlErrorException {
+        var line = tokenLine;
+        var chipName = expectName();
+        expect("(");
+        var connections = new ArrayList<ChipDefinition.Connection>();
+        do {
+            var pin = expectName();
+            var pinRange = parseRange();
+            expect("=");
+            var signal = expectName();
+            var signalRange = parseRange();
+            connections.add(new ChipDefinition.Connection(pin, pinRange[0], pinRange[1], signal, signalRange[0],
+                    signalRange[1]));
+        } while (accept(","));
+        expect(")");
+        expect(";");
+        return new ChipDefinition.Part(chipName, connections, line);
+    }
+
+    private int[] parseRange() throws HdlErrorException {
+        if (!accept("[")) {
+            return new int[]{-1, -1};
+        }
+        var from = expectNumber();
+        var to = accept("..") ? expectNumber() : from;
+        if (to < from) {
+            throw error("The range " + from + ".." + to + " is reversed");
+        }
+        expect("]");
+        return new int[]{from, to};
+    }
+
+    private boolean accept(String expected) throws HdlErrorException {
+        if (expected.equals(token)) {
+            nextToken();
+            return true;
+        }
+        return false;
+    }
+
+    private void expect(String expected) throws HdlErrorException {
+        if (!accept(expected)) {
+            throw error("Expected '" + expected + "', but found " + describeToken());
+        }
+    }
+
+    private String expectName() throws HdlErrorException {
+        if (token == null || !Character.isJavaIdentifierStart(token.charAt(0))) {
+            throw error("Expected a name, but found " + describeToken());
+        }
+        var name = token;
+        nextToken();
+        return name;
+    }
+
+    private int expectNumber() throws HdlErrorException {
+        if (token == null || !Character.isDigit(token.charAt(0))) {
+            throw error("Expected a number, but found " + describeToken());
+        }
+        var number = Integer.parseInt(token);
+        nextToken();
+        return number;
+    }
+
+    private String describeToken() {
+        return token == null ? "the end of the file" : "'" + token + "'";
+    }
+
+    private HdlErrorException error(String message) {
+        return new HdlErrorException(source + ", line " + tokenLine + ": " + message + ".");
+    }
+
+    private void nextToken() throws HdlErrorException {
+        skipWhitespaceAndComments();
+        tokenLine = line;
+        if (position == input.length()) {
+            token = null;
+            return;
+        }
+
+        var start = position;
+        var aChar = input.charAt(position);
+        if (Character.isJavaIdentifierStart(aChar)) {
+            while (position < input.length() && Character.isJavaIdentifierPart(input.charAt(position))) {
+                position++;
+            }
+        } else if (Character.isDigit(aChar)) {
+            while (position < input.length() && Character.isDigit(input.charAt(position))) {
+                position++;
+            }
+            if (position - start > 9) {
+                token = input.substring(start, position);
+                throw error("The number " + token + " is too big");
+            }
+        } else if (input.startsWith("..", position)) {
+            position += 2;
+        } else if ("{}()[],;=:".indexOf(aChar) != -1) {
+            position++;
+        } else {
+            throw error("Unexpected character '" + aChar + "'");
+        }
+        token = input.substring(start, position);
+    }
+
+    private void skipWhitespaceAndComments() throws HdlErrorException {
+        while (position < input.length()) {
+            var aChar = input.charAt(position);
+            if (aChar == '\n') {
+                line++;
+                position++;
+            } else if (Character.isWhitespace(aChar)) {
+                position++;
+            } else if (input.startsWith("//", position)) {
+                while (position < input.length() && input.charAt(position) != '\n') {
+                    position++;
+                }
+            } else if (input.startsWith("/*", position)) {
+                var end = input.indexOf("*/", position + 2);
+                if (end == -1) {
+                    tokenLine = line;
+                    throw error("Unterminated comment");
+                }
+                for (; position < end + 2; position++) {
+                    if (input.charAt(position) == '\n') {
+                        line++;
+                    }
+                }
+            } else {
+                return;
+            }
+        }
+    }
+}
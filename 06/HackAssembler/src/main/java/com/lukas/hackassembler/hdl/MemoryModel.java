@@ -0,0 +1,157 @@
+package com.lukas.hackassembler.hdl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A behavioral model of a memory chip - its words are kept in a short[] by the {@link Simulator} instead of
+ * the DFFs. The output is the word at the address (read combinationally), a writable memory stores the input
+ * at the address on the clock edge if the load is set. A register is a memory without an address.
+ * <p>
+ * The models substitute the chips of the project 03 (the Bit, the Register and the RAMs) in the
+ * {@link Elaborator.Mode#BEHAVIORAL_MEMORY} mode, and they are the only implementation of the chips built into
+ * the nand2tetris simulator which the Computer is built from (the Screen, the Keyboard and the ROM32K).
+ */
+public final class MemoryModel {
+    public static final String SCREEN = "Screen";
+    public static final String KEYBOARD = "Keyboard";
+    public static final String ROM32K = "ROM32K";
+
+    private static final int WORD_WIDTH = 16;
+
+    private static final Map<String, MemoryModel> SUBSTITUTES = Map.of(
+            "Bit", new MemoryModel("Bit", 1, 0, true),
+            "Register", new MemoryModel("Register", WORD_WIDTH, 0, true),
+            "ARegister", new MemoryModel("ARegister", WORD_WIDTH, 0, true),
+            "DRegister", new MemoryModel("DRegister", WORD_WIDTH, 0, true),
+            "RAM8", new MemoryModel("RAM8", WORD_WIDTH, 3, true),
+            "RAM64", new MemoryModel("RAM64", WORD_WIDTH, 6, true),
+            "RAM512", new MemoryModel("RAM512", WORD_WIDTH, 9, true),
+            "RAM4K", new MemoryModel("RAM4K", WORD_WIDTH, 12, true),
+            "RAM16K", new MemoryModel("RAM16K", WORD_WIDTH, 14, true));
+    private static final List<MemoryModel> BUILT_IN = List.of(new MemoryModel(SCREEN, WORD_WIDTH, 13, true),
+            new MemoryModel(KEYBOARD, WORD_WIDTH, 0, false), new MemoryModel(ROM32K, WORD_WIDTH, 15, false));
+
+    private final String name;
+    private final int width;
+    private final int addressWidth;
+    private final boolean writable;
+    private final ChipDefinition chip;
+
+    private MemoryModel(String name, int width, int addressWidth, boolean writable) {
+        this.name = name;
+        this.width = width;
+        this.addressWidth = addressWidth;
+        this.writable = writable;
+
+        var inputs = new ArrayList<ChipDefinition.Pin>();
+        if (writable) {
+            inputs.add(new ChipDefinition.Pin("in", width));
+            inputs.add(new ChipDefinition.Pin("load", 1));
+        }
+        if (addressWidth > 0) {
+            inputs.add(new ChipDefinition.Pin("address", addressWidth));
+        }
+        chip = new ChipDefinition(name, inputs, List.of(new ChipDefinition.Pin("out", width)), List.of());
+    }
+
+    /**
+     * @return the chips built into the nand2tetris simulator, as the primitive chips of the {@link ChipLibrary}
+     */
+    static List<MemoryModel> getBuiltIn() {
+        return BUILT_IN;
+    }
+
+    /**
+     * @param chip a chip of the project 03
+     * @return the model substituting the chip, or null if there's none - the chip has to have the name and the pins
+     * of one of the memory chips
+     */
+    static MemoryModel findSubstitute(ChipDefinition chip) {
+        var model = SUBSTITUTES.get(chip.getName());
+        return model != null && samePins(model.chip.getInputs(), chip.getInputs())
+                && samePins(model.chip.getOutputs(), chip.getOutputs()) ? model : null;
+    }
+
+    /**
+     * @param chip a chip of the library
+     * @return the built-in model of the chip, or null if it isn't one
+     */
+    static MemoryModel findBuiltIn(ChipDefinition chip) {
+        for (var model : BUILT_IN) {
+            if (model.chip == chip) {
+                return model;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @param name name of a memory chip
+     * @return the substitute or built-in model of the name, or null if there's none
+     */
+    static MemoryModel forName(String name) {
+        for (var model : BUILT_IN) {
+            if (model.name.equals(name)) {
+                return model;
+            }
+        }
+        return SUBSTITUTES.get(name);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return number of the bits of a word
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * @return number of the bits of the address, 0 for a register
+     */
+    public int getAddressWidth() {
+        return addressWidth;
+    }
+
+    public int getSize() {
+        return 1 << addressWidth;
+    }
+
+    /**
+     * @return whether the chip has the input and the load (the Keyboard and the ROM are written only by
+     * the environment of the simulation)
+     */
+    public boolean isWritable() {
+        return writable;
+    }
+
+    /**
+     * @return the pins of the chip
+     */
+    public ChipDefinition getChip() {
+        return chip;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+
+    private static boolean samePins(List<ChipDefinition.Pin> pins, List<ChipDefinition.Pin> otherPins) {
+        if (pins.size() != otherPins.size()) {
+            return false;
+        }
+        for (int i = 0; i < pins.size(); i++) {
+            if (!pins.get(i).getName().equals(otherPins.get(i).getName())
+                    || pins.get(i).getWidth() != otherPins.get(i).getWidth()) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,173 @@
+package com.lukas.hackassembler.hdl;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A chip flattened into the Nand gates and DFFs, levelized - the gates are ordered so that each one comes after
+ * all the gates its inputs depend on, so a single pass over them evaluates the whole combinational logic.
+ * <p>
+ * The wires are numbered in the order of their evaluation: the constants false (0) and true (1), the bits of the input
+ * pins, the outputs of the DFFs (the state), the outputs of the {@link Memory memories} and then the outputs of
+ * the gates - the gate i drives the wire {@link #getFirstNandWire()} + i, the DFF i the wire
+ * {@link #getFirstDffWire()} + i. The bits of the pins are listed from the lowest one.
+ *
+ * @see Elaborator
+ */
+public final class Netlist {
+    public static final int FALSE_WIRE = 0;
+    public static final int TRUE_WIRE = 1;
+
+    private final String name;
+    private final int wireCount;
+    private final int firstDffWire;
+    private final int firstNandWire;
+    private final int[] nandA;
+    private final int[] nandB;
+    private final int[] dffIn;
+    private final int depth;
+    private final Map<String, int[]> inputs;
+    private final Map<String, int[]> outputs;
+    private final List<Memory> memories;
+
+    Netlist(String name, int firstDffWire, int firstNandWire, int[] nandA, int[] nandB, int[] dffIn,
+            List<Memory> memories, int depth, Map<String, int[]> inputs, Map<String, int[]> outputs) {
+        this.name = name;
+        this.wireCount = firstNandWire + nandA.length;
+        this.firstDffWire = firstDffWire;
+        this.firstNandWire = firstNandWire;
+        this.nandA = nandA;
+        this.nandB = nandB;
+        this.dffIn = dffIn;
+        this.memories = List.copyOf(memories);
+        this.depth = depth;
+        this.inputs = Collections.unmodifiableMap(inputs);
+        this.outputs = Collections.unmodifiableMap(outputs);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getWireCount() {
+        return wireCount;
+    }
+
+    public int getNandCount() {
+        return nandA.length;
+    }
+
+    public int getDffCount() {
+        return dffIn.length;
+    }
+
+    /**
+     * @return the memories, in the order of their reads
+     */
+    public List<Memory> getMemories() {
+        return memories;
+    }
+
+    /**
+     * @return number of the gates on the longest combinational path
+     */
+    public int getDepth() {
+        return depth;
+    }
+
+    public int getFirstDffWire() {
+        return firstDffWire;
+    }
+
+    public int getFirstNandWire() {
+        return firstNandWire;
+    }
+
+    /**
+     * @return the wires of the bits of each input pin, in the order of the declaration
+     */
+    public Map<String, int[]> getInputs() {
+        return inputs;
+    }
+
+    /**
+     * @return the wires of the bits of each output pin, in the order of the declaration
+     */
+    public Map<String, int[]> getOutputs() {
+        return outputs;
+    }
+
+    // the arrays aren't copied, they're read by the evaluation loops of the package
+
+    int[] getNandA() {
+        return nandA;
+    }
+
+    int[] getNandB() {
+        return nandB;
+    }
+
+    int[] getDffIn() {
+        return dffIn;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s (%d Nand gates, %d DFFs%s, depth %d)", name, getNandCount(), getDffCount(),
+                memories.isEmpty() ? "" : ", " + memories.size() + " memories", depth);
+    }
+
+    /**
+     * A memory chip simulated by its {@link MemoryModel}. The memory is read (its output set) before the evaluation of
+     * the gate {@link #getReadPosition()}, after all the gates its address depends on. The input and the load are
+     * read only on the clock edge.
+     */
+    public static final class Memory {
+        private final MemoryModel model;
+        private final int[] addressWires;
+        private final int[] inWires;
+        private final int loadWire;
+        private final int[] outWires;
+        private final int readPosition;
+
+        Memory(MemoryModel model, int[] addressWires, int[] inWires, int loadWire, int[] outWires, int readPosition) {
+            this.model = model;
+            this.addressWires = addressWires;
+            this.inWires = inWires;
+            this.loadWire = loadWire;
+            this.outWires = outWires;
+            this.readPosition = readPosition;
+        }
+
+        public MemoryModel getModel() {
+            return model;
+        }
+
+        public int getReadPosition() {
+            return readPosition;
+        }
+
+        int[] getAddressWires() {
+            return addressWires;
+        }
+
+        /**
+         * @return the wires of the input, none if the memory isn't writable
+         */
+        int[] getInWires() {
+            return inWires;
+        }
+
+        /**
+         * @return the wire of the load, {@link #FALSE_WIRE} if the memory isn't writable
+         */
+        int getLoadWire() {
+            return loadWire;
+        }
+
+        int[] getOutWires() {
+            return outWires;
+        }
+    }
+}
@@ -0,0 +1,334 @@
+package com.lukas.hackassembler.hdl;
+
+import com.lukas.hackassembler.codegen.ClassCompiler;
+import com.lukas.hackassembler.exception.HdlErrorException;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Compiles a {@link Netlist} into a Java class - a {@link Simulator} with the sweep over the gates unrolled into
+ * straight-line code. Each gate is a single expression over boolean locals, without the loads of its input wires
+ * from the netlist arrays. The gates are split into small static methods (the chunks, HotSpot doesn't compile methods
+ * over 8000 bytes) with the memories read in between them. A chunk loads the wires computed by the others from
+ * {@link Simulator#values} once, and stores only the wires needed later - by the other chunks, the outputs, the DFFs
+ * and the memories.
+ * <p>
+ * The source is compiled by the JDK compiler in memory. The compiled classes can be cached on disk, addressed by
+ * the SHA-256 hash of the HDL files of the chip and all its parts - the netlist is loaded from the {@link HdlCache}
+ * in the same directory or elaborated anyway (the simulator needs it), so each entry also has a fingerprint of
+ * the netlist and it's a miss if it's different. Without the JDK
+ * compiler, or for the netlists over {@value #MAX_GATES} gates (the limits of a class file and the compilation time),
+ * the interpreting {@link Simulator} is created instead.
+ */
+public class NetlistCompiler {
+    public static final String DIR_PROPERTY = "hackassembler.hdl.cache.dir";
+    public static final int MAX_GATES = 20_000;
+
+    /**
+     * Part of the keys, to be changed whenever the generated code of the same netlist changes.
+     */
+    private static final String CACHE_VERSION = "1";
+    private static final String ENTRY_EXTENSION = ".bin";
+    private static final String TEMP_EXTENSION = ".tmp";
+
+    private static final String PACKAGE_NAME = "com.lukas.hackassembler.hdl.generated";
+    private static final String SIMPLE_CLASS_NAME = "CompiledNetlist";
+    private static final String CLASS_NAME = PACKAGE_NAME + "." + SIMPLE_CLASS_NAME;
+    private static final int MAX_CHUNK_SIZE = 128; // gates, a gate is up to 15 bytes and its loads and store 27 more
+
+    private final Path dir;
+    private final HdlCache cache;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * @param dir directory of the cache entries, created if it doesn't exist
+     * @throws IOException if the directory couldn't be created
+     */
+    public NetlistCompiler(Path dir) throws IOException {
+        this.dir = Files.createDirectories(dir);
+        cache = new HdlCache(dir);
+    }
+
+    /**
+     * Opens the cache in the directory given by the {@value #DIR_PROPERTY} system property (by default
+     * ~/.cache/hackassembler/hdl).
+     *
+     * @return the compiler with the cache
+     * @throws IOException if the directory couldn't be created
+     */
+    public static NetlistCompiler openDefault() throws IOException {
+        var defaultDir = Paths.get(System.getProperty("user.home"), ".cache", "hackassembler", "hdl").toString();
+        return new NetlistCompiler(Paths.get(System.getProperty(DIR_PROPERTY, defaultDir)));
+    }
+
+    /**
+     * @return whether the JDK compiler is available (it isn't on a JRE)
+     */
+    public static boolean isAvailable() {
+        return ClassCompiler.isAvailable();
+    }
+
+    /**
+     * Compiles the netlist in memory, or creates the interpreter if it can't be compiled.
+     *
+     * @param netlist the netlist
+     * @return the simulator of the netlist
+     */
+    public static Simulator compile(Netlist netlist) {
+        if (!isCompilable(netlist)) {
+            return new Simulator(netlist);
+        }
+        return instantiate(netlist, compileClass(netlist));
+    }
+
+    /**
+     * Loads the netlist of the chip from the {@link #getCache()} or elaborates it, and loads its compiled class from
+     * the cache or compiles it (and stores it into the cache). A cache entry which can't be read or written is only
+     * a miss.
+     *
+     * @param library  the chips, its parsed chips are cached only if it uses the {@link #getCache()} too
+     * @param chipName name of the chip
+     * @param mode     the mode of the elaboration
+     * @return the simulator of the chip
+     * @throws HdlErrorException if the chip isn't valid
+     */
+    public Simulator compile(ChipLibrary library, String chipName, Elaborator.Mode mode) throws HdlErrorException {
+        var netlist = cache.elaborate(library, chipName, mode);
+        if (!isCompilable(netlist)) {
+            return new Simulator(netlist);
+        }
+
+        var entry = dir.resolve(key(library, chipName, mode) + ENTRY_EXTENSION);
+        var fingerprint = fingerprint(netlist);
+        try {
+            var buffer = ByteBuffer.wrap(Files.readAllBytes(entry));
+            if (buffer.remaining() > Long.BYTES && buffer.getLong() == fingerprint) {
+                hits.incrementAndGet();
+                var classBytes = new byte[buffer.remaining()];
+                buffer.get(classBytes);
+                return instantiate(netlist, classBytes);
+            }
+        } catch (NoSuchFileException e) {
+            // a miss
+        } catch (IOException e) { // a miss too, the class is compiled again
+            System.err.println("The compiled netlist of " + chipName + " couldn't be read from the cache - "
+                    + e.getMessage());
+        }
+        misses.incrementAndGet();
+
+        var classBytes = compileClass(netlist);
+        try {
+            store(entry, chipName, ByteBuffer.allocate(Long.BYTES + classBytes.length)
+                    .putLong(fingerprint).put(classBytes).array());
+        } catch (IOException e) { // the class is compiled already, it's only compiled again the next time
+            System.err.println("The compiled netlist of " + chipName + " couldn't be cached - " + e.getMessage());
+        }
+        return instantiate(netlist, classBytes);
+    }
+
+    /**
+     * @return the cache of the parsed chips and of the netlists, in the same directory
+     */
+    public HdlCache getCache() {
+        return cache;
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * Generates the source of the simulator class.
+     *
+     * @param netlist the netlist
+     * @return the Java source
+     */
+    static String generate(Netlist netlist) {
+        var nandA = netlist.getNandA();
+        var nandB = netlist.getNandB();
+        var firstNandWire = netlist.getFirstNandWire();
+        var memories = netlist.getMemories();
+
+        // the chunks, split at the read positions of the memories
+        var chunkStarts = new ArrayList<Integer>();
+        var chunkOf = new int[nandA.length];
+        var evaluation = new StringBuilder();
+        var gate = 0;
+        for (int memory = 0; memory <= memories.size(); memory++) {
+            var end = memory < memories.size() ? memories.get(memory).getReadPosition() : nandA.length;
+            for (; gate < end; gate += MAX_CHUNK_SIZE) {
+                evaluation.append("        chunk").append(chunkStarts.size()).append("(v);\n");
+                for (int chunkGate = gate; chunkGate < Math.min(gate + MAX_CHUNK_SIZE, end); chunkGate++) {
+                    chunkOf[chunkGate] = chunkStarts.size();
+                }
+                chunkStarts.add(gate);
+            }
+            gate = end;
+            if (memory < memories.size()) {
+                evaluation.append("        readMemory(").append(memory).append(");\n");
+            }
+        }
+        chunkStarts.add(nandA.length);
+
+        // the wires read outside of the chunks computing them
+        var stored = new boolean[netlist.getWireCount()];
+        for (int i = 0; i < nandA.length; i++) {
+            for (var input : new int[]{nandA[i], nandB[i]}) {
+                if (input >= firstNandWire && chunkOf[input - firstNandWire] != chunkOf[i]) {
+                    stored[input] = true;
+                }
+            }
+        }
+        for (var wires : netlist.getOutputs().values()) {
+            markStored(stored, wires);
+        }
+        markStored(stored, netlist.getDffIn());
+        for (var memory : memories) {
+            markStored(stored, memory.getAddressWires());
+            markStored(stored, memory.getInWires());
+            markStored(stored, new int[]{memory.getLoadWire()});
+        }
+
+        var source = new StringBuilder();
+        source.append("package ").append(PACKAGE_NAME).append(";\n\n")
+                .append("import com.lukas.hackassembler.hdl.Netlist;\n")
+                .append("import com.lukas.hackassembler.hdl.Simulator;\n\n")
+                .append("public final class ").append(SIMPLE_CLASS_NAME).append(" extends Simulator {\n")
+                .append("    public ").append(SIMPLE_CLASS_NAME).append("(Netlist netlist) {\n")
+                .append("        super(netlist);\n")
+                .append("    }\n\n")
+                .append("    @Override\n")
+                .append("    protected void evaluateGates() {\n")
+                .append("        boolean[] v = values;\n")
+                .append(evaluation)
+                .append("    }\n");
+
+        var loaded = new boolean[netlist.getWireCount()];
+        for (int chunk = 0; chunk < chunkStarts.size() - 1; chunk++) {
+            int from = chunkStarts.get(chunk);
+            int to = chunkStarts.get(chunk + 1);
+            source.append("\n    private static void chunk").append(chunk).append("(boolean[] v) {\n");
+            for (int i = from; i < to; i++) {
+                for (var input : new int[]{nandA[i], nandB[i]}) {
+                    if (input > Netlist.TRUE_WIRE && (input < firstNandWire + from || input >= firstNandWire + to)
+                            && !loaded[input]) {
+                        loaded[input] = true;
+                        source.append("        boolean w").append(input).append(" = v[").append(input).append("];\n");
+                    }
+                }
+            }
+            for (int i = from; i < to; i++) {
+                source.append("        boolean w").append(firstNandWire + i).append(" = (").append(operand(nandA[i]))
+                        .append(" & ").append(operand(nandB[i])).append(") ^ true;\n");
+            }
+            for (int i = from; i < to; i++) {
+                var wire = firstNandWire + i;
+                if (stored[wire]) {
+                    source.append("        v[").append(wire).append("] = w").append(wire).append(";\n");
+                }
+            }
+            for (int i = from; i < to; i++) { // the next chunk loads them again
+                loaded[nandA[i]] = false;
+                loaded[nandB[i]] = false;
+            }
+            source.append("    }\n");
+        }
+        return source.append("}\n").toString();
+    }
+
+    private void store(Path entry, String chipName, byte[] content) throws IOException {
+        var tempFile = Files.createTempFile(dir, chipName, TEMP_EXTENSION);
+        try {
+            Files.write(tempFile, content);
+            // replaces an entry of another netlist, or the same one stored by another process meanwhile
+            Files.move(tempFile, entry, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+    private static boolean isCompilable(Netlist netlist) {
+        return ClassCompiler.isAvailable() && netlist.getNandCount() <= MAX_GATES;
+    }
+
+    private static byte[] compileClass(Netlist netlist) {
+        var classes = ClassCompiler.compile(CLASS_NAME, generate(netlist), Simulator.class);
+        return classes.get(CLASS_NAME);
+    }
+
+    private static Simulator instantiate(Netlist netlist, byte[] classBytes) {
+        try {
+            return (Simulator) ClassCompiler.load(CLASS_NAME, Map.of(CLASS_NAME, classBytes), Simulator.class)
+                    .getConstructor(Netlist.class)
+                    .newInstance(netlist);
+        } catch (ReflectiveOperationException | LinkageError e) {
+            throw new IllegalStateException("The compiled netlist of " + netlist.getName() + " couldn't be created.", e);
+        }
+    }
+
+    private static String operand(int wire) {
+        if (wire == Netlist.FALSE_WIRE) {
+            return "false";
+        }
+        return wire == Netlist.TRUE_WIRE ? "true" : "w" + wire;
+    }
+
+    private static void markStored(boolean[] stored, int[] wires) {
+        for (var wire : wires) {
+            stored[wire] = true;
+        }
+    }
+
+    /**
+     * @return hex digest of the cache version, the chip, the mode and the contents of its HDL files
+     */
+    private static String key(ChipLibrary library, String chipName, Elaborator.Mode mode) throws HdlErrorException {
+        var digest = HdlCache.sha256();
+        digest.update((CACHE_VERSION + "/" + chipName + "/" + mode).getBytes(StandardCharsets.UTF_8));
+        digest.update(library.getContentHash(chipName));
+        return HdlCache.toHex(digest.digest());
+    }
+
+    /**
+     * @return FNV-1a hash of everything the generated code depends on
+     */
+    private static long fingerprint(Netlist netlist) {
+        var hash = new long[]{0xCBF29CE484222325L};
+        mix(hash, netlist.getWireCount(), netlist.getFirstNandWire(), netlist.getFirstDffWire());
+        mix(hash, netlist.getNandA());
+        mix(hash, netlist.getNandB());
+        mix(hash, netlist.getDffIn());
+        for (var memory : netlist.getMemories()) {
+            mix(hash, memory.getReadPosition(), memory.getLoadWire());
+            mix(hash, memory.getAddressWires());
+            mix(hash, memory.getInWires());
+        }
+        for (var wires : netlist.getOutputs().values()) {
+            mix(hash, wires);
+        }
+        return hash[0];
+    }
+
+    private static void mix(long[] hash, int... values) {
+        hash[0] = (hash[0] ^ values.length) * 0x100000001B3L;
+        for (var value : values) {
+            hash[0] = (hash[0] ^ value) * 0x100000001B3L;
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package com.lukas.hackassembler.hdl;
+
+import com.lukas.hackassembler.exception.HdlErrorException;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The expected behavior of a combinational chip of the projects 01 and 02, computed in Java - the values of
+ * the output pins for the values of the input pins (a value of a pin has its bit 0 as the lowest bit, as in
+ * {@link Simulator}).
+ *
+ * @see ChipVerifier
+ */
+public final class ReferenceModel {
+    /**
+     * Computes the outputs of a chip.
+     */
+    @FunctionalInterface
+    public interface Computation {
+        /**
+         * @param inputs  values of the input pins, in the order of the declaration
+         * @param outputs values of the output pins to be set, in the order of the declaration
+         */
+        void compute(long[] inputs, long[] outputs);
+    }
+
+    private static final long WORD_MASK = 0xFFFF;
+    private static final Map<String, ReferenceModel> MODELS = new LinkedHashMap<>();
+
+    static {
+        // 01
+        add("Not", "in", "out", (in, out) -> out[0] = in[0] ^ 1);
+        add("And", "a, b", "out", (in, out) -> out[0] = in[0] & in[1]);
+        add("Or", "a, b", "out", (in, out) -> out[0] = in[0] | in[1]);
+        add("Xor", "a, b", "out", (in, out) -> out[0] = in[0] ^ in[1]);
+        add("Mux", "a, b, sel", "out", (in, out) -> out[0] = in[2] == 0 ? in[0] : in[1]);
+        add("DMux", "in, sel", "a, b", ReferenceModel::demultiplex);
+        add("Not16", "in[16]", "out[16]", (in, out) -> out[0] = ~in[0] & WORD_MASK);
+        add("And16", "a[16], b[16]", "out[16]", (in, out) -> out[0] = in[0] & in[1]);
+        add("Or16", "a[16], b[16]", "out[16]", (in, out) -> out[0] = in[0] | in[1]);
+        add("Mux16", "a[16], b[16], sel", "out[16]", (in, out) -> out[0] = in[2] == 0 ? in[0] : in[1]);
+        add("Or8Way", "in[8]", "out", (in, out) -> out[0] = in[0] != 0 ? 1 : 0);
+        add("Mux4Way16", "a[16], b[16], c[16], d[16], sel[2]", "out[16]", (in, out) -> out[0] = in[(int) in[4]]);
+        add("Mux8Way16", "a[16], b[16], c[16], d[16], e[16], f[16], g[16], h[16], sel[3]", "out[16]",
+                (in, out) -> out[0] = in[(int) in[8]]);
+        add("DMux4Way", "in, sel[2]", "a, b, c, d", ReferenceModel::demultiplex);
+        add("DMux8Way", "in, sel[3]", "a, b, c, d, e, f, g, h", ReferenceModel::demultiplex);
+        // 02
+        add("HalfAdder", "a, b", "sum, carry", (in, out) -> {
+            out[0] = in[0] ^ in[1];
+            out[1] = in[0] & in[1];
+        });
+        add("FullAdder", "a, b, c", "sum, carry", (in, out) -> {
+            var sum = in[0] + in[1] + in[2];
+            out[0] = sum & 1;
+            out[1] = sum >> 1;
+        });
+        add("Add16", "a[16], b[16]", "out[16]", (in, out) -> out[0] = in[0] + in[1] & WORD_MASK);
+        add("Inc16", "in[16]", "out[16]", (in, out) -> out[0] = in[0] + 1 & WORD_MASK);
+        add("ALU", "x[16], y[16], zx, nx, zy, ny, f, no", "out[16], zr, ng", ReferenceModel::alu);
+    }
+
+    private final String chip;
+    private final List<ChipDefinition.Pin> inputs;
+    private final List<ChipDefinition.Pin> outputs;
+    private final Computation computation;
+
+    private ReferenceModel(String chip, List<ChipDefinition.Pin> inputs, List<ChipDefinition.Pin> outputs,
+                           Computation computation) {
+        this.chip = chip;
+        this.inputs = inputs;
+        this.outputs = outputs;
+        this.computation = computation;
+    }
+
+    /**
+     * @return names of the chips with a model, in the order of the projects
+     */
+    public static List<String> getChips() {
+        return List.copyOf(MODELS.keySet());
+    }
+
+    /**
+     * @param chip name of the chip
+     * @return the model of the chip
+     * @throws HdlErrorException if there's no model of the chip
+     */
+    public static ReferenceModel of(String chip) throws HdlErrorException {
+        var model = MODELS.get(chip);
+        if (model == null) {
+            throw new HdlErrorException("There's no reference model of the chip '" + chip + "'.");
+        }
+        return model;
+    }
+
+    public String getChip() {
+        return chip;
+    }
+
+    public List<ChipDefinition.Pin> getInputs() {
+        return inputs;
+    }
+
+    public List<ChipDefinition.Pin> getOutputs() {
+        return outputs;
+    }
+
+    /**
+     * @param inputs  values of the input pins, in the order of {@link #getInputs()}
+     * @param outputs values of the output pins to be set, in the order of {@link #getOutputs()}
+     */
+    public void compute(long[] inputs, long[] outputs) {
+        computation.compute(inputs, outputs);
+    }
+
+    private static void add(String chip, String inputs, String outputs, Computation computation) {
+        MODELS.put(chip, new ReferenceModel(chip, pins(inputs), pins(outputs), computation));
+    }
+
+    /**
+     * @param declaration the pins as in the HDL, eg. "a[16], sel"
+     */
+    private static List<ChipDefinition.Pin> pins(String declaration) {
+        var pins = new ArrayList<ChipDefinition.Pin>();
+        for (var pin : declaration.split(", ")) {
+            var bracket = pin.indexOf('[');
+            pins.add(bracket == -1 ? new ChipDefinition.Pin(pin, 1) : new ChipDefinition.Pin(pin.substring(0, bracket),
+                    Integer.parseInt(pin.substring(bracket + 1, pin.length() - 1))));
+        }
+        return List.copyOf(pins);
+    }
+
+    private static void demultiplex(long[] in, long[] out) {
+        for (int i = 0; i < out.length; i++) {
+            out[i] = i == in[1] ? in[0] : 0;
+        }
+    }
+
+    private static void alu(long[] in, long[] out) {
+        var x = in[2] != 0 ? 0 : in[0];
+        x = in[3] != 0 ? ~x : x;
+        var y = in[4] != 0 ? 0 : in[1];
+        y = in[5] != 0 ? ~y : y;
+        var result = in[6] != 0 ? x + y : x & y;
+        result = (in[7] != 0 ? ~result : result) & WORD_MASK;
+        out[0] = result;
+        out[1] = result == 0 ? 1 : 0;
+        out[2] = result >> 15;
+    }
+}
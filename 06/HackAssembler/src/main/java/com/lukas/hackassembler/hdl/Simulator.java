@@ -0,0 +1,175 @@
+package com.lukas.hackassembler.hdl;
+
+/**
+ * Simulates a chip on its {@link Netlist}. The values of all the wires are kept in a single array, the evaluation is
+ * a linear sweep over the levelized gates, each of them reading the values of its inputs (evaluated already)
+ * and writing the value of its output. The memories are read in between the gates, their words are kept in short
+ * arrays (see {@link #getMemory(String)}). The DFFs and the memories start as false, as do the inputs.
+ * <p>
+ * A clock cycle is {@link #evaluate()} with the new inputs (the outputs before the clock edge), followed by
+ * {@link #tick()} (the outputs after it).
+ */
+public class Simulator {
+    private final Netlist netlist;
+    private final int[] nandA;
+    private final int[] nandB;
+    private final int[] dffIn;
+    private final int firstNandWire;
+    private final int firstDffWire;
+    /**
+     * The values of the wires, by the wire numbers of the {@link Netlist}.
+     */
+    protected final boolean[] values;
+    private final boolean[] nextState;
+    private final Netlist.Memory[] memories;
+    private final short[][] words; // of each memory
+
+    private long gateEvaluations;
+
+    public Simulator(Netlist netlist) {
+        this.netlist = netlist;
+        nandA = netlist.getNandA();
+        nandB = netlist.getNandB();
+        dffIn = netlist.getDffIn();
+        firstNandWire = netlist.getFirstNandWire();
+        firstDffWire = netlist.getFirstDffWire();
+        values = new boolean[netlist.getWireCount()];
+        values[Netlist.TRUE_WIRE] = true;
+        nextState = new boolean[dffIn.length];
+        memories = netlist.getMemories().toArray(new Netlist.Memory[0]);
+        words = new short[memories.length][];
+        for (int memory = 0; memory < memories.length; memory++) {
+            words[memory] = new short[memories[memory].getModel().getSize()];
+        }
+    }
+
+    /**
+     * Sets the value of an input pin, for the next evaluation.
+     *
+     * @param pin   name of the pin
+     * @param value the value, the lowest bit is the bit 0 of the pin (the higher bits than the width are ignored)
+     * @throws IllegalArgumentException if the chip has no such input pin
+     */
+    public void setInput(String pin, long value) {
+        var wires = netlist.getInputs().get(pin);
+        if (wires == null) {
+            throw new IllegalArgumentException("The chip " + netlist.getName() + " has no input pin '" + pin + "'.");
+        }
+        for (int bit = 0; bit < wires.length; bit++) {
+            values[wires[bit]] = (value >>> bit & 1) != 0;
+        }
+    }
+
+    /**
+     * @param pin name of the pin
+     * @return the value of an output pin after the last evaluation, the bit 0 of the pin is the lowest bit
+     * @throws IllegalArgumentException if the chip has no such output pin
+     */
+    public long getOutput(String pin) {
+        var wires = netlist.getOutputs().get(pin);
+        if (wires == null) {
+            throw new IllegalArgumentException("The chip " + netlist.getName() + " has no output pin '" + pin + "'.");
+        }
+        return read(wires);
+    }
+
+    /**
+     * Evaluates the combinational logic with the current inputs and state.
+     */
+    public void evaluate() {
+        evaluateGates();
+        gateEvaluations += nandA.length;
+    }
+
+    /**
+     * The clock edge - each DFF takes the value of its input from the last evaluation, as does the addressed word of
+     * each memory with the load set, then the combinational logic is evaluated with the new state.
+     */
+    public void tick() {
+        for (int memory = 0; memory < memories.length; memory++) {
+            if (values[memories[memory].getLoadWire()]) {
+                words[memory][(int) read(memories[memory].getAddressWires())] =
+                        (short) read(memories[memory].getInWires());
+            }
+        }
+        for (int dff = 0; dff < dffIn.length; dff++) { // through a copy, a DFF can be the input of another one
+            nextState[dff] = values[dffIn[dff]];
+        }
+        System.arraycopy(nextState, 0, values, firstDffWire, nextState.length);
+        evaluate();
+    }
+
+    /**
+     * @param chipName name of the memory chip (eg. "ROM32K" or "Screen")
+     * @return the words of the first memory of the chip, to be read or written directly (the changes are visible after
+     * the next evaluation)
+     * @throws IllegalArgumentException if there's no such memory
+     */
+    public short[] getMemory(String chipName) {
+        for (int memory = 0; memory < memories.length; memory++) {
+            if (memories[memory].getModel().getName().equals(chipName)) {
+                return words[memory];
+            }
+        }
+        throw new IllegalArgumentException("The chip " + netlist.getName() + " has no memory '" + chipName + "'.");
+    }
+
+    /**
+     * @return number of the Nand gates evaluated so far
+     */
+    public long getGateEvaluations() {
+        return gateEvaluations;
+    }
+
+    public Netlist getNetlist() {
+        return netlist;
+    }
+
+    /**
+     * Evaluates all the gates in their order, reading each memory at its {@link Netlist.Memory#getReadPosition()}.
+     * Overridden by the netlists compiled into Java (see {@link NetlistCompiler}), which have to keep the values of
+     * the outputs, the DFF inputs and the memory inputs in {@link #values}.
+     */
+    protected void evaluateGates() {
+        var gate = 0;
+        for (int memory = 0; memory < memories.length; memory++) {
+            var readPosition = memories[memory].getReadPosition();
+            evaluate(gate, readPosition);
+            gate = readPosition;
+            readMemory(memory);
+        }
+        evaluate(gate, nandA.length);
+    }
+
+    /**
+     * Sets the output wires of a memory to the word at its address.
+     *
+     * @param memory index of the memory in {@link Netlist#getMemories()}
+     */
+    protected final void readMemory(int memory) {
+        var word = words[memory][(int) read(memories[memory].getAddressWires())];
+        var outWires = memories[memory].getOutWires();
+        for (int bit = 0; bit < outWires.length; bit++) {
+            values[outWires[bit]] = (word >>> bit & 1) != 0;
+        }
+    }
+
+    private void evaluate(int fromGate, int toGate) {
+        var values = this.values;
+        var nandA = this.nandA;
+        var nandB = this.nandB;
+        for (int gate = fromGate, wire = firstNandWire + fromGate; gate < toGate; gate++, wire++) {
+            values[wire] = !(values[nandA[gate]] & values[nandB[gate]]);
+        }
+    }
+
+    private long read(int[] wires) {
+        var value = 0L;
+        for (int bit = 0; bit < wires.length; bit++) {
+            if (values[wires[bit]]) {
+                value |= 1L << bit;
+            }
+        }
+        return value;
+    }
+}
@@ -4,19 +4,148 @@ import com.lukas.hackassembler.exception.LexerErrorException;
 import com.lukas.hackassembler.model.Token;
 import com.lukas.hackassembler.model.TokenType;
 
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+
 /**
  * A simple lexer for lexing / tokenizing the HACK assembly language.
+ * <p>
+ * The lexer works directly on the (ASCII) bytes of the input and reports each token as a span - its type, start
+ * and length - without allocating anything. The span of the last token is available through {@link #getTokenType()},
+ * {@link #getTokenStart()} and {@link #getTokenLength()} until the next call of {@link #nextToken()}.
+ * The input is treated as if it ended with a new line character.
+ * <p>
+ * A file input is memory-mapped instead of being read into the heap. Files bigger than the mapping window are mapped
+ * piece by piece - the window moves forward only at the start of a line, so the spans of all the tokens on the current
+ * line stay valid. The window has to fit at least one whole line.
  */
 public class Lexer {
-    private final String input;
+    private static final char END_OF_INPUT = '\0';
+
+    // character classes of the ASCII characters, looked up instead of comparing the ranges for each character
+    private static final byte DIGIT = 1;
+    private static final byte SYMBOL_CHAR = 1 << 1;
+    private static final byte WHITESPACE = 1 << 2;
+    private static final byte[] CHAR_CLASSES = new byte[256];
+
+    static {
+        for (int aChar = 0; aChar < CHAR_CLASSES.length; aChar++) {
+            if (aChar >= '0' && aChar <= '9') {
+                CHAR_CLASSES[aChar] |= DIGIT | SYMBOL_CHAR;
+            }
+            if ((aChar >= 'A' && aChar <= 'Z') || (aChar >= 'a' && aChar <= 'z')
+                    || aChar == '_' || aChar == '$' || aChar == '.' || aChar == ':') {
+                CHAR_CLASSES[aChar] |= SYMBOL_CHAR;
+            }
+            // the ASCII whitespace according to Character.isWhitespace
+            if (aChar == ' ' || (aChar >= '\t' && aChar <= '\r') || (aChar >= 0x1C && aChar <= 0x1F)) {
+                CHAR_CLASSES[aChar] |= WHITESPACE;
+            }
+        }
+    }
+
+    /**
+     * The biggest possible size of a single mapping.
+     */
+    public static final int MAX_WINDOW_SIZE = Integer.MAX_VALUE;
+
+    // only for the memory-mapped input
+    private final Path inputFile;
+    private final long inputFileSize;
+    private final int windowSize;
+    private long windowOffset;
+    private int windowLineEnd; // position of the last complete line's new line char in the window
+    private ByteBuffer firstWindow; // kept for the reset
+    private int firstWindowLineEnd;
+
+    private final long inputOffset; // position of the input in the whole input, if it's only its part
+    private final int firstLine;
+
+    private ByteBuffer input;
+    private int inputLength;
+
     private int curPos;
     private char curChar;
+    private int curLine;
+
+    private TokenType tokenType;
+    private int tokenStart;
+    private int tokenLength;
+    private int tokenLine;
 
     // flags
     private boolean aInstMode;
 
     public Lexer(String input) {
-        this.input = input + '\n';
+        this(input.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public Lexer(byte[] input) {
+        this(ByteBuffer.wrap(input));
+    }
+
+    /**
+     * @param input the bytes between the position and the limit of the buffer are lexed (the buffer isn't modified)
+     */
+    public Lexer(ByteBuffer input) {
+        this(input, 0, 1);
+    }
+
+    /**
+     * Creates a lexer over a part of a bigger input, which starts at the beginning of a line. The positions and lines
+     * in the error messages are then the ones in the whole input.
+     *
+     * @param input       the bytes between the position and the limit of the buffer are lexed (the buffer isn't modified)
+     * @param inputOffset position of the part in the whole input
+     * @param firstLine   line (starting from 1) of the whole input the part starts at
+     */
+    public Lexer(ByteBuffer input, long inputOffset, int firstLine) {
+        this.input = input.slice();
+        inputLength = this.input.limit();
+        windowLineEnd = Integer.MAX_VALUE; // the whole input is available
+        windowOffset = inputOffset;
+
+        inputFile = null;
+        inputFileSize = inputLength;
+        windowSize = inputLength;
+        this.inputOffset = inputOffset;
+        this.firstLine = firstLine;
+
+        reset();
+    }
+
+    /**
+     * Creates a lexer over a memory-mapped file.
+     *
+     * @param inputFile the file to be lexed
+     * @throws IOException if the file couldn't be mapped
+     */
+    public Lexer(Path inputFile) throws IOException {
+        this(inputFile, MAX_WINDOW_SIZE);
+    }
+
+    /**
+     * Creates a lexer over a memory-mapped file, mapping at most the given number of bytes at once.
+     *
+     * @param inputFile  the file to be lexed
+     * @param windowSize the maximum size of a single mapping, it has to fit the longest line of the file
+     * @throws IOException if the file couldn't be mapped
+     */
+    public Lexer(Path inputFile, int windowSize) throws IOException {
+        this.inputFile = inputFile;
+        this.windowSize = windowSize;
+        inputOffset = 0;
+        firstLine = 1;
+        try (var channel = FileChannel.open(inputFile)) {
+            inputFileSize = channel.size();
+        }
+
+        mapWindow(0);
+        firstWindow = input;
+        firstWindowLineEnd = windowLineEnd;
         reset();
     }
 
@@ -24,7 +153,16 @@ public class Lexer {
      * Resets the lexer to the start position and state.
      */
     public void reset() {
+        if (windowOffset != inputOffset) {
+            input = firstWindow;
+            inputLength = firstWindow.limit();
+            windowLineEnd = firstWindowLineEnd;
+            windowOffset = 0;
+        }
+
         curPos = -1;
+        curLine = firstLine;
+        aInstMode = false;
         nextChar();
     }
 
@@ -35,33 +173,58 @@ public class Lexer {
      * @throws LexerErrorException if the token wasn't valid
      */
     public Token getToken() throws LexerErrorException {
+        var type = nextToken();
+        switch (type) {
+            case SYMBOL:
+            case NUMBER:
+            case COMP_PART:
+                return new Token(type, getTokenValue());
+            default:
+                return new Token(type);
+        }
+    }
+
+    /**
+     * Lexes the next token from the input without allocating it. Its span is then available through the getters.
+     *
+     * @return the type of the next valid token
+     * @throws LexerErrorException if the token wasn't valid
+     */
+    public TokenType nextToken() throws LexerErrorException {
+        if (curPos > windowLineEnd) { // at the start of a line, which doesn't end in the current window
+            moveWindow();
+        }
+
         skipWhitespace();
         skipComment();
 
-        Token token = null;
+        tokenStart = curPos;
+        tokenLine = curLine;
 
         if (aInstMode) {
             aInstMode = false;
-            if (Character.isDigit(curChar)) {
-                var startPos = curPos;
-                while (Character.isDigit(peek())) {
-                    nextChar();
+            if (isDigit(curChar)) {
+                var end = curPos + 1;
+                while (isDigit(charAt(end))) {
+                    end++;
                 }
+                moveTo(end - 1);
 
-                if (Character.isWhitespace(peek())) {
-                    token = new Token(TokenType.NUMBER, input.substring(startPos, curPos + 1));
+                if (isWhitespace(peek())) {
+                    setToken(TokenType.NUMBER);
                 } else {
                     abortUnexpectedCharacter(peek(), curPos + 1);
                 }
             } else {
                 if (isSymbolChar(curChar)) {
-                    var startPos = curPos;
-                    while (isSymbolChar(peek())) { // first char of symbol is not digit, but the following can be
-                        nextChar();
+                    var end = curPos + 1;
+                    while (isSymbolChar(charAt(end))) { // first char of symbol is not digit, but the following can be
+                        end++;
                     }
+                    moveTo(end - 1);
 
-                    if (Character.isWhitespace(peek())) {
-                        token = new Token(TokenType.SYMBOL, input.substring(startPos, curPos + 1));
+                    if (isWhitespace(peek())) {
+                        setToken(TokenType.SYMBOL);
                     } else {
                         abortUnexpectedCharacter(peek(), curPos + 1);
                     }
@@ -69,100 +232,209 @@ public class Lexer {
                     abortUnexpectedCharacter(curChar, curPos);
                 }
             }
-        } else if (curChar == '\0') {
-            token = new Token(TokenType.EOF);
+        } else if (curChar == END_OF_INPUT) {
+            setToken(TokenType.EOF);
         } else if (curChar == '\n') {
-            token = new Token(TokenType.NEWLINE);
+            setToken(TokenType.NEWLINE);
+            curLine++;
         } else if (curChar == '@') {
-            if (!Character.isWhitespace(peek())) {
-                token = new Token(TokenType.A_INST_MARK);
+            if (!isWhitespace(peek())) {
+                setToken(TokenType.A_INST_MARK);
                 aInstMode = true; // turn on A-instruction mode - next character will be interpreted differently
             } else {
                 abortUnexpectedCharacter(peek(), curPos + 1);
             }
         } else if (curChar == '=') {
-            token = new Token(TokenType.DEST_SEPARATOR);
+            setToken(TokenType.DEST_SEPARATOR);
         } else if (curChar == ';') {
-            token = new Token(TokenType.JUMP_SEPARATOR);
+            setToken(TokenType.JUMP_SEPARATOR);
         } else if (curChar == '(') {
-            token = new Token(TokenType.LABEL_START);
+            setToken(TokenType.LABEL_START);
         } else if (curChar == ')') {
-            token = new Token(TokenType.LABEL_END);
+            setToken(TokenType.LABEL_END);
         } else { // LABEL DECLARATION OR C-INSTRUCTION PART
-            boolean isValidLabelStart = isSymbolChar(curChar) && !Character.isDigit(curChar);
-
-            var startPos = curPos;
+            boolean isValidLabelStart = isSymbolChar(curChar) && !isDigit(curChar);
 
-            while (peek() != '='
-                    && peek() != ';'
-                    && !(peek() == ')' && Character.isWhitespace(peekTo(2))) // end of label
-                    && !Character.isWhitespace(peek())
-                    && peek() != '\0') {
-                nextChar();
+            var end = curPos + 1;
+            var next = charAt(end);
+            while (next != '='
+                    && next != ';'
+                    && !(next == ')' && isWhitespace(charAt(end + 1))) // end of label
+                    && !isWhitespace(next)
+                    && next != END_OF_INPUT) {
+                next = charAt(++end);
             }
+            moveTo(end - 1);
 
             if (peek() == ')') { // LABEL
-                var label = input.substring(startPos, curPos + 1);
                 if (isValidLabelStart) {
-                    token = new Token(TokenType.SYMBOL, label);
+                    setToken(TokenType.SYMBOL);
                 } else {
-                    abort("Invalid label: " + label);
+                    abort("Invalid label: " + getText(tokenStart, curPos + 1 - tokenStart));
                 }
             } else { // C-INSTRUCTION PART
-                token = new Token(TokenType.COMP_PART, input.substring(startPos, curPos + 1));
+                setToken(TokenType.COMP_PART);
             }
         }
 
         nextChar();
-        return token;
+        return tokenType;
+    }
+
+    /**
+     * @return type of the last lexed token
+     */
+    public TokenType getTokenType() {
+        return tokenType;
+    }
+
+    /**
+     * @return position of the first character of the last lexed token in the input
+     */
+    public int getTokenStart() {
+        return tokenStart;
+    }
+
+    /**
+     * @return number of characters of the last lexed token
+     */
+    public int getTokenLength() {
+        return tokenLength;
+    }
+
+    /**
+     * @return line (starting from 1) of the last lexed token
+     */
+    public int getTokenLine() {
+        return tokenLine;
+    }
+
+    /**
+     * Creates a string from the last lexed token. Meant for the diagnostics, the spans should be used otherwise.
+     *
+     * @return the text of the last lexed token
+     */
+    public String getTokenValue() {
+        return getText(tokenStart, tokenLength);
+    }
+
+    /**
+     * Gets the input the token spans point into. The returned buffer shouldn't be modified. For the memory-mapped
+     * input it's the current window, which can change when the lexer moves to the next line.
+     *
+     * @return the lexed input
+     */
+    public ByteBuffer getInput() {
+        return input;
+    }
+
+    /**
+     * Creates a string from a span of the input.
+     *
+     * @param start  position of the first character
+     * @param length number of characters
+     * @return the text of the span
+     */
+    public String getText(int start, int length) {
+        var bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = input.get(start + i);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private void moveWindow() throws LexerErrorException {
+        try {
+            mapWindow(windowOffset + curPos);
+        } catch (IOException e) {
+            abort("The input file couldn't be mapped - " + e.getMessage());
+        }
+
+        if (windowLineEnd < 0) { // no new line in the whole window
+            abort("The line is longer than the mapping window of " + windowSize + " bytes.");
+        }
+        moveTo(0);
+    }
+
+    private void mapWindow(long offset) throws IOException {
+        try (var channel = FileChannel.open(inputFile)) { // the mapping stays valid after the channel is closed
+            var size = (int) Math.min(windowSize, inputFileSize - offset);
+            input = channel.map(FileChannel.MapMode.READ_ONLY, offset, size);
+            inputLength = size;
+            windowOffset = offset;
+        }
+
+        if (offset + inputLength == inputFileSize) { // the last window ends with the (virtual) new line
+            windowLineEnd = Integer.MAX_VALUE;
+        } else {
+            windowLineEnd = inputLength - 1;
+            while (windowLineEnd >= 0 && input.get(windowLineEnd) != '\n') {
+                windowLineEnd--;
+            }
+        }
+    }
+
+    private void setToken(TokenType type) {
+        tokenType = type;
+        tokenLength = curPos + 1 - tokenStart;
     }
 
     private void skipWhitespace() {
-        while (Character.isWhitespace(curChar) && curChar != '\n') {
+        while (isWhitespace(curChar) && curChar != '\n') {
             nextChar();
         }
     }
 
     private void skipComment() {
         if (curChar == '/' && peek() == '/') {
-            while (peek() != '\n') {
-                nextChar();
+            var end = curPos + 2;
+            while (charAt(end) != '\n') {
+                end++;
             }
-            nextChar();
+            moveTo(end);
         }
     }
 
     private void nextChar() {
         curPos++;
-        if (curPos < input.length()) {
-            curChar = input.charAt(curPos);
-        } else {
-            curChar = '\0';
-        }
+        curChar = charAt(curPos);
+    }
+
+    private void moveTo(int position) {
+        curPos = position;
+        curChar = charAt(curPos);
     }
 
     private char peek() {
-        return peekTo(1);
+        return charAt(curPos + 1);
+    }
+
+    private char charAt(int position) {
+        if (position < inputLength) {
+            return (char) (input.get(position) & 0xFF);
+        } else if (position == inputLength) {
+            return '\n'; // the input always ends with a new line
+        }
+        return END_OF_INPUT;
+    }
+
+    private static boolean isDigit(char aChar) {
+        return (CHAR_CLASSES[aChar] & DIGIT) != 0;
     }
 
-    private char peekTo(int position) {
-        return (curPos + position < input.length())
-                ? input.charAt(curPos + position)
-                : '\0';
+    private static boolean isWhitespace(char aChar) {
+        return (CHAR_CLASSES[aChar] & WHITESPACE) != 0;
     }
 
-    private boolean isSymbolChar(char aChar) {
-        return Character.isDigit(aChar) // 0-9
-                || (aChar >= 65 && aChar <= 90) // A-Z
-                || (aChar >= 97 && aChar <= 122) // a-z
-                || aChar == '_' || aChar == '$' || aChar == '.' || aChar == ':';
+    private static boolean isSymbolChar(char aChar) {
+        return (CHAR_CLASSES[aChar] & SYMBOL_CHAR) != 0;
     }
 
     private void abortUnexpectedCharacter(char character, int position) throws LexerErrorException {
-        abort("Unexpected character at position " + position + " - " + character);
+        abort("Unexpected character at position " + (windowOffset + position) + " - " + character);
     }
 
     private void abort(String message) throws LexerErrorException {
-        throw new LexerErrorException(message);
+        throw new LexerErrorException("Line " + curLine + ": " + message);
     }
 }
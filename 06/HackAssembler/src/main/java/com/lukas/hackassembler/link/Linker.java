@@ -0,0 +1,145 @@
+package com.lukas.hackassembler.link;
+
+import com.lukas.hackassembler.emit.Emitter;
+import com.lukas.hackassembler.exception.EmitterErrorException;
+import com.lukas.hackassembler.exception.LinkerErrorException;
+import com.lukas.hackassembler.model.AInstruction;
+import com.lukas.hackassembler.parse.Parser;
+import com.lukas.hackassembler.parse.SymbolTable;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Links the separately assembled modules into one program, the same as of the assembly of their concatenated text.
+ * The modules are placed into the ROM in their order, the words of each are relocated by its start address, and
+ * the references to the symbols of the other modules are patched. A symbol which isn't a label of any module is
+ * a variable, allocated from 16 in the order of the first use in the whole program (as by the parser).
+ * <p>
+ * Unlike in a single file, where the last declaration wins, a label can be declared by only one module.
+ */
+public class Linker {
+    private final List<ObjectModule> modules;
+
+    private int instructionCount;
+    private int variableCount;
+
+    /**
+     * @param modules the modules in the order of the program
+     */
+    public Linker(List<ObjectModule> modules) {
+        this.modules = modules;
+    }
+
+    /**
+     * Links the modules, emits the words of the program and closes the emitter.
+     *
+     * @param emitter emitter of the output
+     * @throws LinkerErrorException  if a label is declared by more than one module, or an address doesn't fit into
+     *                               an A-instruction
+     * @throws EmitterErrorException if there was a problem during the output creation
+     */
+    public void link(Emitter emitter) throws LinkerErrorException, EmitterErrorException {
+        try {
+            var program = link();
+            try {
+                for (var word : program) {
+                    emitter.emitWord(word);
+                }
+            } catch (UncheckedIOException e) { // the emitter can write its output through already
+                throw new EmitterErrorException(e.getCause());
+            }
+
+            try {
+                emitter.close();
+            } catch (IOException e) {
+                throw new EmitterErrorException(e);
+            }
+        } finally { // does nothing after the emitter got closed
+            emitter.abort();
+        }
+    }
+
+    /**
+     * Links the modules.
+     *
+     * @return the machine words of the program
+     * @throws LinkerErrorException if a label is declared by more than one module, or an address doesn't fit into
+     *                              an A-instruction
+     */
+    public short[] link() throws LinkerErrorException {
+        var symbols = SymbolTable.withBuiltIns();
+        var declaringModules = new HashMap<String, String>(); // of each label, for the duplicates
+
+        var size = 0;
+        for (var module : modules) {
+            var labels = module.getLabels();
+            var labelAddresses = module.getLabelAddresses();
+            for (int i = 0; i < labels.length; i++) {
+                var previous = declaringModules.putIfAbsent(labels[i], module.getName());
+                if (previous != null) {
+                    throw new LinkerErrorException("The label '" + labels[i] + "' is declared by both " + previous
+                            + " and " + module.getName() + ".");
+                }
+                symbols.add(labels[i], SymbolTable.Kind.LABEL, size + labelAddresses[i]);
+            }
+            size += module.size();
+        }
+
+        var program = new short[size];
+        var nextVariableAddress = Parser.DYNAMIC_MEMORY_START_ADDRESS;
+        var base = 0;
+        for (var module : modules) {
+            var words = module.getWords();
+            System.arraycopy(words, 0, program, base, words.length);
+
+            for (var offset : module.getRelocations()) {
+                program[base + offset] = toAddress(program[base + offset] + base, module, offset);
+            }
+
+            var moduleSymbols = module.getSymbols();
+            var entries = new int[moduleSymbols.length];
+            for (int i = 0; i < moduleSymbols.length; i++) {
+                entries[i] = symbols.findOrAdd(moduleSymbols[i]);
+            }
+            var referenceOffsets = module.getReferenceOffsets();
+            var referenceSymbols = module.getReferenceSymbols();
+            for (int i = 0; i < referenceOffsets.length; i++) {
+                var entry = entries[referenceSymbols[i]];
+                if (symbols.getKind(entry) == SymbolTable.Kind.UNRESOLVED) { // not a label or a known variable
+                    symbols.resolve(entry, SymbolTable.Kind.VARIABLE, nextVariableAddress++);
+                }
+                program[base + referenceOffsets[i]] = toAddress(symbols.getAddress(entry), module, referenceOffsets[i]);
+            }
+            base += words.length;
+        }
+
+        instructionCount = size;
+        variableCount = nextVariableAddress - Parser.DYNAMIC_MEMORY_START_ADDRESS;
+        return program;
+    }
+
+    /**
+     * @return number of the instructions of the last linked program
+     */
+    public int getInstructionCount() {
+        return instructionCount;
+    }
+
+    /**
+     * @return number of the variables allocated for the last linked program
+     */
+    public int getVariableCount() {
+        return variableCount;
+    }
+
+    private static short toAddress(int address, ObjectModule module, int offset) throws LinkerErrorException {
+        if (address > AInstruction.MAX_VALUE) {
+            throw new LinkerErrorException("The address " + address + " referenced by the instruction " + offset
+                    + " of " + module.getName() + " is out of the range of an A-instruction (the program is too large).");
+        }
+        return (short) address;
+    }
+}
@@ -0,0 +1,246 @@
+package com.lukas.hackassembler.link;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * A relocatable object of a separately assembled module - its machine words with the addresses relative to
+ * the start of the module, the labels it declares, the words to be relocated and the references to the symbols
+ * declared elsewhere (the labels of the other modules and the variables). The built-in symbols are resolved already.
+ * <p>
+ * The objects are written into binary files ({@value #FILE_EXTENSION}) of this layout, all the numbers big-endian:
+ * <pre>
+ * int magic ("HOBJ"), int version, UTF name
+ * int word count, short word*
+ * int label count, (UTF label, int address)*
+ * int relocation count, int offset*
+ * int symbol count, UTF symbol*
+ * int reference count, (int offset, int symbol index)*
+ * </pre>
+ *
+ * @see com.lukas.hackassembler.parse.InstructionAssembler#finishObject(String)
+ * @see Linker
+ */
+public final class ObjectModule {
+    public static final String FILE_EXTENSION = ".hobj";
+    /**
+     * Maximum number of the words, labels, relocations, symbols and references of a module (the size of the ROM).
+     */
+    public static final int MAX_COUNT = 1 << 15;
+
+    private static final int MAGIC = 0x484F424A; // "HOBJ"
+    private static final int VERSION = 1;
+    private static final String TEMP_EXTENSION = ".tmp";
+
+    private final String name;
+    private final short[] words;
+    private final String[] labels;
+    private final int[] labelAddresses;
+    private final int[] relocations;
+    private final String[] symbols;
+    private final int[] referenceOffsets;
+    private final int[] referenceSymbols;
+
+    /**
+     * @param name             name of the module, for the messages
+     * @param words            the machine words, the relocated and referencing ones with the relative address or 0
+     * @param labels           the labels declared by the module
+     * @param labelAddresses   relative address of each label
+     * @param relocations      offsets of the words with an address relative to the start of the module
+     * @param symbols          the symbols referenced, but not declared by the module, in the order of their first use
+     * @param referenceOffsets offsets of the words referencing the symbols, ascending
+     * @param referenceSymbols index of the symbol referenced by each of the words
+     */
+    public ObjectModule(String name, short[] words, String[] labels, int[] labelAddresses, int[] relocations,
+                        String[] symbols, int[] referenceOffsets, int[] referenceSymbols) {
+        this.name = name;
+        this.words = words;
+        this.labels = labels;
+        this.labelAddresses = labelAddresses;
+        this.relocations = relocations;
+        this.symbols = symbols;
+        this.referenceOffsets = referenceOffsets;
+        this.referenceSymbols = referenceSymbols;
+    }
+
+    /**
+     * Reads an object file.
+     *
+     * @param file the object file
+     * @return the object
+     * @throws IOException if the file couldn't be read or isn't a valid object file of this version (including
+     *                     an offset, address or symbol index out of the range of the module)
+     */
+    public static ObjectModule read(Path file) throws IOException {
+        try (var in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException("Not an object file of version " + VERSION + ": " + file);
+            }
+            var name = in.readUTF();
+
+            var words = new short[readCount(in)];
+            for (int i = 0; i < words.length; i++) {
+                words[i] = in.readShort();
+            }
+
+            var labels = new String[readCount(in)];
+            var labelAddresses = new int[labels.length];
+            for (int i = 0; i < labels.length; i++) {
+                labels[i] = in.readUTF();
+                labelAddresses[i] = checkIndex(in.readInt(), words.length + 1, "label address"); // or at the end
+            }
+
+            var relocations = readInts(in, readCount(in));
+            for (var offset : relocations) {
+                checkIndex(offset, words.length, "relocation offset");
+            }
+
+            var symbols = new String[readCount(in)];
+            for (int i = 0; i < symbols.length; i++) {
+                symbols[i] = in.readUTF();
+            }
+
+            var referenceOffsets = new int[readCount(in)];
+            var referenceSymbols = new int[referenceOffsets.length];
+            for (int i = 0; i < referenceOffsets.length; i++) {
+                referenceOffsets[i] = checkIndex(in.readInt(), words.length, "reference offset");
+                referenceSymbols[i] = checkIndex(in.readInt(), symbols.length, "symbol index");
+            }
+            return new ObjectModule(name, words, labels, labelAddresses, relocations, symbols, referenceOffsets,
+                    referenceSymbols);
+        }
+    }
+
+    /**
+     * Writes the object file, replacing the previous one at once.
+     *
+     * @param file the object file
+     * @throws IOException if the file couldn't be written, or the module has more than {@link #MAX_COUNT} of anything
+     */
+    public void write(Path file) throws IOException {
+        checkCount(words.length, "words");
+        checkCount(labels.length, "labels");
+        checkCount(relocations.length, "relocations");
+        checkCount(symbols.length, "symbols");
+        checkCount(referenceOffsets.length, "references");
+
+        var dir = file.toAbsolutePath().getParent();
+        var tempFile = Files.createTempFile(dir, file.getFileName().toString(), TEMP_EXTENSION);
+        try {
+            try (var out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tempFile)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeUTF(name);
+
+                out.writeInt(words.length);
+                for (var word : words) {
+                    out.writeShort(word);
+                }
+
+                out.writeInt(labels.length);
+                for (int i = 0; i < labels.length; i++) {
+                    out.writeUTF(labels[i]);
+                    out.writeInt(labelAddresses[i]);
+                }
+
+                writeInts(out, relocations);
+
+                out.writeInt(symbols.length);
+                for (var symbol : symbols) {
+                    out.writeUTF(symbol);
+                }
+
+                out.writeInt(referenceOffsets.length);
+                for (int i = 0; i < referenceOffsets.length; i++) {
+                    out.writeInt(referenceOffsets[i]);
+                    out.writeInt(referenceSymbols[i]);
+                }
+            }
+            Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return number of the instructions of the module
+     */
+    public int size() {
+        return words.length;
+    }
+
+    short[] getWords() {
+        return words;
+    }
+
+    String[] getLabels() {
+        return labels;
+    }
+
+    int[] getLabelAddresses() {
+        return labelAddresses;
+    }
+
+    int[] getRelocations() {
+        return relocations;
+    }
+
+    String[] getSymbols() {
+        return symbols;
+    }
+
+    int[] getReferenceOffsets() {
+        return referenceOffsets;
+    }
+
+    int[] getReferenceSymbols() {
+        return referenceSymbols;
+    }
+
+    private static int readCount(DataInputStream in) throws IOException {
+        var count = in.readInt();
+        if (count < 0 || count > MAX_COUNT) {
+            throw new IOException("Invalid count in the object file: " + count);
+        }
+        return count;
+    }
+
+    private static int checkIndex(int index, int limit, String item) throws IOException {
+        if (index < 0 || index >= limit) {
+            throw new IOException("Invalid " + item + " in the object file: " + index + " (of " + limit + ")");
+        }
+        return index;
+    }
+
+    private void checkCount(int count, String items) throws IOException {
+        if (count > MAX_COUNT) {
+            throw new IOException("The module " + name + " has too many " + items + " for an object file: " + count
+                    + " (at most " + MAX_COUNT + ").");
+        }
+    }
+
+    private static int[] readInts(DataInputStream in, int count) throws IOException {
+        var values = new int[count];
+        for (int i = 0; i < count; i++) {
+            values[i] = in.readInt();
+        }
+        return values;
+    }
+
+    private static void writeInts(DataOutputStream out, int[] values) throws IOException {
+        out.writeInt(values.length);
+        for (var value : values) {
+            out.writeInt(value);
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.lukas.hackassembler.model;
+
+import java.util.Objects;
+
+/**
+ * An A-instruction loading either a symbol (a label, a variable or a built-in symbol) or a number.
+ */
+public final class AInstruction extends Statement {
+    public static final int MAX_VALUE = (1 << 15) - 1;
+
+    private final String symbol;
+    private final int value;
+
+    private AInstruction(String symbol, int value) {
+        this.symbol = symbol;
+        this.value = value;
+    }
+
+    /**
+     * @param symbol the symbol
+     * @return the instruction loading the address of the symbol
+     */
+    public static AInstruction ofSymbol(String symbol) {
+        return new AInstruction(Objects.requireNonNull(symbol, "The symbol can't be null."), -1);
+    }
+
+    /**
+     * @param value the number
+     * @return the instruction loading the number
+     * @throws IllegalArgumentException if the number doesn't fit into 15 bits
+     */
+    public static AInstruction ofValue(int value) {
+        if (value < 0 || value > MAX_VALUE) {
+            throw new IllegalArgumentException("The value of an A-instruction has to be between 0 and " + MAX_VALUE
+                    + ": " + value);
+        }
+        return new AInstruction(null, value);
+    }
+
+    @Override
+    public boolean isInstruction() {
+        return true;
+    }
+
+    public boolean isSymbolic() {
+        return symbol != null;
+    }
+
+    /**
+     * @return the symbol, or null if the instruction loads a number
+     */
+    public String getSymbol() {
+        return symbol;
+    }
+
+    /**
+     * @return the number, or -1 if the instruction loads a symbol
+     */
+    public int getValue() {
+        return value;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof AInstruction)) {
+            return false;
+        }
+        var other = (AInstruction) o;
+        return value == other.value && Objects.equals(symbol, other.symbol);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(symbol, value);
+    }
+
+    @Override
+    public String toString() {
+        return "@" + (symbol != null ? symbol : String.valueOf(value));
+    }
+}
@@ -0,0 +1,91 @@
+package com.lukas.hackassembler.model;
+
+import java.util.Objects;
+
+/**
+ * A C-instruction - a computation with optional destination registers and an optional jump.
+ */
+public final class CInstruction extends Statement {
+    private final DestType dest;
+    private final CompType comp;
+    private final JumpType jump;
+
+    /**
+     * @param dest the destination registers, or null
+     * @param comp the computation
+     * @param jump the jump, or null
+     */
+    public CInstruction(DestType dest, CompType comp, JumpType jump) {
+        this.dest = dest;
+        this.comp = Objects.requireNonNull(comp, "The computation can't be null.");
+        this.jump = jump;
+    }
+
+    @Override
+    public boolean isInstruction() {
+        return true;
+    }
+
+    /**
+     * @return the destination registers, or null
+     */
+    public DestType getDest() {
+        return dest;
+    }
+
+    public CompType getComp() {
+        return comp;
+    }
+
+    /**
+     * @return the jump, or null
+     */
+    public JumpType getJump() {
+        return jump;
+    }
+
+    public boolean writesA() {
+        return dest != null && dest.writesA();
+    }
+
+    public boolean writesD() {
+        return dest != null && dest.writesD();
+    }
+
+    public boolean writesM() {
+        return dest != null && dest.writesM();
+    }
+
+    /**
+     * @return whether the instruction reads A - as an operand, the address of M or the jump target
+     */
+    public boolean readsA() {
+        return comp.usesA() || comp.usesM() || writesM() || jump != null;
+    }
+
+    public boolean isUnconditionalJump() {
+        return jump == JumpType.JMP;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof CInstruction)) {
+            return false;
+        }
+        var other = (CInstruction) o;
+        return dest == other.dest && comp == other.comp && jump == other.jump;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(dest, comp, jump);
+    }
+
+    @Override
+    public String toString() {
+        return (dest != null ? dest.getLiteral() + "=" : "") + comp.getLiteral() + (jump != null ? ";" + jump.getLiteral() : "");
+    }
+}
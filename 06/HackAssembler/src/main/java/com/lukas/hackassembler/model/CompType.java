@@ -1,45 +1,51 @@
 package com.lukas.hackassembler.model;
 
+import java.nio.ByteBuffer;
+
 public enum CompType {
-    ZERO("0", "101010"),
-    ONE("1", "111111"),
-    MINUS_ONE("-1", "111010"),
-    D("D", "001100"),
-    A("A", "110000"),
-    M("M", "110000"),
-    NOT_D("!D", "001101"),
-    NOT_A("!A", "110001"),
-    NOT_M("!M", "110001"),
-    MINUS_D("-D", "001111"),
-    MINUS_A("-A", "110011"),
-    MINUS_M("-M", "110011"),
-    D_PLUS_ONE("D+1", "011111"),
-    A_PLUS_ONE("A+1", "110111"),
-    M_PLUS_ONE("M+1", "110111"),
-    D_MINUS_ONE("D-1", "001110"),
-    A_MINUS_ONE("A-1", "110010"),
-    M_MINUS_ONE("M-1", "110010"),
-    D_PLUS_A("D+A", "000010"),
-    D_PLUS_M("D+M", "000010"),
-    D_MINUS_A("D-A", "010011"),
-    D_MINUS_M("D-M", "010011"),
-    A_MINUS_D("A-D", "000111"),
-    M_MINUS_D("M-D", "000111"),
-    D_AND_A("D&A", "000000"),
-    D_AND_M("D&M", "000000"),
-    D_OR_A("D|A", "010101"),
-    D_OR_M("D|M", "010101");
+    ZERO("0", 0b0_101010),
+    ONE("1", 0b0_111111),
+    MINUS_ONE("-1", 0b0_111010),
+    D("D", 0b0_001100),
+    A("A", 0b0_110000),
+    M("M", 0b1_110000),
+    NOT_D("!D", 0b0_001101),
+    NOT_A("!A", 0b0_110001),
+    NOT_M("!M", 0b1_110001),
+    MINUS_D("-D", 0b0_001111),
+    MINUS_A("-A", 0b0_110011),
+    MINUS_M("-M", 0b1_110011),
+    D_PLUS_ONE("D+1", 0b0_011111),
+    A_PLUS_ONE("A+1", 0b0_110111),
+    M_PLUS_ONE("M+1", 0b1_110111),
+    D_MINUS_ONE("D-1", 0b0_001110),
+    A_MINUS_ONE("A-1", 0b0_110010),
+    M_MINUS_ONE("M-1", 0b1_110010),
+    D_PLUS_A("D+A", 0b0_000010),
+    D_PLUS_M("D+M", 0b1_000010),
+    D_MINUS_A("D-A", 0b0_010011),
+    D_MINUS_M("D-M", 0b1_010011),
+    A_MINUS_D("A-D", 0b0_000111),
+    M_MINUS_D("M-D", 0b1_000111),
+    D_AND_A("D&A", 0b0_000000),
+    D_AND_M("D&M", 0b1_000000),
+    D_OR_A("D|A", 0b0_010101),
+    D_OR_M("D|M", 0b1_010101);
+
+    private static final CompType[] VALUES = values();
 
     private final String literal;
-    private final String code;
+    private final int packedLiteral;
+    private final int code; // a-bit (A vs. M) followed by the 6 bits of the computation
 
-    CompType(String literal, String code) {
+    CompType(String literal, int code) {
         this.literal = literal;
+        this.packedLiteral = Literals.pack(literal);
         this.code = code;
     }
 
     public static CompType getByLiteral(String aLiteral) {
-        for (var type : values()) {
+        for (var type : VALUES) {
             if (type.literal.equals(aLiteral)) {
                 return type;
             }
@@ -47,7 +53,63 @@ public enum CompType {
         return null;
     }
 
-    public String getCode() {
+    /**
+     * Finds the type by its literal in a span of the input, without creating a string out of it.
+     *
+     * @param input  the ASCII input
+     * @param start  position of the first character of the literal
+     * @param length number of characters of the literal
+     * @return the type or null if there's no type with such literal
+     */
+    public static CompType getByLiteral(ByteBuffer input, int start, int length) {
+        var packed = Literals.pack(input, start, length);
+        for (var type : VALUES) {
+            if (type.packedLiteral == packed) {
+                return type;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @param code the a-bit followed by the 6 bits of the computation
+     * @return the type or null if the computation has no mnemonic
+     */
+    public static CompType getByCode(int code) {
+        for (var type : VALUES) {
+            if (type.code == code) {
+                return type;
+            }
+        }
+        return null;
+    }
+
+    public String getLiteral() {
+        return literal;
+    }
+
+    public int getCode() {
         return code;
     }
+
+    /**
+     * @return whether the D register is an operand of the computation (the zx bit is 0)
+     */
+    public boolean usesD() {
+        return (code & 0b0_100000) == 0;
+    }
+
+    /**
+     * @return whether the A register is an operand of the computation (the a-bit and the zy bit are 0)
+     */
+    public boolean usesA() {
+        return (code & 0b1_001000) == 0;
+    }
+
+    /**
+     * @return whether the memory at the address in A is an operand of the computation (the a-bit is 1, the zy bit 0)
+     */
+    public boolean usesM() {
+        return (code & 0b1_001000) == 0b1_000000;
+    }
 }
@@ -0,0 +1,85 @@
+package com.lukas.hackassembler.model;
+
+import java.nio.ByteBuffer;
+
+public enum DestType {
+    M("M", 0b001),
+    D("D", 0b010),
+    MD("MD", 0b011),
+    A("A", 0b100),
+    AM("AM", 0b101),
+    AD("AD", 0b110),
+    AMD("AMD", 0b111);
+
+    private static final DestType[] VALUES = values();
+
+    private final String literal;
+    private final int packedLiteral;
+    private final int code;
+
+    DestType(String literal, int code) {
+        this.literal = literal;
+        this.packedLiteral = Literals.pack(literal);
+        this.code = code;
+    }
+
+    public static DestType getByLiteral(String aLiteral) {
+        for (var type : VALUES) {
+            if (type.literal.equals(aLiteral)) {
+                return type;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Finds the type by its literal in a span of the input, without creating a string out of it.
+     *
+     * @param input  the ASCII input
+     * @param start  position of the first character of the literal
+     * @param length number of characters of the literal
+     * @return the type or null if there's no type with such literal
+     */
+    public static DestType getByLiteral(ByteBuffer input, int start, int length) {
+        var packed = Literals.pack(input, start, length);
+        for (var type : VALUES) {
+            if (type.packedLiteral == packed) {
+                return type;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @param code the 3 bits of the destination registers
+     * @return the type or null if the code is 0 (no destination)
+     */
+    public static DestType getByCode(int code) {
+        for (var type : VALUES) {
+            if (type.code == code) {
+                return type;
+            }
+        }
+        return null;
+    }
+
+    public String getLiteral() {
+        return literal;
+    }
+
+    public int getCode() {
+        return code;
+    }
+
+    public boolean writesA() {
+        return (code & A.code) != 0;
+    }
+
+    public boolean writesD() {
+        return (code & D.code) != 0;
+    }
+
+    public boolean writesM() {
+        return (code & M.code) != 0;
+    }
+}
\ No newline at end of file
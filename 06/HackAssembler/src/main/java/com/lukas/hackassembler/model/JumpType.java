@@ -1,24 +1,30 @@
 package com.lukas.hackassembler.model;
 
+import java.nio.ByteBuffer;
+
 public enum JumpType {
-    JGT("JGT", "001"),
-    JEQ("JEQ", "010"),
-    JGE("JGE", "011"),
-    JLT("JLT", "100"),
-    JNE("JNE", "101"),
-    JLE("JLE", "110"),
-    JMP("JMP", "111");
+    JGT("JGT", 0b001),
+    JEQ("JEQ", 0b010),
+    JGE("JGE", 0b011),
+    JLT("JLT", 0b100),
+    JNE("JNE", 0b101),
+    JLE("JLE", 0b110),
+    JMP("JMP", 0b111);
+
+    private static final JumpType[] VALUES = values();
 
     private final String literal;
-    private final String code;
+    private final int packedLiteral;
+    private final int code;
 
-    JumpType(String literal, String code) {
+    JumpType(String literal, int code) {
         this.literal = literal;
+        this.packedLiteral = Literals.pack(literal);
         this.code = code;
     }
 
     public static JumpType getByLiteral(String aLiteral) {
-        for (var type : values()) {
+        for (var type : VALUES) {
             if (type.literal.equals(aLiteral)) {
                 return type;
             }
@@ -26,7 +32,42 @@ public enum JumpType {
         return null;
     }
 
-    public String getCode() {
+    /**
+     * Finds the type by its literal in a span of the input, without creating a string out of it.
+     *
+     * @param input  the ASCII input
+     * @param start  position of the first character of the literal
+     * @param length number of characters of the literal
+     * @return the type or null if there's no type with such literal
+     */
+    public static JumpType getByLiteral(ByteBuffer input, int start, int length) {
+        var packed = Literals.pack(input, start, length);
+        for (var type : VALUES) {
+            if (type.packedLiteral == packed) {
+                return type;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @param code the 3 bits of the jump conditions
+     * @return the type or null if the code is 0 (no jump)
+     */
+    public static JumpType getByCode(int code) {
+        for (var type : VALUES) {
+            if (type.code == code) {
+                return type;
+            }
+        }
+        return null;
+    }
+
+    public String getLiteral() {
+        return literal;
+    }
+
+    public int getCode() {
         return code;
     }
 }
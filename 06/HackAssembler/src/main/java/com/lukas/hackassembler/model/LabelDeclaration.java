@@ -0,0 +1,38 @@
+package com.lukas.hackassembler.model;
+
+import java.util.Objects;
+
+/**
+ * A declaration of a label, which gets the address of the following instruction.
+ */
+public final class LabelDeclaration extends Statement {
+    private final String label;
+
+    public LabelDeclaration(String label) {
+        this.label = Objects.requireNonNull(label, "The label can't be null.");
+    }
+
+    @Override
+    public boolean isInstruction() {
+        return false;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return this == o || o instanceof LabelDeclaration && label.equals(((LabelDeclaration) o).label);
+    }
+
+    @Override
+    public int hashCode() {
+        return label.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return "(" + label + ")";
+    }
+}
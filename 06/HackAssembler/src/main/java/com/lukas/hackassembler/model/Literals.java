@@ -0,0 +1,35 @@
+package com.lukas.hackassembler.model;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Packing of the short (at most 3 characters) ASCII literals into a single int, so they can be compared directly
+ * with the spans of the input without creating strings.
+ */
+final class Literals {
+    static final int MAX_LENGTH = 3;
+    static final int NOT_PACKABLE = -1;
+
+    private Literals() {
+    }
+
+    static int pack(String literal) {
+        int packed = literal.length();
+        for (int i = 0; i < literal.length(); i++) {
+            packed = packed << 8 | literal.charAt(i);
+        }
+        return packed;
+    }
+
+    static int pack(ByteBuffer input, int start, int length) {
+        if (length > MAX_LENGTH) {
+            return NOT_PACKABLE;
+        }
+
+        int packed = length;
+        for (int i = start; i < start + length; i++) {
+            packed = packed << 8 | (input.get(i) & 0xFF);
+        }
+        return packed;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,15 @@
+package com.lukas.hackassembler.model;
+
+/**
+ * A statement of a program in its structured form - an A-instruction, a C-instruction or a label declaration.
+ * The string representation of a statement is its assembly line.
+ */
+public abstract class Statement {
+    Statement() { // only the subclasses of this package
+    }
+
+    /**
+     * @return whether the statement is an instruction, i.e. it occupies a word of the ROM
+     */
+    public abstract boolean isInstruction();
+}
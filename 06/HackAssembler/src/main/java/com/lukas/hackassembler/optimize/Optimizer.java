@@ -0,0 +1,491 @@
+package com.lukas.hackassembler.optimize;
+
+import com.lukas.hackassembler.model.AInstruction;
+import com.lukas.hackassembler.model.CInstruction;
+import com.lukas.hackassembler.model.CompType;
+import com.lukas.hackassembler.model.DestType;
+import com.lukas.hackassembler.model.LabelDeclaration;
+import com.lukas.hackassembler.model.Statement;
+import com.lukas.hackassembler.parse.Parser;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An optional optimization of the statements of a program, between the parsing and the emission. These passes are
+ * repeated until none of them changes anything:
+ * <ul>
+ *     <li>the unreferenced labels and the instructions after an unconditional jump which no label reaches are
+ *     dropped,</li>
+ *     <li>the jumps to a label followed only by another unconditional jump are threaded to its target,</li>
+ *     <li>the jumps to the next instruction are dropped,</li>
+ *     <li>the A-instructions loading the value A already holds are dropped (also an {@code @X A=M} pair after the same
+ *     pair, if the memory wasn't written since),</li>
+ *     <li>the writes into A and D which are overwritten before being read are dropped.</li>
+ * </ul>
+ * The instructions move, so the label addresses are recomputed by the encoding. A label declared more than once
+ * keeps only its last declaration first, which is the one the parser resolves it to. The program has to jump only to its
+ * labels - the numbers loaded right before a jump are turned into the labels of their addresses first (or
+ * the program is left as it is if that isn't possible), but an address of an instruction computed in any other way
+ * would point elsewhere after the optimization.
+ */
+public class Optimizer {
+    private static final String ADDRESS_LABEL_PREFIX = "ROM$";
+
+    private int instructionCountBefore;
+    private int instructionCountAfter;
+
+    /**
+     * @param statements the statements of the program
+     * @return the optimized statements
+     */
+    public List<Statement> optimize(List<? extends Statement> statements) {
+        instructionCountBefore = countInstructions(statements);
+        var program = labelAddressJumps(removeRepeatedDeclarations(statements));
+        if (program == null) { // a jump target can't be followed
+            instructionCountAfter = instructionCountBefore;
+            return new ArrayList<>(statements);
+        }
+
+        List<Statement> optimized;
+        do {
+            optimized = program;
+            program = removeUnreachable(program);
+            program = threadJumps(program);
+            program = removeJumpsToNext(program);
+            program = removeRedundantLoads(program);
+            program = removeDeadStores(program);
+        } while (!program.equals(optimized));
+
+        instructionCountAfter = countInstructions(program);
+        return program;
+    }
+
+    /**
+     * @return number of the instructions before the last optimization
+     */
+    public int getInstructionCountBefore() {
+        return instructionCountBefore;
+    }
+
+    /**
+     * @return number of the instructions after the last optimization
+     */
+    public int getInstructionCountAfter() {
+        return instructionCountAfter;
+    }
+
+    /**
+     * @return the instruction counts of the last optimization
+     */
+    public String getReport() {
+        var removed = instructionCountBefore - instructionCountAfter;
+        return String.format("Optimized from %d to %d instructions (%d removed, %.1f%%).", instructionCountBefore,
+                instructionCountAfter, removed, instructionCountBefore == 0 ? 0.0 : 100.0 * removed / instructionCountBefore);
+    }
+
+    /**
+     * Drops all but the last declaration of each label - the earlier ones don't emit anything, and the passes take
+     * any declaration for the jump target.
+     */
+    private static List<? extends Statement> removeRepeatedDeclarations(List<? extends Statement> statements) {
+        var lastDeclarations = new HashMap<String, Integer>();
+        for (int i = 0; i < statements.size(); i++) {
+            if (statements.get(i) instanceof LabelDeclaration) {
+                lastDeclarations.put(((LabelDeclaration) statements.get(i)).getLabel(), i);
+            }
+        }
+        if (lastDeclarations.size() == countDeclarations(statements)) {
+            return statements;
+        }
+
+        var program = new ArrayList<Statement>(statements.size());
+        for (int i = 0; i < statements.size(); i++) {
+            var statement = statements.get(i);
+            if (!(statement instanceof LabelDeclaration)
+                    || lastDeclarations.get(((LabelDeclaration) statement).getLabel()) == i) {
+                program.add(statement);
+            }
+        }
+        return program;
+    }
+
+    /**
+     * Replaces the numbers loaded only as a jump target (e.g. {@code @95 0;JMP} of the compiled programs) with labels
+     * declared at their addresses, so that they move with the code. The target mustn't read A, which still holds
+     * the original address there.
+     *
+     * @return the labeled statements, or null if a number loaded right before a jump can't be labeled
+     */
+    private static List<Statement> labelAddressJumps(List<? extends Statement> statements) {
+        var symbols = new HashSet<String>();
+        var instructionIndices = new ArrayList<Integer>(); // index of the statement at each address
+        for (int i = 0; i < statements.size(); i++) {
+            var statement = statements.get(i);
+            if (statement instanceof LabelDeclaration) {
+                symbols.add(((LabelDeclaration) statement).getLabel());
+            } else if (statement instanceof AInstruction && ((AInstruction) statement).isSymbolic()) {
+                symbols.add(((AInstruction) statement).getSymbol());
+            }
+            if (statement.isInstruction()) {
+                instructionIndices.add(i);
+            }
+        }
+
+        var addressLabels = new HashMap<Integer, String>();
+        for (int i = 0; i < statements.size(); i++) {
+            var statement = statements.get(i);
+            if (statement instanceof AInstruction && !((AInstruction) statement).isSymbolic()
+                    && ((AInstruction) statement).getValue() < instructionIndices.size()
+                    && loadsOnlyJumpTarget(statements, i)
+                    && isADeadFrom(statements, instructionIndices.get(((AInstruction) statement).getValue()))) {
+                var address = ((AInstruction) statement).getValue();
+                var label = ADDRESS_LABEL_PREFIX + address;
+                while (symbols.contains(label)) {
+                    label += "$";
+                }
+                addressLabels.putIfAbsent(address, label);
+            } else if (statement instanceof AInstruction && !((AInstruction) statement).isSymbolic()
+                    && i + 1 < statements.size() && statements.get(i + 1) instanceof CInstruction
+                    && ((CInstruction) statements.get(i + 1)).getJump() != null) {
+                return null;
+            }
+        }
+
+        var program = new ArrayList<Statement>(statements.size() + addressLabels.size());
+        var address = 0;
+        for (int i = 0; i < statements.size(); i++) {
+            var statement = statements.get(i);
+            if (statement.isInstruction()) {
+                if (addressLabels.containsKey(address)) {
+                    program.add(new LabelDeclaration(addressLabels.get(address)));
+                }
+                address++;
+            }
+
+            if (statement instanceof AInstruction && !((AInstruction) statement).isSymbolic()
+                    && addressLabels.containsKey(((AInstruction) statement).getValue())
+                    && loadsOnlyJumpTarget(statements, i)) {
+                program.add(AInstruction.ofSymbol(addressLabels.get(((AInstruction) statement).getValue())));
+            } else {
+                program.add(statement);
+            }
+        }
+        return program;
+    }
+
+    /**
+     * Drops the unreferenced labels and the instructions after an unconditional jump until the next label.
+     */
+    private static List<Statement> removeUnreachable(List<Statement> statements) {
+        var referenced = new HashSet<String>();
+        for (var statement : statements) {
+            if (statement instanceof AInstruction && ((AInstruction) statement).isSymbolic()) {
+                referenced.add(((AInstruction) statement).getSymbol());
+            }
+        }
+
+        var program = new ArrayList<Statement>(statements.size());
+        var reachable = true;
+        for (var statement : statements) {
+            if (statement instanceof LabelDeclaration) {
+                if (referenced.contains(((LabelDeclaration) statement).getLabel())) {
+                    program.add(statement);
+                    reachable = true;
+                }
+            } else if (reachable) {
+                program.add(statement);
+                if (statement instanceof CInstruction && ((CInstruction) statement).isUnconditionalJump()) {
+                    reachable = false;
+                }
+            }
+        }
+        return program;
+    }
+
+    /**
+     * Retargets the jumps to a label followed by {@code @TARGET 0;JMP} (with any computation and no destination)
+     * to the final target.
+     */
+    private static List<Statement> threadJumps(List<Statement> statements) {
+        var trampolines = new HashMap<String, String>();
+        for (int i = 0; i < statements.size(); i++) {
+            if (statements.get(i) instanceof LabelDeclaration) {
+                var load = nextInstruction(statements, i);
+                var jump = nextInstruction(statements, load);
+                if (load != -1 && jump != -1 && isSymbolicLoad(statements.get(load))
+                        && statements.get(jump) instanceof CInstruction
+                        && ((CInstruction) statements.get(jump)).getDest() == null
+                        && ((CInstruction) statements.get(jump)).isUnconditionalJump()) {
+                    trampolines.put(((LabelDeclaration) statements.get(i)).getLabel(),
+                            ((AInstruction) statements.get(load)).getSymbol());
+                }
+            }
+        }
+        if (trampolines.isEmpty()) {
+            return statements;
+        }
+
+        var program = new ArrayList<Statement>(statements);
+        for (int i = 0; i < program.size(); i++) {
+            if (isSymbolicLoad(program.get(i)) && loadsOnlyJumpTarget(program, i)) {
+                var label = ((AInstruction) program.get(i)).getSymbol();
+                var target = finalTarget(trampolines, label);
+                if (!target.equals(label)) {
+                    program.set(i, AInstruction.ofSymbol(target));
+                }
+            }
+        }
+        return program;
+    }
+
+    private static String finalTarget(Map<String, String> trampolines, String label) {
+        var visited = new HashSet<String>();
+        var target = label;
+        while (trampolines.containsKey(target)) {
+            if (!visited.add(target)) { // a loop of jumps
+                return label;
+            }
+            target = trampolines.get(target);
+        }
+        return target;
+    }
+
+    /**
+     * Drops the jumps to a label declared right after them.
+     */
+    private static List<Statement> removeJumpsToNext(List<Statement> statements) {
+        var program = new ArrayList<Statement>(statements.size());
+        for (int i = 0; i < statements.size(); i++) {
+            var statement = statements.get(i);
+            if (!isSymbolicLoad(statement) || i + 1 == statements.size() || !jumpsOnlyThroughA(statements.get(i + 1))
+                    || !isDeclaredBefore(statements, i + 2, ((AInstruction) statement).getSymbol())) {
+                program.add(statement);
+                continue;
+            }
+
+            var jump = (CInstruction) statements.get(i + 1);
+            if (!jump.writesA() && !isADeadAfter(statements, i + 1)) {
+                program.add(statement); // the following code reads A
+            }
+            if (jump.getDest() != null) {
+                program.add(new CInstruction(jump.getDest(), jump.getComp(), null));
+            }
+            i++;
+        }
+        return program;
+    }
+
+    /**
+     * Drops the loads of the value A already holds, as long as no label can bring in another A.
+     */
+    private static List<Statement> removeRedundantLoads(List<Statement> statements) {
+        var program = new ArrayList<Statement>(statements.size());
+        String knownA = null; // key of the value in A
+        String knownLoad = null; // key of the address A was loaded from by A=M
+        for (int i = 0; i < statements.size(); i++) {
+            var statement = statements.get(i);
+            if (statement instanceof LabelDeclaration) {
+                knownA = null;
+                knownLoad = null;
+            } else if (statement instanceof AInstruction) {
+                var key = valueKey((AInstruction) statement);
+                if (key.equals(knownA)) {
+                    continue;
+                }
+                if (key.equals(knownLoad) && i + 1 < statements.size() && isLoadFromM(statements.get(i + 1))) {
+                    i++; // and the A=M
+                    continue;
+                }
+                knownA = key;
+                knownLoad = null;
+            } else {
+                var instruction = (CInstruction) statement;
+                if (instruction.writesM()) {
+                    knownLoad = null; // it can be the address of the load
+                }
+                if (instruction.writesA()) {
+                    knownLoad = isLoadFromM(instruction) ? knownA : null;
+                    knownA = null;
+                }
+            }
+            program.add(statement);
+        }
+        return program;
+    }
+
+    /**
+     * Drops the writes into A and D overwritten before they're read, and the instructions without any effect.
+     */
+    private static List<Statement> removeDeadStores(List<Statement> statements) {
+        var program = new ArrayList<Statement>(statements.size());
+        for (int i = 0; i < statements.size(); i++) {
+            var statement = statements.get(i);
+            if (statement instanceof AInstruction) {
+                if (!isADeadAfter(statements, i)) {
+                    program.add(statement);
+                }
+                continue;
+            } else if (!(statement instanceof CInstruction)) {
+                program.add(statement);
+                continue;
+            }
+
+            var instruction = (CInstruction) statement;
+            if (instruction.getJump() != null) { // the registers are read at the target
+                program.add(statement);
+                continue;
+            }
+
+            var dest = instruction.getDest() == null ? 0 : instruction.getDest().getCode();
+            if (instruction.writesD() && isDDeadAfter(statements, i)) {
+                dest &= ~DestType.D.getCode();
+            }
+            if (instruction.writesA() && isADeadAfter(statements, i)) {
+                dest &= ~DestType.A.getCode();
+            }
+            if (dest != 0) {
+                program.add(dest == instruction.getDest().getCode()
+                        ? statement : new CInstruction(DestType.getByCode(dest), instruction.getComp(), null));
+            }
+        }
+        return program;
+    }
+
+    /**
+     * @return whether the A-instruction at the index is followed directly by a jump which uses A only as its target,
+     * and A isn't read afterwards if the jump isn't taken
+     */
+    private static boolean loadsOnlyJumpTarget(List<? extends Statement> statements, int index) {
+        return index + 1 < statements.size() && jumpsOnlyThroughA(statements.get(index + 1))
+                && (((CInstruction) statements.get(index + 1)).isUnconditionalJump()
+                || ((CInstruction) statements.get(index + 1)).writesA() || isADeadAfter(statements, index + 1));
+    }
+
+    private static boolean jumpsOnlyThroughA(Statement statement) {
+        if (!(statement instanceof CInstruction)) {
+            return false;
+        }
+        var instruction = (CInstruction) statement;
+        return instruction.getJump() != null && !instruction.getComp().usesA() && !instruction.getComp().usesM()
+                && !instruction.writesM();
+    }
+
+    /**
+     * @return whether A is overwritten without being read after the index, before any jump
+     */
+    private static boolean isADeadAfter(List<? extends Statement> statements, int index) {
+        return isADeadFrom(statements, nextInstruction(statements, index));
+    }
+
+    /**
+     * @return whether A is overwritten without being read from the instruction at the index, before any jump
+     */
+    private static boolean isADeadFrom(List<? extends Statement> statements, int index) {
+        for (int i = index; i != -1; i = nextInstruction(statements, i)) {
+            if (statements.get(i) instanceof AInstruction) {
+                return true;
+            }
+            var instruction = (CInstruction) statements.get(i);
+            if (instruction.readsA()) {
+                return false;
+            }
+            if (instruction.writesA()) {
+                return true;
+            }
+        }
+        return false; // the execution continues beyond the program
+    }
+
+    /**
+     * @return whether D is overwritten without being read after the index, before any jump
+     */
+    private static boolean isDDeadAfter(List<? extends Statement> statements, int index) {
+        for (int i = nextInstruction(statements, index); i != -1; i = nextInstruction(statements, i)) {
+            if (statements.get(i) instanceof CInstruction) {
+                var instruction = (CInstruction) statements.get(i);
+                if (instruction.getComp().usesD()) {
+                    return false;
+                }
+                if (instruction.writesD()) {
+                    return true;
+                }
+                if (instruction.getJump() != null) {
+                    return false;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static boolean isDeclaredBefore(List<? extends Statement> statements, int index, String label) {
+        for (int i = index; i < statements.size() && statements.get(i) instanceof LabelDeclaration; i++) {
+            if (((LabelDeclaration) statements.get(i)).getLabel().equals(label)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isSymbolicLoad(Statement statement) {
+        return statement instanceof AInstruction && ((AInstruction) statement).isSymbolic();
+    }
+
+    private static boolean isLoadFromM(Statement statement) {
+        return statement instanceof CInstruction && ((CInstruction) statement).getDest() == DestType.A
+                && ((CInstruction) statement).getComp() == CompType.M && ((CInstruction) statement).getJump() == null;
+    }
+
+    /**
+     * @return key of the loaded value, the same for a built-in symbol and its address
+     */
+    private static String valueKey(AInstruction instruction) {
+        if (!instruction.isSymbolic()) {
+            return String.valueOf(instruction.getValue());
+        }
+        for (var symbol : Parser.BuiltInSymbol.values()) {
+            if (symbol.name().equals(instruction.getSymbol())) {
+                return String.valueOf(symbol.getAddress());
+            }
+        }
+        return instruction.getSymbol(); // a symbol can't start with a digit
+    }
+
+    /**
+     * @return index of the next instruction after the index (skipping the labels), or -1 at the end
+     */
+    private static int nextInstruction(List<? extends Statement> statements, int index) {
+        if (index == -1) {
+            return -1;
+        }
+        for (int i = index + 1; i < statements.size(); i++) {
+            if (statements.get(i).isInstruction()) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int countDeclarations(List<? extends Statement> statements) {
+        var count = 0;
+        for (var statement : statements) {
+            if (statement instanceof LabelDeclaration) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static int countInstructions(List<? extends Statement> statements) {
+        var count = 0;
+        for (var statement : statements) {
+            if (statement.isInstruction()) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
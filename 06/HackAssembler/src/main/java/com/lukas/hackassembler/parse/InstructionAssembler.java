@@ -0,0 +1,396 @@
+package com.lukas.hackassembler.parse;
+
+import com.lukas.hackassembler.emit.Emitter;
+import com.lukas.hackassembler.exception.EmitterErrorException;
+import com.lukas.hackassembler.exception.ParserErrorException;
+import com.lukas.hackassembler.link.Linker;
+import com.lukas.hackassembler.link.ObjectModule;
+import com.lukas.hackassembler.model.AInstruction;
+import com.lukas.hackassembler.model.CInstruction;
+import com.lukas.hackassembler.model.CompType;
+import com.lukas.hackassembler.model.DestType;
+import com.lukas.hackassembler.model.JumpType;
+import com.lukas.hackassembler.model.LabelDeclaration;
+import com.lukas.hackassembler.model.Statement;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Assembles a program given directly as the instructions, e.g. by a code generator, without formatting it as text
+ * and lexing it again. The instructions can be added as the {@link Statement} objects, by the methods for each kind
+ * of a statement, or as a compact stream of ints (see {@link #append(int[], int, int)}), in any mix. The symbols are
+ * resolved as by the {@link Parser} - a label gets the address of its following instruction (of the last declaration
+ * if repeated), the other symbols are the variables allocated from 16 in the order of their first use - so
+ * the output is the same as of the assembly text of the instructions.
+ * <p>
+ * The instructions are kept as their machine words, the references to the symbols as their handles, until
+ * {@link #finish()} resolves them and emits the whole program, or {@link #finishObject(String)} turns them into
+ * a relocatable object of a module for the {@link Linker}.
+ */
+public class InstructionAssembler {
+    /**
+     * Flag of an item of the compact stream referencing the symbol in its lower bits (an A-instruction).
+     */
+    public static final int SYMBOL_REFERENCE = 1 << 30;
+    /**
+     * Flag of an item of the compact stream declaring the label in its lower bits.
+     */
+    public static final int LABEL_DECLARATION = 1 << 29;
+
+    private static final int HANDLE_MASK = LABEL_DECLARATION - 1;
+
+    private static final int MAX_WORD = 0xFFFF;
+    private static final int C_INSTRUCTION_PREFIX = 0b111 << 13;
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final Emitter emitter;
+    private final SymbolTable symbols = SymbolTable.withBuiltIns();
+
+    // the machine words, or the complement of the symbol entry for a symbol reference (always negative)
+    private int[] instructions = new int[INITIAL_CAPACITY];
+    private int instructionCount;
+    private boolean finished;
+
+    /**
+     * Creates an assembler of a module, which can be finished only as an object.
+     */
+    public InstructionAssembler() {
+        this(null);
+    }
+
+    /**
+     * @param emitter emitter of the output, closed by {@link #finish()}
+     */
+    public InstructionAssembler(Emitter emitter) {
+        this.emitter = emitter;
+    }
+
+    /**
+     * Encodes a C-instruction as an item of the compact stream.
+     *
+     * @param dest the destination registers, or null
+     * @param comp the computation
+     * @param jump the jump, or null
+     * @return the stream item, the machine word of the instruction
+     */
+    public static int computation(DestType dest, CompType comp, JumpType jump) {
+        return Parser.encodeCInstruction(dest, comp, jump);
+    }
+
+    /**
+     * Encodes the reference to a symbol as an item of the compact stream.
+     *
+     * @param symbol handle of the symbol from {@link #symbol(String)}
+     * @return the stream item of an A-instruction loading the address of the symbol
+     */
+    public static int reference(int symbol) {
+        return SYMBOL_REFERENCE | symbol;
+    }
+
+    /**
+     * Encodes the declaration of a label as an item of the compact stream.
+     *
+     * @param symbol handle of the label from {@link #symbol(String)}
+     * @return the stream item declaring the label at the address of the following instruction
+     */
+    public static int declaration(int symbol) {
+        return LABEL_DECLARATION | symbol;
+    }
+
+    /**
+     * Finds the handle of a symbol for the compact stream, the same for all the uses of the symbol.
+     *
+     * @param symbol the symbol (a label, a variable or a built-in symbol)
+     * @return handle of the symbol
+     * @throws ParserErrorException if the symbol isn't valid in the assembly text
+     */
+    public int symbol(String symbol) throws ParserErrorException {
+        if (!isValidSymbol(symbol)) {
+            throw new ParserErrorException("The symbol '" + symbol + "' is invalid.");
+        }
+        return symbols.findOrAdd(symbol);
+    }
+
+    /**
+     * Declares a label at the address of the next instruction.
+     *
+     * @param label the label
+     * @throws ParserErrorException if the label is invalid or shadows a built-in symbol
+     */
+    public void label(String label) throws ParserErrorException {
+        declare(symbol(label));
+    }
+
+    /**
+     * Adds an A-instruction loading the address of a symbol.
+     *
+     * @param symbol the symbol (a label, a variable or a built-in symbol)
+     * @throws ParserErrorException if the symbol is invalid
+     */
+    public void load(String symbol) throws ParserErrorException {
+        add(~symbol(symbol));
+    }
+
+    /**
+     * Adds an A-instruction loading a number.
+     *
+     * @param value the number, at most 15 bits
+     * @throws ParserErrorException if the number doesn't fit into 15 bits
+     */
+    public void load(int value) throws ParserErrorException {
+        if (value < 0 || value > AInstruction.MAX_VALUE) {
+            throw new ParserErrorException("The number exceeds the max. possible value: " + value);
+        }
+        add(value);
+    }
+
+    /**
+     * Adds a C-instruction.
+     *
+     * @param dest the destination registers, or null
+     * @param comp the computation
+     * @param jump the jump, or null
+     */
+    public void compute(DestType dest, CompType comp, JumpType jump) {
+        add(Parser.encodeCInstruction(dest, comp, jump));
+    }
+
+    /**
+     * Adds a statement of any kind.
+     *
+     * @param statement the statement
+     * @throws ParserErrorException if the statement has an invalid symbol or declares a built-in symbol
+     */
+    public void add(Statement statement) throws ParserErrorException {
+        if (statement instanceof AInstruction) {
+            var instruction = (AInstruction) statement;
+            if (instruction.isSymbolic()) {
+                load(instruction.getSymbol());
+            } else {
+                add(instruction.getValue()); // checked by the instruction already
+            }
+        } else if (statement instanceof CInstruction) {
+            var instruction = (CInstruction) statement;
+            compute(instruction.getDest(), instruction.getComp(), instruction.getJump());
+        } else if (statement instanceof LabelDeclaration) {
+            label(((LabelDeclaration) statement).getLabel());
+        } else {
+            throw new IllegalArgumentException("Unknown statement: " + statement);
+        }
+    }
+
+    /**
+     * Adds the statements of a compact stream. Each item is one of:
+     * <ul>
+     *     <li>a machine word - a number of an A-instruction (0 to 32767) or a C-instruction (see
+     *     {@link #computation(DestType, CompType, JumpType)}, the computation has to have a mnemonic),</li>
+     *     <li>{@link #reference(int)} of a symbol handle - an A-instruction loading the symbol,</li>
+     *     <li>{@link #declaration(int)} of a symbol handle - a label declaration.</li>
+     * </ul>
+     *
+     * @param stream the items
+     * @param offset index of the first item
+     * @param length number of the items
+     * @throws ParserErrorException if an item isn't any of the above, or declares a built-in symbol
+     */
+    public void append(int[] stream, int offset, int length) throws ParserErrorException {
+        checkNotFinished();
+        ensureCapacity(instructionCount + length);
+        for (int i = offset; i < offset + length; i++) {
+            var item = stream[i];
+            if (item >= 0 && item <= AInstruction.MAX_VALUE) {
+                instructions[instructionCount++] = item;
+            } else if (item >= C_INSTRUCTION_PREFIX && item <= MAX_WORD
+                    && CompType.getByCode(item >> 6 & 0b1_111111) != null) {
+                instructions[instructionCount++] = item;
+            } else if ((item & ~HANDLE_MASK) == SYMBOL_REFERENCE && (item & HANDLE_MASK) < symbols.size()) {
+                instructions[instructionCount++] = ~(item & HANDLE_MASK);
+            } else if ((item & ~HANDLE_MASK) == LABEL_DECLARATION && (item & HANDLE_MASK) < symbols.size()) {
+                declare(item & HANDLE_MASK);
+            } else {
+                throw new ParserErrorException("Item " + i + " of the stream isn't a statement: " + item);
+            }
+        }
+    }
+
+    /**
+     * @return number of the instructions added so far
+     */
+    public int getInstructionCount() {
+        return instructionCount;
+    }
+
+    /**
+     * Fetches the output from the emitter.
+     *
+     * @return output from the assembling fetched through the emitter
+     * @throws IllegalStateException if the assembler has no emitter
+     */
+    public String getOutput() {
+        checkEmitter();
+        return emitter.getOutput();
+    }
+
+    /**
+     * Allocates the variables, emits the instructions and closes the emitter. No more statements can be added.
+     *
+     * @throws EmitterErrorException if there was a problem during the output creation
+     * @throws IllegalStateException  if the assembler has no emitter
+     */
+    public void finish() throws EmitterErrorException {
+        checkEmitter();
+        checkNotFinished();
+        finished = true;
+
+        try {
+            var nextVariableAddress = Parser.DYNAMIC_MEMORY_START_ADDRESS;
+            try {
+                for (int i = 0; i < instructionCount; i++) {
+                    var instruction = instructions[i];
+                    if (instruction < 0) {
+                        var entry = ~instruction;
+                        if (symbols.getKind(entry) == SymbolTable.Kind.UNRESOLVED) { // not a label or a known variable
+                            symbols.resolve(entry, SymbolTable.Kind.VARIABLE, nextVariableAddress++);
+                        }
+                        instruction = symbols.getAddress(entry);
+                    }
+                    emitter.emitWord(instruction);
+                }
+            } catch (UncheckedIOException e) { // the emitter can write its output through already
+                throw new EmitterErrorException(e.getCause());
+            }
+
+            try {
+                emitter.close();
+            } catch (IOException e) {
+                throw new EmitterErrorException(e);
+            }
+        } finally { // does nothing after the emitter got closed
+            emitter.abort();
+        }
+    }
+
+    /**
+     * Finishes the program as a relocatable object of a module instead of emitting it. The references to the labels
+     * declared by the module are relocated, the ones to the other symbols (except the built-in symbols) are left
+     * to the linker, which also allocates the variables. No more statements can be added.
+     *
+     * @param name name of the module, for the messages of the linker
+     * @return the object
+     * @throws ParserErrorException if the module has more instructions, labels or other symbols than an object can
+     *                              hold (see {@link ObjectModule#MAX_COUNT})
+     */
+    public ObjectModule finishObject(String name) throws ParserErrorException {
+        checkNotFinished();
+        checkObjectCount(name, instructionCount, "instructions");
+        finished = true;
+
+        var words = new short[instructionCount];
+        var relocations = new int[instructionCount];
+        var relocationCount = 0;
+        var referenceOffsets = new int[instructionCount];
+        var referenceSymbols = new int[instructionCount];
+        var referenceCount = 0;
+        var externalSymbols = new ArrayList<String>();
+        var externalIndices = new int[symbols.size()]; // of each symbol entry, -1 until it's referenced
+        Arrays.fill(externalIndices, -1);
+
+        for (int i = 0; i < instructionCount; i++) {
+            var instruction = instructions[i];
+            if (instruction >= 0) {
+                words[i] = (short) instruction;
+                continue;
+            }
+
+            var entry = ~instruction;
+            switch (symbols.getKind(entry)) {
+                case LABEL: // the address is relative to the start of the module
+                    relocations[relocationCount++] = i;
+                    words[i] = (short) symbols.getAddress(entry);
+                    break;
+                case BUILT_IN:
+                    words[i] = (short) symbols.getAddress(entry);
+                    break;
+                default:
+                    if (externalIndices[entry] == -1) {
+                        externalIndices[entry] = externalSymbols.size();
+                        externalSymbols.add(symbols.getSymbol(entry));
+                    }
+                    referenceOffsets[referenceCount] = i;
+                    referenceSymbols[referenceCount++] = externalIndices[entry];
+            }
+        }
+
+        var labels = new ArrayList<String>();
+        var labelAddresses = new int[symbols.size()];
+        for (int entry = 0; entry < symbols.size(); entry++) {
+            if (symbols.getKind(entry) == SymbolTable.Kind.LABEL) {
+                labelAddresses[labels.size()] = symbols.getAddress(entry);
+                labels.add(symbols.getSymbol(entry));
+            }
+        }
+
+        checkObjectCount(name, labels.size(), "labels");
+        checkObjectCount(name, externalSymbols.size(), "symbols");
+        return new ObjectModule(name, words, labels.toArray(new String[0]), Arrays.copyOf(labelAddresses, labels.size()),
+                Arrays.copyOf(relocations, relocationCount), externalSymbols.toArray(new String[0]),
+                Arrays.copyOf(referenceOffsets, referenceCount), Arrays.copyOf(referenceSymbols, referenceCount));
+    }
+
+    private static void checkObjectCount(String name, int count, String items) throws ParserErrorException {
+        if (count > ObjectModule.MAX_COUNT) {
+            throw new ParserErrorException("The module " + name + " has too many " + items + " for an object: " + count
+                    + " (at most " + ObjectModule.MAX_COUNT + ").");
+        }
+    }
+
+    private void declare(int entry) throws ParserErrorException {
+        if (symbols.getKind(entry) == SymbolTable.Kind.BUILT_IN) {
+            throw new ParserErrorException("The label '" + symbols.getSymbol(entry)
+                    + "' is invalid (shadows in-built symbol).");
+        }
+        checkNotFinished();
+        symbols.resolve(entry, SymbolTable.Kind.LABEL, instructionCount);
+    }
+
+    private void add(int instruction) {
+        checkNotFinished();
+        ensureCapacity(instructionCount + 1);
+        instructions[instructionCount++] = instruction;
+    }
+
+    private void checkNotFinished() {
+        if (finished) {
+            throw new IllegalStateException("The program was finished already.");
+        }
+    }
+
+    private void checkEmitter() {
+        if (emitter == null) {
+            throw new IllegalStateException("The assembler of a module can be finished only as an object.");
+        }
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > instructions.length) {
+            instructions = Arrays.copyOf(instructions, Math.max(capacity, instructions.length * 2));
+        }
+    }
+
+    private static boolean isValidSymbol(String symbol) {
+        if (symbol == null || symbol.isEmpty() || symbol.charAt(0) >= '0' && symbol.charAt(0) <= '9') {
+            return false;
+        }
+        for (int i = 0; i < symbol.length(); i++) {
+            var aChar = symbol.charAt(i);
+            if (!(aChar >= 'a' && aChar <= 'z' || aChar >= 'A' && aChar <= 'Z' || aChar >= '0' && aChar <= '9'
+                    || aChar == '_' || aChar == '$' || aChar == '.' || aChar == ':')) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,269 @@
+package com.lukas.hackassembler.parse;
+
+import com.lukas.hackassembler.emit.Emitter;
+import com.lukas.hackassembler.emit.RomEmitter;
+import com.lukas.hackassembler.exception.EmitterErrorException;
+import com.lukas.hackassembler.exception.LexerErrorException;
+import com.lukas.hackassembler.exception.ParserErrorException;
+import com.lukas.hackassembler.lex.Lexer;
+import com.lukas.hackassembler.stats.Phase;
+import com.lukas.hackassembler.stats.PhaseStats;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Parses one big input on all the cores. The input is split into chunks at the line boundaries and:
+ * <ol>
+ *     <li>each chunk is lexed and its labels and referenced symbols are scanned, in parallel,</li>
+ *     <li>the label addresses are moved by the number of instructions of the preceding chunks and the variables
+ *     are allocated in the order of their first use in the whole input, sequentially (it's only the symbols),</li>
+ *     <li>each chunk is encoded with the complete (read-only) symbol table, in parallel,</li>
+ *     <li>the encoded chunks are emitted in their order.</li>
+ * </ol>
+ * The output and the reported errors (including their lines) are the same as of the two-pass {@link Parser}.
+ */
+public class ParallelParser {
+    private static final int MIN_CHUNK_SIZE = 256 * 1024; // smaller chunks aren't worth the scheduling
+    private static final int CHUNKS_PER_THREAD = 4; // some slack for the work stealing
+
+    private final ByteBuffer input;
+    private final Emitter emitter;
+    private final int chunkSize;
+
+    private PhaseStats stats = PhaseStats.disabled();
+    private int instructionCount;
+    private int symbolCount;
+    private int variableCount;
+
+    /**
+     * @param input   the bytes between the position and the limit of the buffer are parsed (the buffer isn't modified)
+     * @param emitter emitter of the output
+     */
+    public ParallelParser(ByteBuffer input, Emitter emitter) {
+        this(input, emitter, Math.max(MIN_CHUNK_SIZE,
+                input.remaining() / (ForkJoinPool.getCommonPoolParallelism() * CHUNKS_PER_THREAD)));
+    }
+
+    /**
+     * @param input     the bytes between the position and the limit of the buffer are parsed (the buffer isn't modified)
+     * @param emitter   emitter of the output
+     * @param chunkSize approximate size of a chunk in bytes, a chunk always ends at the end of a line
+     */
+    public ParallelParser(ByteBuffer input, Emitter emitter, int chunkSize) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("The chunk size has to be positive: " + chunkSize);
+        }
+        this.input = input.slice();
+        this.emitter = emitter;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Sets the measurement of the parsing phases (by default only the JFR events are emitted). The tokens are counted
+     * in all the chunks, the allocations only on the calling thread.
+     *
+     * @param stats the phase stats
+     */
+    public void setStats(PhaseStats stats) {
+        this.stats = stats;
+    }
+
+    /**
+     * Fetches the output from the emitter.
+     *
+     * @return output from the parsing fetched through the emitter
+     */
+    public String getOutput() {
+        return emitter.getOutput();
+    }
+
+    /**
+     * @return number of the parsed instructions
+     */
+    public int getInstructionCount() {
+        return instructionCount;
+    }
+
+    /**
+     * Parses the input and emits it into the emitter.
+     *
+     * @throws LexerErrorException   if there was problem during tokenization
+     * @throws ParserErrorException  if there was an invalid sequence of tokens
+     * @throws EmitterErrorException if there was a problem during the output creation
+     */
+    public void parse() throws LexerErrorException, ParserErrorException, EmitterErrorException {
+        try {
+            var chunks = split();
+
+            var phase = stats.begin(Phase.SCAN_LABELS);
+            chunks.parallelStream().forEach(this::scan);
+            stats.end(phase, tokenCount(chunks), 0, 0, 0);
+
+            phase = stats.begin(Phase.RESOLVE_SYMBOLS);
+            var symbols = mergeSymbols(chunks);
+            stats.end(phase, 0, instructionCount, symbolCount, variableCount);
+
+            phase = stats.begin(Phase.ENCODE);
+            chunks.parallelStream().forEach(chunk -> encode(chunk, symbols));
+            for (var chunk : chunks) {
+                throwError(chunk);
+            }
+
+            try {
+                for (var chunk : chunks) {
+                    for (int i = 0; i < chunk.words.getWordCount(); i++) {
+                        emitter.emitWord(chunk.words.getWord(i));
+                    }
+                }
+            } catch (UncheckedIOException e) { // the emitter can write its output through already
+                throw new EmitterErrorException(e.getCause());
+            }
+            stats.end(phase, tokenCount(chunks), instructionCount, symbolCount, variableCount);
+
+            phase = stats.begin(Phase.WRITE);
+            try {
+                emitter.close();
+            } catch (IOException e) {
+                throw new EmitterErrorException(e);
+            }
+            stats.end(phase, 0, instructionCount, symbolCount, variableCount);
+        } finally { // does nothing after the emitter got closed
+            emitter.abort();
+        }
+    }
+
+    private List<Chunk> split() {
+        var chunks = new ArrayList<Chunk>();
+        var length = input.limit();
+        var start = 0;
+        do {
+            var end = length - start > chunkSize ? start + chunkSize : length;
+            while (end < length && input.get(end - 1) != '\n') {
+                end++;
+            }
+            chunks.add(new Chunk(start, end));
+            start = end;
+        } while (start < length);
+        return chunks;
+    }
+
+    private void scan(Chunk chunk) {
+        chunk.symbols = SymbolTable.withBuiltIns();
+        try {
+            var lexer = chunkLexer(chunk);
+            var parser = new Parser(lexer, null, chunk.symbols);
+            parser.scanSymbols();
+
+            chunk.instructionCount = parser.getInstructionCount();
+            chunk.tokenCount = parser.getTokenCount();
+            chunk.lineCount = lexer.getTokenLine() - 2; // the EOF token is on the line after the virtual new line
+        } catch (LexerErrorException | ParserErrorException e) {
+            chunk.error = e;
+        }
+    }
+
+    private SymbolTable mergeSymbols(List<Chunk> chunks) throws LexerErrorException, ParserErrorException {
+        var symbols = SymbolTable.withBuiltIns();
+
+        var firstInstruction = 0;
+        var firstLine = 1;
+        for (var chunk : chunks) {
+            chunk.firstInstruction = firstInstruction;
+            chunk.firstLine = firstLine;
+            if (chunk.error != null) { // scanned again, to report the lines of the whole input
+                new Parser(chunkLexer(chunk), null, SymbolTable.withBuiltIns()).scanSymbols();
+                throwError(chunk);
+            }
+
+            // a repeated declaration in a later chunk overrides the earlier one (as in the two passes)
+            for (int entry = 0; entry < chunk.symbols.size(); entry++) {
+                if (chunk.symbols.getKind(entry) == SymbolTable.Kind.LABEL) {
+                    symbols.resolve(symbols.findOrAdd(chunk.symbols, entry),
+                            SymbolTable.Kind.LABEL, firstInstruction + chunk.symbols.getAddress(entry));
+                }
+            }
+
+            firstInstruction += chunk.instructionCount;
+            firstLine += chunk.lineCount;
+        }
+        instructionCount = firstInstruction;
+
+        // the chunks keep the symbols in the order of their first use, so the variables get the same addresses
+        // as in the sequential parsing
+        var nextVariableAddress = Parser.DYNAMIC_MEMORY_START_ADDRESS;
+        for (var chunk : chunks) {
+            for (int entry = 0; entry < chunk.symbols.size(); entry++) {
+                if (chunk.symbols.getKind(entry) == SymbolTable.Kind.UNRESOLVED) {
+                    var symbolEntry = symbols.findOrAdd(chunk.symbols, entry);
+                    if (symbols.getKind(symbolEntry) == SymbolTable.Kind.UNRESOLVED) {
+                        symbols.resolve(symbolEntry, SymbolTable.Kind.VARIABLE, nextVariableAddress++);
+                    }
+                }
+            }
+            chunk.symbols = null;
+        }
+        symbolCount = symbols.size() - Parser.BUILT_IN_SYMBOL_COUNT;
+        variableCount = nextVariableAddress - Parser.DYNAMIC_MEMORY_START_ADDRESS;
+        return symbols;
+    }
+
+    private void encode(Chunk chunk, SymbolTable symbols) {
+        chunk.words = new RomEmitter();
+        try {
+            var parser = new Parser(chunkLexer(chunk), chunk.words, symbols);
+            parser.encode();
+            chunk.tokenCount = parser.getTokenCount();
+        } catch (LexerErrorException | ParserErrorException e) {
+            chunk.error = e;
+        }
+    }
+
+    private Lexer chunkLexer(Chunk chunk) {
+        var chunkInput = input.duplicate();
+        chunkInput.position(chunk.start).limit(chunk.end);
+        return new Lexer(chunkInput, chunk.start, chunk.firstLine);
+    }
+
+    private static long tokenCount(List<Chunk> chunks) {
+        var tokenCount = 0L;
+        for (var chunk : chunks) {
+            tokenCount += chunk.tokenCount;
+        }
+        return tokenCount;
+    }
+
+    private static void throwError(Chunk chunk) throws LexerErrorException, ParserErrorException {
+        if (chunk.error instanceof LexerErrorException) {
+            throw (LexerErrorException) chunk.error;
+        } else if (chunk.error instanceof ParserErrorException) {
+            throw (ParserErrorException) chunk.error;
+        }
+    }
+
+    /**
+     * A part of the input consisting of whole lines, and the results of its processing.
+     */
+    private static final class Chunk {
+        private final int start;
+        private final int end;
+
+        private int firstLine = 1; // known only after all the preceding chunks are scanned
+        private int firstInstruction;
+        private int lineCount;
+        private int instructionCount;
+        private long tokenCount; // in the last phase
+        private SymbolTable symbols; // labels and the referenced symbols of the chunk
+        private RomEmitter words;
+        private Exception error;
+
+        private Chunk(int start, int end) {
+            this.start = start;
+            this.end = end;
+        }
+    }
+}
@@ -6,34 +6,77 @@ import com.lukas.hackassembler.exception.EmitterErrorException;
 import com.lukas.hackassembler.exception.LexerErrorException;
 import com.lukas.hackassembler.exception.ParserErrorException;
 import com.lukas.hackassembler.lex.Lexer;
+import com.lukas.hackassembler.model.AInstruction;
+import com.lukas.hackassembler.model.CInstruction;
 import com.lukas.hackassembler.model.CompType;
+import com.lukas.hackassembler.model.DestType;
 import com.lukas.hackassembler.model.JumpType;
-import com.lukas.hackassembler.model.Token;
+import com.lukas.hackassembler.model.LabelDeclaration;
+import com.lukas.hackassembler.model.Statement;
 import com.lukas.hackassembler.model.TokenType;
+import com.lukas.hackassembler.stats.Phase;
+import com.lukas.hackassembler.stats.PhaseStats;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.HashMap;
-import java.util.Map;
-import java.util.Optional;
+import java.util.List;
 
 import static com.lukas.hackassembler.model.TokenType.*;
 
 public class Parser {
     private static final int MAX_A_VALUE = (int) (Math.pow(2, 15) - 1); // only 15 bits for A inst. value
 
-    private static final int DYNAMIC_MEMORY_START_ADDRESS = 16;
+    public static final int DYNAMIC_MEMORY_START_ADDRESS = 16;
+
+    private static final int INITIAL_PENDING_CAPACITY = 1024;
+
+    private static final int NO_TOKEN = -1;
+
+    static final int BUILT_IN_SYMBOL_COUNT = BuiltInSymbol.values().length;
+
+    private static final int UNRESOLVED_ADDRESS = 0; // placeholder for forward references in the single-pass mode
+    private static final int NO_REFERENCE = -1;
+
+    private static final int C_INSTRUCTION_PREFIX = 0b111 << 13; // 3 MSBs are 1 for C-instructions
+    private static final int COMP_SHIFT = 6;
+    private static final int DEST_SHIFT = 3;
 
     private final Lexer lexer;
     private final Emitter emitter;
+    private final PassMode passMode;
 
-    private final Map<String, Integer> labels;
-    private final Map<String, Integer> variables;
+    private final SymbolTable symbols;
 
-    private Token curToken;
-    private Token peekToken;
+    // single-pass mode only - the instructions are held back until all forward references are patched
+    private int[] pendingInstructions;
+    // every reference is remembered, so that a repeated label declaration can patch it again (as in two passes)
+    private int[] lastReferences; // address of the last reference of each symbol entry
+    private int[] previousReferences; // address of the previous reference of the same symbol for each instruction
+
+    // only when parsing a chunk of a bigger input (see ParallelParser)
+    private boolean recordingReferences; // the label scanning also adds the referenced symbols into the table
+    private boolean symbolsResolved; // the table is complete and shared, so it's only read
+
+    // only when parsing into the statements, see parseStatements()
+    private List<Statement> statements;
+
+    // spans of the current and the next token in the lexer input
+    private TokenType curType;
+    private int curStart;
+    private int curLength;
+    private int curLine;
+    private TokenType peekType;
+    private int peekStart;
+    private int peekLength;
+    private int peekLine;
 
     private int nextVariableAddress;
+    private int nextInstructionAddress;
+
+    private PhaseStats stats = PhaseStats.disabled();
+    private long tokenCount; // in the current phase
 
     public Parser(String input) throws LexerErrorException {
         this(new Lexer(input));
@@ -44,19 +87,49 @@ public class Parser {
     }
 
     public Parser(Lexer lexer, Emitter emitter) throws LexerErrorException {
-        this.lexer = lexer;
-        this.emitter = emitter;
+        this(lexer, emitter, PassMode.TWO_PASS);
+    }
 
-        labels = new HashMap<>();
-        variables = new HashMap<>();
+    public Parser(Lexer lexer, Emitter emitter, PassMode passMode) throws LexerErrorException {
+        this(lexer, emitter, passMode, SymbolTable.withBuiltIns());
+    }
 
-        // add all built-in symbols to the variables
-        Arrays.stream(BuiltInSymbol.values())
-                .forEach(symbol -> variables.put(symbol.name(), symbol.address));
+    /**
+     * Creates a two-pass parser of a chunk of a bigger input, using the given symbol table. The emitter is needed
+     * only for {@link #encode()}.
+     *
+     * @see #scanSymbols()
+     * @see #encode()
+     */
+    Parser(Lexer lexer, Emitter emitter, SymbolTable symbols) throws LexerErrorException {
+        this(lexer, emitter, PassMode.TWO_PASS, symbols);
+    }
+
+    private Parser(Lexer lexer, Emitter emitter, PassMode passMode, SymbolTable symbols) throws LexerErrorException {
+        this.lexer = lexer;
+        this.emitter = emitter;
+        this.passMode = passMode;
+        this.symbols = symbols;
+
+        if (passMode == PassMode.SINGLE_PASS) {
+            pendingInstructions = new int[INITIAL_PENDING_CAPACITY];
+            previousReferences = new int[INITIAL_PENDING_CAPACITY];
+            lastReferences = new int[INITIAL_PENDING_CAPACITY];
+            Arrays.fill(lastReferences, NO_REFERENCE);
+        }
 
         reset();
     }
 
+    /**
+     * Sets the measurement of the parsing phases (by default only the JFR events are emitted).
+     *
+     * @param stats the phase stats
+     */
+    public void setStats(PhaseStats stats) {
+        this.stats = stats;
+    }
+
     /**
      * Fetches the output from the emitter.
      *
@@ -68,22 +141,115 @@ public class Parser {
 
     /**
      * Parses the input and emits it into the emitter (either provided or the default {@link InMemoryEmitter}.
-     * It parses the code using 2 passes - label scanning and then the parsing and emitting itself.
+     * In the {@link PassMode#TWO_PASS} mode it parses the code using 2 passes - label scanning and then the parsing
+     * and emitting itself. In the {@link PassMode#SINGLE_PASS} mode the input is tokenized only once, the forward
+     * label references get placeholder instructions, which are patched when the label gets declared. The output
+     * is the same in both modes.
      *
      * @throws LexerErrorException   if there was problem during tokenization
      * @throws ParserErrorException  if there was an invalid sequence of tokens
      * @throws EmitterErrorException if there was a problem during the output creation
      */
     public void parse() throws LexerErrorException, ParserErrorException, EmitterErrorException {
+        try {
+            try {
+                if (passMode == PassMode.TWO_PASS) {
+                    var phase = beginPhase(Phase.SCAN_LABELS);
+                    scanLabels();
+                    endPhase(phase);
+
+                    phase = beginPhase(Phase.ENCODE);
+                    reset();
+                    program();
+                    endPhase(phase);
+                } else {
+                    var phase = beginPhase(Phase.ENCODE);
+                    program();
+                    endPhase(phase);
+
+                    phase = beginPhase(Phase.RESOLVE_SYMBOLS);
+                    resolveVariables();
+                    endPhase(phase);
+                }
+            } catch (UncheckedIOException e) { // the emitter can write its output through already during the parsing
+                throw new EmitterErrorException(e.getCause());
+            }
+
+            var phase = beginPhase(Phase.WRITE);
+            try {
+                emitter.close();
+            } catch (IOException e) {
+                throw new EmitterErrorException(e);
+            }
+            endPhase(phase);
+        } finally { // does nothing after the emitter got closed
+            emitter.abort();
+        }
+    }
+
+    /**
+     * Only scans the labels, like the first pass, and also adds the other referenced symbols into the symbol table
+     * as {@link SymbolTable.Kind#UNRESOLVED} entries (in the order of their first use). The addresses of the labels
+     * are relative to the start of the input. Nothing is emitted.
+     *
+     * @throws LexerErrorException  if there was problem during tokenization
+     * @throws ParserErrorException if there was an invalid label declaration or statement start
+     */
+    void scanSymbols() throws LexerErrorException, ParserErrorException {
+        recordingReferences = true;
         scanLabels();
-        reset();
+    }
+
+    /**
+     * Only parses and emits the instructions, like the second pass. All the referenced symbols have to be resolved
+     * in the symbol table already - it's only read, so it can be shared by the parsers of the other chunks.
+     * The emitter isn't closed.
+     *
+     * @throws LexerErrorException  if there was problem during tokenization
+     * @throws ParserErrorException if there was an invalid sequence of tokens
+     */
+    void encode() throws LexerErrorException, ParserErrorException {
+        symbolsResolved = true;
         program();
+    }
 
-        try {
-            emitter.close();
-        } catch (IOException e) {
-            throw new EmitterErrorException(e);
-        }
+    /**
+     * Parses the input into its statements, without resolving the symbols or emitting anything (e.g. for
+     * the optimizer). The syntax is checked as by {@link #parse()}.
+     *
+     * @return the statements in their order
+     * @throws LexerErrorException  if there was problem during tokenization
+     * @throws ParserErrorException if there was an invalid sequence of tokens
+     * @see StatementEncoder
+     */
+    public List<Statement> parseStatements() throws LexerErrorException, ParserErrorException {
+        statements = new ArrayList<>();
+        program();
+        return statements;
+    }
+
+    /**
+     * @return number of the tokens lexed since the start of the current phase (or the creation of the parser)
+     */
+    long getTokenCount() {
+        return tokenCount;
+    }
+
+    /**
+     * @return number of the instructions parsed so far
+     */
+    public int getInstructionCount() {
+        return nextInstructionAddress;
+    }
+
+    private PhaseStats.Measurement beginPhase(Phase phase) {
+        tokenCount = 0;
+        return stats.begin(phase);
+    }
+
+    private void endPhase(PhaseStats.Measurement phase) {
+        stats.end(phase, tokenCount, nextInstructionAddress, symbols.size() - BUILT_IN_SYMBOL_COUNT,
+                nextVariableAddress - DYNAMIC_MEMORY_START_ADDRESS);
     }
 
     private void reset() throws LexerErrorException {
@@ -91,52 +257,77 @@ public class Parser {
         nextToken();
         nextToken();
         nextVariableAddress = DYNAMIC_MEMORY_START_ADDRESS;
+        nextInstructionAddress = 0;
     }
 
     private void scanLabels() throws LexerErrorException, ParserErrorException {
-        var curLine = 0;
-        while (curToken.getType() != EOF) {
-            switch (curToken.getType()) {
+        while (curType != EOF) {
+            switch (curType) {
                 case LABEL_START:
-                    nextToken();
-                    assertTokenType(SYMBOL);
-
-                    var symbol = curToken.getValue();
-
-                    nextToken();
-                    assertTokenType(LABEL_END);
-                    assertPeekTokenType(NEWLINE);
-
-                    if (!variables.containsKey(symbol)) {
-                        labels.put(symbol, curLine);
-                    } else {
-                        abort("The label '" + symbol + "' is invalid (shadows in-built symbol).");
-                    }
+                    labelDeclaration(nextInstructionAddress);
                     break;
                 case A_INST_MARK:
+                    if (recordingReferences && peekType == SYMBOL) {
+                        symbols.findOrAdd(lexer.getInput(), peekStart, peekLength);
+                    }
+                    nextInstructionAddress++;
+                    break;
                 case COMP_PART:
-                    curLine++;
+                    nextInstructionAddress++;
                     break;
                 case NEWLINE:
                     break;
                 default:
-                    abort("A statement can't start with the token type " + curToken.getType());
+                    abort("A statement can't start with the token type " + curType);
+            }
+            if (curType != NEWLINE) { // only an empty first line, the others are skipped below
+                skipToEndOfline();
             }
-            skipToEndOfline();
             nextNonNewlineToken();
         }
     }
 
+    private void labelDeclaration(int address) throws LexerErrorException, ParserErrorException {
+        nextToken();
+        assertTokenType(SYMBOL);
+
+        var symbolStart = curStart;
+        var symbolLength = curLength;
+
+        nextToken();
+        assertTokenType(LABEL_END);
+        assertPeekTokenType(NEWLINE);
+
+        var entry = symbols.findOrAdd(lexer.getInput(), symbolStart, symbolLength);
+        if (symbols.getKind(entry) == SymbolTable.Kind.BUILT_IN) {
+            abort("The label '" + symbols.getSymbol(entry) + "' is invalid (shadows in-built symbol).");
+        }
+
+        if (statements != null) {
+            statements.add(new LabelDeclaration(symbols.getSymbol(entry)));
+            return;
+        }
+
+        symbols.resolve(entry, SymbolTable.Kind.LABEL, address);
+        if (passMode == PassMode.SINGLE_PASS) {
+            // patches the forward references, and also the earlier ones in case of a repeated declaration
+            patchReferences(entry, address);
+        }
+    }
+
     private void program() throws LexerErrorException, ParserErrorException {
-        while (curToken.getType() != EOF) {
+        while (curType != EOF) {
             statement();
         }
     }
 
     private void statement() throws LexerErrorException, ParserErrorException {
-        switch (curToken.getType()) {
-            // LABEL DECLARATION - already checked during label scanning
+        switch (curType) {
+            // LABEL DECLARATION - already checked during label scanning in the two-pass mode
             case LABEL_START:
+                if (passMode == PassMode.SINGLE_PASS || statements != null) {
+                    labelDeclaration(nextInstructionAddress);
+                }
                 skipToEndOfline();
                 break;
             // A-INSTRUCTION
@@ -154,7 +345,7 @@ public class Parser {
             case NEWLINE:
                 break;
             default:
-                abort("A statement can't start with the token type " + curToken.getType());
+                abort("A statement can't start with the token type " + curType);
         }
 
         nextToken();
@@ -162,7 +353,7 @@ public class Parser {
 
     private void aInstruction() throws LexerErrorException, ParserErrorException {
         nextToken();
-        switch (curToken.getType()) {
+        switch (curType) {
             case SYMBOL:
                 symbol();
                 break;
@@ -170,157 +361,250 @@ public class Parser {
                 number();
                 break;
             default:
-                abort("The A-instruction contains a different token than allowed: " + curToken.getType());
+                abort("The A-instruction contains a different token than allowed: " + curType);
         }
     }
 
     private void symbol() {
-        var symbol = curToken.getValue();
+        if (statements != null) {
+            addStatement(AInstruction.ofSymbol(tokenText(curStart, curLength)));
+            return;
+        }
 
-        int symbolAddress;
-        if (labels.containsKey(symbol)) {
-            symbolAddress = labels.get(symbol);
-        } else if (variables.containsKey(symbol)) {
-            symbolAddress = variables.get(symbol);
-        } else {
-            symbolAddress = nextVariableAddress++;
-            variables.put(symbol, symbolAddress);
+        var entry = symbolsResolved
+                ? symbols.find(lexer.getInput(), curStart, curLength)
+                : symbols.findOrAdd(lexer.getInput(), curStart, curLength);
+
+        if (passMode == PassMode.SINGLE_PASS) {
+            forwardableSymbol(entry);
+            return;
+        }
+
+        if (symbols.getKind(entry) == SymbolTable.Kind.UNRESOLVED) { // not a label or a known variable
+            symbols.resolve(entry, SymbolTable.Kind.VARIABLE, nextVariableAddress++);
+        }
+
+        emitInstruction(symbols.getAddress(entry));
+    }
+
+    private void forwardableSymbol(int entry) {
+        switch (symbols.getKind(entry)) {
+            case BUILT_IN:
+                emitInstruction(symbols.getAddress(entry));
+                return;
+            case LABEL:
+                addReference(entry);
+                emitInstruction(symbols.getAddress(entry));
+                return;
+            default:
+                addReference(entry);
+                emitInstruction(UNRESOLVED_ADDRESS);
+        }
+    }
+
+    private void addReference(int entry) {
+        if (entry >= lastReferences.length) {
+            var oldLength = lastReferences.length;
+            lastReferences = Arrays.copyOf(lastReferences, Math.max(oldLength * 2, entry + 1));
+            Arrays.fill(lastReferences, oldLength, lastReferences.length, NO_REFERENCE);
+        }
+        if (nextInstructionAddress >= previousReferences.length) {
+            previousReferences = Arrays.copyOf(previousReferences,
+                    Math.max(previousReferences.length * 2, nextInstructionAddress + 1));
         }
 
-        emitter.emitLine(convertToBinaryString(symbolAddress));
+        previousReferences[nextInstructionAddress] = lastReferences[entry];
+        lastReferences[entry] = nextInstructionAddress;
+    }
+
+    private void patchReferences(int entry, int address) {
+        if (entry >= lastReferences.length) { // never referenced
+            return;
+        }
+
+        for (int reference = lastReferences[entry]; reference != NO_REFERENCE; reference = previousReferences[reference]) {
+            pendingInstructions[reference] = address;
+        }
+    }
+
+    private void resolveVariables() {
+        // the symbols which weren't declared as labels are variables - allocated in the order of their first use,
+        // which is also the order of the entries
+        for (int entry = 0; entry < symbols.size(); entry++) {
+            if (symbols.getKind(entry) == SymbolTable.Kind.UNRESOLVED) {
+                var symbolAddress = nextVariableAddress++;
+                symbols.resolve(entry, SymbolTable.Kind.VARIABLE, symbolAddress);
+                patchReferences(entry, symbolAddress);
+            }
+        }
+
+        for (int i = 0; i < nextInstructionAddress; i++) {
+            emitter.emitWord(pendingInstructions[i]);
+        }
     }
 
     private void number() throws ParserErrorException {
-        int numValue = Integer.parseInt(curToken.getValue());
-        if (numValue <= MAX_A_VALUE) {
-            // the number is at most 15 bit long, but A instruction has the MSB set to 0 anyway
-            emitter.emitLine(convertToBinaryString(numValue));
-        } else {
-            abort("The number exceeds the max. possible value: " + numValue);
+        var input = lexer.getInput();
+
+        int numValue = 0;
+        for (int i = curStart; i < curStart + curLength; i++) { // the lexer guarantees only digits
+            numValue = numValue * 10 + (input.get(i) - '0');
+            if (numValue > MAX_A_VALUE) {
+                abort("The number exceeds the max. possible value: " + tokenText(curStart, curLength));
+            }
         }
+
+        if (statements != null) {
+            addStatement(AInstruction.ofValue(numValue));
+            return;
+        }
+
+        // the number is at most 15 bit long, but A instruction has the MSB set to 0 anyway
+        emitInstruction(numValue);
     }
 
     private void cInstruction() throws LexerErrorException, ParserErrorException {
-        if (peekToken.getType() == DEST_SEPARATOR) {
-            var dest = curToken;
+        var destStart = NO_TOKEN;
+        var destLength = 0;
+        if (peekType == DEST_SEPARATOR) {
+            destStart = curStart;
+            destLength = curLength;
 
             nextToken();
             assertTokenType(DEST_SEPARATOR);
             nextToken();
             assertTokenType(COMP_PART);
+        }
 
-            var comp = curToken;
-            if (peekToken.getType() == JUMP_SEPARATOR) {
-                nextToken();
-                assertTokenType(JUMP_SEPARATOR);
-                nextToken();
+        var compStart = curStart;
+        var compLength = curLength;
 
-                var jump = curToken;
-                emitCInstruction(dest, comp, jump);
-            } else {
-                emitCInstruction(dest, comp, null);
-            }
-        } else {
-            var comp = curToken;
+        var jumpStart = NO_TOKEN;
+        var jumpLength = 0;
+        if (peekType == JUMP_SEPARATOR) {
+            nextToken();
+            assertTokenType(JUMP_SEPARATOR);
+            nextToken();
+            assertTokenType(COMP_PART);
 
-            if (peekToken.getType() == JUMP_SEPARATOR) {
-                nextToken();
-                assertTokenType(JUMP_SEPARATOR);
-                nextToken();
-                assertTokenType(COMP_PART);
+            jumpStart = curStart;
+            jumpLength = curLength;
+        }
 
-                var jump = curToken;
-                emitCInstruction(null, comp, jump);
-            } else {
-                emitCInstruction(null, comp, null);
-            }
+        // all the parts are on the current line, so their spans are still valid
+        var comp = compType(compStart, compLength);
+        var dest = destStart != NO_TOKEN ? destType(destStart, destLength) : null;
+        var jump = jumpStart != NO_TOKEN ? jumpType(jumpStart, jumpLength) : null;
+
+        if (statements != null) {
+            addStatement(new CInstruction(dest, comp, jump));
+            return;
+        }
+        emitInstruction(encodeCInstruction(dest, comp, jump));
+    }
+
+    /**
+     * @param dest the destination registers, or null
+     * @param comp the computation
+     * @param jump the jump, or null
+     * @return the machine word of the C-instruction
+     */
+    static int encodeCInstruction(DestType dest, CompType comp, JumpType jump) {
+        var instruction = C_INSTRUCTION_PREFIX
+                | comp.getCode() << COMP_SHIFT; // 1 bit for A/M and 6 bits for the computation type
+
+        if (dest != null) { // dest code - 3 bits
+            instruction |= dest.getCode() << DEST_SHIFT;
+        }
+
+        if (jump != null) { // jump code - 3 bits
+            instruction |= jump.getCode();
         }
+        return instruction;
     }
 
     private void nextToken() throws LexerErrorException {
-        curToken = peekToken;
-        peekToken = lexer.getToken();
+        curType = peekType;
+        curStart = peekStart;
+        curLength = peekLength;
+        curLine = peekLine;
+
+        peekType = lexer.nextToken();
+        tokenCount++;
+        peekStart = lexer.getTokenStart();
+        peekLength = lexer.getTokenLength();
+        peekLine = lexer.getTokenLine();
     }
 
     private void skipToEndOfline() throws LexerErrorException {
         do {
             nextToken();
-        } while (curToken.getType() != NEWLINE);
+        } while (curType != NEWLINE);
     }
 
     private void nextNonNewlineToken() throws LexerErrorException {
         do {
             nextToken();
-        } while (curToken.getType() == NEWLINE);
+        } while (curType == NEWLINE);
     }
 
     private void assertTokenType(TokenType expected) throws ParserErrorException {
-        assertTokenTypeOf(curToken, expected);
+        assertTokenTypeOf(curType, expected);
     }
 
     private void assertPeekTokenType(TokenType expected) throws ParserErrorException {
-        assertTokenTypeOf(peekToken, expected);
+        assertTokenTypeOf(peekType, expected);
     }
 
-    private void assertTokenTypeOf(Token token, TokenType expected) throws ParserErrorException {
-        if (token.getType() != expected) {
-            abortUnexpectedToken(expected, token.getType());
+    private void assertTokenTypeOf(TokenType actual, TokenType expected) throws ParserErrorException {
+        if (actual != expected) {
+            abortUnexpectedToken(expected, actual);
         }
     }
 
-    private String convertToBinaryString(int number) {
-        return String.format("%16s", Integer.toBinaryString(number)).replace(" ", "0");
+    private String tokenText(int start, int length) {
+        return lexer.getText(start, length);
     }
 
-    private void emitCInstruction(Token dest, Token comp, Token jump) throws ParserErrorException {
-        emitter.emitString("111"); // 3 MSBs are 1 for C-instructions
-
-        emitComp(comp.getValue()); // 1 bit for A/M and
-
-        if (dest != null) { // dest code - 3 bits 6 bits for the computation type
-            emitDest(dest.getValue());
-        } else {
-            emitter.emitString("000");
-        }
+    private void addStatement(Statement statement) {
+        statements.add(statement);
+        nextInstructionAddress++;
+    }
 
-        if (jump != null) { // jump code - 3 bits
-            emitJump(jump.getValue());
+    private void emitInstruction(int instruction) {
+        if (passMode == PassMode.SINGLE_PASS) {
+            if (nextInstructionAddress == pendingInstructions.length) {
+                pendingInstructions = Arrays.copyOf(pendingInstructions, pendingInstructions.length * 2);
+            }
+            pendingInstructions[nextInstructionAddress] = instruction;
         } else {
-            emitter.emitString("000");
+            emitter.emitWord(instruction);
         }
-
-        emitter.emitLine("");
+        nextInstructionAddress++;
     }
 
-    private void emitDest(String destString) throws ParserErrorException {
-        if (destString.length() >= 1 && destString.length() <= 3 && destString.matches("A?M?D?")) {
-            emitter.emitString((destString.contains("A") ? "1" : "0")
-                    + (destString.contains("D") ? "1" : "0")
-                    + (destString.contains("M") ? "1" : "0")
-            );
-        } else {
-            abort("The destination registers \"" + destString + "\" are not valid.");
+    private DestType destType(int start, int length) throws ParserErrorException {
+        var destType = DestType.getByLiteral(lexer.getInput(), start, length);
+        if (destType == null) {
+            abort("The destination registers \"" + tokenText(start, length) + "\" are not valid.");
         }
+        return destType;
     }
 
-    private void emitComp(String compString) throws ParserErrorException {
-        emitter.emitString(compString.contains("M") ? "1" : "0"); // computing with A value vs. RAM[A] value
-
-        emitter.emitString(Optional
-                .ofNullable(CompType.getByLiteral(compString))
-                .orElseThrow(() -> new ParserErrorException("The computation \""
-                        + compString + "\" doesn't have a corresponding machine code."))
-                .getCode() // computation code - 6 bits
-        );
+    private CompType compType(int start, int length) throws ParserErrorException {
+        var compType = CompType.getByLiteral(lexer.getInput(), start, length);
+        if (compType == null) {
+            abort("The computation \"" + tokenText(start, length) + "\" doesn't have a corresponding machine code.");
+        }
+        return compType;
     }
 
-    private void emitJump(String jumpString) throws ParserErrorException {
-        emitter.emitString(Optional
-                .ofNullable(JumpType.getByLiteral(jumpString))
-                .orElseThrow(() -> new ParserErrorException("The jump literal \""
-                        + jumpString + "\" is not valid."))
-                .getCode()
-        );
+    private JumpType jumpType(int start, int length) throws ParserErrorException {
+        var jumpType = JumpType.getByLiteral(lexer.getInput(), start, length);
+        if (jumpType == null) {
+            abort("The jump literal \"" + tokenText(start, length) + "\" is not valid.");
+        }
+        return jumpType;
     }
 
     private void abortUnexpectedToken(TokenType expected, TokenType actual) throws ParserErrorException {
@@ -328,7 +612,21 @@ public class Parser {
     }
 
     private void abort(String message) throws ParserErrorException {
-        throw new ParserErrorException(message);
+        throw new ParserErrorException("Line " + curLine + ": " + message);
+    }
+
+    /**
+     * The way the parser resolves the labels, which can be referenced before their declaration.
+     */
+    public enum PassMode {
+        /**
+         * Scans the labels first, then rewinds the lexer and parses the whole input again.
+         */
+        TWO_PASS,
+        /**
+         * Tokenizes the input only once, and patches the forward references when their labels get declared.
+         */
+        SINGLE_PASS
     }
 
     public enum BuiltInSymbol {
@@ -361,5 +659,9 @@ public class Parser {
         BuiltInSymbol(int address) {
             this.address = address;
         }
+
+        public int getAddress() {
+            return address;
+        }
     }
 }
@@ -0,0 +1,63 @@
+package com.lukas.hackassembler.parse;
+
+import com.lukas.hackassembler.emit.Emitter;
+import com.lukas.hackassembler.exception.EmitterErrorException;
+import com.lukas.hackassembler.exception.ParserErrorException;
+import com.lukas.hackassembler.model.Statement;
+
+import java.util.List;
+
+/**
+ * Encodes the statements of a program (e.g. from {@link Parser#parseStatements()}) into the emitter, with the same
+ * symbol resolution as the {@link Parser} - a label gets the address of its following instruction, the other
+ * symbols are the variables allocated from 16 in the order of their first use.
+ *
+ * @see InstructionAssembler
+ */
+public class StatementEncoder {
+    private final List<? extends Statement> statements;
+    private final InstructionAssembler assembler;
+
+    /**
+     * @param statements the statements of the program
+     * @param emitter    emitter of the output
+     */
+    public StatementEncoder(List<? extends Statement> statements, Emitter emitter) {
+        this.statements = statements;
+        this.assembler = new InstructionAssembler(emitter);
+    }
+
+    /**
+     * Fetches the output from the emitter.
+     *
+     * @return output from the encoding fetched through the emitter
+     */
+    public String getOutput() {
+        return assembler.getOutput();
+    }
+
+    /**
+     * @return number of the encoded instructions
+     */
+    public int getInstructionCount() {
+        return assembler.getInstructionCount();
+    }
+
+    /**
+     * Resolves the symbols, emits the instructions and closes the emitter.
+     *
+     * @throws ParserErrorException  if a label shadows a built-in symbol or a symbol is invalid (the statements are
+     *                               numbered from 1)
+     * @throws EmitterErrorException if there was a problem during the output creation
+     */
+    public void encode() throws ParserErrorException, EmitterErrorException {
+        for (int i = 0; i < statements.size(); i++) {
+            try {
+                assembler.add(statements.get(i));
+            } catch (ParserErrorException e) {
+                throw new ParserErrorException("Statement " + (i + 1) + ": " + e.getMessage());
+            }
+        }
+        assembler.finish();
+    }
+}
@@ -0,0 +1,285 @@
+package com.lukas.hackassembler.parse;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * A table of the symbols and their addresses, which can be queried directly with the spans of the input.
+ * <p>
+ * It's a single open-addressing hash table (with linear probing) of the symbol entries. The symbol characters are
+ * interned into one byte array, the addresses and kinds are kept in primitive arrays indexed by the entry, so there's
+ * no boxing and a reference is resolved with one lookup. The entries are numbered in the order they were added.
+ * The built-in symbols are prepared once and every table created by {@link #withBuiltIns()} starts as their copy.
+ */
+public final class SymbolTable {
+    public static final int NOT_FOUND = -1;
+    public static final int UNRESOLVED_ADDRESS = -1;
+
+    private static final int INITIAL_CAPACITY = 64; // entries, the slots are always at least twice as many
+    private static final int EMPTY_SLOT = -1;
+
+    private static final SymbolTable BUILT_INS = new SymbolTable();
+
+    static {
+        for (var symbol : Parser.BuiltInSymbol.values()) {
+            BUILT_INS.add(symbol.name(), Kind.BUILT_IN, symbol.getAddress());
+        }
+    }
+
+    private int[] slots; // entry index for each slot
+    private int slotMask;
+
+    private int[] hashes;
+    private int[] keyOffsets;
+    private int[] keyLengths;
+    private int[] addresses;
+    private Kind[] kinds;
+    private int size;
+
+    private byte[] keyBytes;
+    private int keyBytesLength;
+
+    public SymbolTable() {
+        slots = new int[INITIAL_CAPACITY * 2];
+        Arrays.fill(slots, EMPTY_SLOT);
+        slotMask = slots.length - 1;
+
+        hashes = new int[INITIAL_CAPACITY];
+        keyOffsets = new int[INITIAL_CAPACITY];
+        keyLengths = new int[INITIAL_CAPACITY];
+        addresses = new int[INITIAL_CAPACITY];
+        kinds = new Kind[INITIAL_CAPACITY];
+
+        keyBytes = new byte[INITIAL_CAPACITY * 8];
+    }
+
+    private SymbolTable(SymbolTable other) {
+        slots = other.slots.clone();
+        slotMask = other.slotMask;
+
+        hashes = other.hashes.clone();
+        keyOffsets = other.keyOffsets.clone();
+        keyLengths = other.keyLengths.clone();
+        addresses = other.addresses.clone();
+        kinds = other.kinds.clone();
+        size = other.size;
+
+        keyBytes = other.keyBytes.clone();
+        keyBytesLength = other.keyBytesLength;
+    }
+
+    /**
+     * Creates a table containing the built-in symbols (SP, LCL, ..., R15, SCREEN, KBD).
+     *
+     * @return a new table with the built-in symbols
+     */
+    public static SymbolTable withBuiltIns() {
+        return new SymbolTable(BUILT_INS);
+    }
+
+    /**
+     * Finds the entry of a symbol.
+     *
+     * @param input  input containing the symbol
+     * @param start  position of the first character of the symbol
+     * @param length number of characters of the symbol
+     * @return index of the entry, or {@link #NOT_FOUND}
+     */
+    public int find(ByteBuffer input, int start, int length) {
+        var hash = hash(input, start, length);
+        for (int slot = hash & slotMask; ; slot = (slot + 1) & slotMask) {
+            var entry = slots[slot];
+            if (entry == EMPTY_SLOT) {
+                return NOT_FOUND;
+            }
+            if (hashes[entry] == hash && keyEquals(entry, input, start, length)) {
+                return entry;
+            }
+        }
+    }
+
+    public int find(String symbol) {
+        return find(toBuffer(symbol), 0, symbol.length());
+    }
+
+    /**
+     * Finds the entry of a symbol, or adds a new {@link Kind#UNRESOLVED} one if it's not in the table yet.
+     *
+     * @param input  input containing the symbol
+     * @param start  position of the first character of the symbol
+     * @param length number of characters of the symbol
+     * @return index of the entry
+     */
+    public int findOrAdd(ByteBuffer input, int start, int length) {
+        var hash = hash(input, start, length);
+        int slot = hash & slotMask;
+        for (; ; slot = (slot + 1) & slotMask) {
+            var entry = slots[slot];
+            if (entry == EMPTY_SLOT) {
+                break;
+            }
+            if (hashes[entry] == hash && keyEquals(entry, input, start, length)) {
+                return entry;
+            }
+        }
+
+        var entry = size++;
+        ensureEntryCapacity();
+
+        hashes[entry] = hash;
+        keyOffsets[entry] = internKey(input, start, length);
+        keyLengths[entry] = length;
+        addresses[entry] = UNRESOLVED_ADDRESS;
+        kinds[entry] = Kind.UNRESOLVED;
+        slots[slot] = entry;
+
+        if (size * 2 > slots.length) {
+            rehash();
+        }
+        return entry;
+    }
+
+    /**
+     * Finds the entry of a symbol, or adds a new {@link Kind#UNRESOLVED} one if it's not in the table yet.
+     *
+     * @param symbol the symbol
+     * @return index of the entry
+     */
+    public int findOrAdd(String symbol) {
+        return findOrAdd(toBuffer(symbol), 0, symbol.length());
+    }
+
+    /**
+     * Finds the entry of a symbol of another table, or adds a new {@link Kind#UNRESOLVED} one.
+     *
+     * @param source      the table containing the symbol
+     * @param sourceEntry index of the entry in the source table
+     * @return index of the entry in this table
+     */
+    int findOrAdd(SymbolTable source, int sourceEntry) {
+        return findOrAdd(ByteBuffer.wrap(source.keyBytes), source.keyOffsets[sourceEntry], source.keyLengths[sourceEntry]);
+    }
+
+    /**
+     * Adds a symbol, or changes its kind and address if it's already in the table.
+     *
+     * @param symbol  the symbol
+     * @param kind    kind of the symbol
+     * @param address address of the symbol
+     * @return index of the entry
+     */
+    public int add(String symbol, Kind kind, int address) {
+        var entry = findOrAdd(toBuffer(symbol), 0, symbol.length());
+        resolve(entry, kind, address);
+        return entry;
+    }
+
+    /**
+     * Sets the kind and the address of an entry.
+     *
+     * @param entry   index of the entry
+     * @param kind    kind of the symbol
+     * @param address address of the symbol
+     */
+    public void resolve(int entry, Kind kind, int address) {
+        kinds[entry] = kind;
+        addresses[entry] = address;
+    }
+
+    public Kind getKind(int entry) {
+        return kinds[entry];
+    }
+
+    public int getAddress(int entry) {
+        return addresses[entry];
+    }
+
+    public String getSymbol(int entry) {
+        return new String(keyBytes, keyOffsets[entry], keyLengths[entry], StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @return number of entries, which are numbered from 0 in the order they were added
+     */
+    public int size() {
+        return size;
+    }
+
+    private boolean keyEquals(int entry, ByteBuffer input, int start, int length) {
+        if (keyLengths[entry] != length) {
+            return false;
+        }
+
+        var offset = keyOffsets[entry];
+        for (int i = 0; i < length; i++) {
+            if (keyBytes[offset + i] != input.get(start + i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int internKey(ByteBuffer input, int start, int length) {
+        if (keyBytesLength + length > keyBytes.length) {
+            keyBytes = Arrays.copyOf(keyBytes, Math.max(keyBytes.length * 2, keyBytesLength + length));
+        }
+
+        var offset = keyBytesLength;
+        for (int i = 0; i < length; i++) {
+            keyBytes[offset + i] = input.get(start + i);
+        }
+        keyBytesLength += length;
+        return offset;
+    }
+
+    private void ensureEntryCapacity() {
+        if (size > hashes.length) {
+            var capacity = hashes.length * 2;
+            hashes = Arrays.copyOf(hashes, capacity);
+            keyOffsets = Arrays.copyOf(keyOffsets, capacity);
+            keyLengths = Arrays.copyOf(keyLengths, capacity);
+            addresses = Arrays.copyOf(addresses, capacity);
+            kinds = Arrays.copyOf(kinds, capacity);
+        }
+    }
+
+    private void rehash() {
+        slots = new int[slots.length * 2];
+        Arrays.fill(slots, EMPTY_SLOT);
+        slotMask = slots.length - 1;
+
+        for (int entry = 0; entry < size; entry++) {
+            int slot = hashes[entry] & slotMask;
+            while (slots[slot] != EMPTY_SLOT) {
+                slot = (slot + 1) & slotMask;
+            }
+            slots[slot] = entry;
+        }
+    }
+
+    private static int hash(ByteBuffer input, int start, int length) {
+        int hash = 0;
+        for (int i = start; i < start + length; i++) {
+            hash = 31 * hash + input.get(i);
+        }
+        return hash ^ (hash >>> 16); // spreads the higher bits into the masked lower ones
+    }
+
+    private static ByteBuffer toBuffer(String symbol) {
+        return ByteBuffer.wrap(symbol.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    /**
+     * Kind of the symbol entry.
+     */
+    public enum Kind {
+        BUILT_IN,
+        LABEL,
+        VARIABLE,
+        /**
+         * Referenced, but not known to be a label or a variable yet.
+         */
+        UNRESOLVED
+    }
+}
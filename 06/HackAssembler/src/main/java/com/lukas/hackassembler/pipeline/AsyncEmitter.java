@@ -0,0 +1,181 @@
+package com.lukas.hackassembler.pipeline;
+
+import com.lukas.hackassembler.emit.Emitter;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * Passes the emitted words to another emitter on its own thread, so that their formatting and writing overlaps with
+ * the parsing. The words are handed over in batches through a {@link BatchRing}. The lines and strings, which
+ * the parser doesn't emit, are passed directly once all the words before them are written, and so is the output.
+ * <p>
+ * An error of the other emitter is thrown by the next call after it happened (or by {@link #close()}). The writer
+ * thread is started by the first word and ends by the close, or by the abort after a failed assembly.
+ */
+public class AsyncEmitter implements Emitter {
+    static final int BATCH_SIZE = 4096; // words
+    static final int RING_CAPACITY = 8; // batches
+
+    private final Emitter emitter;
+
+    private BatchRing<WordBatch> ring; // null until the first word
+    private Thread writer;
+    private WordBatch batch; // claimed from the ring, null if none
+    private volatile RuntimeException error; // of the other emitter
+
+    /**
+     * @param emitter the emitter the words are passed to, closed by {@link #close()}
+     */
+    public AsyncEmitter(Emitter emitter) {
+        this.emitter = emitter;
+    }
+
+    @Override
+    public void emitWord(int word) {
+        if (batch == null) {
+            checkError();
+            if (ring == null) {
+                start();
+            }
+            batch = ring.claim();
+            batch.count = 0;
+        }
+
+        batch.words[batch.count++] = word;
+        if (batch.count == BATCH_SIZE) {
+            flush();
+        }
+    }
+
+    @Override
+    public void emitLine(String line) {
+        drain();
+        emitter.emitLine(line);
+    }
+
+    @Override
+    public void emitString(String str) {
+        drain();
+        emitter.emitString(str);
+    }
+
+    @Override
+    public String getOutput() {
+        drain();
+        return emitter.getOutput();
+    }
+
+    /**
+     * Writes the rest of the words, stops the writer thread and closes the other emitter.
+     *
+     * @throws IOException if the other emitter failed
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            stop();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while writing the output.", e);
+        }
+
+        if (error instanceof UncheckedIOException) {
+            throw ((UncheckedIOException) error).getCause();
+        }
+        checkError();
+        emitter.close();
+    }
+
+    /**
+     * Stops the writer thread and aborts the other emitter. Does nothing after {@link #close()}.
+     */
+    @Override
+    public void abort() {
+        try {
+            stop();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            emitter.abort();
+        }
+    }
+
+    private void start() {
+        ring = new BatchRing<>(RING_CAPACITY, WordBatch::new);
+        var ring = this.ring;
+        writer = new Thread(() -> write(ring), "emitter");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Writes the rest of the words and waits until the writer thread ends.
+     */
+    private void stop() throws InterruptedException {
+        if (ring == null) {
+            return;
+        }
+
+        try {
+            flush();
+            batch = ring.claim();
+            batch.count = -1; // the end
+            ring.publish();
+            batch = null;
+            writer.join();
+        } finally {
+            ring = null;
+        }
+    }
+
+    private void flush() {
+        if (batch != null) {
+            ring.publish();
+            batch = null;
+        }
+    }
+
+    /**
+     * Waits until the writer thread writes all the emitted words.
+     */
+    private void drain() {
+        flush();
+        if (ring != null) {
+            ring.awaitDrained();
+        }
+        checkError();
+    }
+
+    private void checkError() {
+        if (error != null) {
+            throw error;
+        }
+    }
+
+    private void write(BatchRing<WordBatch> ring) {
+        while (true) {
+            var batch = ring.take();
+            if (batch.count == -1) {
+                ring.release();
+                return;
+            }
+
+            if (error == null) { // otherwise only keeps releasing the batches, so the parser isn't blocked
+                try {
+                    for (int i = 0; i < batch.count; i++) {
+                        emitter.emitWord(batch.words[i]);
+                    }
+                } catch (RuntimeException e) {
+                    error = e;
+                }
+            }
+            ring.release();
+        }
+    }
+
+    private static final class WordBatch {
+        final int[] words = new int[BATCH_SIZE];
+        int count;
+    }
+}
@@ -0,0 +1,132 @@
+package com.lukas.hackassembler.pipeline;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+
+/**
+ * A bounded single-producer/single-consumer ring of reusable batches, handing them from one thread to another
+ * without locks. The producer claims a free batch, fills it and publishes it, the consumer takes the published
+ * batches in the same order and releases each after processing it, which makes it free again. A full ring blocks
+ * the producer (the backpressure), an empty one the consumer - both spin for a while first, then park.
+ * <p>
+ * Anything written into a batch before it's published is visible to the consumer, and anything written before
+ * it's released to the producer.
+ *
+ * @param <B> type of the batches
+ */
+public final class BatchRing<B> {
+    private static final int SPINS = 100;
+    private static final long PARK_NANOS = 50_000; // the wake-up can be missed, so the wait is rechecked regularly
+
+    private final Object[] batches;
+    private final int mask;
+
+    private final AtomicLong published = new AtomicLong(); // batches published by the producer
+    private final AtomicLong released = new AtomicLong(); // batches released by the consumer
+    private long claimed; // producer only
+    private long taken; // consumer only
+
+    private volatile Thread producer;
+    private volatile Thread consumer;
+    private volatile boolean closed;
+
+    /**
+     * @param capacity number of the batches, a power of 2
+     * @param factory  creates each of the batches
+     */
+    public BatchRing(int capacity, Supplier<B> factory) {
+        if (capacity <= 0 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("The capacity has to be a power of 2: " + capacity);
+        }
+        batches = new Object[capacity];
+        for (int i = 0; i < capacity; i++) {
+            batches[i] = factory.get();
+        }
+        mask = capacity - 1;
+    }
+
+    /**
+     * Waits for a free batch (producer only). The same batch is returned until it's published.
+     *
+     * @return the batch to be filled, or null if the ring was closed
+     */
+    public B claim() {
+        for (int spins = 0; claimed - released.get() == batches.length; spins++) {
+            if (closed) {
+                return null;
+            }
+            producer = Thread.currentThread();
+            await(spins);
+        }
+        return closed ? null : batch(claimed);
+    }
+
+    /**
+     * Hands the claimed batch over to the consumer (producer only).
+     */
+    public void publish() {
+        published.lazySet(++claimed); // the ordered store is enough for a single reader
+        wakeUp(consumer);
+    }
+
+    /**
+     * Waits for the next published batch (consumer only). The same batch is returned until it's released.
+     *
+     * @return the batch to be processed
+     */
+    public B take() {
+        for (int spins = 0; taken == published.get(); spins++) {
+            consumer = Thread.currentThread();
+            await(spins);
+        }
+        return batch(taken);
+    }
+
+    /**
+     * Hands the taken batch back to the producer (consumer only).
+     */
+    public void release() {
+        released.lazySet(++taken);
+        wakeUp(producer);
+    }
+
+    /**
+     * Waits until the consumer releases all the published batches (producer only).
+     */
+    public void awaitDrained() {
+        for (int spins = 0; released.get() != claimed; spins++) {
+            producer = Thread.currentThread();
+            await(spins);
+        }
+    }
+
+    /**
+     * Stops the producer - its waiting {@link #claim()} returns null, and so will all the following ones.
+     */
+    public void close() {
+        closed = true;
+        wakeUp(producer);
+    }
+
+    @SuppressWarnings("unchecked")
+    private B batch(long sequence) {
+        return (B) batches[(int) (sequence & mask)];
+    }
+
+    private static void await(int spins) {
+        if (spins < SPINS) {
+            Thread.onSpinWait();
+        } else if (spins == SPINS) {
+            Thread.yield(); // another thread on the same core may be the one to wait for
+        } else {
+            LockSupport.parkNanos(PARK_NANOS);
+        }
+    }
+
+    private static void wakeUp(Thread thread) {
+        if (thread != null) {
+            LockSupport.unpark(thread);
+        }
+    }
+}
@@ -0,0 +1,198 @@
+package com.lukas.hackassembler.pipeline;
+
+import com.lukas.hackassembler.exception.LexerErrorException;
+import com.lukas.hackassembler.lex.Lexer;
+import com.lukas.hackassembler.model.TokenType;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A lexer tokenizing the input on its own thread, ahead of the parser. The tokens are handed over in batches through
+ * a {@link BatchRing}, so the lexing of the next tokens overlaps with the parsing of the previous ones. The tokens
+ * are the same as of the {@link Lexer}, and so are the errors - a lexer error is thrown when the parser gets to it,
+ * after all the tokens before it, with its original message (including the line).
+ * <p>
+ * The whole input has to be in a single buffer, because the spans of the tokens are used long after they're lexed.
+ * The lexer thread is started by the first token, and restarted by each {@link #reset()}. It ends by the end of
+ * the input, the first error, or {@link #close()}.
+ */
+public class PipelinedLexer extends Lexer implements AutoCloseable {
+    static final int BATCH_SIZE = 1024; // tokens
+    static final int RING_CAPACITY = 16; // batches
+
+    private static final TokenType[] TOKEN_TYPES = TokenType.values();
+
+    private final ByteBuffer input;
+    private final long inputOffset;
+    private final int firstLine;
+
+    private BatchRing<TokenBatch> ring; // of the current run, null until the first token
+    private TokenBatch batch; // taken from the ring
+    private int index; // of the current token in the batch
+    private boolean ended; // the EOF was reached
+
+    private TokenType tokenType;
+    private int tokenStart;
+    private int tokenLength;
+    private int tokenLine;
+
+    /**
+     * @param input the bytes between the position and the limit of the buffer are lexed (the buffer isn't modified)
+     */
+    public PipelinedLexer(ByteBuffer input) {
+        this(input, 0, 1);
+    }
+
+    /**
+     * Creates a lexer over a part of a bigger input, which starts at the beginning of a line.
+     *
+     * @param input       the bytes between the position and the limit of the buffer are lexed (the buffer isn't modified)
+     * @param inputOffset position of the part in the whole input
+     * @param firstLine   line (starting from 1) of the whole input the part starts at
+     * @see Lexer#Lexer(ByteBuffer, long, int)
+     */
+    public PipelinedLexer(ByteBuffer input, long inputOffset, int firstLine) {
+        super(input, inputOffset, firstLine);
+        this.input = input;
+        this.inputOffset = inputOffset;
+        this.firstLine = firstLine;
+    }
+
+    /**
+     * Stops the current lexer thread, the next token starts a new one from the start of the input.
+     */
+    @Override
+    public void reset() {
+        close(); // also called by the constructor of the lexer, before the fields are set
+        ring = null;
+        batch = null;
+        ended = false;
+    }
+
+    @Override
+    public TokenType nextToken() throws LexerErrorException {
+        if (ended) {
+            return tokenType; // the EOF again, as by the lexer
+        }
+        if (ring == null) {
+            start();
+        }
+        if (batch == null || index == batch.count) {
+            nextBatch();
+        }
+
+        tokenType = TOKEN_TYPES[batch.types[index]];
+        tokenStart = batch.starts[index];
+        tokenLength = batch.lengths[index];
+        tokenLine = batch.lines[index];
+        index++;
+        ended = tokenType == TokenType.EOF;
+        return tokenType;
+    }
+
+    @Override
+    public TokenType getTokenType() {
+        return tokenType;
+    }
+
+    @Override
+    public int getTokenStart() {
+        return tokenStart;
+    }
+
+    @Override
+    public int getTokenLength() {
+        return tokenLength;
+    }
+
+    @Override
+    public int getTokenLine() {
+        return tokenLine;
+    }
+
+    @Override
+    public String getTokenValue() {
+        return getText(tokenStart, tokenLength);
+    }
+
+    /**
+     * Stops the lexer thread, if it's still running.
+     */
+    @Override
+    public void close() {
+        if (ring != null) {
+            ring.close();
+        }
+    }
+
+    private void start() {
+        ring = new BatchRing<>(RING_CAPACITY, TokenBatch::new);
+        var lexer = new Lexer(input, inputOffset, firstLine);
+        var thread = new Thread(() -> produce(lexer, ring), "lexer");
+        thread.setDaemon(true); // a lexer of an abandoned parser can't keep the JVM running
+        thread.start();
+    }
+
+    private void nextBatch() throws LexerErrorException {
+        if (batch != null) {
+            if (batch.error != null) {
+                throw translate(batch.error); // again, if the parser ignored it
+            }
+            ring.release();
+        }
+        batch = ring.take();
+        index = 0;
+        if (batch.count == 0 && batch.error != null) {
+            throw translate(batch.error);
+        }
+    }
+
+    private static LexerErrorException translate(Throwable error) {
+        if (error instanceof LexerErrorException) {
+            return new LexerErrorException(error.getMessage()); // with the stack trace of the parser
+        }
+        throw new IllegalStateException("The lexer thread failed.", error);
+    }
+
+    /**
+     * Lexes the whole input into the batches, until the EOF or the first error (which ends its batch).
+     */
+    private static void produce(Lexer lexer, BatchRing<TokenBatch> ring) {
+        for (var ended = false; !ended; ) {
+            var batch = ring.claim();
+            if (batch == null) {
+                return; // closed by the parser
+            }
+
+            batch.count = 0;
+            batch.error = null;
+            try {
+                while (batch.count < BATCH_SIZE && !ended) {
+                    var type = lexer.nextToken();
+                    batch.types[batch.count] = (byte) type.ordinal();
+                    batch.starts[batch.count] = lexer.getTokenStart();
+                    batch.lengths[batch.count] = lexer.getTokenLength();
+                    batch.lines[batch.count] = lexer.getTokenLine();
+                    batch.count++;
+                    ended = type == TokenType.EOF;
+                }
+            } catch (LexerErrorException | RuntimeException e) {
+                batch.error = e;
+                ended = true;
+            }
+            ring.publish();
+        }
+    }
+
+    /**
+     * The spans of the tokens, followed by the error which stopped the lexing, if any.
+     */
+    private static final class TokenBatch {
+        final byte[] types = new byte[BATCH_SIZE];
+        final int[] starts = new int[BATCH_SIZE];
+        final int[] lengths = new int[BATCH_SIZE];
+        final int[] lines = new int[BATCH_SIZE];
+        int count;
+        Throwable error;
+    }
+}
@@ -0,0 +1,31 @@
+package com.lukas.hackassembler.stats;
+
+/**
+ * The phases of an assembly.
+ */
+public enum Phase {
+    /**
+     * Opening (memory-mapping) the input file. The pages are read lazily during the lexing.
+     */
+    READ,
+    /**
+     * The first pass, collecting the label addresses.
+     */
+    SCAN_LABELS,
+    /**
+     * The (second) pass lexing, parsing and encoding the instructions into the emitter.
+     */
+    ENCODE,
+    /**
+     * Allocating the variables and patching their references (single-pass and parallel parsing only).
+     */
+    RESOLVE_SYMBOLS,
+    /**
+     * Parsing into the statements and optimizing them (optimized assembly only, instead of the passes above).
+     */
+    OPTIMIZE,
+    /**
+     * Closing the emitter, which writes the rest of the output.
+     */
+    WRITE
+}
@@ -0,0 +1,42 @@
+package com.lukas.hackassembler.stats;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A JDK Flight Recorder event of one assembly phase. It's recorded only if enabled in the recording settings
+ * (eg. by "-XX:StartFlightRecording:settings=profile" or with the event name in a custom .jfc file).
+ */
+@Name("com.lukas.hackassembler.Phase")
+@Label("Assembly Phase")
+@Category("Hack Assembler")
+@Description("A phase of the assembly of one input")
+@StackTrace(false)
+class PhaseEvent extends jdk.jfr.Event {
+    @Label("Phase")
+    String phase;
+
+    @Label("Input")
+    String input;
+
+    @Label("Tokens")
+    long tokens;
+
+    @Label("Instructions")
+    int instructions;
+
+    @Label("Symbols")
+    int symbols;
+
+    @Label("Variables")
+    int variables;
+
+    @Label("Allocated")
+    @Description("Bytes allocated by the assembling thread during the phase")
+    @DataAmount
+    long allocatedBytes;
+}
@@ -0,0 +1,191 @@
+package com.lukas.hackassembler.stats;
+
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Measures the phases of an assembly - each of them is emitted as a {@link PhaseEvent} for the JDK Flight Recorder,
+ * and if collecting, also kept for {@link #print(PrintStream)}. A disabled instance costs only the (disabled) JFR
+ * events, which are a few calls per phase.
+ */
+public class PhaseStats {
+    private final String input;
+    private final boolean collecting;
+    private final List<Measurement> measurements = new ArrayList<>();
+
+    /**
+     * @param input      name of the assembled input, for the events
+     * @param collecting whether to keep the measurements for printing
+     */
+    public PhaseStats(String input, boolean collecting) {
+        this.input = input;
+        this.collecting = collecting;
+    }
+
+    /**
+     * @return stats emitting only the JFR events
+     */
+    public static PhaseStats disabled() {
+        return new PhaseStats(null, false);
+    }
+
+    /**
+     * Starts measuring a phase.
+     *
+     * @param phase the phase
+     * @return the measurement, to be passed to {@link #end}
+     */
+    public Measurement begin(Phase phase) {
+        var measurement = new Measurement(phase);
+        measurement.event.begin();
+        if (collecting || measurement.event.isEnabled()) {
+            measurement.startNanos = System.nanoTime();
+            measurement.allocatedBytes = allocatedBytes();
+        }
+        return measurement;
+    }
+
+    /**
+     * Ends measuring a phase.
+     *
+     * @param measurement  the measurement returned by {@link #begin}
+     * @param tokens       number of the tokens lexed during the phase
+     * @param instructions number of the instructions after the phase
+     * @param symbols      number of the (not built-in) symbols after the phase
+     * @param variables    number of the variables allocated after the phase
+     */
+    public void end(Measurement measurement, long tokens, int instructions, int symbols, int variables) {
+        var event = measurement.event;
+        event.end();
+        if (!collecting && !event.shouldCommit()) {
+            return;
+        }
+
+        measurement.elapsedNanos = System.nanoTime() - measurement.startNanos;
+        measurement.allocatedBytes = allocatedBytes() - measurement.allocatedBytes;
+        measurement.tokens = tokens;
+        measurement.instructions = instructions;
+        measurement.symbols = symbols;
+        measurement.variables = variables;
+
+        if (event.shouldCommit()) {
+            event.phase = measurement.phase.name();
+            event.input = input;
+            event.tokens = tokens;
+            event.instructions = instructions;
+            event.symbols = symbols;
+            event.variables = variables;
+            event.allocatedBytes = measurement.allocatedBytes;
+            event.commit();
+        }
+        if (collecting) {
+            measurements.add(measurement);
+        }
+    }
+
+    /**
+     * Prints a table of the collected phases.
+     *
+     * @param out stream to print into
+     */
+    public void print(PrintStream out) {
+        out.printf("%-16s %10s %10s %13s %8s %10s %15s%n",
+                "Phase", "Time [ms]", "Tokens", "Instructions", "Symbols", "Variables", "Allocated [KB]");
+        var totalNanos = 0L;
+        var totalTokens = 0L;
+        var totalAllocatedBytes = 0L;
+        for (var measurement : measurements) {
+            out.printf("%-16s %10.3f %10d %13d %8d %10d %15s%n", measurement.phase, measurement.elapsedNanos / 1e6,
+                    measurement.tokens, measurement.instructions, measurement.symbols, measurement.variables,
+                    formatKilobytes(measurement.allocatedBytes));
+            totalNanos += measurement.elapsedNanos;
+            totalTokens += measurement.tokens;
+            totalAllocatedBytes += measurement.allocatedBytes;
+        }
+        out.printf("%-16s %10.3f %10d %13s %8s %10s %15s%n", "TOTAL", totalNanos / 1e6, totalTokens, "", "", "",
+                formatKilobytes(totalAllocatedBytes));
+        out.println("(the allocations of the assembling thread only)");
+    }
+
+    List<Measurement> getMeasurements() {
+        return measurements;
+    }
+
+    private static String formatKilobytes(long bytes) {
+        return ThreadBean.THREADS == null ? "n/a" : String.format("%.1f", bytes / 1024.0);
+    }
+
+    private static long allocatedBytes() {
+        var threads = ThreadBean.THREADS;
+        return threads == null ? 0 : threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    /**
+     * The thread bean, initialized only when a phase is collected or recorded - the management beans are slow to
+     * start, and the disabled stats don't need them.
+     */
+    private static final class ThreadBean {
+        private static final com.sun.management.ThreadMXBean THREADS = threadBean();
+
+        private static com.sun.management.ThreadMXBean threadBean() {
+            var bean = ManagementFactory.getThreadMXBean();
+            if (bean instanceof com.sun.management.ThreadMXBean) { // HotSpot and the compatible JVMs
+                var threadBean = (com.sun.management.ThreadMXBean) bean;
+                if (threadBean.isThreadAllocatedMemorySupported() && threadBean.isThreadAllocatedMemoryEnabled()) {
+                    return threadBean;
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * A measurement of one phase.
+     */
+    public static final class Measurement {
+        private final Phase phase;
+        private final PhaseEvent event = new PhaseEvent();
+
+        private long startNanos;
+        private long elapsedNanos;
+        private long allocatedBytes;
+        private long tokens;
+        private int instructions;
+        private int symbols;
+        private int variables;
+
+        private Measurement(Phase phase) {
+            this.phase = phase;
+        }
+
+        public Phase getPhase() {
+            return phase;
+        }
+
+        public long getElapsedNanos() {
+            return elapsedNanos;
+        }
+
+        public long getTokens() {
+            return tokens;
+        }
+
+        public int getInstructions() {
+            return instructions;
+        }
+
+        public int getSymbols() {
+            return symbols;
+        }
+
+        public int getVariables() {
+            return variables;
+        }
+
+        public long getAllocatedBytes() {
+            return allocatedBytes;
+        }
+    }
+}
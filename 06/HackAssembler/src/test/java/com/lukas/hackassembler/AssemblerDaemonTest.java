@@ -0,0 +1,201 @@
+package com.lukas.hackassembler;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+
+public class AssemblerDaemonTest {
+    private static final long WATCH_TIMEOUT_MILLIS = 10_000;
+
+    private Path inputDir;
+    private Path tokenDir;
+    private AssemblerDaemon daemon;
+
+    @Before
+    public void setUp() throws IOException {
+        inputDir = Files.createTempDirectory("daemon");
+        tokenDir = Files.createTempDirectory("daemon-token");
+        Files.copy(Paths.get("src/test/resources/program.asm"), inputDir.resolve("program.asm"));
+
+        daemon = new AssemblerDaemon(List.of(inputDir), 0, tokenDir, null,
+                new PrintStream(new ByteArrayOutputStream(), true));
+        daemon.start();
+    }
+
+    @After
+    public void cleanUp() throws IOException {
+        daemon.close();
+        for (var dir : List.of(inputDir, tokenDir)) {
+            try (Stream<Path> paths = Files.walk(dir)) {
+                for (var path : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) {
+                    Files.delete(path);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testInitialAssembly() throws IOException {
+        var expectedOutput = Files.readString(Paths.get("src/test/resources/program.hack"));
+        var actualOutput = Files.readString(inputDir.resolve("program.hack")).replaceAll("\\r\\n?", "\n");
+        assertEquals(expectedOutput, actualOutput);
+    }
+
+    @Test
+    public void testClientRequest() throws IOException {
+        Files.copy(Paths.get("src/test/resources/Mult.asm"), inputDir.resolve("Mult.asm"));
+        Files.writeString(inputDir.resolve("Faulty.asm"), "@1\nD=X\n");
+
+        var output = new ByteArrayOutputStream();
+        var status = DaemonClient.run(new String[]{inputDir.resolve("Mult.asm").toString()}, daemon.getPort(),
+                tokenDir, new PrintStream(output, true));
+        assertEquals(0, status);
+        assertTrue(output.toString().contains("OK     " + inputDir.resolve("Mult.asm")));
+        assertTrue(output.toString().contains("Request handled in"));
+        assertTrue(Files.exists(inputDir.resolve("Mult.hack")));
+
+        status = DaemonClient.run(new String[]{inputDir.resolve("Faulty.asm").toString()}, daemon.getPort(),
+                tokenDir, new PrintStream(new ByteArrayOutputStream(), true));
+        assertEquals(1, status);
+    }
+
+    @Test
+    public void testUnreachableDaemon() throws IOException {
+        var port = daemon.getPort();
+        daemon.close();
+
+        var output = new ByteArrayOutputStream();
+        assertEquals(1, DaemonClient.run(new String[]{"program.asm"}, port, tokenDir, new PrintStream(output, true)));
+        assertTrue(output.toString(), output.toString().startsWith("The daemon")); // isn't reachable, or closed
+    }
+
+    @Test
+    public void testInvalidInputDoesNotStopDaemon() throws Exception {
+        var output = new ByteArrayOutputStream();
+        var status = DaemonClient.run(new String[]{inputDir + "/x["}, daemon.getPort(), tokenDir,
+                new PrintStream(output, true));
+        assertEquals(1, status);
+        assertTrue(output.toString(), output.toString().contains("The input couldn't be resolved"));
+
+        status = DaemonClient.run(new String[]{inputDir.resolve("program.asm").toString()}, daemon.getPort(), tokenDir,
+                new PrintStream(new ByteArrayOutputStream(), true));
+        assertEquals(0, status);
+
+        daemon.close();
+        assertTrue(daemon.join());
+    }
+
+    @Test
+    public void testRequestWithoutToken() throws IOException {
+        Files.copy(Paths.get("src/test/resources/Mult.asm"), inputDir.resolve("Mult.asm"));
+
+        var response = request("wrong", inputDir.resolve("Mult.asm").toString());
+        assertTrue(response, response.startsWith("The request doesn't have the token of the daemon."));
+        assertTrue(response, response.endsWith(AssemblerDaemon.EXIT_STATUS_PREFIX + 1));
+        assertFalse(Files.exists(inputDir.resolve("Mult.hack")));
+    }
+
+    @Test
+    public void testUnauthorizedRequestNotRead() throws IOException {
+        try (var socket = new Socket(InetAddress.getLoopbackAddress(), daemon.getPort())) {
+            socket.setSoTimeout(5_000); // the request isn't finished, the response comes right after the token
+            socket.getOutputStream().write("wrong\nsome input\n".getBytes(StandardCharsets.UTF_8));
+            var response = new String(socket.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+            assertTrue(response, response.startsWith("The request doesn't have the token of the daemon."));
+        }
+    }
+
+    @Test
+    public void testOversizedRequest() throws IOException {
+        var token = Files.readString(AssemblerDaemon.getTokenFile(tokenDir, daemon.getPort()));
+        var response = request(token, "x".repeat(10_000));
+        assertTrue(response, response.startsWith("The request couldn't be read - A line is longer than"));
+        assertTrue(response, response.endsWith(AssemblerDaemon.EXIT_STATUS_PREFIX + 1));
+
+        var inputs = (inputDir.resolve("program.asm") + "\n").repeat(10_001).strip();
+        response = request(token, inputs);
+        assertTrue(response, response.startsWith("The request has more than 10000 inputs."));
+    }
+
+    @Test
+    public void testTokenFileOnlyForOwner() throws IOException {
+        var tokenFile = AssemblerDaemon.getTokenFile(tokenDir, daemon.getPort());
+        assumeTrue(tokenFile.getFileSystem().supportedFileAttributeViews().contains("posix"));
+        assertEquals(PosixFilePermissions.fromString("rw-------"), Files.getPosixFilePermissions(tokenFile));
+
+        daemon.close();
+        assertFalse(Files.exists(tokenFile));
+    }
+
+    @Test
+    public void testInputsOutsideWatchedDirectories() throws IOException {
+        var otherDir = Files.createTempDirectory("other");
+        try {
+            Files.copy(Paths.get("src/test/resources/Mult.asm"), otherDir.resolve("Mult.asm"));
+            var output = new ByteArrayOutputStream();
+            var status = DaemonClient.run(new String[]{otherDir.resolve("Mult.asm").toString()}, daemon.getPort(),
+                    tokenDir, new PrintStream(output, true));
+            assertEquals(1, status);
+            assertTrue(output.toString(), output.toString().contains("FAILED " + otherDir.resolve("Mult.asm")));
+            assertFalse(Files.exists(otherDir.resolve("Mult.hack")));
+
+            // the file lists are read by the client, not by the daemon
+            var token = Files.readString(AssemblerDaemon.getTokenFile(tokenDir, daemon.getPort()));
+            var response = request(token, "@" + otherDir.resolve("Mult.asm"));
+            assertTrue(response, response.startsWith("The @file lists aren't accepted by the daemon"));
+            assertFalse(response, response.contains("product")); // no line of the file
+
+            var listFile = Files.writeString(otherDir.resolve("inputs.txt"), inputDir.resolve("program.asm") + "\n");
+            status = DaemonClient.run(new String[]{"@" + listFile}, daemon.getPort(), tokenDir,
+                    new PrintStream(new ByteArrayOutputStream(), true));
+            assertEquals(0, status);
+        } finally {
+            try (Stream<Path> paths = Files.walk(otherDir)) {
+                for (var path : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) {
+                    Files.delete(path);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testWatchedFileChange() throws IOException, InterruptedException {
+        Files.createDirectory(inputDir.resolve("nested"));
+        Thread.sleep(100); // the new directory gets registered
+        Files.copy(Paths.get("src/test/resources/Mult.asm"), inputDir.resolve("nested/Mult.asm"));
+
+        var outputFile = inputDir.resolve("nested/Mult.hack");
+        var deadline = System.currentTimeMillis() + WATCH_TIMEOUT_MILLIS;
+        var expectedOutput = Files.readString(Paths.get("src/test/resources/Mult.hack"));
+        while (!(Files.exists(outputFile)
+                && Files.readString(outputFile).replaceAll("\\r\\n?", "\n").equals(expectedOutput))) {
+            assertTrue("The changed file wasn't assembled in time.", System.currentTimeMillis() < deadline);
+            Thread.sleep(20);
+        }
+    }
+
+    private String request(String token, String input) throws IOException {
+        try (var socket = new Socket(InetAddress.getLoopbackAddress(), daemon.getPort())) {
+            var request = token + "\n" + input + "\n\n";
+            socket.getOutputStream().write(request.getBytes(StandardCharsets.UTF_8));
+            return new String(socket.getInputStream().readAllBytes(), StandardCharsets.UTF_8).strip();
+        }
+    }
+}
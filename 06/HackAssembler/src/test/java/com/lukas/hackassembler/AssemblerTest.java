@@ -1,5 +1,6 @@
 package com.lukas.hackassembler;
 
+import com.lukas.hackassembler.emit.RomLoader;
 import org.junit.After;
 import org.junit.Test;
 
@@ -69,4 +70,21 @@ public class AssemblerTest {
 
         System.out.println("The output file is correct.");
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testAssemblerWithBinaryOutput() throws IOException {
+        System.out.println("Assembler - args['--binary', 'src/test/resources/program.asm', 'myProgram.hackbin']");
+
+        Assembler.main(new String[]{"--binary", "src/test/resources/program.asm", "myProgram.hackbin"});
+
+        Path outputPath = Paths.get("myProgram.hackbin");
+
+        assertTrue(Files.exists(outputPath));
+        assertArrayEquals(RomLoader.load(Paths.get("src/test/resources/program.hack")), RomLoader.load(outputPath));
+
+        Files.delete(outputPath);
+        assertFalse(Files.exists(outputPath));
+
+        System.out.println("The output file is correct.");
+    }
+}
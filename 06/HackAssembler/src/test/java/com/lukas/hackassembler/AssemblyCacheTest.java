@@ -0,0 +1,122 @@
+package com.lukas.hackassembler;
+
+import com.lukas.hackassembler.exception.EmitterErrorException;
+import com.lukas.hackassembler.exception.LexerErrorException;
+import com.lukas.hackassembler.exception.ParserErrorException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.*;
+
+public class AssemblyCacheTest {
+    private Path tempDir;
+    private Path inputFile;
+    private String outputName;
+
+    @Before
+    public void setUp() throws IOException {
+        tempDir = Files.createTempDirectory("cache");
+        inputFile = tempDir.resolve("program.asm");
+        Files.copy(Paths.get("src/test/resources/program.asm"), inputFile);
+        outputName = tempDir.resolve("program").toString();
+    }
+
+    @After
+    public void cleanUp() throws IOException {
+        try (Stream<Path> paths = Files.walk(tempDir)) {
+            for (var path : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    @Test
+    public void testHitAndMiss() throws IOException, LexerErrorException, ParserErrorException, EmitterErrorException {
+        var cache = new AssemblyCache(tempDir.resolve("cache"), AssemblyCache.DEFAULT_MAX_SIZE);
+        var outputFile = tempDir.resolve("program.hack");
+        var expectedOutput = Files.readString(Paths.get("src/test/resources/program.hack"));
+
+        var instructionCount = Assembler.assemble(inputFile, outputName, false, cache);
+        assertEquals(0, cache.getHits());
+        assertEquals(1, cache.getMisses());
+
+        Files.delete(outputFile);
+        assertEquals(instructionCount, Assembler.assemble(inputFile, outputName, false, cache));
+        assertEquals(1, cache.getHits());
+        assertEquals(expectedOutput, Files.readString(outputFile).replaceAll("\\r\\n?", "\n"));
+
+        Files.writeString(inputFile, "@1\n", StandardOpenOption.APPEND);
+        assertEquals(instructionCount + 1, Assembler.assemble(inputFile, outputName, false, cache));
+        assertEquals(2, cache.getMisses());
+    }
+
+    @Test
+    public void testFailedAssemblyNotCached() throws IOException {
+        var cache = new AssemblyCache(tempDir.resolve("cache"), AssemblyCache.DEFAULT_MAX_SIZE);
+        Files.writeString(inputFile, "D=X\n");
+
+        assertThrows(ParserErrorException.class, () -> Assembler.assemble(inputFile, outputName, false, cache));
+        assertThrows(ParserErrorException.class, () -> Assembler.assemble(inputFile, outputName, false, cache));
+        assertEquals(0, cache.getHits());
+    }
+
+    @Test
+    public void testLeastRecentlyUsedEviction() throws IOException, LexerErrorException, ParserErrorException, EmitterErrorException, InterruptedException {
+        var entrySize = Files.size(Paths.get("src/test/resources/program.hack"));
+        var cache = new AssemblyCache(tempDir.resolve("cache"), entrySize * 2 + entrySize / 2); // for 2 entries
+
+        Path[] inputs = new Path[3];
+        for (int i = 0; i < inputs.length; i++) {
+            inputs[i] = tempDir.resolve("program" + i + ".asm");
+            Files.writeString(inputs[i], Files.readString(inputFile) + "\n// variant " + i + "\n");
+            Assembler.assemble(inputs[i], outputName, false, cache);
+            Thread.sleep(20); // distinct modification times
+            if (i == 1) {
+                Assembler.assemble(inputs[0], outputName, false, cache); // the first one is used again
+                Thread.sleep(20);
+            }
+        }
+
+        assertEquals(1, cache.getEvictions());
+        var hits = cache.getHits();
+        Assembler.assemble(inputs[0], outputName, false, cache);
+        Assembler.assemble(inputs[2], outputName, false, cache);
+        assertEquals(hits + 2, cache.getHits());
+        Assembler.assemble(inputs[1], outputName, false, cache); // the evicted one
+        assertEquals(hits + 2, cache.getHits());
+    }
+
+    @Test
+    public void testKeyChangesWithVersion() throws IOException {
+        var key = new AssemblyCache(tempDir.resolve("cache"), AssemblyCache.DEFAULT_MAX_SIZE, "1.0.0").key(inputFile);
+        assertEquals(key, new AssemblyCache(tempDir.resolve("cache"), AssemblyCache.DEFAULT_MAX_SIZE, "1.0.0")
+                .key(inputFile));
+        assertNotEquals(key, new AssemblyCache(tempDir.resolve("cache"), AssemblyCache.DEFAULT_MAX_SIZE, "1.0.1")
+                .key(inputFile));
+
+        // the classes of the tests have no manifest, the build time stands for the version
+        assertTrue(AssemblyCache.getAssemblerVersion().matches("dev\\+\\d+"));
+    }
+
+    @Test
+    public void testBatchStatistics() throws IOException {
+        var cache = new AssemblyCache(tempDir.resolve("cache"), AssemblyCache.DEFAULT_MAX_SIZE);
+        var inputs = new String[]{inputFile.toString()};
+
+        BatchAssembler.run(inputs, new PrintStream(new ByteArrayOutputStream()), cache);
+        var output = new ByteArrayOutputStream();
+        assertEquals(0, BatchAssembler.run(inputs, new PrintStream(output, true), cache));
+        assertTrue(output.toString().contains("Cache: 1 hits, 1 misses, 0 evictions."));
+    }
+}
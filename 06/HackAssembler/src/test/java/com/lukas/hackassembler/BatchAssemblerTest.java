@@ -0,0 +1,90 @@
+package com.lukas.hackassembler;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.*;
+
+public class BatchAssemblerTest {
+    private Path inputDir;
+
+    @Before
+    public void setUp() throws IOException {
+        inputDir = Files.createTempDirectory("batch");
+        Files.copy(Paths.get("src/test/resources/program.asm"), inputDir.resolve("program.asm"));
+        Files.createDirectory(inputDir.resolve("nested"));
+        Files.copy(Paths.get("src/test/resources/Mult.asm"), inputDir.resolve("nested/Mult.asm"));
+    }
+
+    @After
+    public void cleanUp() throws IOException {
+        try (Stream<Path> paths = Files.walk(inputDir)) {
+            for (var path : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    @Test
+    public void testDirectoryInput() throws IOException {
+        var output = new ByteArrayOutputStream();
+        assertEquals(0, BatchAssembler.run(new String[]{inputDir.toString()}, new PrintStream(output), null));
+
+        assertOutputFile("program.hack", inputDir.resolve("program.hack"));
+        assertOutputFile("Mult.hack", inputDir.resolve("nested/Mult.hack"));
+        assertTrue(output.toString().contains("Assembled 2 of 2 files (0 failed)."));
+    }
+
+    @Test
+    public void testFailedFileDoesNotStopOthers() throws IOException {
+        Files.writeString(inputDir.resolve("broken.asm"), "@2\n@ 3\n");
+
+        var output = new ByteArrayOutputStream();
+        assertEquals(1, BatchAssembler.run(new String[]{inputDir.toString()}, new PrintStream(output), null));
+
+        assertOutputFile("program.hack", inputDir.resolve("program.hack"));
+        assertOutputFile("Mult.hack", inputDir.resolve("nested/Mult.hack"));
+        assertTrue(output.toString().contains("FAILED " + inputDir.resolve("broken.asm") + ": Lexer error"));
+        assertTrue(output.toString().contains("Assembled 2 of 3 files (1 failed)."));
+    }
+
+    @Test
+    public void testInvalidInputDoesNotStopOthers() {
+        var output = new ByteArrayOutputStream();
+        var inputs = new String[]{inputDir + "/x[", "bad\0path", inputDir.toString()};
+        assertEquals(1, BatchAssembler.run(inputs, new PrintStream(output), null));
+
+        assertTrue(output.toString().contains("FAILED " + inputDir + "/x[: The input couldn't be resolved"));
+        assertTrue(output.toString().contains("Assembled 2 of 4 files (2 failed)."));
+    }
+
+    @Test
+    public void testGlobAndFileListInputs() throws IOException {
+        assertEquals(List.of(inputDir.resolve("nested/Mult.asm")),
+                BatchAssembler.resolveInput(inputDir + "/*/*.asm"));
+
+        var fileList = inputDir.resolve("inputs.txt");
+        Files.writeString(fileList, inputDir.resolve("program.asm") + "\n\n" + inputDir.resolve("nested") + "\n");
+        assertEquals(List.of(inputDir.resolve("program.asm"), inputDir.resolve("nested/Mult.asm")),
+                BatchAssembler.resolveInput("@" + fileList));
+    }
+
+    // PRIVATE HELPER METHODS
+
+    private static void assertOutputFile(String expectedResource, Path outputFile) throws IOException {
+        var expectedOutput = Files.readString(Paths.get("src/test/resources", expectedResource));
+        var actualOutput = Files.readString(outputFile).replaceAll("\\r\\n?", "\n"); // platform independent
+        assertEquals(expectedOutput, actualOutput);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,55 @@
+package com.lukas.hackassembler;
+
+import com.lukas.hackassembler.hdl.HdlCache;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.*;
+
+public class ChipVerificationTest {
+    @Test
+    public void testVerify() {
+        var output = new ByteArrayOutputStream();
+        assertEquals(0, ChipVerification.run(new String[]{"../..", "Xor", "DMux8Way"}, new PrintStream(output)));
+        assertTrue(output.toString().contains("OK     Xor (4 exhaustive vectors, "));
+        assertTrue(output.toString().contains("OK     DMux8Way (16 exhaustive vectors, "));
+        assertTrue(output.toString().contains("Verified 2 of 2 chips (0 failed), 20 vectors at "));
+    }
+
+    @Test
+    public void testCache() throws IOException {
+        var dir = Files.createTempDirectory("hdl");
+        try {
+            var args = new String[]{"../..", "Xor", "DMux8Way"};
+            assertEquals(0, ChipVerification.run(args, new PrintStream(new ByteArrayOutputStream()),
+                    new HdlCache(dir)));
+
+            var output = new ByteArrayOutputStream();
+            assertEquals(0, ChipVerification.run(args, new PrintStream(output), new HdlCache(dir)));
+            assertTrue(output.toString().contains("Verified 2 of 2 chips (0 failed), 20 vectors at "));
+            // the chips are only hashed, parsed from the cache, not elaborated
+            assertTrue(output.toString().contains(" chip hits, 0 chip misses, 2 netlist hits, 0 netlist misses."));
+        } finally {
+            try (Stream<Path> paths = Files.walk(dir)) {
+                for (var path : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) {
+                    Files.delete(path);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testUnknownChip() {
+        var output = new ByteArrayOutputStream();
+        assertEquals(1, ChipVerification.run(new String[]{"../..", "Not", "CPU"}, new PrintStream(output)));
+        assertTrue(output.toString().contains("FAILED CPU: There's no reference model of the chip 'CPU'."));
+        assertTrue(output.toString().contains("Verified 1 of 2 chips (1 failed)"));
+    }
+}
@@ -0,0 +1,106 @@
+package com.lukas.hackassembler;
+
+import com.lukas.hackassembler.link.ObjectModule;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.*;
+
+public class ModuleLinkerTest {
+    private Path dir;
+    private Path first;
+    private Path second;
+
+    @Before
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("modules");
+        var lines = Files.readAllLines(Paths.get("src/test/resources/program.asm"));
+        first = dir.resolve("first.asm");
+        second = dir.resolve("second.asm");
+        Files.write(first, lines.subList(0, lines.size() / 2));
+        Files.write(second, lines.subList(lines.size() / 2, lines.size()));
+    }
+
+    @After
+    public void cleanUp() throws IOException {
+        try (Stream<Path> paths = Files.walk(dir)) {
+            for (var path : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    @Test
+    public void testOnlyChangedModulesAssembled() throws IOException {
+        var output = new ByteArrayOutputStream();
+        assertEquals(0, link(output, first.toString(), second.toString()));
+        assertTrue(output.toString().contains("from 2 modules (2 assembled)."));
+        assertOutputFile();
+
+        // the objects are newer than the sources now
+        setModified(first, 1_000);
+        setModified(second, 1_000);
+        setModified(objectOf(first), 2_000);
+        setModified(objectOf(second), 2_000);
+        output.reset();
+        assertEquals(0, link(output, first.toString(), second.toString()));
+        assertTrue(output.toString().contains("from 2 modules (0 assembled)."));
+        assertOutputFile();
+
+        setModified(second, 3_000);
+        output.reset();
+        assertEquals(0, link(output, first.toString(), second.toString()));
+        assertTrue(output.toString().contains("from 2 modules (1 assembled)."));
+        assertOutputFile();
+    }
+
+    @Test
+    public void testObjectInputs() throws IOException {
+        assertEquals(0, link(new ByteArrayOutputStream(), first.toString(), second.toString()));
+        Files.delete(dir.resolve("program.hack"));
+
+        assertEquals(0, link(new ByteArrayOutputStream(), objectOf(first).toString(), objectOf(second).toString()));
+        assertOutputFile();
+    }
+
+    @Test
+    public void testLinkerError() throws IOException {
+        var loop = dir.resolve("loop.asm");
+        Files.writeString(loop, "(LOOP)\n@LOOP\n0;JMP\n");
+
+        var output = new ByteArrayOutputStream();
+        assertEquals(1, link(output, loop.toString(), loop.toString()));
+        assertTrue(output.toString().startsWith("Linker error: The label 'LOOP' is declared by both loop.asm and loop.asm."));
+    }
+
+    // PRIVATE HELPER METHODS
+
+    private int link(ByteArrayOutputStream output, String... inputs) {
+        return ModuleLinker.run(dir.resolve("program").toString(), inputs, new PrintStream(output));
+    }
+
+    private static Path objectOf(Path inputFile) {
+        return Paths.get(Assembler.getOutputNameNextTo(inputFile) + ObjectModule.FILE_EXTENSION);
+    }
+
+    private static void setModified(Path file, long seconds) throws IOException {
+        Files.setLastModifiedTime(file, FileTime.fromMillis(seconds * 1000));
+    }
+
+    private void assertOutputFile() throws IOException {
+        var expectedOutput = Files.readString(Paths.get("src/test/resources/program.hack"));
+        var actualOutput = Files.readString(dir.resolve("program.hack")).replaceAll("\\r\\n?", "\n");
+        assertEquals(expectedOutput, actualOutput);
+    }
+}
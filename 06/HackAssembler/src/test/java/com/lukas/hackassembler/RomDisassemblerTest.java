@@ -0,0 +1,66 @@
+package com.lukas.hackassembler;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import static org.junit.Assert.*;
+
+public class RomDisassemblerTest {
+    private Path dir;
+
+    @Before
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("roms");
+        Files.copy(Paths.get("src/test/resources/Mult.hack"), dir.resolve("Mult.hack"));
+    }
+
+    @After
+    public void cleanUp() throws IOException {
+        try (var files = Files.list(dir)) {
+            for (var file : (Iterable<Path>) files::iterator) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(dir);
+    }
+
+    @Test
+    public void testVerify() {
+        var output = new ByteArrayOutputStream();
+        assertEquals(0, RomDisassembler.run(new String[]{"--verify", dir.resolve("Mult.hack").toString(),
+                "src/test/resources/program.hack"}, new PrintStream(output)));
+        assertTrue(output.toString().contains("Verified 2 of 2 files (0 failed)."));
+    }
+
+    @Test
+    public void testVerifyInvalidWord() throws IOException {
+        Files.writeString(dir.resolve("invalid.hack"), "0000000000000011\n1000000000000000\n");
+
+        var output = new ByteArrayOutputStream();
+        assertEquals(1, RomDisassembler.run(new String[]{"--verify", dir.resolve("invalid.hack").toString()},
+                new PrintStream(output)));
+        assertTrue(output.toString().contains("The word at the address 1 isn't an instruction - "
+                + "// not an instruction: 1000000000000000"));
+    }
+
+    @Test
+    public void testDisassemble() throws Exception {
+        var output = new ByteArrayOutputStream();
+        assertEquals(1, RomDisassembler.run(new String[]{dir.resolve("Mult.hack").toString(),
+                dir.resolve("missing.hack").toString()}, new PrintStream(output)));
+        assertTrue(output.toString().contains("Disassembled 1 of 2 files (1 failed)."));
+
+        // the disassembly is assembled into the same ROM
+        Assembler.assemble(dir.resolve("Mult.dis.asm"), dir.resolve("Mult.dis").toString());
+        assertEquals(Files.readString(dir.resolve("Mult.hack")),
+                Files.readString(dir.resolve("Mult.dis.hack")).replaceAll("\\r\\n?", "\n")); // platform independent
+    }
+}
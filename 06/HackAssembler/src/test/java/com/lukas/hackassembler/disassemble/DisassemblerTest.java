@@ -0,0 +1,68 @@
+package com.lukas.hackassembler.disassemble;
+
+import com.lukas.hackassembler.emit.RomEmitter;
+import com.lukas.hackassembler.exception.EmitterErrorException;
+import com.lukas.hackassembler.exception.LexerErrorException;
+import com.lukas.hackassembler.exception.ParserErrorException;
+import com.lukas.hackassembler.lex.Lexer;
+import com.lukas.hackassembler.parse.Parser;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class DisassemblerTest {
+    @Test
+    public void testInstructions() {
+        assertEquals("@0", Disassembler.disassemble(0));
+        assertEquals("@32767", Disassembler.disassemble(0x7FFF));
+        assertEquals("D=M", Disassembler.disassemble(0b111_1_110000_010_000));
+        assertEquals("0;JMP", Disassembler.disassemble(0b111_0_101010_000_111));
+        assertEquals("AMD=D|M;JLE", Disassembler.disassemble(0b111_1_010101_111_110));
+        assertEquals("D", Disassembler.disassemble(0b111_0_001100_000_000));
+        assertEquals("D=M", Disassembler.disassemble(0xFFFF_0000 | 0b111_1_110000_010_000)); // only the lowest 16 bits
+    }
+
+    @Test
+    public void testInvalidWords() {
+        assertFalse(Disassembler.isInstruction(0b100_0_101010_000_111)); // the unused bits aren't set
+        assertFalse(Disassembler.isInstruction(0b111_0_000001_010_000)); // the computation has no mnemonic
+        assertEquals("// not an instruction: 1110000001010000", Disassembler.disassemble(0b111_0_000001_010_000));
+        assertTrue(Disassembler.isInstruction(0b111_0_101010_000_111));
+    }
+
+    @Test
+    public void testAllWordsReassembled() throws LexerErrorException, ParserErrorException, EmitterErrorException {
+        var words = new short[1 << 16];
+        var count = 0;
+        for (int word = 0; word < 1 << 16; word++) {
+            if (Disassembler.isInstruction(word)) {
+                words[count++] = (short) word;
+            }
+        }
+        assertEquals((1 << 15) + 28 * 8 * 8, count);
+
+        var emitter = new RomEmitter();
+        new Parser(new Lexer(Disassembler.disassemble(Arrays.copyOf(words, count))), emitter).parse();
+        assertArrayEquals(Arrays.copyOf(words, count), emitter.getWords());
+    }
+
+    @Test
+    public void testStreamSameAsArray() throws IOException {
+        var words = new short[100_000]; // a lot more than fits into the buffer
+        for (int i = 0; i < words.length; i++) {
+            words[i] = (short) (i * 7919);
+        }
+
+        var output = new ByteArrayOutputStream();
+        Disassembler.disassemble(words, Channels.newChannel(output));
+        assertArrayEquals(Disassembler.disassemble(words), output.toByteArray());
+    }
+}
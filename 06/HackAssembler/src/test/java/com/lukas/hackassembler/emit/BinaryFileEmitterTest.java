@@ -0,0 +1,62 @@
+package com.lukas.hackassembler.emit;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+import static org.junit.Assert.*;
+
+public class BinaryFileEmitterTest {
+    @Test
+    public void testBinaryFileEmitterInitialization() throws IOException {
+        var emitter = new BinaryFileEmitter("test");
+        assertEquals("test.hackbin", emitter.getFilename());
+        emitter.close();
+        var emitterPath = Paths.get("test.hackbin");
+        assertEquals(0, Files.size(emitterPath)); // even an empty program has its file
+        Files.delete(emitterPath);
+
+        assertThrows(NullPointerException.class, () -> new BinaryFileEmitter(null));
+    }
+
+    @Test
+    public void testEmitWord() throws IOException {
+        var emitter = new BinaryFileEmitter("output");
+        emitter.emitWord(3);
+        emitter.emitWord(0b1110_1111_1100_1000);
+        assertEquals("0000000000000011\n1110111111001000\n", emitter.getOutput());
+        emitter.close();
+
+        assertArrayEquals(new byte[]{0, 3, (byte) 0b1110_1111, (byte) 0b1100_1000},
+                Files.readAllBytes(Paths.get("output.hackbin")));
+        Files.delete(Paths.get("output.hackbin"));
+    }
+
+    @Test
+    public void testOnlyWords() throws IOException {
+        var emitter = new BinaryFileEmitter("output");
+        assertThrows(UnsupportedOperationException.class, () -> emitter.emitLine("0000000000000011"));
+        assertThrows(UnsupportedOperationException.class, () -> emitter.emitString("0000000000000011"));
+        emitter.close();
+        Files.delete(Paths.get("output.hackbin"));
+    }
+
+    @Test
+    public void testStreamingLargeOutput() throws IOException {
+        var emitter = new BinaryFileEmitter("output");
+        var wordCount = 100_000; // a lot more than fits into the buffer
+        for (int i = 0; i < wordCount; i++) {
+            emitter.emitWord(i);
+        }
+        emitter.close();
+
+        var words = RomLoader.loadBinary(Paths.get("output.hackbin"));
+        assertEquals(wordCount, words.length);
+        for (int i = 0; i < wordCount; i++) {
+            assertEquals((short) i, words[i]);
+        }
+        Files.delete(Paths.get("output.hackbin"));
+    }
+}
@@ -4,6 +4,7 @@ import org.junit.After;
 import org.junit.Test;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
 
 public class ConsoleEmitterTest {
     @After
@@ -13,7 +14,7 @@ public class ConsoleEmitterTest {
 
     @Test
     public void testEmitLine() {
-        var emitter = new ConsoleEmitter();
+        var emitter = new ConsoleEmitter(true);
         emitter.emitLine("line");
         assertEquals("line\n", emitter.getOutput());
         emitter.close();
@@ -21,9 +22,26 @@ public class ConsoleEmitterTest {
 
     @Test
     public void testEmitString() {
-        var emitter = new ConsoleEmitter();
+        var emitter = new ConsoleEmitter(true);
         emitter.emitString("some string");
         assertEquals("some string", emitter.getOutput());
         emitter.close();
     }
+
+    @Test
+    public void testEmitWord() {
+        var emitter = new ConsoleEmitter(true);
+        emitter.emitWord(3);
+        emitter.emitWord(0b1110_1111_1100_1000);
+        assertEquals("0000000000000011\n1110111111001000\n", emitter.getOutput());
+        emitter.close();
+    }
+
+    @Test
+    public void testOutputNotRetained() {
+        var emitter = new ConsoleEmitter();
+        emitter.emitWord(3);
+        assertThrows(UnsupportedOperationException.class, emitter::getOutput);
+        emitter.close();
+    }
 }
\ No newline at end of file
@@ -1,10 +1,16 @@
 package com.lukas.hackassembler.emit;
 
+import com.lukas.hackassembler.exception.ParserErrorException;
+import com.lukas.hackassembler.lex.Lexer;
+import com.lukas.hackassembler.parse.Parser;
 import org.junit.Test;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.stream.Stream;
 
 import static org.junit.Assert.*;
 
@@ -41,6 +47,44 @@ public class FileEmitterTest {
         Files.delete(Paths.get("output.hack"));
     }
 
+    @Test
+    public void testEmitWord() throws IOException {
+        var emitter = new FileEmitter("output");
+        emitter.emitWord(3);
+        emitter.emitWord(0b1110_1111_1100_1000);
+        assertEquals("0000000000000011\n1110111111001000\n", emitter.getOutput());
+        emitter.close();
+        Files.delete(Paths.get("output.hack"));
+    }
+
+    @Test
+    public void testRetainedOutput() throws IOException {
+        var emitter = new FileEmitter("output", true);
+        emitter.emitString("one ");
+        emitter.emitLine("two");
+        emitter.emitWord(3);
+        assertEquals("one two\n0000000000000011\n", emitter.getOutput());
+        emitter.close();
+        Files.delete(Paths.get("output.hack"));
+    }
+
+    @Test
+    public void testStreamingLargeOutput() throws IOException {
+        var emitter = new FileEmitter("output");
+        var wordCount = 100_000; // a lot more than fits into the buffer
+        for (int i = 0; i < wordCount; i++) {
+            emitter.emitWord(i);
+        }
+        emitter.close();
+
+        var lines = Files.readAllLines(Paths.get("output.hack"));
+        assertEquals(wordCount, lines.size());
+        assertEquals("0000000000000000", lines.get(0));
+        assertEquals(String.format("%16s", Integer.toBinaryString((wordCount - 1) & 0xFFFF)).replace(" ", "0"),
+                lines.get(wordCount - 1));
+        Files.delete(Paths.get("output.hack"));
+    }
+
     @Test
     public void testCheckEmittedFile() throws IOException {
         var emitter = new FileEmitter("output");
@@ -51,4 +95,36 @@ public class FileEmitterTest {
         var fileContent = Files.readString(Paths.get("output.hack")).replaceAll("\\r\\n?", "\n"); // platform independent
         assertEquals("one two\n", fileContent);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testFailedParseKeepsPreviousOutput() throws Exception {
+        Files.writeString(Paths.get("output.hack"), "previous");
+        var program = new StringBuilder();
+        for (int i = 0; i < 10_000; i++) { // way over the buffer before the error
+            program.append("@").append(i).append("\nD=M\n");
+        }
+        program.append("D=X\n");
+
+        var emitter = new FileEmitter("output");
+        var parser = new Parser(new Lexer(program.toString().getBytes(StandardCharsets.US_ASCII)), emitter);
+        assertThrows(ParserErrorException.class, parser::parse);
+
+        assertEquals("previous", Files.readString(Paths.get("output.hack")));
+        try (Stream<Path> files = Files.list(Paths.get(""))) {
+            assertTrue(files.noneMatch(file -> file.getFileName().toString().startsWith("output.hack.")));
+        }
+        Files.delete(Paths.get("output.hack"));
+    }
+
+    @Test
+    public void testAbort() throws IOException {
+        Files.writeString(Paths.get("output.hack"), "previous");
+        var emitter = new FileEmitter("output");
+        emitter.emitWord(3);
+        assertEquals("0000000000000011\n", emitter.getOutput().replaceAll("\\r\\n?", "\n"));
+        emitter.abort();
+        emitter.close(); // nothing to do after the abort
+        assertEquals("previous", Files.readString(Paths.get("output.hack")));
+        Files.delete(Paths.get("output.hack"));
+    }
+}
@@ -20,4 +20,13 @@ public class InMemoryEmitterTest {
         assertEquals("some string", emitter.getOutput());
         emitter.close();
     }
+
+    @Test
+    public void testEmitWord() {
+        var emitter = new InMemoryEmitter();
+        emitter.emitWord(3);
+        emitter.emitWord(0b1110_1111_1100_1000);
+        assertEquals("0000000000000011\n1110111111001000\n", emitter.getOutput());
+        emitter.close();
+    }
 }
\ No newline at end of file
@@ -0,0 +1,40 @@
+package com.lukas.hackassembler.emit;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+
+public class RomEmitterTest {
+    @Test
+    public void testEmitWord() {
+        var emitter = new RomEmitter();
+        emitter.emitWord(3);
+        emitter.emitWord(0b1110_1010_1000_0111);
+
+        assertEquals(2, emitter.getWordCount());
+        assertEquals(3, emitter.getWord(0));
+        assertEquals(0b1110_1010_1000_0111, emitter.getWord(1));
+        assertArrayEquals(new short[]{3, (short) 0b1110_1010_1000_0111}, emitter.getWords());
+        assertEquals("0000000000000011\n1110101010000111\n", emitter.getOutput());
+        assertThrows(IndexOutOfBoundsException.class, () -> emitter.getWord(2));
+    }
+
+    @Test
+    public void testGrowing() {
+        var emitter = new RomEmitter();
+        for (int i = 0; i < 5000; i++) {
+            emitter.emitWord(i);
+        }
+        assertEquals(5000, emitter.getWordCount());
+        assertEquals(4999, emitter.getWord(4999));
+    }
+
+    @Test
+    public void testOnlyWords() {
+        var emitter = new RomEmitter();
+        assertThrows(UnsupportedOperationException.class, () -> emitter.emitLine("0000000000000011"));
+        assertThrows(UnsupportedOperationException.class, () -> emitter.emitString("0000000000000011"));
+    }
+}
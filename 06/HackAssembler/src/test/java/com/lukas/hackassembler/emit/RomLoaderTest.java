@@ -0,0 +1,76 @@
+package com.lukas.hackassembler.emit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import static org.junit.Assert.*;
+
+public class RomLoaderTest {
+    private Path dir;
+
+    @Before
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("rom");
+    }
+
+    @After
+    public void cleanUp() throws IOException {
+        try (var files = Files.list(dir)) {
+            for (var file : (Iterable<Path>) files::iterator) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(dir);
+    }
+
+    @Test
+    public void testTextAndBinarySame() throws IOException {
+        var words = RomLoader.load(Paths.get("src/test/resources/Mult.hack"));
+        assertEquals(Files.readAllLines(Paths.get("src/test/resources/Mult.hack")).size(), words.length);
+
+        var emitter = new BinaryFileEmitter(dir.resolve("Mult").toString());
+        for (var word : words) {
+            emitter.emitWord(word);
+        }
+        emitter.close();
+
+        var binaryFile = dir.resolve("Mult" + BinaryFileEmitter.OUTPUT_FILE_EXTENSION);
+        assertEquals(words.length * 2, Files.size(binaryFile));
+        assertArrayEquals(words, RomLoader.load(binaryFile));
+        assertEquals(Files.readString(Paths.get("src/test/resources/Mult.hack")), emitter.getOutput());
+    }
+
+    @Test
+    public void testLineSeparators() throws IOException {
+        var file = dir.resolve("rom.hack");
+        Files.writeString(file, "0000000000000011\r\n1110111111001000\n0111111111111111");
+        assertArrayEquals(new short[]{3, (short) 0b1110_1111_1100_1000, Short.MAX_VALUE}, RomLoader.loadText(file));
+
+        Files.writeString(file, "");
+        assertEquals(0, RomLoader.loadText(file).length);
+    }
+
+    @Test
+    public void testInvalidText() throws IOException {
+        var file = dir.resolve("rom.hack");
+        for (var text : new String[]{"0000000000000011\n000000000000002\n", "0000000000000011\n00000000000000111\n",
+                "0000000000000011\n000000000000001\n", "0000000000000011\n0000000000000011 \n"}) {
+            Files.writeString(file, text);
+            var e = assertThrows(IOException.class, () -> RomLoader.loadText(file));
+            assertTrue(e.getMessage(), e.getMessage().startsWith("Line 2 "));
+        }
+    }
+
+    @Test
+    public void testOddBinarySize() throws IOException {
+        var file = dir.resolve("rom.hackbin");
+        Files.write(file, new byte[]{0, 3, 1});
+        assertThrows(IOException.class, () -> RomLoader.load(file));
+    }
+}
@@ -0,0 +1,142 @@
+package com.lukas.hackassembler.emulate;
+
+import com.lukas.hackassembler.emit.RomEmitter;
+import com.lukas.hackassembler.exception.EmitterErrorException;
+import com.lukas.hackassembler.exception.LexerErrorException;
+import com.lukas.hackassembler.exception.ParserErrorException;
+import com.lukas.hackassembler.lex.Lexer;
+import com.lukas.hackassembler.model.CompType;
+import com.lukas.hackassembler.parse.Parser;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Objects;
+
+import static org.junit.Assert.*;
+
+public class ComputerTest {
+    @Test
+    public void testMult() throws IOException, URISyntaxException, LexerErrorException, ParserErrorException, EmitterErrorException {
+        var input = Files.readString(Paths.get(Objects.requireNonNull(getClass().getClassLoader().getResource("Mult.asm")).toURI()));
+        var computer = new Computer(assemble(input));
+
+        computer.write(0, 6);
+        computer.write(1, 7);
+        var executed = computer.run(10_000);
+        assertTrue(computer.isHalted());
+        assertTrue(executed < 10_000);
+        assertEquals(42, computer.read(2));
+        assertEquals(0, computer.run(10_000));
+
+        computer.reset();
+        computer.write(0, 0);
+        computer.run(10_000);
+        assertEquals(0, computer.read(2));
+    }
+
+    @Test
+    public void testComputations() throws LexerErrorException, ParserErrorException, EmitterErrorException {
+        int[][] operands = {{0, 0}, {1, -1}, {17, 5}, {-3, 12}, {32767, 1}, {-32768, -1}, {0x5555, 0x0F0F}};
+        for (var type : CompType.values()) {
+            var literal = literal(type);
+            var loadY = (type.getCode() & 0b1_000000) == 0 ? "@1\nA=M\n" : "@3\n"; // y in A, or in M = RAM[3]
+            var computer = new Computer(assemble("@0\nD=M\n" + loadY + "D=" + literal + "\n@2\nM=D\n(END)\n@END\n0;JMP\n"));
+            for (var xy : operands) {
+                computer.reset();
+                computer.write(0, xy[0]);
+                computer.write(1, xy[1]);
+                computer.write(3, xy[1]);
+                computer.run(100);
+                assertEquals(literal + " of " + xy[0] + ", " + xy[1], alu(type.getCode() & 0b111111, xy[0], xy[1]), computer.read(2));
+            }
+        }
+    }
+
+    @Test
+    public void testUndocumentedComputation() throws LexerErrorException, ParserErrorException, EmitterErrorException {
+        // D=!(D+A) written directly, the assembler doesn't know it
+        var computer = new Computer(new short[]{5, (short) 0b1110_110000_010_000, 3, (short) 0b1110_000011_010_000});
+        computer.run(4);
+        assertEquals(~(5 + 3), computer.getD());
+    }
+
+    @Test
+    public void testJumps() throws LexerErrorException, ParserErrorException, EmitterErrorException {
+        String[] jumps = {"JGT", "JEQ", "JGE", "JLT", "JNE", "JLE", "JMP"};
+        int[] values = {-5, 0, 5};
+        for (var jump : jumps) {
+            var computer = new Computer(assemble("@0\nD=M\n@TAKEN\nD;" + jump + "\n@END\n0;JMP\n(TAKEN)\n@1\nM=1\n(END)\n@END\n0;JMP\n"));
+            for (var value : values) {
+                computer.reset();
+                computer.write(0, value);
+                computer.write(1, 0);
+                computer.run(100);
+                assertTrue(computer.isHalted());
+
+                var expected = value < 0 && jump.matches("J(LT|NE|LE|MP)")
+                        || value == 0 && jump.matches("J(EQ|GE|LE|MP)")
+                        || value > 0 && jump.matches("J(GT|GE|NE|MP)");
+                assertEquals(jump + " of " + value, expected ? 1 : 0, computer.read(1));
+            }
+        }
+    }
+
+    @Test
+    public void testJumpToPreviousA() throws LexerErrorException, ParserErrorException, EmitterErrorException {
+        // the jump target is A before the instruction changes it, the written M too
+        var computer = new Computer(assemble("@6\nD=A\n@4\nAM=D+1;JMP\n@100\n@100\n(END)\n@END\n0;JMP\n"));
+        computer.run(4);
+        assertEquals(4, computer.getPc());
+        assertEquals(7, computer.getA());
+        assertEquals(7, computer.read(4));
+    }
+
+    @Test
+    public void testMemoryMaps() throws LexerErrorException, ParserErrorException, EmitterErrorException {
+        var computer = new Computer(assemble("@KBD\nD=M\n@R0\nM=D\n@SCREEN\nM=-1\n@24577\nM=1\n"));
+        computer.setKeyboard(65);
+        computer.run(8);
+
+        assertEquals(65, computer.read(0));
+        assertEquals(-1, computer.read(Computer.SCREEN));
+        assertEquals(1, computer.read(Computer.SCREEN + 1)); // the keyboard addresses write into the screen
+        assertEquals(65, computer.read(Computer.KBD + 1));
+    }
+
+    @Test
+    public void testEmptyRom() {
+        var computer = new Computer(new short[0]);
+        assertEquals(1000, computer.run(1000)); // @0 everywhere, the PC wraps around
+        assertFalse(computer.isHalted());
+
+        assertThrows(IllegalArgumentException.class, () -> new Computer(new short[Computer.ROM_SIZE + 1]));
+    }
+
+    private static short[] assemble(String program) throws LexerErrorException, ParserErrorException, EmitterErrorException {
+        var emitter = new RomEmitter();
+        new Parser(new Lexer(program), emitter).parse();
+        return emitter.getWords();
+    }
+
+    private static String literal(CompType type) {
+        for (var literal : new String[]{"0", "1", "-1", "D", "A", "M", "!D", "!A", "!M", "-D", "-A", "-M", "D+1",
+                "A+1", "M+1", "D-1", "A-1", "M-1", "D+A", "D+M", "D-A", "D-M", "A-D", "M-D", "D&A", "D&M", "D|A", "D|M"}) {
+            if (CompType.getByLiteral(literal) == type) {
+                return literal;
+            }
+        }
+        throw new AssertionError(type);
+    }
+
+    private static int alu(int control, int x, int y) {
+        x = (control & 0b100000) != 0 ? 0 : x;
+        x = (control & 0b010000) != 0 ? ~x : x;
+        y = (control & 0b001000) != 0 ? 0 : y;
+        y = (control & 0b000100) != 0 ? ~y : y;
+        var out = (control & 0b000010) != 0 ? x + y : x & y;
+        return (short) ((control & 0b000001) != 0 ? ~out : out);
+    }
+}
@@ -0,0 +1,132 @@
+package com.lukas.hackassembler.emulate;
+
+import com.lukas.hackassembler.emit.RomEmitter;
+import com.lukas.hackassembler.exception.EmitterErrorException;
+import com.lukas.hackassembler.exception.LexerErrorException;
+import com.lukas.hackassembler.exception.ParserErrorException;
+import com.lukas.hackassembler.lex.Lexer;
+import com.lukas.hackassembler.parse.Parser;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Objects;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Runs the recompiled programs side by side with the interpreter, comparing all the registers and the whole memory.
+ */
+public class RecompilerTest {
+    private static final Path PONG = Paths.get("..", "pong", "Pong.asm");
+
+    @Before
+    public void setUp() {
+        assumeTrue("The JDK compiler isn't available.", Recompiler.isAvailable());
+    }
+
+    @Test
+    public void testMult() throws IOException, URISyntaxException, LexerErrorException, ParserErrorException, EmitterErrorException {
+        var input = Files.readString(Paths.get(Objects.requireNonNull(getClass().getClassLoader().getResource("Mult.asm")).toURI()));
+        var program = assemble(input);
+        var computer = Recompiler.compile(program);
+        assertTrue(computer instanceof RecompiledComputer);
+
+        var reference = new Computer(program);
+        for (var computers : new Computer[]{computer, reference}) {
+            computers.write(0, 123);
+            computers.write(1, 45);
+        }
+        assertEquals(reference.run(100_000), computer.run(100_000));
+        assertTrue(computer.isHalted());
+        assertEquals(123 * 45, computer.read(2));
+        assertSameState(reference, computer);
+    }
+
+    @Test
+    public void testPong() throws IOException, LexerErrorException, ParserErrorException, EmitterErrorException {
+        assumeTrue(Files.exists(PONG));
+        var program = assemble(Files.readString(PONG));
+        var computer = Recompiler.compile(program);
+        var reference = new Computer(program);
+
+        var random = new Random(13);
+        for (int slice = 0; slice < 200; slice++) {
+            var key = random.nextInt(4) == 0 ? 130 + random.nextInt(4) : 0; // arrows
+            computer.setKeyboard(key);
+            reference.setKeyboard(key);
+
+            var instructions = 1 + random.nextInt(50_000); // the slices end in the middle of the blocks too
+            assertEquals(reference.run(instructions), computer.run(instructions));
+            assertSameState(reference, computer);
+        }
+    }
+
+    @Test
+    public void testComputedJumps() throws LexerErrorException, ParserErrorException, EmitterErrorException {
+        // the loop jumps to the address 2 computed in A, it's never loaded by an A-instruction so it's in the middle
+        // of a block
+        var program = assemble("@1\nA=A+1\nM=M+1\n@1\nA=A+1\nD=M\n@5\nD=D-A\n@END\nD;JGE\n@1\nA=A+1\n0;JMP\n"
+                + "(END)\n@END\n0;JMP\n");
+        var computer = Recompiler.compile(program);
+        var reference = new Computer(program);
+
+        assertEquals(reference.run(10_000), computer.run(10_000));
+        assertTrue(computer.isHalted());
+        assertEquals(5, computer.read(2));
+        assertSameState(reference, computer);
+    }
+
+    @Test
+    public void testRandomPrograms() {
+        var random = new Random(14);
+        for (int i = 0; i < 10; i++) {
+            var program = new short[1 + random.nextInt(500)];
+            for (int address = 0; address < program.length; address++) {
+                program[address] = randomInstruction(random, program.length);
+            }
+            var computer = Recompiler.compile(program);
+            var reference = new Computer(program);
+            for (int step = 0; step < 20; step++) {
+                var instructions = random.nextInt(5000);
+                assertEquals(reference.run(instructions), computer.run(instructions));
+                assertSameState(reference, computer);
+            }
+        }
+    }
+
+    private static short randomInstruction(Random random, int programLength) {
+        switch (random.nextInt(4)) {
+            case 0:
+                return (short) random.nextInt(programLength + 1); // jump targets
+            case 1:
+                return (short) random.nextInt(Computer.ROM_SIZE); // including the screen and the keyboard
+            default:
+                return (short) (0b111 << 13 | random.nextInt(1 << 13)); // any computation, also without a mnemonic
+        }
+    }
+
+    private static void assertSameState(Computer expected, Computer actual) {
+        assertEquals(expected.isHalted(), actual.isHalted());
+        assertEquals(expected.getPc(), actual.getPc());
+        assertEquals(expected.getA(), actual.getA());
+        assertEquals(expected.getD(), actual.getD());
+        for (int address = 0; address <= Computer.KBD; address++) {
+            if (expected.read(address) != actual.read(address)) {
+                fail("RAM[" + address + "] differs: expected " + expected.read(address) + ", actual " + actual.read(address));
+            }
+        }
+    }
+
+    private static short[] assemble(String program) throws LexerErrorException, ParserErrorException, EmitterErrorException {
+        var emitter = new RomEmitter();
+        new Parser(new Lexer(program), emitter).parse();
+        return emitter.getWords();
+    }
+}
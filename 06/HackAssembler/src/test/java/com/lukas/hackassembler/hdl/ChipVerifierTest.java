@@ -0,0 +1,124 @@
+package com.lukas.hackassembler.hdl;
+
+import com.lukas.hackassembler.exception.HdlErrorException;
+import org.junit.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.*;
+
+public class ChipVerifierTest {
+    private static final ChipLibrary LIBRARY = ChipLibrary.ofProject(Paths.get("..", ".."));
+    private static final long SEED = 22;
+
+    @Test
+    public void testProjectChips() throws HdlErrorException {
+        var elaborator = new Elaborator(LIBRARY);
+        for (var chip : ReferenceModel.getChips()) {
+            var result = new ChipVerifier(elaborator.elaborate(chip), ReferenceModel.of(chip))
+                    .verify(16, 1 << 14, SEED, ForkJoinPool.commonPool());
+            assertNull(chip, result.getMismatch());
+        }
+        assertEquals(20, ReferenceModel.getChips().size());
+    }
+
+    @Test
+    public void testVectorCounts() throws HdlErrorException {
+        var elaborator = new Elaborator(LIBRARY);
+        var xor = new ChipVerifier(elaborator.elaborate("Xor"), ReferenceModel.of("Xor"))
+                .verify(16, 1 << 14, SEED, ForkJoinPool.commonPool());
+        assertTrue(xor.isExhaustive());
+        assertEquals(4, xor.getVectorCount());
+
+        var or8Way = new ChipVerifier(elaborator.elaborate("Or8Way"), ReferenceModel.of("Or8Way"))
+                .verify(16, 1 << 14, SEED, ForkJoinPool.commonPool());
+        assertTrue(or8Way.isExhaustive());
+        assertEquals(256, or8Way.getVectorCount());
+
+        var alu = new ChipVerifier(elaborator.elaborate("ALU"), ReferenceModel.of("ALU"))
+                .verify(16, 1000, SEED, ForkJoinPool.commonPool());
+        assertFalse(alu.isExhaustive());
+        assertEquals(1024, alu.getVectorCount());
+        assertTrue(alu.isPassed());
+    }
+
+    @Test
+    public void testLanesMatchSimulator() throws HdlErrorException {
+        var netlist = new Elaborator(LIBRARY).elaborate("Add16");
+        var bitSlice = new BitSliceSimulator(netlist);
+        var simulator = new Simulator(netlist);
+        var random = new Random(SEED);
+        var a = new long[BitSliceSimulator.LANES];
+        var b = new long[BitSliceSimulator.LANES];
+        var aSlices = new long[16];
+        var bSlices = new long[16];
+        for (int lane = 0; lane < BitSliceSimulator.LANES; lane++) {
+            a[lane] = random.nextInt(1 << 16);
+            b[lane] = random.nextInt(1 << 16);
+            for (int bit = 0; bit < 16; bit++) {
+                aSlices[bit] |= (a[lane] >> bit & 1) << lane;
+                bSlices[bit] |= (b[lane] >> bit & 1) << lane;
+            }
+        }
+        bitSlice.setInput("a", aSlices);
+        bitSlice.setInput("b", bSlices);
+        bitSlice.evaluate();
+
+        var outSlices = bitSlice.getOutput("out");
+        for (int lane = 0; lane < BitSliceSimulator.LANES; lane++) {
+            simulator.setInput("a", a[lane]);
+            simulator.setInput("b", b[lane]);
+            simulator.evaluate();
+            var out = 0L;
+            for (int bit = 0; bit < 16; bit++) {
+                out |= (outSlices[bit] >>> lane & 1) << bit;
+            }
+            assertEquals(simulator.getOutput("out"), out);
+        }
+    }
+
+    @Test
+    public void testMismatch() throws Exception {
+        var dir = Files.createTempDirectory("hdl");
+        try {
+            // an Or instead of the And
+            Files.writeString(dir.resolve("And.hdl"), "CHIP And { IN a, b; OUT out; PARTS: Nand(a=a, b=a, out=na); "
+                    + "Nand(a=b, b=b, out=nb); Nand(a=na, b=nb, out=out); }");
+            Files.writeString(dir.resolve("Or.hdl"), "CHIP Or { IN a, c; OUT out; PARTS: Nand(a=a, b=c, out=out); }");
+            var elaborator = new Elaborator(new ChipLibrary(List.of(dir)));
+
+            var result = new ChipVerifier(elaborator.elaborate("And"), ReferenceModel.of("And")).verify(SEED);
+            assertFalse(result.isPassed());
+            assertEquals("The chip 'And' gives out=1 instead of out=0 for a=1, b=0.", result.getMismatch());
+
+            var random = new ChipVerifier(elaborator.elaborate("And"), ReferenceModel.of("And"))
+                    .verify(0, 1 << 16, SEED, ForkJoinPool.commonPool());
+            assertFalse(random.isExhaustive());
+            assertFalse(random.isPassed());
+
+            var e = assertThrows(HdlErrorException.class,
+                    () -> new ChipVerifier(elaborator.elaborate("Or"), ReferenceModel.of("Or")));
+            assertEquals("The pins of the chip 'Or' differ from its reference model (a, b -> out).", e.getMessage());
+        } finally {
+            try (var files = Files.list(dir)) {
+                for (var file : (Iterable<Path>) files::iterator) {
+                    Files.delete(file);
+                }
+            }
+            Files.delete(dir);
+        }
+    }
+
+    @Test
+    public void testSequentialChip() throws HdlErrorException {
+        var bit = new Elaborator(LIBRARY).elaborate("Bit");
+        var e = assertThrows(HdlErrorException.class, () -> new ChipVerifier(bit, ReferenceModel.of("Not")));
+        assertEquals("The chip 'Bit' isn't combinational, it has 1 DFFs.", e.getMessage());
+        assertThrows(HdlErrorException.class, () -> ReferenceModel.of("Bit"));
+    }
+}
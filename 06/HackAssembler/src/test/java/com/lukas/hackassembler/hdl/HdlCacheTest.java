@@ -0,0 +1,167 @@
+package com.lukas.hackassembler.hdl;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.*;
+
+public class HdlCacheTest {
+    private Path tempDir;
+    private Path hdlDir;
+
+    @Before
+    public void setUp() throws IOException {
+        tempDir = Files.createTempDirectory("hdl");
+        hdlDir = Files.createDirectory(tempDir.resolve("hdl"));
+    }
+
+    @After
+    public void cleanUp() throws IOException {
+        try (Stream<Path> paths = Files.walk(tempDir)) {
+            for (var path : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    @Test
+    public void testSameNetlists() throws Exception {
+        var project = Paths.get("..", "..");
+        for (var mode : Elaborator.Mode.values()) {
+            for (var chipName : List.of("ALU", "CPU", "Computer")) {
+                if (mode == Elaborator.Mode.GATE_LEVEL && chipName.equals("Computer")) {
+                    continue; // millions of gates
+                }
+                var expected = new Elaborator(ChipLibrary.ofProject(project), mode).elaborate(chipName);
+                var cache = new HdlCache(tempDir.resolve("cache"));
+                cache.elaborate(ChipLibrary.ofProject(project, cache), chipName, mode);
+                assertEquals(1, cache.getNetlistMisses());
+
+                cache = new HdlCache(tempDir.resolve("cache"));
+                var library = ChipLibrary.ofProject(project, cache);
+                assertSameNetlist(expected, cache.elaborate(library, chipName, mode));
+                assertEquals(1, cache.getNetlistHits());
+                assertEquals(0, cache.getChipMisses());
+                assertEquals(library.findFiles(chipName).size(), cache.getChipHits());
+
+                // the chips of the library were loaded from the cache
+                var parts = library.getChip(chipName).getParts();
+                var expectedParts = ChipLibrary.ofProject(project).getChip(chipName).getParts();
+                assertEquals(expectedParts.size(), parts.size());
+                for (int i = 0; i < parts.size(); i++) {
+                    assertEquals(expectedParts.get(i).getChipName(), parts.get(i).getChipName());
+                    assertEquals(expectedParts.get(i).getLine(), parts.get(i).getLine());
+                    assertEquals(expectedParts.get(i).getConnections().toString(),
+                            parts.get(i).getConnections().toString());
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testInvalidation() throws Exception {
+        Files.writeString(hdlDir.resolve("Not.hdl"), "CHIP Not { IN in; OUT out; PARTS: Nand(a=in, b=in, out=out); }");
+        Files.writeString(hdlDir.resolve("Buffer.hdl"), "CHIP Buffer { IN in; OUT out; PARTS: "
+                + "Not(in=in, out=x); Not(in=x, out=out); }");
+        Files.writeString(hdlDir.resolve("Nand2.hdl"), "CHIP Nand2 { IN a, b; OUT out; PARTS: "
+                + "Nand(a=a, b=b, out=out); }");
+
+        var cache = new HdlCache(tempDir.resolve("cache"));
+        var library = new ChipLibrary(List.of(hdlDir), cache);
+        assertEquals(2, cache.elaborate(library, "Buffer", Elaborator.Mode.GATE_LEVEL).getNandCount());
+        assertEquals(1, cache.elaborate(library, "Nand2", Elaborator.Mode.GATE_LEVEL).getNandCount());
+        assertEquals(2, cache.getNetlistMisses());
+        assertEquals(3, cache.getChipMisses());
+
+        // the change of the Not invalidates only the Buffer, and only the Not is parsed again
+        Files.writeString(hdlDir.resolve("Not.hdl"), "CHIP Not { IN in; OUT out; PARTS: Nand(a=in, b=true, out=out); }");
+        library = new ChipLibrary(List.of(hdlDir), cache);
+        var buffer = cache.elaborate(library, "Buffer", Elaborator.Mode.GATE_LEVEL);
+        assertEquals(Netlist.TRUE_WIRE, buffer.getNandB()[0]);
+        assertEquals(1, cache.elaborate(library, "Nand2", Elaborator.Mode.GATE_LEVEL).getNandCount());
+        assertEquals(3, cache.getNetlistMisses());
+        assertEquals(1, cache.getNetlistHits());
+        assertEquals(4, cache.getChipMisses());
+        assertEquals(2, cache.getChipHits());
+
+        // the mode is a part of the key
+        cache.elaborate(library, "Buffer", Elaborator.Mode.BEHAVIORAL_MEMORY);
+        assertEquals(4, cache.getNetlistMisses());
+    }
+
+    @Test
+    public void testCorruptedEntries() throws Exception {
+        Files.writeString(hdlDir.resolve("Not.hdl"), "CHIP Not { IN in; OUT out; PARTS: Nand(a=in, b=in, out=out); }");
+        var cache = new HdlCache(tempDir.resolve("cache"));
+        cache.elaborate(new ChipLibrary(List.of(hdlDir), cache), "Not", Elaborator.Mode.GATE_LEVEL);
+        try (Stream<Path> entries = Files.list(tempDir.resolve("cache"))) {
+            for (var entry : (Iterable<Path>) entries::iterator) {
+                var content = Files.readAllBytes(entry);
+                Files.write(entry, Arrays.copyOf(content, content.length / 2));
+            }
+        }
+
+        var netlist = cache.elaborate(new ChipLibrary(List.of(hdlDir), cache), "Not", Elaborator.Mode.GATE_LEVEL);
+        assertEquals(1, netlist.getNandCount());
+        assertEquals(0, cache.getChipHits());
+        assertEquals(0, cache.getNetlistHits());
+
+        cache.elaborate(new ChipLibrary(List.of(hdlDir), cache), "Not", Elaborator.Mode.GATE_LEVEL);
+        assertEquals(1, cache.getChipHits());
+        assertEquals(1, cache.getNetlistHits());
+    }
+
+    @Test
+    public void testUnusableCache() throws Exception {
+        Files.writeString(hdlDir.resolve("Not.hdl"), "CHIP Not { IN in; OUT out; PARTS: Nand(a=in, b=in, out=out); }");
+        var cache = new HdlCache(tempDir.resolve("cache"));
+        Files.delete(tempDir.resolve("cache"));
+        Files.writeString(tempDir.resolve("cache"), "not a directory"); // the entries can't be read nor written
+
+        for (int i = 0; i < 2; i++) {
+            var netlist = cache.elaborate(new ChipLibrary(List.of(hdlDir), cache), "Not", Elaborator.Mode.GATE_LEVEL);
+            assertEquals(1, netlist.getNandCount());
+        }
+        assertEquals(0, cache.getChipHits());
+        assertEquals(2, cache.getChipMisses());
+        assertEquals(0, cache.getNetlistHits());
+        assertEquals(2, cache.getNetlistMisses());
+    }
+
+    private static void assertSameNetlist(Netlist expected, Netlist actual) {
+        assertEquals(expected.toString(), actual.toString());
+        assertEquals(expected.getFirstDffWire(), actual.getFirstDffWire());
+        assertEquals(expected.getFirstNandWire(), actual.getFirstNandWire());
+        assertArrayEquals(expected.getNandA(), actual.getNandA());
+        assertArrayEquals(expected.getNandB(), actual.getNandB());
+        assertArrayEquals(expected.getDffIn(), actual.getDffIn());
+        for (int i = 0; i < expected.getMemories().size(); i++) {
+            var expectedMemory = expected.getMemories().get(i);
+            var memory = actual.getMemories().get(i);
+            assertSame(expectedMemory.getModel(), memory.getModel());
+            assertEquals(expectedMemory.getReadPosition(), memory.getReadPosition());
+            assertEquals(expectedMemory.getLoadWire(), memory.getLoadWire());
+            assertArrayEquals(expectedMemory.getAddressWires(), memory.getAddressWires());
+            assertArrayEquals(expectedMemory.getInWires(), memory.getInWires());
+            assertArrayEquals(expectedMemory.getOutWires(), memory.getOutWires());
+        }
+        assertEquals(expected.getInputs().keySet(), actual.getInputs().keySet());
+        for (var pin : expected.getInputs().keySet()) {
+            assertArrayEquals(expected.getInputs().get(pin), actual.getInputs().get(pin));
+        }
+        assertEquals(List.copyOf(expected.getOutputs().keySet()), List.copyOf(actual.getOutputs().keySet()));
+        for (var pin : expected.getOutputs().keySet()) {
+            assertArrayEquals(expected.getOutputs().get(pin), actual.getOutputs().get(pin));
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.lukas.hackassembler.hdl;
+
+import com.lukas.hackassembler.exception.HdlErrorException;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+
+public class HdlParserTest {
+    @Test
+    public void testAlu() throws IOException, HdlErrorException {
+        var chip = new HdlParser(Files.readString(Paths.get("..", "..", "02", "ALU.hdl")), "ALU.hdl").parse();
+
+        assertEquals("ALU", chip.getName());
+        assertEquals("[x[16], y[16], zx, nx, zy, ny, f, no]", chip.getInputs().toString());
+        assertEquals("[out[16], zr, ng]", chip.getOutputs().toString());
+        assertEquals(15, chip.getParts().size());
+
+        var part = chip.getParts().get(10); // the negation of the output
+        assertEquals("Mux16", part.getChipName());
+        assertEquals("[a=fOut, b=notFOut, sel=no, out=out, out[15]=ng, out[0..7]=firstOut, out[8..15]=secondOut]",
+                part.getConnections().toString());
+        assertEquals(63, part.getLine());
+    }
+
+    @Test
+    public void testConstantsAndOptionalPins() throws HdlErrorException {
+        var chip = new HdlParser("/* no outputs */ CHIP Top { IN reset; PARTS: Inc(a=reset, b[0]=true, b[1..15]=false); }",
+                "Top.hdl").parse();
+
+        assertEquals(0, chip.getOutputs().size());
+        var connections = chip.getParts().get(0).getConnections();
+        assertEquals("b[1..15]=false", connections.get(2).toString());
+        assertEquals(1, connections.get(2).getPinFrom());
+        assertEquals(15, connections.get(2).getPinTo());
+        assertEquals(-1, connections.get(2).getSignalFrom());
+        assertEquals(true, connections.get(1).isConstant());
+    }
+
+    @Test
+    public void testErrors() {
+        var e = assertThrows(HdlErrorException.class,
+                () -> new HdlParser("CHIP And {\n IN a, b;\n OUT out;\n PARTS:\n Nand(a=a b=b, out=x);\n}", "And.hdl").parse());
+        assertEquals("And.hdl, line 5: Expected ')', but found 'b'.", e.getMessage());
+
+        e = assertThrows(HdlErrorException.class,
+                () -> new HdlParser("CHIP And {\n IN a[3..4];\n}", "And.hdl").parse());
+        assertEquals("And.hdl, line 2: Expected ']', but found '..'.", e.getMessage());
+
+        e = assertThrows(HdlErrorException.class,
+                () -> new HdlParser("CHIP And {\n IN a;\n PARTS:\n Not(in=a[3..1], out=b);\n", "And.hdl").parse());
+        assertEquals("And.hdl, line 4: The range 3..1 is reversed.", e.getMessage());
+
+        e = assertThrows(HdlErrorException.class,
+                () -> new HdlParser("CHIP And {\n IN a;\n PARTS:\n /* unterminated\n", "And.hdl").parse());
+        assertEquals("And.hdl, line 4: Unterminated comment.", e.getMessage());
+
+        e = assertThrows(HdlErrorException.class,
+                () -> new HdlParser("CHIP And {\n IN a;\n PARTS:\n", "And.hdl").parse());
+        assertEquals("And.hdl, line 4: Expected a name, but found the end of the file.", e.getMessage());
+    }
+}
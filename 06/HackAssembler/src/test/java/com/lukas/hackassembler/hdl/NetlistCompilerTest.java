@@ -0,0 +1,196 @@
+package com.lukas.hackassembler.hdl;
+
+import com.lukas.hackassembler.emit.RomEmitter;
+import com.lukas.hackassembler.lex.Lexer;
+import com.lukas.hackassembler.parse.Parser;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+
+public class NetlistCompilerTest {
+    private static final ChipLibrary LIBRARY = ChipLibrary.ofProject(Paths.get("..", ".."));
+
+    @Before
+    public void setUp() {
+        assumeTrue(NetlistCompiler.isAvailable());
+    }
+
+    @Test
+    public void testAluSameAsSimulator() throws Exception {
+        var netlist = new Elaborator(LIBRARY).elaborate("ALU");
+        var compiled = NetlistCompiler.compile(netlist);
+        var simulator = new Simulator(netlist);
+        assertNotEquals(Simulator.class, compiled.getClass());
+
+        var random = new Random(24);
+        for (int i = 0; i < 10_000; i++) {
+            for (var pin : netlist.getInputs().keySet()) {
+                var value = random.nextLong();
+                compiled.setInput(pin, value);
+                simulator.setInput(pin, value);
+            }
+            compiled.evaluate();
+            simulator.evaluate();
+            assertSameOutputs("Vector " + i, netlist, simulator, compiled);
+        }
+        assertEquals(simulator.getGateEvaluations(), compiled.getGateEvaluations());
+    }
+
+    @Test
+    public void testCpuCycleForCycle() throws Exception {
+        var emitter = new RomEmitter();
+        new Parser(new Lexer(Files.readAllBytes(Paths.get("src/test/resources/Mult.asm"))), emitter).parse();
+        var program = emitter.getWords();
+        var netlist = new Elaborator(LIBRARY).elaborate("CPU");
+        var compiled = NetlistCompiler.compile(netlist);
+        var simulator = new Simulator(netlist);
+
+        var memory = new short[1 << 15];
+        memory[0] = 6;
+        memory[1] = 7;
+        compiled.evaluate();
+        simulator.evaluate();
+        for (int cycle = 0; cycle < 200; cycle++) {
+            assertSameOutputs("Cycle " + cycle, netlist, simulator, compiled);
+            var pc = (int) simulator.getOutput("pc");
+            for (var cpu : List.of(compiled, simulator)) {
+                cpu.setInput("instruction", pc < program.length ? program[pc] : 0);
+                cpu.evaluate();
+                cpu.setInput("inM", memory[(int) cpu.getOutput("addressM")]);
+                cpu.evaluate();
+            }
+            assertSameOutputs("Cycle " + cycle, netlist, simulator, compiled);
+            if (simulator.getOutput("writeM") == 1) {
+                memory[(int) simulator.getOutput("addressM")] = (short) simulator.getOutput("outM");
+            }
+            compiled.tick();
+            simulator.tick();
+        }
+        assertEquals(42, memory[2]);
+    }
+
+    @Test
+    public void testComputerRunsPong() throws Exception {
+        var emitter = new RomEmitter();
+        new Parser(new Lexer(Files.readAllBytes(Paths.get("../pong/Pong.asm"))), emitter).parse();
+        var program = emitter.getWords();
+        var netlist = new Elaborator(LIBRARY, Elaborator.Mode.BEHAVIORAL_MEMORY).elaborate("Computer");
+        var compiled = NetlistCompiler.compile(netlist);
+        var simulator = new Simulator(netlist);
+        for (var computer : List.of(compiled, simulator)) {
+            System.arraycopy(program, 0, computer.getMemory(MemoryModel.ROM32K), 0, program.length);
+            computer.evaluate();
+        }
+
+        for (int cycle = 0; cycle < 100_000; cycle++) {
+            if (cycle == 50_000) { // the left arrow
+                compiled.getMemory(MemoryModel.KEYBOARD)[0] = 130;
+                simulator.getMemory(MemoryModel.KEYBOARD)[0] = 130;
+            }
+            compiled.tick();
+            simulator.tick();
+        }
+        assertArrayEquals(simulator.getMemory("RAM16K"), compiled.getMemory("RAM16K"));
+        assertArrayEquals(simulator.getMemory(MemoryModel.SCREEN), compiled.getMemory(MemoryModel.SCREEN));
+    }
+
+    @Test
+    public void testCache() throws Exception {
+        var dir = Files.createTempDirectory("hdl");
+        try {
+            var hdlDir = Files.createDirectory(dir.resolve("hdl"));
+            Files.writeString(hdlDir.resolve("Not.hdl"), "CHIP Not { IN in; OUT out; PARTS: Nand(a=in, b=in, out=out); }");
+            Files.writeString(hdlDir.resolve("Buffer.hdl"), "CHIP Buffer { IN in; OUT out; PARTS: "
+                    + "Not(in=in, out=x); Not(in=x, out=out); }");
+            Files.writeString(hdlDir.resolve("Other.hdl"), "CHIP Other { IN in; OUT out; PARTS: Not(in=in, out=out); }");
+
+            var compiler = new NetlistCompiler(dir.resolve("cache"));
+            assertEquals(1, evaluate(compiler.compile(new ChipLibrary(List.of(hdlDir)), "Buffer",
+                    Elaborator.Mode.GATE_LEVEL), 1));
+            assertEquals(0, compiler.getHits());
+            assertEquals(1, compiler.getMisses());
+
+            // another process, and a change of a file the chip doesn't depend on
+            Files.writeString(hdlDir.resolve("Other.hdl"), "CHIP Other { IN in; OUT out; PARTS: Nand(a=in, b=in, out=out); }");
+            compiler = new NetlistCompiler(dir.resolve("cache"));
+            assertEquals(0, evaluate(compiler.compile(new ChipLibrary(List.of(hdlDir)), "Buffer",
+                    Elaborator.Mode.GATE_LEVEL), 0));
+            assertEquals(1, compiler.getHits());
+            assertEquals(0, compiler.getMisses());
+            assertEquals(1, compiler.getCache().getNetlistHits()); // not elaborated again
+
+            // a broken part, the output is always true
+            Files.writeString(hdlDir.resolve("Not.hdl"), "CHIP Not { IN in; OUT out; PARTS: Nand(a=in, b=false, out=out); }");
+            assertEquals(1, evaluate(compiler.compile(new ChipLibrary(List.of(hdlDir)), "Buffer",
+                    Elaborator.Mode.GATE_LEVEL), 0));
+            assertEquals(1, compiler.getHits());
+            assertEquals(1, compiler.getMisses());
+        } finally {
+            try (Stream<Path> paths = Files.walk(dir)) {
+                for (var path : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) {
+                    Files.delete(path);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testUnwritableCache() throws Exception {
+        var dir = Files.createTempDirectory("hdl");
+        var cacheDir = dir.resolve("cache");
+        try {
+            var hdlDir = Files.createDirectory(dir.resolve("hdl"));
+            Files.writeString(hdlDir.resolve("Not.hdl"), "CHIP Not { IN in; OUT out; PARTS: Nand(a=in, b=in, out=out); }");
+
+            var compiler = new NetlistCompiler(cacheDir);
+            Files.delete(cacheDir);
+            Files.writeString(cacheDir, "not a directory"); // no entry can be written into it
+            var library = new ChipLibrary(List.of(hdlDir));
+            assertEquals(0, evaluate(compiler.compile(library, "Not", Elaborator.Mode.GATE_LEVEL), 1));
+            assertEquals(1, evaluate(compiler.compile(library, "Not", Elaborator.Mode.GATE_LEVEL), 0));
+            assertEquals(0, compiler.getHits());
+            assertEquals(2, compiler.getMisses());
+        } finally {
+            try (Stream<Path> paths = Files.walk(dir)) {
+                for (var path : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) {
+                    Files.delete(path);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testFindFiles() throws Exception {
+        var files = new ArrayList<String>();
+        for (var file : LIBRARY.findFiles("ALU")) {
+            files.add(Paths.get("..", "..").relativize(file).toString().replace('\\', '/'));
+        }
+        assertEquals(List.of("01/And.hdl", "01/And16.hdl", "01/Mux.hdl", "01/Mux16.hdl", "01/Not.hdl", "01/Not16.hdl",
+                "01/Or.hdl", "01/Or8Way.hdl", "01/Xor.hdl", "02/ALU.hdl", "02/Add16.hdl", "02/FullAdder.hdl",
+                "02/HalfAdder.hdl"), files);
+        assertTrue(LIBRARY.findFiles("Nand").isEmpty());
+    }
+
+    private static long evaluate(Simulator simulator, long in) {
+        simulator.setInput("in", in);
+        simulator.evaluate();
+        return simulator.getOutput("out");
+    }
+
+    private static void assertSameOutputs(String message, Netlist netlist, Simulator expected, Simulator actual) {
+        for (var pin : netlist.getOutputs().keySet()) {
+            assertEquals(message + ", " + pin, expected.getOutput(pin), actual.getOutput(pin));
+        }
+    }
+}
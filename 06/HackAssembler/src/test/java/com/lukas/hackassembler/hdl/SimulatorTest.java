@@ -0,0 +1,294 @@
+package com.lukas.hackassembler.hdl;
+
+import com.lukas.hackassembler.emit.RomEmitter;
+import com.lukas.hackassembler.emulate.Computer;
+import com.lukas.hackassembler.exception.HdlErrorException;
+import com.lukas.hackassembler.lex.Lexer;
+import com.lukas.hackassembler.parse.Parser;
+import org.junit.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+
+public class SimulatorTest {
+    private static final ChipLibrary LIBRARY = ChipLibrary.ofProject(Paths.get("..", ".."));
+
+    @Test
+    public void testAlu() throws HdlErrorException {
+        var alu = simulator("ALU");
+        var random = new Random(42);
+        for (int i = 0; i < 10_000; i++) {
+            var x = random.nextInt(1 << 16);
+            var y = random.nextInt(1 << 16);
+            var control = random.nextInt(1 << 6);
+            alu.setInput("x", x);
+            alu.setInput("y", y);
+            alu.setInput("zx", control >> 5);
+            alu.setInput("nx", control >> 4);
+            alu.setInput("zy", control >> 3);
+            alu.setInput("ny", control >> 2);
+            alu.setInput("f", control >> 1);
+            alu.setInput("no", control);
+            alu.evaluate();
+
+            var out = alu(control, x, y);
+            assertEquals(out, alu.getOutput("out"));
+            assertEquals(out == 0 ? 1 : 0, alu.getOutput("zr"));
+            assertEquals(out >> 15, alu.getOutput("ng"));
+        }
+        assertEquals(10_000L * alu.getNetlist().getNandCount(), alu.getGateEvaluations());
+    }
+
+    @Test
+    public void testCombinationalChips() throws HdlErrorException {
+        var mux8Way16 = simulator("Mux8Way16");
+        var dmux8Way = simulator("DMux8Way");
+        var inc16 = simulator("Inc16");
+        for (int sel = 0; sel < 8; sel++) {
+            for (int i = 0; i < 8; i++) {
+                mux8Way16.setInput(String.valueOf((char) ('a' + i)), 1000 + i);
+            }
+            mux8Way16.setInput("sel", sel);
+            mux8Way16.evaluate();
+            assertEquals(1000 + sel, mux8Way16.getOutput("out"));
+
+            dmux8Way.setInput("in", 1);
+            dmux8Way.setInput("sel", sel);
+            dmux8Way.evaluate();
+            for (int i = 0; i < 8; i++) {
+                assertEquals(i == sel ? 1 : 0, dmux8Way.getOutput(String.valueOf((char) ('a' + i))));
+            }
+        }
+        for (var value : new int[]{0, 1, 0x7FFF, 0xFFFF, 12345}) {
+            inc16.setInput("in", value);
+            inc16.evaluate();
+            assertEquals(value + 1 & 0xFFFF, inc16.getOutput("out"));
+        }
+    }
+
+    @Test
+    public void testPc() throws HdlErrorException {
+        var pc = simulator("PC");
+        pc.setInput("inc", 1);
+        for (int i = 1; i <= 5; i++) {
+            pc.evaluate();
+            pc.tick();
+            assertEquals(i, pc.getOutput("out"));
+        }
+        pc.setInput("in", 1234);
+        pc.setInput("load", 1);
+        pc.evaluate();
+        assertEquals(5, pc.getOutput("out")); // only after the clock edge
+        pc.tick();
+        assertEquals(1234, pc.getOutput("out"));
+        pc.setInput("reset", 1);
+        pc.evaluate();
+        pc.tick();
+        assertEquals(0, pc.getOutput("out"));
+    }
+
+    @Test
+    public void testRam8() throws HdlErrorException {
+        var ram = simulator("RAM8");
+        for (int address = 0; address < 8; address++) {
+            ram.setInput("address", address);
+            ram.setInput("in", 100 * address);
+            ram.setInput("load", 1);
+            ram.evaluate();
+            ram.tick();
+        }
+        ram.setInput("load", 0);
+        for (int address = 0; address < 8; address++) {
+            ram.setInput("address", address);
+            ram.evaluate();
+            assertEquals(100 * address, ram.getOutput("out"));
+        }
+    }
+
+    @Test
+    public void testCpuSameAsEmulator() throws Exception {
+        var input = Files.readAllBytes(Paths.get("src/test/resources/Mult.asm"));
+        var emitter = new RomEmitter();
+        new Parser(new Lexer(input), emitter).parse();
+        var program = emitter.getWords();
+
+        var computer = new Computer(program);
+        var memory = new short[Computer.KBD];
+        memory[0] = 6;
+        memory[1] = 7;
+        computer.write(0, 6);
+        computer.write(1, 7);
+
+        var cpu = simulator("CPU");
+        cpu.evaluate(); // the PC starts at 0
+        for (int cycle = 0; cycle < 200; cycle++) {
+            var pc = (int) cpu.getOutput("pc");
+            assertEquals("Cycle " + cycle, computer.getPc(), pc);
+
+            cpu.setInput("instruction", pc < program.length ? program[pc] : 0);
+            cpu.evaluate();
+            cpu.setInput("inM", memory[(int) cpu.getOutput("addressM")]);
+            cpu.evaluate();
+            if (cpu.getOutput("writeM") == 1) {
+                memory[(int) cpu.getOutput("addressM")] = (short) cpu.getOutput("outM");
+            }
+            cpu.tick();
+            computer.step();
+        }
+        assertEquals(42, memory[2]);
+        assertEquals(computer.read(2), memory[2]);
+    }
+
+    @Test
+    public void testBehavioralRam16K() throws HdlErrorException {
+        var netlist = new Elaborator(LIBRARY, Elaborator.Mode.BEHAVIORAL_MEMORY).elaborate("RAM16K");
+        assertEquals(4, netlist.getMemories().size()); // the RAM4K parts, the RAM16K itself is under test
+        assertEquals("RAM4K", netlist.getMemories().get(0).getModel().getName());
+        assertEquals(0, netlist.getDffCount());
+
+        var ram = new Simulator(netlist);
+        var random = new Random(23);
+        var expected = new short[16 * 1024];
+        for (int i = 0; i < 10_000; i++) {
+            var address = random.nextInt(expected.length);
+            var load = random.nextBoolean();
+            var value = (short) random.nextInt();
+            ram.setInput("address", address);
+            ram.setInput("in", value);
+            ram.setInput("load", load ? 1 : 0);
+            ram.evaluate();
+            assertEquals(expected[address] & 0xFFFF, ram.getOutput("out"));
+            ram.tick();
+            if (load) {
+                expected[address] = value;
+            }
+            assertEquals(expected[address] & 0xFFFF, ram.getOutput("out"));
+        }
+        ram.setInput("load", 0);
+        for (int address = 0; address < expected.length; address++) {
+            ram.setInput("address", address);
+            ram.evaluate();
+            assertEquals(expected[address] & 0xFFFF, ram.getOutput("out"));
+        }
+    }
+
+    @Test
+    public void testComputerRunsPong() throws Exception {
+        var emitter = new RomEmitter();
+        new Parser(new Lexer(Files.readAllBytes(Paths.get("../pong/Pong.asm"))), emitter).parse();
+        var program = emitter.getWords();
+        var computer = new Computer(program);
+
+        var simulator = new Simulator(new Elaborator(LIBRARY, Elaborator.Mode.BEHAVIORAL_MEMORY).elaborate("Computer"));
+        System.arraycopy(program, 0, simulator.getMemory(MemoryModel.ROM32K), 0, program.length);
+        simulator.evaluate();
+        for (int cycle = 0; cycle < 300_000; cycle++) {
+            if (cycle == 200_000) { // the left arrow
+                simulator.getMemory(MemoryModel.KEYBOARD)[0] = 130;
+                computer.setKeyboard(130);
+            }
+            simulator.tick();
+            computer.step();
+        }
+
+        var ram = simulator.getMemory("RAM16K");
+        var screen = simulator.getMemory(MemoryModel.SCREEN);
+        for (int address = 0; address < ram.length; address++) {
+            assertEquals("RAM " + address, (short) computer.read(address), ram[address]);
+        }
+        for (int address = 0; address < screen.length; address++) {
+            assertEquals("Screen " + address, (short) computer.read(Computer.SCREEN + address), screen[address]);
+        }
+    }
+
+    @Test
+    public void testSubstitutionByPins() throws Exception {
+        var dir = Files.createTempDirectory("hdl");
+        try {
+            // a Bit with another interface stays a Bit of the gates
+            Files.writeString(dir.resolve("Bit.hdl"), "CHIP Bit { IN in, store; OUT out; PARTS: DFF(in=in, out=out); }");
+            Files.writeString(dir.resolve("Register.hdl"), "CHIP Register { IN in[16], load; OUT out[16]; PARTS: "
+                    + "Bit(in=in[0], store=load, out=out[0]); }");
+            Files.writeString(dir.resolve("Top.hdl"), "CHIP Top { IN in[16], load; OUT out[16], bit; PARTS: "
+                    + "Register(in=in, load=load, out=out); Bit(in=load, store=load, out=bit); }");
+            var elaborator = new Elaborator(new ChipLibrary(List.of(dir)), Elaborator.Mode.BEHAVIORAL_MEMORY);
+
+            var top = elaborator.elaborate("Top");
+            assertEquals(1, top.getMemories().size());
+            assertEquals("Register", top.getMemories().get(0).getModel().getName());
+            assertEquals(1, top.getDffCount());
+            assertEquals("Top (0 Nand gates, 1 DFFs, 1 memories, depth 0)", top.toString());
+            assertEquals(1, elaborator.elaborate("Register").getDffCount());
+        } finally {
+            try (var files = Files.list(dir)) {
+                for (var file : (Iterable<Path>) files::iterator) {
+                    Files.delete(file);
+                }
+            }
+            Files.delete(dir);
+        }
+    }
+
+    @Test
+    public void testErrors() throws Exception {
+        var dir = Files.createTempDirectory("hdl");
+        try {
+            Files.writeString(dir.resolve("Loop.hdl"), "CHIP Loop { IN a; OUT out; PARTS: Nand(a=a, b=x, out=x, out=out); }");
+            Files.writeString(dir.resolve("Undriven.hdl"), "CHIP Undriven { IN a; OUT out; PARTS: Nand(a=a, b=x, out=out); }");
+            Files.writeString(dir.resolve("Widths.hdl"), "CHIP Widths { IN a[2]; OUT out; PARTS: Nand(a=a, b=a, out=out); }");
+            Files.writeString(dir.resolve("Twice.hdl"), "CHIP Twice { IN a; OUT out; PARTS: Nand(a=a, b=a, out=out); Nand(a=a, b=a, out=out); }");
+            Files.writeString(dir.resolve("Missing.hdl"), "CHIP Missing { IN a; OUT out; PARTS: Nor(a=a, b=a, out=out); }");
+            var elaborator = new Elaborator(new ChipLibrary(List.of(dir)));
+
+            assertError("The chip 'Loop' has a combinational loop (through 1 Nand gates without a DFF).", elaborator, "Loop");
+            assertError("The internal pin 'x' of the chip 'Undriven' isn't an output of any part.", elaborator, "Undriven");
+            assertError("Widths, line 1: The widths of 'a=a' differ (1 and 2).", elaborator, "Widths");
+            assertError("A wire of the chip 'Twice' is an output of more than one part.", elaborator, "Twice");
+            assertError("There's no HDL file of the chip 'Nor' in [" + dir + "].", elaborator, "Missing");
+        } finally {
+            try (var files = Files.list(dir)) {
+                for (var file : (Iterable<Path>) files::iterator) {
+                    Files.delete(file);
+                }
+            }
+            Files.delete(dir);
+        }
+    }
+
+    // PRIVATE HELPER METHODS
+
+    private static Simulator simulator(String chipName) throws HdlErrorException {
+        return new Simulator(new Elaborator(LIBRARY).elaborate(chipName));
+    }
+
+    private static void assertError(String expectedMessage, Elaborator elaborator, String chipName) {
+        var e = assertThrows(HdlErrorException.class, () -> elaborator.elaborate(chipName));
+        assertEquals(expectedMessage, e.getMessage());
+    }
+
+    private static int alu(int control, int x, int y) {
+        if ((control & 0b100000) != 0) {
+            x = 0;
+        }
+        if ((control & 0b010000) != 0) {
+            x = ~x;
+        }
+        if ((control & 0b001000) != 0) {
+            y = 0;
+        }
+        if ((control & 0b000100) != 0) {
+            y = ~y;
+        }
+        var out = (control & 0b000010) != 0 ? x + y : x & y;
+        if ((control & 0b000001) != 0) {
+            out = ~out;
+        }
+        return out & 0xFFFF;
+    }
+}
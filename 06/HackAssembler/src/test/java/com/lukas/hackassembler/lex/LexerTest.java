@@ -5,12 +5,16 @@ import com.lukas.hackassembler.model.Token;
 import com.lukas.hackassembler.model.TokenType;
 import org.junit.Test;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.stream.Collectors;
 
 import static com.lukas.hackassembler.model.TokenType.*;
 import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertThrows;
 
 public class LexerTest {
@@ -106,8 +110,49 @@ public class LexerTest {
         );
     }
 
+    @Test
+    public void testTokenSpans() throws LexerErrorException {
+        var lexer = new Lexer("  @var // comment\nAMD=M+1;JMP");
+        assertSpan(lexer, A_INST_MARK, 2, 1);
+        assertSpan(lexer, SYMBOL, 3, 3);
+        assertEquals("var", lexer.getTokenValue());
+        assertSpan(lexer, NEWLINE, 17, 1);
+        assertSpan(lexer, COMP_PART, 18, 3);
+        assertEquals(2, lexer.getTokenLine());
+        assertSpan(lexer, DEST_SEPARATOR, 21, 1);
+        assertSpan(lexer, COMP_PART, 22, 3);
+        assertSpan(lexer, JUMP_SEPARATOR, 25, 1);
+        assertSpan(lexer, COMP_PART, 26, 3);
+        assertEquals("JMP", lexer.getTokenValue());
+        assertSpan(lexer, NEWLINE, 29, 1); // the virtual new line at the end of the input
+        assertEquals(EOF, lexer.nextToken());
+    }
+
+    @Test
+    public void testMappedFileWindows() throws LexerErrorException, IOException {
+        var inputFile = Paths.get("src/test/resources/Mult.asm");
+        var expectedTokens = getAllTokens(new Lexer(Files.readString(inputFile)));
+
+        // the window is smaller than the file, but fits every line of it
+        var mappedTokens = getAllTokens(new Lexer(inputFile, 80));
+        assertEquals(expectedTokens.size(), mappedTokens.size());
+        for (int i = 0; i < expectedTokens.size(); i++) {
+            assertEquals(expectedTokens.get(i).getType(), mappedTokens.get(i).getType());
+            assertEquals(expectedTokens.get(i).getValue(), mappedTokens.get(i).getValue());
+        }
+
+        final var tooSmallWindowLexer = new Lexer(inputFile, 8);
+        assertThrows(LexerErrorException.class, () -> getAllTokens(tooSmallWindowLexer));
+    }
+
     // PRIVATE HELPER METHODS
 
+    private static void assertSpan(Lexer lexer, TokenType type, int start, int length) throws LexerErrorException {
+        assertEquals(type, lexer.nextToken());
+        assertEquals(start, lexer.getTokenStart());
+        assertEquals(length, lexer.getTokenLength());
+    }
+
     private static List<Token> getAllTokens(Lexer lexer) throws LexerErrorException {
         List<Token> tokens = new ArrayList<>();
 
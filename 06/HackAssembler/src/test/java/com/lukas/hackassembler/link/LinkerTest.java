@@ -0,0 +1,200 @@
+package com.lukas.hackassembler.link;
+
+import com.lukas.hackassembler.emit.InMemoryEmitter;
+import com.lukas.hackassembler.exception.EmitterErrorException;
+import com.lukas.hackassembler.exception.LexerErrorException;
+import com.lukas.hackassembler.exception.LinkerErrorException;
+import com.lukas.hackassembler.exception.ParserErrorException;
+import com.lukas.hackassembler.lex.Lexer;
+import com.lukas.hackassembler.parse.InstructionAssembler;
+import com.lukas.hackassembler.parse.Parser;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+
+public class LinkerTest {
+    @Test
+    public void testSplitProgramSameAsWhole() throws Exception {
+        var input = Files.readString(Paths.get("..", "pong", "Pong.asm"));
+        var lines = input.split("\n", -1);
+
+        for (var moduleCount : new int[]{1, 2, 7, 50}) {
+            var modules = new ArrayList<ObjectModule>();
+            for (int i = 0; i < moduleCount; i++) {
+                var from = lines.length * i / moduleCount;
+                var to = lines.length * (i + 1) / moduleCount;
+                var text = String.join("\n", List.of(lines).subList(from, to)) + "\n";
+                modules.add(assembleModule("module" + i, text));
+            }
+
+            var emitter = new InMemoryEmitter();
+            new Linker(modules).link(emitter);
+            assertEquals("Modules: " + moduleCount, assemble(input), emitter.getOutput());
+        }
+    }
+
+    @Test
+    public void testSymbolsAcrossModules() throws Exception {
+        var main = assembleModule("main", "@counter\nM=1\n@SUB\n0;JMP\n(BACK)\n@R0\nD=A\n@BACK\n0;JMP\n");
+        var sub = assembleModule("sub", "(SUB)\n@temp\nM=0\n@counter\nM=M+1\n@BACK\n0;JMP\n");
+
+        var linker = new Linker(List.of(main, sub));
+        var emitter = new InMemoryEmitter();
+        linker.link(emitter);
+
+        assertEquals(assemble("@counter\nM=1\n@SUB\n0;JMP\n(BACK)\n@R0\nD=A\n@BACK\n0;JMP\n"
+                + "(SUB)\n@temp\nM=0\n@counter\nM=M+1\n@BACK\n0;JMP\n"), emitter.getOutput());
+        assertEquals(14, linker.getInstructionCount());
+        assertEquals(2, linker.getVariableCount());
+    }
+
+    @Test
+    public void testObjectContents() throws Exception {
+        var module = assembleModule("module", "@x\nD=M\n(LOOP)\n@SCREEN\nM=D\n@LOOP\n0;JMP\n@y\n@x\n");
+
+        assertEquals(8, module.size());
+        assertArrayEquals(new String[]{"LOOP"}, module.getLabels());
+        assertArrayEquals(new int[]{2}, module.getLabelAddresses());
+        assertArrayEquals(new int[]{4}, module.getRelocations());
+        assertArrayEquals(new String[]{"x", "y"}, module.getSymbols());
+        assertArrayEquals(new int[]{0, 6, 7}, module.getReferenceOffsets());
+        assertArrayEquals(new int[]{0, 1, 0}, module.getReferenceSymbols());
+        assertEquals(16384, module.getWords()[2]);
+        assertEquals(2, module.getWords()[4]);
+    }
+
+    @Test
+    public void testDuplicateLabel() throws Exception {
+        var first = assembleModule("first", "(LOOP)\n@LOOP\n0;JMP\n");
+        var second = assembleModule("second", "(LOOP)\n@LOOP\n0;JMP\n");
+
+        var e = assertThrows(LinkerErrorException.class, () -> new Linker(List.of(first, second)).link());
+        assertEquals("The label 'LOOP' is declared by both first and second.", e.getMessage());
+    }
+
+    @Test
+    public void testWriteAndRead() throws Exception {
+        var module = assembleModule("module", "@x\nD=M\n(LOOP)\n@SCREEN\nM=D\n@LOOP\n0;JMP\n@y\n@x\n");
+        var dir = Files.createTempDirectory("objects");
+        var file = dir.resolve("module" + ObjectModule.FILE_EXTENSION);
+        try {
+            module.write(file);
+            var read = ObjectModule.read(file);
+
+            assertEquals(module.getName(), read.getName());
+            assertArrayEquals(module.getWords(), read.getWords());
+            assertArrayEquals(module.getLabels(), read.getLabels());
+            assertArrayEquals(module.getLabelAddresses(), read.getLabelAddresses());
+            assertArrayEquals(module.getRelocations(), read.getRelocations());
+            assertArrayEquals(module.getSymbols(), read.getSymbols());
+            assertArrayEquals(module.getReferenceOffsets(), read.getReferenceOffsets());
+            assertArrayEquals(module.getReferenceSymbols(), read.getReferenceSymbols());
+
+            Files.write(file, new byte[]{1, 2, 3, 4, 5});
+            assertThrows(IOException.class, () -> ObjectModule.read(file));
+        } finally {
+            Files.deleteIfExists(file);
+            Files.delete(dir);
+        }
+    }
+
+    @Test
+    public void testReadInvalidIndices() throws Exception {
+        var dir = Files.createTempDirectory("objects");
+        var file = dir.resolve("module" + ObjectModule.FILE_EXTENSION);
+        var words = new short[2];
+        try {
+            // a relocation, a reference and a symbol index out of the module, and a label beyond its end
+            for (var module : List.of(
+                    new ObjectModule("module", words, new String[0], new int[0], new int[]{2}, new String[0],
+                            new int[0], new int[0]),
+                    new ObjectModule("module", words, new String[0], new int[0], new int[0], new String[]{"x"},
+                            new int[]{-1}, new int[]{0}),
+                    new ObjectModule("module", words, new String[0], new int[0], new int[0], new String[]{"x"},
+                            new int[]{1}, new int[]{1}),
+                    new ObjectModule("module", words, new String[]{"END"}, new int[]{3}, new int[0], new String[0],
+                            new int[0], new int[0]))) {
+                module.write(file);
+                assertThrows(IOException.class, () -> ObjectModule.read(file));
+            }
+
+            // a label can be declared at the end of the module
+            new ObjectModule("module", words, new String[]{"END"}, new int[]{2}, new int[]{1}, new String[]{"x"},
+                    new int[]{0}, new int[]{0}).write(file);
+            assertEquals(2, ObjectModule.read(file).size());
+        } finally {
+            Files.deleteIfExists(file);
+            Files.delete(dir);
+        }
+    }
+
+    @Test
+    public void testFinishWithoutEmitter() throws Exception {
+        var assembler = new InstructionAssembler();
+        assembler.add(new Parser(new Lexer("D=M\n")).parseStatements().get(0));
+        var e = assertThrows(IllegalStateException.class, assembler::finish);
+        assertEquals("The assembler of a module can be finished only as an object.", e.getMessage());
+        assertThrows(IllegalStateException.class, assembler::getOutput);
+        assertEquals(1, assembler.finishObject("module").size());
+    }
+
+    @Test
+    public void testAddressOutOfRange() throws Exception {
+        var body = "D=M\n".repeat(20_000);
+        var first = assembleModule("first", body);
+        var second = assembleModule("second", body + "(END)\n@END\n0;JMP\n");
+        new Linker(List.of(second)).link(); // fits alone
+
+        var e = assertThrows(LinkerErrorException.class, () -> new Linker(List.of(first, second)).link());
+        assertEquals("The address 40000 referenced by the instruction 20000 of second is out of the range of "
+                + "an A-instruction (the program is too large).", e.getMessage());
+
+        var caller = assembleModule("caller", "@END\n0;JMP\n");
+        assertThrows(LinkerErrorException.class, () -> new Linker(List.of(first, second, caller)).link());
+    }
+
+    @Test
+    public void testTooLargeForObject() throws Exception {
+        var assembler = new InstructionAssembler();
+        for (var statement : new Parser(new Lexer("D=M\n".repeat(ObjectModule.MAX_COUNT + 1))).parseStatements()) {
+            assembler.add(statement);
+        }
+        var e = assertThrows(ParserErrorException.class, () -> assembler.finishObject("module"));
+        assertEquals("The module module has too many instructions for an object: 32769 (at most 32768).",
+                e.getMessage());
+
+        var module = new ObjectModule("module", new short[ObjectModule.MAX_COUNT + 1], new String[0], new int[0],
+                new int[0], new String[0], new int[0], new int[0]);
+        var dir = Files.createTempDirectory("objects");
+        try {
+            assertThrows(IOException.class, () -> module.write(dir.resolve("module" + ObjectModule.FILE_EXTENSION)));
+        } finally {
+            Files.delete(dir);
+        }
+    }
+
+    // PRIVATE HELPER METHODS
+
+    private static ObjectModule assembleModule(String name, String input) throws LexerErrorException, ParserErrorException {
+        var assembler = new InstructionAssembler();
+        for (var statement : new Parser(new Lexer(input.getBytes(StandardCharsets.US_ASCII))).parseStatements()) {
+            assembler.add(statement);
+        }
+        return assembler.finishObject(name);
+    }
+
+    private static String assemble(String input) throws LexerErrorException, ParserErrorException, EmitterErrorException {
+        var emitter = new InMemoryEmitter();
+        new Parser(new Lexer(input.getBytes(StandardCharsets.US_ASCII)), emitter).parse();
+        return emitter.getOutput();
+    }
+}
@@ -0,0 +1,150 @@
+package com.lukas.hackassembler.optimize;
+
+import com.lukas.hackassembler.emit.RomEmitter;
+import com.lukas.hackassembler.emulate.Computer;
+import com.lukas.hackassembler.exception.EmitterErrorException;
+import com.lukas.hackassembler.exception.LexerErrorException;
+import com.lukas.hackassembler.exception.ParserErrorException;
+import com.lukas.hackassembler.lex.Lexer;
+import com.lukas.hackassembler.model.Statement;
+import com.lukas.hackassembler.parse.Parser;
+import com.lukas.hackassembler.parse.StatementEncoder;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+public class OptimizerTest {
+    private static final Path PONG = Paths.get("..", "pong", "Pong.asm");
+
+    @Test
+    public void testUnreachableCode() throws LexerErrorException, ParserErrorException {
+        assertEquals("(END) @END 0;JMP", optimize("@END\n0;JMP\nD=1\nM=D\n(END)\n@END\n0;JMP\n"));
+        // the unreferenced label doesn't keep the code after the jump
+        assertEquals("(END) @END 0;JMP", optimize("@END\n0;JMP\n(UNUSED)\nD=1\n(END)\n@END\n0;JMP\n"));
+    }
+
+    @Test
+    public void testJumpThreading() throws LexerErrorException, ParserErrorException {
+        assertEquals("@5 D=A (LOOP) @LOOP 0;JMP",
+                optimize("@A1\n0;JMP\n(A1)\n@A2\n0;JMP\n(A2)\n@5\nD=A\n(LOOP)\n@LOOP\n0;JMP\n"));
+        assertEquals("(START) @x M=M+1 D=M @START D;JNE (END) @END 0;JMP",
+                optimize("(START)\n@x\nM=M+1\nD=M\n@BACK\nD;JNE\n@END\n0;JMP\n(BACK)\n@START\n0;JMP\n"
+                        + "(END)\n@END\n0;JMP\n"));
+    }
+
+    @Test
+    public void testJumpToNext() throws LexerErrorException, ParserErrorException {
+        assertEquals("D=1 (L) @L 0;JMP", optimize("@NEXT\n0;JMP\n(NEXT)\nD=1\n(L)\n@L\n0;JMP\n"));
+        assertEquals("D=M (L) @L 0;JMP", optimize("D=M\n@NEXT\nD;JGT\n(NEXT)\n(L)\n@L\n0;JMP\n"));
+    }
+
+    @Test
+    public void testRedundantLoads() throws LexerErrorException, ParserErrorException {
+        assertEquals("@SP A=M D=M M=D (L) @L 0;JMP", optimize("@SP\nA=M\nD=M\n@SP\nA=M\nM=D\n(L)\n@L\n0;JMP\n"));
+        // the built-in symbol is the same value as its address, the write into M can change the pointer
+        assertEquals("@SP A=M D=M M=D @SP A=M D=M (L) @L 0;JMP",
+                optimize("@SP\nA=M\nD=M\n@0\nA=M\nM=D\n@SP\nA=M\nD=M\n(L)\n@L\n0;JMP\n"));
+        // a label can bring in any value of A
+        assertEquals("@x M=1 (L) @x M=M+1 @L 0;JMP", optimize("@x\nM=1\n(L)\n@x\nM=M+1\n@L\n0;JMP\n"));
+    }
+
+    @Test
+    public void testDeadStores() throws LexerErrorException, ParserErrorException {
+        assertEquals("D=A @x M=D @z M=1 (L) @L 0;JMP", optimize("D=1\nD=A\n@x\nM=D\n@y\n@z\nM=1\n(L)\n@L\n0;JMP\n"));
+        // M is written at the old A
+        assertEquals("@x M=D @y M=1 (L) @L 0;JMP", optimize("@x\nAM=D\n@y\nM=1\n(L)\n@L\n0;JMP\n"));
+        assertEquals("@x AM=D D=M (L) @L 0;JMP", optimize("@x\nAM=D\nD=M\n(L)\n@L\n0;JMP\n"));
+        // D is read at the jump target
+        assertEquals("D=M @T D;JGT D=0 (T) @x M=D (L) @L 0;JMP",
+                optimize("D=M\n@T\nD;JGT\nD=0\n(T)\n@x\nM=D\n(L)\n@L\n0;JMP\n"));
+    }
+
+    @Test
+    public void testNumericJumpTargets() throws LexerErrorException, ParserErrorException {
+        assertEquals("(ROM$4) @x M=D @ROM$4 0;JMP", optimize("@4\n0;JMP\nD=1\nD=D+1\n@x\nM=D\n@4\n0;JMP\n"));
+        // the target reads A, which holds its original address there
+        var program = "@3\nD=A\n@6\n0;JMP\nD=0\n@0\nM=D\n(L)\n@L\n0;JMP\n";
+        assertEquals(program.replace('\n', ' ').trim(), optimize(program));
+    }
+
+    @Test
+    public void testRepeatedLabels() throws LexerErrorException, ParserErrorException {
+        // the label is at its last declaration, the jump skips M=1
+        assertEquals("(END) @END 0;JMP", optimize("@L\n0;JMP\n(L)\n@R0\nM=1\n(L)\n(END)\n@END\n0;JMP\n"));
+        assertEquals("@R0 M=1 (L) @L 0;JMP", optimize("(L)\n@R0\nM=1\n(L)\n@L\n0;JMP\n"));
+    }
+
+    @Test
+    public void testReport() throws LexerErrorException, ParserErrorException {
+        var optimizer = new Optimizer();
+        optimizer.optimize(new Parser("@END\n0;JMP\nD=1\nM=D\n(END)\n@END\n0;JMP\n").parseStatements());
+        assertEquals(6, optimizer.getInstructionCountBefore());
+        assertEquals(2, optimizer.getInstructionCountAfter());
+        assertEquals("Optimized from 6 to 2 instructions (4 removed, 66.7%).", optimizer.getReport());
+    }
+
+    @Test
+    public void testMult() throws IOException, URISyntaxException, LexerErrorException, ParserErrorException, EmitterErrorException {
+        var input = Files.readString(Paths.get(Objects.requireNonNull(getClass().getClassLoader().getResource("Mult.asm")).toURI()));
+        var computers = new Computer[]{new Computer(assemble(input, false)), new Computer(assemble(input, true))};
+        for (var computer : computers) {
+            computer.write(0, 123);
+            computer.write(1, 45);
+            computer.run(100_000);
+            assertTrue(computer.isHalted());
+            assertEquals(123 * 45, computer.read(2));
+        }
+    }
+
+    @Test
+    public void testPong() throws IOException, LexerErrorException, ParserErrorException, EmitterErrorException {
+        assumeTrue(Files.exists(PONG));
+        var input = Files.readString(PONG);
+        var original = assemble(input, false);
+        var optimized = assemble(input, true);
+        assertTrue(optimized.length < original.length);
+
+        // the optimized program gets there sooner, but both wait for a key with the same screen afterwards
+        var reference = new Computer(original);
+        var computer = new Computer(optimized);
+        reference.run(20_000_000);
+        computer.run(20_000_000);
+        var referenceScreen = new int[Computer.KBD - Computer.SCREEN];
+        var screen = new int[referenceScreen.length];
+        for (int i = 0; i < screen.length; i++) {
+            referenceScreen[i] = reference.read(Computer.SCREEN + i);
+            screen[i] = computer.read(Computer.SCREEN + i);
+        }
+        assertTrue(Arrays.stream(referenceScreen).anyMatch(word -> word != 0));
+        assertArrayEquals(referenceScreen, screen);
+    }
+
+    private static String optimize(String program) throws LexerErrorException, ParserErrorException {
+        return toString(new Optimizer().optimize(new Parser(program).parseStatements()));
+    }
+
+    private static String toString(List<? extends Statement> statements) {
+        return statements.stream().map(Statement::toString).collect(Collectors.joining(" "));
+    }
+
+    private static short[] assemble(String program, boolean optimize)
+            throws LexerErrorException, ParserErrorException, EmitterErrorException {
+        var emitter = new RomEmitter();
+        var statements = new Parser(new Lexer(program)).parseStatements();
+        new StatementEncoder(optimize ? new Optimizer().optimize(statements) : statements, emitter).encode();
+        return emitter.getWords();
+    }
+}
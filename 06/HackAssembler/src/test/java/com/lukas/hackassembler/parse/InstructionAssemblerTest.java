@@ -0,0 +1,129 @@
+package com.lukas.hackassembler.parse;
+
+import com.lukas.hackassembler.emit.InMemoryEmitter;
+import com.lukas.hackassembler.exception.EmitterErrorException;
+import com.lukas.hackassembler.exception.LexerErrorException;
+import com.lukas.hackassembler.exception.ParserErrorException;
+import com.lukas.hackassembler.model.AInstruction;
+import com.lukas.hackassembler.model.CompType;
+import com.lukas.hackassembler.model.DestType;
+import com.lukas.hackassembler.model.JumpType;
+import com.lukas.hackassembler.model.LabelDeclaration;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Objects;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+
+public class InstructionAssemblerTest {
+    private static final String LOOP = "@i\nM=1\n(LOOP)\n@i\nD=M\n@100\nD=D-A\n@END\nD;JGT\n@i\nM=M+1\n@LOOP\n0;JMP\n"
+            + "(END)\n@END\n0;JMP\n";
+
+    @Test
+    public void testBuilderSameAsText() throws LexerErrorException, ParserErrorException, EmitterErrorException {
+        var assembler = new InstructionAssembler(new InMemoryEmitter());
+        assembler.load("i");
+        assembler.compute(DestType.M, CompType.ONE, null);
+        assembler.label("LOOP");
+        assembler.load("i");
+        assembler.compute(DestType.D, CompType.M, null);
+        assembler.load(100);
+        assembler.compute(DestType.D, CompType.D_MINUS_A, null);
+        assembler.load("END");
+        assembler.compute(null, CompType.D, JumpType.JGT);
+        assembler.add(AInstruction.ofSymbol("i"));
+        assembler.compute(DestType.M, CompType.M_PLUS_ONE, null);
+        assembler.load("LOOP");
+        assembler.compute(null, CompType.ZERO, JumpType.JMP);
+        assembler.add(new LabelDeclaration("END"));
+        assembler.load("END");
+        assembler.compute(null, CompType.ZERO, JumpType.JMP);
+        assembler.finish();
+
+        assertEquals(assemble(LOOP), assembler.getOutput());
+        assertEquals(14, assembler.getInstructionCount());
+    }
+
+    @Test
+    public void testStreamSameAsText() throws LexerErrorException, ParserErrorException, EmitterErrorException {
+        var assembler = new InstructionAssembler(new InMemoryEmitter());
+        var i = assembler.symbol("i");
+        var loop = assembler.symbol("LOOP");
+        var end = assembler.symbol("END");
+        var stream = new int[]{
+                InstructionAssembler.reference(i), InstructionAssembler.computation(DestType.M, CompType.ONE, null),
+                InstructionAssembler.declaration(loop),
+                InstructionAssembler.reference(i), InstructionAssembler.computation(DestType.D, CompType.M, null),
+                100, InstructionAssembler.computation(DestType.D, CompType.D_MINUS_A, null),
+                InstructionAssembler.reference(end), InstructionAssembler.computation(null, CompType.D, JumpType.JGT),
+                InstructionAssembler.reference(i), InstructionAssembler.computation(DestType.M, CompType.M_PLUS_ONE, null),
+                InstructionAssembler.reference(loop), InstructionAssembler.computation(null, CompType.ZERO, JumpType.JMP),
+                InstructionAssembler.declaration(end),
+                InstructionAssembler.reference(end), InstructionAssembler.computation(null, CompType.ZERO, JumpType.JMP)};
+        assembler.append(stream, 0, 5); // in any number of parts
+        assembler.append(stream, 5, stream.length - 5);
+        assembler.finish();
+
+        assertEquals(assemble(LOOP), assembler.getOutput());
+    }
+
+    @Test
+    public void testStatementsSameAsText() throws URISyntaxException, IOException, LexerErrorException, ParserErrorException, EmitterErrorException {
+        var input = Files.readString(Paths.get(Objects.requireNonNull(getClass().getClassLoader().getResource("program.asm")).toURI()));
+        var assembler = new InstructionAssembler(new InMemoryEmitter());
+        for (var statement : new Parser(input).parseStatements()) {
+            assembler.add(statement);
+        }
+        assembler.finish();
+        assertEquals(assemble(input), assembler.getOutput());
+    }
+
+    @Test
+    public void testInvalidInput() throws ParserErrorException {
+        var assembler = new InstructionAssembler(new InMemoryEmitter());
+        assertThrows(ParserErrorException.class, () -> assembler.label("SCREEN"));
+        assertThrows(ParserErrorException.class, () -> assembler.load("1abc"));
+        assertThrows(ParserErrorException.class, () -> assembler.load("a b"));
+        assertThrows(ParserErrorException.class, () -> assembler.load(32768));
+        assertThrows(ParserErrorException.class, () -> assembler.load(-1));
+
+        var unknownHandle = assembler.symbol("x") + 1;
+        assertThrows(ParserErrorException.class,
+                () -> assembler.append(new int[]{InstructionAssembler.reference(unknownHandle)}, 0, 1));
+        assertThrows(ParserErrorException.class, () -> assembler.append(new int[]{0x8000}, 0, 1)); // no C prefix
+        assertThrows(ParserErrorException.class, () -> assembler.append(new int[]{0b111_0_000001_000_000}, 0, 1));
+        assertThrows(ParserErrorException.class, () -> assembler.append(new int[]{0x10000}, 0, 1));
+        // negative, with the C prefix - it would be taken for a reference of the symbol entry 0x1540
+        assertThrows(ParserErrorException.class, () -> assembler.append(new int[]{~0x1540}, 0, 1));
+        assertThrows(ParserErrorException.class, () -> assembler.append(new int[]{-1}, 0, 1));
+        assertThrows(ParserErrorException.class,
+                () -> assembler.append(new int[]{InstructionAssembler.declaration(assembler.symbol("KBD"))}, 0, 1));
+        assertEquals(0, assembler.getInstructionCount());
+    }
+
+    @Test
+    public void testFinish() throws ParserErrorException, EmitterErrorException {
+        var assembler = new InstructionAssembler(new InMemoryEmitter());
+        assembler.load("x");
+        assembler.load("SP");
+        assembler.load("y");
+        assembler.label("x"); // a label declared after its use isn't a variable
+        assembler.load("y");
+        assembler.finish();
+        assertEquals("0000000000000011\n0000000000000000\n0000000000010000\n0000000000010000\n", assembler.getOutput());
+
+        assertThrows(IllegalStateException.class, () -> assembler.load(1));
+        assertThrows(IllegalStateException.class, assembler::finish);
+    }
+
+    private static String assemble(String input) throws LexerErrorException, ParserErrorException, EmitterErrorException {
+        var parser = new Parser(input);
+        parser.parse();
+        return parser.getOutput();
+    }
+}
@@ -0,0 +1,81 @@
+package com.lukas.hackassembler.parse;
+
+import com.lukas.hackassembler.emit.InMemoryEmitter;
+import com.lukas.hackassembler.exception.EmitterErrorException;
+import com.lukas.hackassembler.exception.LexerErrorException;
+import com.lukas.hackassembler.exception.ParserErrorException;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Objects;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+
+public class ParallelParserTest {
+    @Test
+    public void testSameOutputForAllChunkSizes() throws LexerErrorException, ParserErrorException, EmitterErrorException, URISyntaxException, IOException {
+        var input = Files.readString(Paths.get(Objects.requireNonNull(getClass().getClassLoader().getResource("Mult.asm")).toURI()));
+        var expectedOutput = Files.readString(Paths.get(Objects.requireNonNull(getClass().getClassLoader().getResource("Mult.hack")).toURI()));
+
+        for (var chunkSize : new int[]{1, 7, 64, 1024 * 1024}) {
+            var parser = parser(input, chunkSize);
+            parser.parse();
+            assertEquals("Chunk size " + chunkSize, expectedOutput, parser.getOutput());
+            assertEquals(24, parser.getInstructionCount());
+        }
+    }
+
+    @Test
+    public void testSymbolsAcrossChunks() throws LexerErrorException, ParserErrorException, EmitterErrorException {
+        // every line is a chunk - the labels are referenced before their chunks, the variables are used again later
+        var input = "@second\n@LOOP\n@first\n(LOOP)\n@second\n@third\n@END\n(END)\n@first\n0;JMP\n(END)\n";
+        var parser = parser(input, 1);
+        parser.parse();
+
+        var sequentialParser = new Parser(input);
+        sequentialParser.parse();
+        assertEquals(sequentialParser.getOutput(), parser.getOutput());
+        assertEquals("0000000000010000\n" + // second = 16
+                "0000000000000011\n" + // LOOP = 3
+                "0000000000010001\n" + // first = 17
+                "0000000000010000\n" +
+                "0000000000010010\n" + // third = 18
+                "0000000000001000\n" + // END = 8, the last declaration
+                "0000000000010001\n" +
+                "1110101010000111\n", parser.getOutput());
+    }
+
+    @Test
+    public void testErrorLines() {
+        var input = "@1\n// comment\n\n(LABEL)\nD=M\n@LABEL\nD=X\n@2\n";
+        for (var chunkSize : new int[]{1, 5, 1024}) {
+            var exception = assertThrows(ParserErrorException.class, () -> parser(input, chunkSize).parse());
+            assertEquals("Line 7: The computation \"X\" doesn't have a corresponding machine code.", exception.getMessage());
+
+            exception = assertThrows(ParserErrorException.class, () -> parser("@1\n\n(SP)\n", chunkSize).parse());
+            assertEquals("Line 3: The label 'SP' is invalid (shadows in-built symbol).", exception.getMessage());
+
+            var lexerException = assertThrows(LexerErrorException.class, () -> parser("@1\nD=M\n@a#b\n", chunkSize).parse());
+            assertEquals("Line 3: Unexpected character at position 9 - #", lexerException.getMessage());
+        }
+    }
+
+    @Test
+    public void testEmptyInput() throws LexerErrorException, ParserErrorException, EmitterErrorException {
+        var parser = parser("", 1);
+        parser.parse();
+        assertEquals("", parser.getOutput());
+        assertEquals(0, parser.getInstructionCount());
+    }
+
+    private static ParallelParser parser(String input, int chunkSize) {
+        var bytes = ByteBuffer.wrap(input.getBytes(StandardCharsets.UTF_8));
+        return new ParallelParser(bytes, new InMemoryEmitter(), chunkSize);
+    }
+}
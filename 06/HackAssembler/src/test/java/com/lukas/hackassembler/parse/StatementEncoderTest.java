@@ -0,0 +1,64 @@
+package com.lukas.hackassembler.parse;
+
+import com.lukas.hackassembler.emit.InMemoryEmitter;
+import com.lukas.hackassembler.exception.EmitterErrorException;
+import com.lukas.hackassembler.exception.LexerErrorException;
+import com.lukas.hackassembler.exception.ParserErrorException;
+import com.lukas.hackassembler.lex.Lexer;
+import com.lukas.hackassembler.model.AInstruction;
+import com.lukas.hackassembler.model.CInstruction;
+import com.lukas.hackassembler.model.CompType;
+import com.lukas.hackassembler.model.DestType;
+import com.lukas.hackassembler.model.JumpType;
+import com.lukas.hackassembler.model.LabelDeclaration;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Objects;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+
+public class StatementEncoderTest {
+    @Test
+    public void testParsedStatements() throws LexerErrorException, ParserErrorException {
+        var statements = new Parser("(LOOP)\n@i\nM=M+1\n@5\nAM=D-1;JNE\n@LOOP\n0;JMP").parseStatements();
+        assertEquals(List.of(new LabelDeclaration("LOOP"), AInstruction.ofSymbol("i"),
+                new CInstruction(DestType.M, CompType.M_PLUS_ONE, null), AInstruction.ofValue(5),
+                new CInstruction(DestType.AM, CompType.D_MINUS_ONE, JumpType.JNE), AInstruction.ofSymbol("LOOP"),
+                new CInstruction(null, CompType.ZERO, JumpType.JMP)), statements);
+
+        assertThrows(ParserErrorException.class, () -> new Parser("@1\nD=D+").parseStatements());
+    }
+
+    @Test
+    public void testSameOutputAsParser() throws URISyntaxException, IOException, LexerErrorException, ParserErrorException, EmitterErrorException {
+        for (var name : new String[]{"program.asm", "Mult.asm"}) {
+            var input = Files.readString(Paths.get(Objects.requireNonNull(getClass().getClassLoader().getResource(name)).toURI()));
+            var parser = new Parser(input);
+            parser.parse();
+
+            var encoder = new StatementEncoder(new Parser(input).parseStatements(), new InMemoryEmitter());
+            encoder.encode();
+            assertEquals(parser.getOutput(), encoder.getOutput());
+            assertEquals(parser.getInstructionCount(), encoder.getInstructionCount());
+        }
+    }
+
+    @Test
+    public void testSymbolResolution() throws ParserErrorException, EmitterErrorException {
+        var encoder = new StatementEncoder(List.of(AInstruction.ofSymbol("x"), AInstruction.ofSymbol("END"),
+                new LabelDeclaration("END"), AInstruction.ofSymbol("y"), AInstruction.ofSymbol("x"),
+                AInstruction.ofSymbol("KBD")), new InMemoryEmitter());
+        encoder.encode();
+        assertEquals("0000000000010000\n0000000000000010\n0000000000010001\n0000000000010000\n0110000000000000\n",
+                encoder.getOutput());
+
+        var shadowing = new StatementEncoder(List.of(new LabelDeclaration("SP")), new InMemoryEmitter());
+        assertThrows(ParserErrorException.class, shadowing::encode);
+    }
+}
@@ -0,0 +1,61 @@
+package com.lukas.hackassembler.parse;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+public class SymbolTableTest {
+    @Test
+    public void testBuiltInSymbols() {
+        var symbols = SymbolTable.withBuiltIns();
+        assertEquals(Parser.BuiltInSymbol.values().length, symbols.size());
+
+        var entry = symbols.find("SCREEN");
+        assertEquals(SymbolTable.Kind.BUILT_IN, symbols.getKind(entry));
+        assertEquals(16384, symbols.getAddress(entry));
+        assertEquals(SymbolTable.NOT_FOUND, symbols.find("screen"));
+
+        // the built-in symbols are shared, but not modified by the other tables
+        symbols.add("LOOP", SymbolTable.Kind.LABEL, 3);
+        assertEquals(SymbolTable.NOT_FOUND, SymbolTable.withBuiltIns().find("LOOP"));
+    }
+
+    @Test
+    public void testFindOrAddSpan() {
+        var symbols = new SymbolTable();
+        var input = ByteBuffer.wrap("@i\n@LOOP\n@i".getBytes(StandardCharsets.US_ASCII));
+
+        var first = symbols.findOrAdd(input, 1, 1);
+        assertEquals(SymbolTable.Kind.UNRESOLVED, symbols.getKind(first));
+        symbols.resolve(first, SymbolTable.Kind.VARIABLE, 16);
+
+        var label = symbols.findOrAdd(input, 4, 4);
+        assertNotEquals(first, label);
+        assertEquals("LOOP", symbols.getSymbol(label));
+
+        var second = symbols.findOrAdd(input, 10, 1);
+        assertEquals(first, second);
+        assertEquals(16, symbols.getAddress(second));
+        assertEquals(2, symbols.size());
+    }
+
+    @Test
+    public void testManySymbols() {
+        var symbols = SymbolTable.withBuiltIns();
+        var builtInCount = symbols.size();
+        for (int i = 0; i < 50_000; i++) {
+            assertEquals(builtInCount + i, symbols.add("symbol" + i, SymbolTable.Kind.VARIABLE, i));
+        }
+
+        for (int i = 0; i < 50_000; i++) {
+            var entry = symbols.find("symbol" + i);
+            assertEquals(builtInCount + i, entry);
+            assertEquals(i, symbols.getAddress(entry));
+        }
+        assertEquals(0, symbols.getAddress(symbols.find("R0")));
+    }
+}
\ No newline at end of file
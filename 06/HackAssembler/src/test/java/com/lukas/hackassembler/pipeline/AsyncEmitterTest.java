@@ -0,0 +1,95 @@
+package com.lukas.hackassembler.pipeline;
+
+import com.lukas.hackassembler.emit.InMemoryEmitter;
+import com.lukas.hackassembler.exception.ParserErrorException;
+import com.lukas.hackassembler.lex.Lexer;
+import com.lukas.hackassembler.parse.Parser;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+public class AsyncEmitterTest {
+    @Test
+    public void testWordsInOrder() throws IOException {
+        var expected = new InMemoryEmitter();
+        var emitter = new AsyncEmitter(new InMemoryEmitter());
+        for (int word = 0; word < AsyncEmitter.BATCH_SIZE * AsyncEmitter.RING_CAPACITY * 3 + 5; word++) {
+            expected.emitWord(word);
+            emitter.emitWord(word);
+            if (word == 1000) {
+                expected.emitLine("// in the middle");
+                emitter.emitLine("// in the middle");
+            }
+        }
+        emitter.close();
+        assertEquals(expected.getOutput(), emitter.getOutput());
+    }
+
+    @Test
+    public void testEmptyOutput() throws IOException {
+        var emitter = new AsyncEmitter(new InMemoryEmitter());
+        emitter.close();
+        assertEquals("", emitter.getOutput());
+    }
+
+    @Test
+    public void testFailingEmitter() {
+        var failing = new InMemoryEmitter() {
+            @Override
+            public void emitWord(int word) {
+                if (word == 3) {
+                    throw new UncheckedIOException(new IOException("disk full"));
+                }
+                super.emitWord(word);
+            }
+        };
+        var emitter = new AsyncEmitter(failing);
+        for (int word = 0; word < 10; word++) {
+            emitter.emitWord(word); // the error doesn't block the emitting
+        }
+        var error = assertThrows(IOException.class, emitter::close);
+        assertEquals("disk full", error.getMessage());
+
+        var next = new AsyncEmitter(failing);
+        for (int word = 0; word < AsyncEmitter.BATCH_SIZE; word++) {
+            next.emitWord(word);
+        }
+        assertTrue(assertThrows(UncheckedIOException.class, next::getOutput).getCause().getMessage().contains("disk"));
+    }
+
+    @Test
+    public void testAbortAfterParseError() throws Exception {
+        var writers = new Thread[1];
+        var aborted = new boolean[1];
+        var emitter = new AsyncEmitter(new InMemoryEmitter() {
+            @Override
+            public void emitWord(int word) {
+                writers[0] = Thread.currentThread();
+                super.emitWord(word);
+            }
+
+            @Override
+            public void abort() {
+                aborted[0] = true;
+            }
+        });
+        var program = new StringBuilder();
+        for (int i = 0; i < AsyncEmitter.BATCH_SIZE * 2; i++) {
+            program.append("@").append(i).append('\n');
+        }
+        program.append("D=X\n");
+
+        var parser = new Parser(new Lexer(program.toString()), emitter);
+        assertThrows(ParserErrorException.class, parser::parse);
+        assertNotNull(writers[0]);
+        assertFalse(writers[0].isAlive());
+        assertTrue(aborted[0]);
+    }
+}
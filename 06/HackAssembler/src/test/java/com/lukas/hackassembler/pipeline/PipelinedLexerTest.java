@@ -0,0 +1,120 @@
+package com.lukas.hackassembler.pipeline;
+
+import com.lukas.hackassembler.emit.InMemoryEmitter;
+import com.lukas.hackassembler.exception.EmitterErrorException;
+import com.lukas.hackassembler.exception.LexerErrorException;
+import com.lukas.hackassembler.exception.ParserErrorException;
+import com.lukas.hackassembler.lex.Lexer;
+import com.lukas.hackassembler.model.TokenType;
+import com.lukas.hackassembler.parse.Parser;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+public class PipelinedLexerTest {
+    @Test
+    public void testSameTokensAsLexer() throws LexerErrorException {
+        var input = program(PipelinedLexer.BATCH_SIZE * PipelinedLexer.RING_CAPACITY); // fills the ring many times
+        var expected = new Lexer(input);
+        try (var lexer = new PipelinedLexer(ByteBuffer.wrap(input))) {
+            TokenType type;
+            do {
+                type = lexer.nextToken();
+                assertEquals(expected.nextToken(), type);
+                assertEquals(expected.getTokenStart(), lexer.getTokenStart());
+                assertEquals(expected.getTokenLength(), lexer.getTokenLength());
+                assertEquals(expected.getTokenLine(), lexer.getTokenLine());
+                if (type == TokenType.SYMBOL || type == TokenType.NUMBER || type == TokenType.COMP_PART) {
+                    assertEquals(expected.getTokenValue(), lexer.getTokenValue());
+                }
+            } while (type != TokenType.EOF);
+            assertEquals(TokenType.EOF, lexer.nextToken()); // as the lexer does
+        }
+    }
+
+    @Test
+    public void testErrorAfterTokens() throws LexerErrorException {
+        var input = new String(program(PipelinedLexer.BATCH_SIZE), StandardCharsets.US_ASCII) + "@x\n@ 5\n@y\n";
+        var expected = assertThrows(LexerErrorException.class, () -> {
+            var lexer = new Lexer(input);
+            while (lexer.nextToken() != TokenType.EOF) {
+            }
+        });
+
+        try (var lexer = new PipelinedLexer(ByteBuffer.wrap(input.getBytes(StandardCharsets.US_ASCII)))) {
+            var tokens = 0;
+            var error = (LexerErrorException) null;
+            try {
+                while (lexer.nextToken() != TokenType.EOF) {
+                    tokens++;
+                }
+            } catch (LexerErrorException e) {
+                error = e;
+            }
+            assertEquals(expected.getMessage(), error.getMessage());
+            assertTrue(expected.getMessage().startsWith("Line " + (PipelinedLexer.BATCH_SIZE + 2) + ":"));
+            assertTrue(tokens > PipelinedLexer.BATCH_SIZE); // all the tokens before the error
+            assertThrows(LexerErrorException.class, lexer::nextToken); // again
+        }
+    }
+
+    @Test
+    public void testReset() throws LexerErrorException {
+        var input = program(PipelinedLexer.BATCH_SIZE * 4);
+        try (var lexer = new PipelinedLexer(ByteBuffer.wrap(input))) {
+            for (int i = 0; i < 100; i++) {
+                lexer.nextToken();
+            }
+            lexer.reset(); // in the middle of a run
+            var expected = new Lexer(input);
+            for (int i = 0; i < 10; i++) {
+                assertEquals(expected.nextToken(), lexer.nextToken());
+                assertEquals(expected.getTokenStart(), lexer.getTokenStart());
+            }
+        }
+    }
+
+    @Test
+    public void testSameOutputAsParser() throws LexerErrorException, ParserErrorException, EmitterErrorException {
+        var input = program(20_000);
+        for (var passMode : Parser.PassMode.values()) {
+            var expected = new Parser(new Lexer(input), new InMemoryEmitter(), passMode);
+            expected.parse();
+            try (var lexer = new PipelinedLexer(ByteBuffer.wrap(input))) {
+                var parser = new Parser(lexer, new AsyncEmitter(new InMemoryEmitter()), passMode);
+                parser.parse();
+                assertEquals(expected.getOutput(), parser.getOutput());
+            }
+        }
+
+        try (var lexer = new PipelinedLexer(ByteBuffer.wrap("@1\nD=M\n@1\nX=M\n".getBytes(StandardCharsets.US_ASCII)))) {
+            var error = assertThrows(ParserErrorException.class, () -> new Parser(lexer).parse());
+            assertTrue(error.getMessage(), error.getMessage().contains("4"));
+        }
+    }
+
+    private static byte[] program(int lineCount) {
+        var program = new StringBuilder();
+        for (int i = 0; i < lineCount; i++) {
+            switch (i % 4) {
+                case 0:
+                    program.append("(L").append(i).append(")\n");
+                    break;
+                case 1:
+                    program.append("@var").append(i % 100).append(" // comment\n");
+                    break;
+                case 2:
+                    program.append("AM=M+1;JNE\n");
+                    break;
+                default:
+                    program.append("@L").append(i - 3).append('\n');
+            }
+        }
+        return program.toString().getBytes(StandardCharsets.US_ASCII);
+    }
+}
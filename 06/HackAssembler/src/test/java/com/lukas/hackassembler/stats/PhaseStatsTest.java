@@ -0,0 +1,82 @@
+package com.lukas.hackassembler.stats;
+
+import com.lukas.hackassembler.emit.InMemoryEmitter;
+import com.lukas.hackassembler.exception.EmitterErrorException;
+import com.lukas.hackassembler.exception.LexerErrorException;
+import com.lukas.hackassembler.exception.ParserErrorException;
+import com.lukas.hackassembler.lex.Lexer;
+import com.lukas.hackassembler.parse.Parser;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+
+public class PhaseStatsTest {
+    private static final String PROGRAM = "@var\n(LOOP)\n@LOOP\n0;JMP\n@other\n";
+
+    @Test
+    public void testTwoPassPhases() throws LexerErrorException, ParserErrorException, EmitterErrorException {
+        var stats = parse(Parser.PassMode.TWO_PASS);
+
+        var measurements = stats.getMeasurements();
+        assertEquals(List.of(Phase.SCAN_LABELS, Phase.ENCODE, Phase.WRITE), phases(measurements));
+
+        var scan = measurements.get(0);
+        assertEquals(4, scan.getInstructions());
+        assertEquals(1, scan.getSymbols()); // only the label
+        assertEquals(0, scan.getVariables());
+        assertTrue(scan.getTokens() > 0);
+
+        var encode = measurements.get(1);
+        assertEquals(4, encode.getInstructions());
+        assertEquals(3, encode.getSymbols());
+        assertEquals(2, encode.getVariables());
+        assertTrue(encode.getTokens() >= scan.getTokens());
+    }
+
+    @Test
+    public void testSinglePassPhases() throws LexerErrorException, ParserErrorException, EmitterErrorException {
+        var stats = parse(Parser.PassMode.SINGLE_PASS);
+
+        var measurements = stats.getMeasurements();
+        assertEquals(List.of(Phase.ENCODE, Phase.RESOLVE_SYMBOLS, Phase.WRITE), phases(measurements));
+        assertEquals(0, measurements.get(0).getVariables());
+        assertEquals(2, measurements.get(1).getVariables());
+    }
+
+    @Test
+    public void testPrint() throws LexerErrorException, ParserErrorException, EmitterErrorException {
+        var output = new ByteArrayOutputStream();
+        parse(Parser.PassMode.TWO_PASS).print(new PrintStream(output, true));
+
+        var lines = output.toString().split("\\R");
+        assertTrue(lines[0].startsWith("Phase"));
+        assertTrue(lines[1].startsWith("SCAN_LABELS"));
+        assertTrue(lines[4].startsWith("TOTAL"));
+    }
+
+    @Test
+    public void testDisabled() throws LexerErrorException, ParserErrorException, EmitterErrorException {
+        var stats = PhaseStats.disabled();
+        var parser = new Parser(new Lexer(PROGRAM), new InMemoryEmitter());
+        parser.setStats(stats);
+        parser.parse();
+        assertTrue(stats.getMeasurements().isEmpty());
+    }
+
+    private static PhaseStats parse(Parser.PassMode passMode) throws LexerErrorException, ParserErrorException, EmitterErrorException {
+        var stats = new PhaseStats("test", true);
+        var parser = new Parser(new Lexer(PROGRAM), new InMemoryEmitter(), passMode);
+        parser.setStats(stats);
+        parser.parse();
+        return stats;
+    }
+
+    private static List<Phase> phases(List<PhaseStats.Measurement> measurements) {
+        return measurements.stream().map(PhaseStats.Measurement::getPhase).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,36 @@
+package com.lukas.hackassembler.bench;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks with the GC profiler (allocation rates) and writes the results as JSON, to be compared across
+ * commits (eg. with a JMH visualizer).
+ * <p>
+ * Usage (the assembler has to be installed first by "mvn install" in ../HackAssembler):
+ * <pre>
+ * mvn package
+ * java -jar target/HackAssemblerBenchmarks.jar [result.json] [benchmark regexp]
+ * </pre>
+ * The plain JMH command line is available through "java -cp target/HackAssemblerBenchmarks.jar org.openjdk.jmh.Main".
+ */
+public class BenchmarkRunner {
+    private static final String DEFAULT_RESULT_FILE = "jmh-result.json";
+    private static final String ALL_BENCHMARKS = "com\\.lukas\\.hackassembler\\..*Benchmark";
+
+    private BenchmarkRunner() {
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        var options = new OptionsBuilder()
+                .include(args.length > 1 ? args[1] : ALL_BENCHMARKS)
+                .addProfiler(GCProfiler.class)
+                .resultFormat(ResultFormatType.JSON)
+                .result(args.length > 0 ? args[0] : DEFAULT_RESULT_FILE)
+                .build();
+        new Runner(options).run();
+    }
+}
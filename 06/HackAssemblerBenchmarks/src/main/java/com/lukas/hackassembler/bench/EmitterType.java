@@ -0,0 +1,54 @@
+package com.lukas.hackassembler.bench;
+
+import com.lukas.hackassembler.emit.ConsoleEmitter;
+import com.lukas.hackassembler.emit.Emitter;
+import com.lukas.hackassembler.emit.FileEmitter;
+import com.lukas.hackassembler.emit.InMemoryEmitter;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+
+/**
+ * The emitters the parsing is measured with.
+ */
+public enum EmitterType {
+    IN_MEMORY {
+        @Override
+        public Emitter create(String outputName) {
+            return new InMemoryEmitter();
+        }
+    },
+    FILE {
+        @Override
+        public Emitter create(String outputName) {
+            return new FileEmitter(outputName);
+        }
+    },
+    /**
+     * Writes into the standard output, which has to be redirected by {@link #silenceConsole()} first.
+     */
+    CONSOLE {
+        @Override
+        public Emitter create(String outputName) {
+            return new ConsoleEmitter();
+        }
+    };
+
+    /**
+     * @param outputName name of the output file without the extension (only for the file emitter)
+     * @return a new emitter
+     */
+    public abstract Emitter create(String outputName);
+
+    /**
+     * Replaces the standard output by a stream discarding everything (so the benchmark output isn't flooded), while
+     * keeping the cost of the writes through the stream.
+     *
+     * @return the original standard output, to be restored
+     */
+    public static PrintStream silenceConsole() {
+        var original = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        return original;
+    }
+}
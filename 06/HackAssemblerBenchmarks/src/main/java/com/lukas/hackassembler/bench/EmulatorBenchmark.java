@@ -0,0 +1,70 @@
+package com.lukas.hackassembler.bench;
+
+import com.lukas.hackassembler.emit.RomEmitter;
+import com.lukas.hackassembler.emulate.Computer;
+import com.lukas.hackassembler.emulate.Recompiler;
+import com.lukas.hackassembler.exception.EmitterErrorException;
+import com.lukas.hackassembler.exception.LexerErrorException;
+import com.lukas.hackassembler.exception.ParserErrorException;
+import com.lukas.hackassembler.lex.Lexer;
+import com.lukas.hackassembler.parse.Parser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Instructions per second of the emulator, interpreted and recompiled (an operation is one executed instruction).
+ * A program which halts is reset and run again, Pong runs without any key pressed.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class EmulatorBenchmark {
+    private static final int INSTRUCTIONS = 10_000_000;
+    private static final int MULT_R0 = 100;
+    private static final int MULT_R1 = 300;
+
+    @Param({Inputs.MULT, Inputs.PONG})
+    public String input;
+
+    @Param({"false", "true"})
+    public boolean recompiled;
+
+    private Computer computer;
+
+    @Setup
+    public void setUp() throws LexerErrorException, ParserErrorException, EmitterErrorException {
+        var rom = new RomEmitter();
+        new Parser(new Lexer(Inputs.load(input)), rom).parse();
+        computer = recompiled ? Recompiler.compile(rom.getWords()) : new Computer(rom.getWords());
+        computer.write(0, MULT_R0); // the arguments of Mult, Pong initializes its memory
+        computer.write(1, MULT_R1);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(INSTRUCTIONS)
+    public int run() {
+        long remaining = INSTRUCTIONS;
+        while (remaining > 0) {
+            remaining -= computer.run(remaining);
+            if (computer.isHalted()) {
+                computer.reset();
+            }
+        }
+        return computer.getD();
+    }
+}
@@ -0,0 +1,125 @@
+package com.lukas.hackassembler.bench;
+
+import com.lukas.hackassembler.emit.RomEmitter;
+import com.lukas.hackassembler.exception.EmitterErrorException;
+import com.lukas.hackassembler.exception.HdlErrorException;
+import com.lukas.hackassembler.exception.LexerErrorException;
+import com.lukas.hackassembler.exception.ParserErrorException;
+import com.lukas.hackassembler.hdl.ChipLibrary;
+import com.lukas.hackassembler.hdl.Elaborator;
+import com.lukas.hackassembler.hdl.MemoryModel;
+import com.lukas.hackassembler.hdl.NetlistCompiler;
+import com.lukas.hackassembler.hdl.Simulator;
+import com.lukas.hackassembler.lex.Lexer;
+import com.lukas.hackassembler.parse.Parser;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.file.Paths;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Evaluations per second of the gate-level simulator (an operation is one evaluation of the chip with new random
+ * inputs, a clock cycle of the sequential CPU), with the gate evaluations per second as the secondary result
+ * "gateEvaluations". The Computer runs Pong (without the reset), with the behavioral memories - its RAM16K alone
+ * would be millions of gates. The "compiled" parameter selects the netlist compiled into Java (see
+ * {@link NetlistCompiler}) instead of the interpreting simulator.
+ * <p>
+ * The HDL files aren't packaged, they're read from the project directory given by the system property
+ * "hdl.project" (the root of the repository, "../.." by default - run from this directory).
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class HdlSimulatorBenchmark {
+    private static final int EVALUATIONS = 1024; // per invocation, also the number of the random input vectors
+    private static final long SEED = 21;
+    private static final String COMPUTER = "Computer";
+
+    @Param({"ALU", "CPU", COMPUTER})
+    public String chip;
+
+    @Param({"false", "true"})
+    public boolean compiled;
+
+    private Simulator simulator;
+    private String[] pins;
+    private long[][] vectors; // [evaluation][pin]
+    private boolean sequential;
+    private boolean computer;
+
+    /**
+     * Gate evaluations, reported by JMH per second.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Counters {
+        public long gateEvaluations;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            gateEvaluations = 0;
+        }
+    }
+
+    @Setup
+    public void setUp() throws HdlErrorException, LexerErrorException, ParserErrorException, EmitterErrorException {
+        var library = ChipLibrary.ofProject(Paths.get(System.getProperty("hdl.project", "../..")));
+        computer = chip.equals(COMPUTER);
+        var netlist = new Elaborator(library, computer ? Elaborator.Mode.BEHAVIORAL_MEMORY : Elaborator.Mode.GATE_LEVEL)
+                .elaborate(chip);
+        simulator = compiled ? NetlistCompiler.compile(netlist) : new Simulator(netlist);
+        sequential = netlist.getDffCount() > 0 || !netlist.getMemories().isEmpty();
+        pins = netlist.getInputs().keySet().toArray(new String[0]);
+        vectors = new long[EVALUATIONS][pins.length];
+        if (computer) { // the reset stays false
+            var rom = new RomEmitter();
+            new Parser(new Lexer(Inputs.load(Inputs.PONG)), rom).parse();
+            System.arraycopy(rom.getWords(), 0, simulator.getMemory(MemoryModel.ROM32K), 0, rom.getWords().length);
+            return;
+        }
+        var random = new Random(SEED);
+        for (var vector : vectors) {
+            for (int pin = 0; pin < pins.length; pin++) {
+                vector[pin] = random.nextLong();
+            }
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(EVALUATIONS)
+    public long evaluate(Counters counters) {
+        var before = simulator.getGateEvaluations();
+        for (var vector : vectors) {
+            for (int pin = 0; pin < pins.length; pin++) {
+                simulator.setInput(pins[pin], vector[pin]);
+            }
+            if (sequential) {
+                simulator.tick();
+            } else {
+                simulator.evaluate();
+            }
+        }
+        counters.gateEvaluations += simulator.getGateEvaluations() - before;
+        if (computer) {
+            return simulator.getMemory(MemoryModel.SCREEN)[0];
+        }
+        return simulator.getOutput(sequential ? "pc" : "out");
+    }
+}
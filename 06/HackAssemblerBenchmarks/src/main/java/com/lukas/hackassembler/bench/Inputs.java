@@ -0,0 +1,109 @@
+package com.lukas.hackassembler.bench;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.Random;
+
+/**
+ * The benchmark inputs - the checked-in programs (packaged as resources) and the generated synthetic ones.
+ */
+public final class Inputs {
+    /**
+     * Names of all the inputs, for the benchmark parameters.
+     */
+    public static final String ADD = "Add";
+    public static final String MULT = "Mult";
+    public static final String MAX = "Max";
+    public static final String RECT = "Rect";
+    public static final String PONG = "Pong";
+    public static final String PONG_L = "PongL";
+    public static final String SYNTHETIC_100K = "Synthetic100K";
+    public static final String SYNTHETIC_1M = "Synthetic1M";
+
+    private static final String[] COMPUTATIONS = {"0", "1", "-1", "D", "A", "M", "!D", "-A", "D+1", "M-1", "D+A",
+            "D-M", "M-D", "D&A", "D|M"};
+    private static final String[] DESTINATIONS = {"M", "D", "MD", "A", "AM", "AD", "AMD"};
+    private static final String[] JUMPS = {"JGT", "JEQ", "JGE", "JLT", "JNE", "JLE", "JMP"};
+    private static final int LABEL_INTERVAL = 50; // instructions
+    private static final int VARIABLE_COUNT = 500;
+
+    private Inputs() {
+    }
+
+    /**
+     * @param name name of the input
+     * @return the input bytes
+     */
+    public static byte[] load(String name) {
+        switch (name) {
+            case SYNTHETIC_100K:
+                return synthetic(100_000);
+            case SYNTHETIC_1M:
+                return synthetic(1_000_000);
+            default:
+                return resource(name.replaceAll("L$", "").toLowerCase(Locale.ROOT) + "/" + name + ".asm");
+        }
+    }
+
+    /**
+     * Generates a valid program with the given number of lines - a deterministic mix of A- and C-instructions,
+     * labels, their forward and backward references, variables, comments and empty lines.
+     *
+     * @param lineCount number of lines
+     * @return the program bytes
+     */
+    public static byte[] synthetic(int lineCount) {
+        var random = new Random(lineCount);
+        var builder = new StringBuilder(lineCount * 12);
+        var instructionCount = 0;
+        var labelCount = 0;
+        for (int line = 0; line < lineCount; line++) {
+            if (instructionCount / LABEL_INTERVAL >= labelCount) {
+                builder.append("(LABEL_").append(labelCount++).append(")\n");
+                continue;
+            }
+
+            var kind = random.nextInt(20);
+            if (kind < 2) {
+                builder.append("// comment ").append(line).append('\n');
+            } else if (kind < 4) {
+                builder.append('\n');
+            } else if (kind < 8) {
+                // backward and forward references, the few never declared at the end become variables
+                var label = instructionCount / LABEL_INTERVAL + random.nextInt(5) - 2;
+                builder.append("    @LABEL_").append(Math.max(label, 0)).append('\n');
+                instructionCount++;
+            } else if (kind < 11) {
+                builder.append("    @var").append(random.nextInt(VARIABLE_COUNT)).append('\n');
+                instructionCount++;
+            } else if (kind < 13) {
+                builder.append("    @").append(random.nextInt(32768)).append('\n');
+                instructionCount++;
+            } else {
+                builder.append("    ");
+                if (random.nextBoolean()) {
+                    builder.append(DESTINATIONS[random.nextInt(DESTINATIONS.length)]).append('=');
+                }
+                builder.append(COMPUTATIONS[random.nextInt(COMPUTATIONS.length)]);
+                if (random.nextInt(4) == 0) {
+                    builder.append(';').append(JUMPS[random.nextInt(JUMPS.length)]);
+                }
+                builder.append('\n');
+                instructionCount++;
+            }
+        }
+        return builder.toString().getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private static byte[] resource(String path) {
+        try (InputStream stream = Inputs.class.getClassLoader().getResourceAsStream(path)) {
+            return Objects.requireNonNull(stream, "Missing input resource: " + path).readAllBytes();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.lukas.hackassembler.bench;
+
+import com.lukas.hackassembler.emit.InMemoryEmitter;
+import com.lukas.hackassembler.exception.EmitterErrorException;
+import com.lukas.hackassembler.exception.LexerErrorException;
+import com.lukas.hackassembler.exception.ParserErrorException;
+import com.lukas.hackassembler.lex.Lexer;
+import com.lukas.hackassembler.model.AInstruction;
+import com.lukas.hackassembler.model.CInstruction;
+import com.lukas.hackassembler.model.LabelDeclaration;
+import com.lukas.hackassembler.model.Statement;
+import com.lukas.hackassembler.parse.InstructionAssembler;
+import com.lukas.hackassembler.parse.Parser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of assembling the same program from its text, from the statement objects and from the compact stream
+ * of the {@link InstructionAssembler} - what a code generator saves by not formatting and lexing its output.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class InstructionAssemblerBenchmark {
+    @Param({Inputs.PONG, Inputs.SYNTHETIC_1M})
+    public String input;
+
+    private byte[] bytes;
+    private List<Statement> statements;
+    private String[] symbols; // of the stream, in the order of their handles
+    private int[] stream;
+
+    @Setup
+    public void setUp() throws LexerErrorException, ParserErrorException {
+        bytes = Inputs.load(input);
+        statements = new Parser(new Lexer(bytes)).parseStatements();
+
+        // the handles are assigned by each assembler, but the same symbols in the same order get the same ones
+        var handles = new InstructionAssembler(new InMemoryEmitter());
+        var names = new LinkedHashSet<String>();
+        stream = new int[statements.size()];
+        for (int i = 0; i < statements.size(); i++) {
+            var statement = statements.get(i);
+            if (statement instanceof LabelDeclaration) {
+                var label = ((LabelDeclaration) statement).getLabel();
+                names.add(label);
+                stream[i] = InstructionAssembler.declaration(handles.symbol(label));
+            } else if (statement instanceof AInstruction && ((AInstruction) statement).isSymbolic()) {
+                var symbol = ((AInstruction) statement).getSymbol();
+                names.add(symbol);
+                stream[i] = InstructionAssembler.reference(handles.symbol(symbol));
+            } else if (statement instanceof AInstruction) {
+                stream[i] = ((AInstruction) statement).getValue();
+            } else {
+                var instruction = (CInstruction) statement;
+                stream[i] = InstructionAssembler.computation(instruction.getDest(), instruction.getComp(),
+                        instruction.getJump());
+            }
+        }
+        symbols = names.toArray(new String[0]);
+    }
+
+    @Benchmark
+    public int text() throws LexerErrorException, ParserErrorException, EmitterErrorException {
+        var parser = new Parser(new Lexer(bytes), new InMemoryEmitter());
+        parser.parse();
+        return parser.getInstructionCount();
+    }
+
+    @Benchmark
+    public int statements() throws ParserErrorException, EmitterErrorException {
+        var assembler = new InstructionAssembler(new InMemoryEmitter());
+        for (var statement : statements) {
+            assembler.add(statement);
+        }
+        assembler.finish();
+        return assembler.getInstructionCount();
+    }
+
+    @Benchmark
+    public int stream() throws ParserErrorException, EmitterErrorException {
+        var assembler = new InstructionAssembler(new InMemoryEmitter());
+        for (var symbol : symbols) {
+            assembler.symbol(symbol);
+        }
+        assembler.append(stream, 0, stream.length);
+        assembler.finish();
+        return assembler.getInstructionCount();
+    }
+}
@@ -0,0 +1,59 @@
+package com.lukas.hackassembler.bench;
+
+import com.lukas.hackassembler.exception.LexerErrorException;
+import com.lukas.hackassembler.lex.Lexer;
+import com.lukas.hackassembler.model.TokenType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of lexing a whole input, through the allocating {@link Lexer#getToken()} and the span-based
+ * {@link Lexer#nextToken()}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class LexerBenchmark {
+    @Param({Inputs.ADD, Inputs.MAX, Inputs.RECT, Inputs.PONG, Inputs.PONG_L, Inputs.SYNTHETIC_100K, Inputs.SYNTHETIC_1M})
+    public String input;
+
+    private byte[] bytes;
+
+    @Setup
+    public void setUp() {
+        bytes = Inputs.load(input);
+    }
+
+    @Benchmark
+    public void getToken(Blackhole blackhole) throws LexerErrorException {
+        var lexer = new Lexer(bytes);
+        for (var token = lexer.getToken(); token.getType() != TokenType.EOF; token = lexer.getToken()) {
+            blackhole.consume(token);
+        }
+    }
+
+    @Benchmark
+    public int nextToken() throws LexerErrorException {
+        var lexer = new Lexer(bytes);
+        var spans = 0;
+        while (lexer.nextToken() != TokenType.EOF) {
+            spans += lexer.getTokenStart() + lexer.getTokenLength();
+        }
+        return spans;
+    }
+}
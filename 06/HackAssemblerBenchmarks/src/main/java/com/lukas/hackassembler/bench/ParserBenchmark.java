@@ -0,0 +1,87 @@
+package com.lukas.hackassembler.bench;
+
+import com.lukas.hackassembler.exception.EmitterErrorException;
+import com.lukas.hackassembler.exception.LexerErrorException;
+import com.lukas.hackassembler.exception.ParserErrorException;
+import com.lukas.hackassembler.lex.Lexer;
+import com.lukas.hackassembler.parse.Parser;
+import com.lukas.hackassembler.pipeline.AsyncEmitter;
+import com.lukas.hackassembler.pipeline.PipelinedLexer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of the whole parsing (lexing, both passes and emitting), with each of the emitters, optionally with
+ * the lexing and the emitting pipelined on their own threads.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ParserBenchmark {
+    @Param({Inputs.ADD, Inputs.MAX, Inputs.RECT, Inputs.PONG, Inputs.PONG_L, Inputs.SYNTHETIC_100K, Inputs.SYNTHETIC_1M})
+    public String input;
+
+    @Param
+    public EmitterType emitter;
+
+    @Param
+    public Parser.PassMode passMode;
+
+    @Param({"false", "true"})
+    public boolean pipelined;
+
+    private byte[] bytes;
+    private Path outputDir;
+    private String outputName;
+    private PrintStream originalConsole;
+
+    @Setup
+    public void setUp() throws IOException {
+        bytes = Inputs.load(input);
+        outputDir = Files.createTempDirectory("parser-benchmark");
+        outputName = outputDir.resolve("output").toString();
+        originalConsole = EmitterType.silenceConsole();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        System.setOut(originalConsole);
+        Files.deleteIfExists(outputDir.resolve("output.hack"));
+        Files.delete(outputDir);
+    }
+
+    @Benchmark
+    public int parse() throws LexerErrorException, ParserErrorException, EmitterErrorException {
+        if (pipelined) {
+            try (var lexer = new PipelinedLexer(ByteBuffer.wrap(bytes))) {
+                var parser = new Parser(lexer, new AsyncEmitter(emitter.create(outputName)), passMode);
+                parser.parse();
+                return parser.getInstructionCount();
+            }
+        }
+
+        var parser = new Parser(new Lexer(bytes), emitter.create(outputName), passMode);
+        parser.parse();
+        return parser.getInstructionCount();
+    }
+}
@@ -0,0 +1,74 @@
+package com.lukas.hackassembler.bench;
+
+import com.lukas.hackassembler.emit.Emitter;
+import com.lukas.hackassembler.exception.EmitterErrorException;
+import com.lukas.hackassembler.exception.LexerErrorException;
+import com.lukas.hackassembler.exception.ParserErrorException;
+import com.lukas.hackassembler.lex.Lexer;
+import com.lukas.hackassembler.parse.Parser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of one pass over the input without any output - the single-pass parsing into an emitter discarding
+ * the words. Through the public API it's the closest to the label scanning of the first pass, which also tokenizes
+ * the whole input once, so it's measured only once per input, not with each of the emitters.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SinglePassBenchmark {
+    @Param({Inputs.ADD, Inputs.MAX, Inputs.RECT, Inputs.PONG, Inputs.PONG_L, Inputs.SYNTHETIC_100K, Inputs.SYNTHETIC_1M})
+    public String input;
+
+    private byte[] bytes;
+
+    @Setup
+    public void setUp() {
+        bytes = Inputs.load(input);
+    }
+
+    @Benchmark
+    public int parse() throws LexerErrorException, ParserErrorException, EmitterErrorException {
+        var parser = new Parser(new Lexer(bytes), new DiscardingEmitter(), Parser.PassMode.SINGLE_PASS);
+        parser.parse();
+        return parser.getInstructionCount();
+    }
+
+    private static final class DiscardingEmitter implements Emitter {
+        @Override
+        public void emitLine(String line) {
+        }
+
+        @Override
+        public void emitString(String str) {
+        }
+
+        @Override
+        public void emitWord(int word) {
+        }
+
+        @Override
+        public String getOutput() {
+            return "";
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}